@@ -508,7 +508,7 @@ def evaluate(ctx, program, report, timeout, iterations, with_python):
 )
 @click.option(
     "--decompile / --no-decompile",
-    help="decompile the classfiles using jvm2json.",
+    help="decompile the classfiles into the json format of jvm2json.",
     default=None,
 )
 @click.option(
@@ -531,63 +531,56 @@ def build(suite, compile, decompile, document, test, docker):
         document = document is None
         test = test is None
 
-    dockerbin = shutil.which("podman") or shutil.which("docker")
-
-    if not dockerbin:
-        raise click.UsageError("No docker or podman on PATH")
-
-    log.info(f"Using docker: {dockerbin}")
-
-    cmd = [
-        dockerbin,
-        "run",
-        "--rm",
-        "-v",
-        f"{suite.workfolder}:/workspace",
-        docker,
-    ]
+    if compile or decompile:
+        javabin = shutil.which("java")
+        if not javabin:
+            raise click.UsageError("No java on PATH")
 
     if compile:
         log.info("Compiling")
         run(
-            cmd
-            + ["javac", "-d", "target/classes"]
-            + list(a.relative_to(suite.workfolder) for a in suite.sourcefiles()),
+            [
+                javabin,
+                suite.sourcefiles_folder / "jpamb" / "Build.java",
+                suite.workfolder,
+            ],
             logerr=log.warning,
-            logout=log.info,
             timeout=600,
         )
 
-        log.info("Building Stats")
+        # TODO: Compute distribution.csv
 
-        res, x = run(
-            cmd + ["java", "-cp", "target/classes", "jpamb.Runtime"],
-            logout=log.info,
-            logerr=log.debug,
-            timeout=60,
-        )
-        suite.case_file.parent.mkdir(exist_ok=True, parents=True)
-        suite.case_file.write_text("\n".join(sorted(res.splitlines())))
+    if test:
+        dockerbin = shutil.which("podman") or shutil.which("docker")
 
-        # TODO: Compute distribution.csv
+        if not dockerbin:
+            raise click.UsageError("No docker or podman on PATH")
+
+        log.info(f"Using docker: {dockerbin}")
+
+        cmd = [
+            dockerbin,
+            "run",
+            "--rm",
+            "-v",
+            f"{suite.workfolder}:/workspace",
+            docker,
+        ]
 
     if decompile:
         log.info("Decompiling")
-        for cl in suite.classes():
-            log.info(f"Decompiling {cl}")
-            res, t = run(
-                cmd
-                + [
-                    "jvm2json",
-                    "-s",
-                    suite.classfile(cl).relative_to(suite.workfolder),
-                ],
-                logerr=log.warning,
-            )
-            file = suite.decompiledfile(cl)
-            file.parent.mkdir(exist_ok=True, parents=True)
-            with open(file, "w") as f:
-                json.dump(json.loads(res), f, indent=2, sort_keys=True)
+        run(
+            [
+                javabin,
+                "-cp",
+                suite.classfiles_folder,
+                "jpamb.classfile.Decompiler",
+                suite.classfiles_folder,
+                suite.decompiled_folder,
+            ],
+            logerr=log.info,
+            timeout=600,
+        )
         log.success("Done decompiling")
 
     if document:
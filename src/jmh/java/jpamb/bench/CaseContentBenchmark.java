@@ -0,0 +1,42 @@
+package jpamb.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import jpamb.utils.CaseContent;
+
+/** Parsing and printing cases with {@link CaseContent}. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CaseContentBenchmark {
+
+  @Param({
+      "() -> ok",
+      "(0) -> divide by zero",
+      "([C:'h', 'e', 'l', 'l', 'o']) -> ok",
+      "(\"foo\", \"bar\") -> ok",
+  })
+  String line;
+
+  CaseContent content;
+
+  @Setup
+  public void setup() {
+    content = CaseContent.parse(line);
+  }
+
+  @Benchmark
+  public CaseContent parse() {
+    return CaseContent.parse(line);
+  }
+
+  @Benchmark
+  public String print() {
+    return content.toString();
+  }
+}
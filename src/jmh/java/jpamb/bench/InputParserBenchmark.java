@@ -0,0 +1,53 @@
+package jpamb.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import jpamb.utils.InputParser;
+
+/** Parsing inputs of different shapes with {@link InputParser#parse}. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InputParserBenchmark {
+
+  @Param({ "1000" })
+  int arrayLength;
+
+  String small;
+  String largeArray;
+  String strings;
+
+  @Setup
+  public void setup() {
+    small = "(1, -2, true, 'a')";
+    StringBuilder b = new StringBuilder("([I:");
+    for (int i = 0; i < arrayLength; i++) {
+      if (i > 0) {
+        b.append(", ");
+      }
+      b.append(i * 7919 % 100003 - 50000);
+    }
+    largeArray = b.append("])").toString();
+    strings = "(\"hello world\", \"the quick brown fox jumps over the lazy dog\", \"\")";
+  }
+
+  @Benchmark
+  public Object[] small() {
+    return InputParser.parse(small);
+  }
+
+  @Benchmark
+  public Object[] largeArray() {
+    return InputParser.parse(largeArray);
+  }
+
+  @Benchmark
+  public Object[] strings() {
+    return InputParser.parse(strings);
+  }
+}
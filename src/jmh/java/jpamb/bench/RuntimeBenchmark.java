@@ -0,0 +1,73 @@
+package jpamb.bench;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import jpamb.Invoker;
+import jpamb.Runtime;
+import jpamb.utils.CaseContent.ResultType;
+import jpamb.utils.Descriptor;
+import jpamb.utils.InputParser;
+
+/**
+ * Resolving and running cases through {@link Runtime}. The
+ * {@code methodInvoke} benchmark is the plain reflective call, which
+ * {@code run} should beat.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-ea")
+@State(Scope.Benchmark)
+public class RuntimeBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Signatures {
+    @Param({ "I", "I[CLjava/lang/String;", "[[JZD" })
+    String params;
+  }
+
+  final String id = "jpamb.cases.Simple.divideByN:(I)I";
+  final String input = "(1)";
+
+  Invoker invoker;
+  Method method;
+  Object[] args;
+
+  @Setup
+  public void setup() throws Exception {
+    invoker = Runtime.resolve(id);
+    method = jpamb.cases.Simple.class.getMethod("divideByN", int.class);
+    args = InputParser.parse(input);
+  }
+
+  /** A lookup in the cache of {@link Descriptor}, as every call after the first. */
+  @Benchmark
+  public Class<?>[] parseMethodSignature(Signatures s) {
+    return Runtime.parseMethodSignature(s.params);
+  }
+
+  /** Parsing the signature itself, as the first call does. */
+  @Benchmark
+  public Class<?>[] parseMethodSignatureUncached(Signatures s) {
+    return Descriptor.parse(s.params);
+  }
+
+  @Benchmark
+  public ResultType resolveParseAndRun() throws Exception {
+    return Runtime.run(Runtime.resolve(id), InputParser.parse(input));
+  }
+
+  @Benchmark
+  public ResultType run() {
+    return Runtime.run(invoker, args);
+  }
+
+  @Benchmark
+  public Object methodInvoke() throws Exception {
+    return method.invoke(null, args);
+  }
+}
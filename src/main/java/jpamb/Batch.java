@@ -0,0 +1,119 @@
+package jpamb;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import jpamb.utils.CaseContent.ResultType;
+
+/**
+ * Runs every case of a cases file, in the format of
+ * {@code target/stats/cases.txt}, in a single JVM.
+ *
+ * Each case is reported on its own line as the method id, the input, the
+ * observed result and the nanoseconds it took to run, e.g.
+ * {@code jpamb.cases.Simple.divideByN:(I)I (0) -> divide by zero 10523}.
+ * Cases that cannot be run are reported as {@code error: ...} instead of
+ * the result, and do not stop the batch. Cases that do not terminate are
+ * only stopped by the budget of {@link Runtime#watchdog}, which is why
+ * {@code Runtime --batch} expects {@code --timeout}.
+ */
+public class Batch {
+
+  public static void run(Path file, PrintStream out) throws IOException {
+    try (var in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      run(in, out);
+    }
+  }
+
+  public static void run(Path file, PrintStream out, WorkerPool pool)
+      throws IOException, InterruptedException {
+    try (var in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      run(in, out, pool);
+    }
+  }
+
+  /**
+   * Run the cases on a pool of workers, keeping a few cases in flight per
+   * worker. The results are printed in the order of the cases, and the
+   * elapsed time includes the round trip to the worker.
+   */
+  public static void run(BufferedReader in, PrintStream out, WorkerPool pool)
+      throws IOException, InterruptedException {
+    var pending = new ArrayDeque<Future<String>>();
+    String line;
+    while ((line = in.readLine()) != null) {
+      line = line.strip();
+      if (line.isEmpty()) {
+        continue;
+      }
+      int space = line.indexOf(' ');
+      int arrow = line.lastIndexOf("->");
+      if (space < 0 || arrow < space) {
+        pending.add(CompletableFuture.completedFuture(
+            String.format("%-60s error: invalid case", line)));
+      } else {
+        String id = line.substring(0, space);
+        String input = line.substring(space, arrow).strip();
+        pending.add(pool.submit(() -> {
+          long start = System.nanoTime();
+          String result = pool.answer(id + " " + input);
+          long elapsed = System.nanoTime() - start;
+          return String.format("%-60s %s -> %s %d", id, input, result, elapsed);
+        }));
+      }
+      while (pending.size() > 4 * pool.size()) {
+        out.println(await(pending.poll()));
+      }
+    }
+    while (!pending.isEmpty()) {
+      out.println(await(pending.poll()));
+    }
+    out.flush();
+  }
+
+  private static String await(Future<String> result) throws InterruptedException {
+    try {
+      return result.get();
+    } catch (ExecutionException e) {
+      return "error: " + String.valueOf(e.getCause().getMessage()).replace('\n', ' ');
+    }
+  }
+
+  public static void run(BufferedReader in, PrintStream out) throws IOException {
+    String line;
+    while ((line = in.readLine()) != null) {
+      line = line.strip();
+      if (line.isEmpty()) {
+        continue;
+      }
+      int space = line.indexOf(' ');
+      int arrow = line.lastIndexOf("->");
+      if (space < 0 || arrow < space) {
+        out.printf("%-60s error: invalid case%n", line);
+        continue;
+      }
+      String id = line.substring(0, space);
+      String input = line.substring(space, arrow).strip();
+      String result;
+      long elapsed = 0;
+      try {
+        var invoker = Runtime.resolve(id);
+        Object[] params = Runtime.parse(invoker, input);
+        long start = System.nanoTime();
+        ResultType type = Runtime.run(invoker, params);
+        elapsed = System.nanoTime() - start;
+        result = type.toString();
+      } catch (Exception e) {
+        result = "error: " + String.valueOf(e.getMessage()).replace('\n', ' ');
+      }
+      out.printf("%-60s %s -> %s %d%n", id, input, result, elapsed);
+    }
+    out.flush();
+  }
+}
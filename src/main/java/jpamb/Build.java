@@ -0,0 +1,372 @@
+package jpamb;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import javax.annotation.processing.Processor;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.Trees;
+
+/**
+ * Builds the benchmark suite in one JVM, with the system Java compiler
+ * instead of a {@code javac} in a container. It compiles
+ * {@code src/main/java} to {@code target/classes}, and then runs
+ * {@link jpamb.utils.CaseProcessor} over the classes in
+ * {@link Runtime#caseclasses}, which writes the case index, the dispatcher
+ * and {@code target/stats/cases.txt}.
+ *
+ * <pre>
+ * java src/main/java/jpamb/Build.java [--clean] [project folder]
+ * </pre>
+ *
+ * The build only needs the JDK, so it runs from its source file without
+ * anything compiled first. It is incremental: the SHA-256 of every source,
+ * the classes it produced and the classes it uses are kept in
+ * {@code target/classes/.sources}. Only sources whose hash has changed are
+ * compiled, together with the sources that use a class from a changed or
+ * removed source, against the classes of the last build. With
+ * {@code --clean} everything is compiled.
+ */
+public final class Build {
+  /** Bump when the state file changes, so the state of the last build is not trusted. */
+  private static final String FORMAT = "# jpamb build 1";
+  /** The Java release the classes are compiled for, whatever JDK runs the build. */
+  private static final String RELEASE = "17";
+
+  /** What the last build knew about a source. */
+  record Unit(String hash, Set<String> classes, Set<String> uses) {
+  }
+
+  private final Path sources;
+  private final Path classes;
+  private final Path generated;
+  private final Path cases;
+  private final Path stateFile;
+  private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+  Build(Path project) {
+    project = project.toAbsolutePath().normalize();
+    sources = project.resolve("src/main/java");
+    classes = project.resolve("target/classes");
+    generated = project.resolve("target/generated-sources");
+    cases = project.resolve("target/stats/cases.txt");
+    stateFile = classes.resolve(".sources");
+  }
+
+  public static void main(String[] args) throws Exception {
+    boolean clean = args.length > 0 && args[0].equals("--clean");
+    if (clean) {
+      args = Arrays.copyOfRange(args, 1, args.length);
+    }
+    if (args.length > 1) {
+      throw new RuntimeException("Expected [--clean] [project folder]");
+    }
+    if (!new Build(Path.of(args.length == 1 ? args[0] : ".")).run(clean)) {
+      System.exit(1);
+    }
+  }
+
+  /** Build the project, and return false if it did not compile. */
+  boolean run(boolean clean) throws Exception {
+    if (compiler == null) {
+      throw new RuntimeException("Expected to run on a JDK, not a JRE");
+    }
+    Map<String, Unit> previous = clean ? new HashMap<>() : readState();
+    Map<String, String> hashes = new TreeMap<>();
+    try (Stream<Path> walk = Files.walk(sources)) {
+      for (Path file : (Iterable<Path>) walk.filter(p -> p.toString().endsWith(".java"))::iterator) {
+        hashes.put(sources.relativize(file).toString().replace('\\', '/'), hash(Files.readAllBytes(file)));
+      }
+    }
+
+    // The sources that changed or were removed since the last build.
+    Set<String> stale = new HashSet<>();
+    for (var e : previous.entrySet()) {
+      if (!e.getValue().hash().equals(hashes.get(e.getKey()))) {
+        stale.add(e.getKey());
+      }
+    }
+    Set<String> compile = new TreeSet<>();
+    for (String source : hashes.keySet()) {
+      if (!previous.containsKey(source) || stale.contains(source)) {
+        compile.add(source);
+      }
+    }
+    Set<String> changed = new HashSet<>();
+    for (String source : stale) {
+      for (String cls : previous.get(source).classes()) {
+        changed.add(topLevel(cls));
+      }
+    }
+    for (var e : previous.entrySet()) {
+      if (hashes.containsKey(e.getKey()) && !disjoint(e.getValue().uses(), changed)) {
+        compile.add(e.getKey());
+      }
+    }
+
+    Map<String, Unit> state = new TreeMap<>(previous);
+    state.keySet().retainAll(hashes.keySet());
+    for (String source : stale) {
+      deleteClasses(previous.get(source));
+    }
+    for (String source : compile) {
+      Unit last = state.remove(source);
+      if (last != null) {
+        deleteClasses(last);
+      }
+    }
+
+    if (!compile.isEmpty()) {
+      boolean compiled = compile(compile, hashes, state);
+      writeState(state);
+      if (!compiled) {
+        return false;
+      }
+    }
+    System.err.printf("Compiled %d of %d sources%n", compile.size(), hashes.size());
+    if (compile.isEmpty() && stale.isEmpty() && Files.exists(cases)) {
+      return true;
+    }
+    return index();
+  }
+
+  private boolean compile(Set<String> compile, Map<String, String> hashes, Map<String, Unit> state)
+      throws IOException {
+    var diagnostics = new DiagnosticCollector<JavaFileObject>();
+    Map<String, Set<String>> outputs = new HashMap<>();
+    Map<String, Set<String>> uses = new HashMap<>();
+    Files.createDirectories(classes);
+    try (StandardJavaFileManager standard = compiler.getStandardFileManager(diagnostics, null,
+        StandardCharsets.UTF_8)) {
+      var files = new ForwardingJavaFileManager<StandardJavaFileManager>(standard) {
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className,
+            JavaFileObject.Kind kind, FileObject sibling) throws IOException {
+          if (kind == JavaFileObject.Kind.CLASS && sibling != null) {
+            outputs.computeIfAbsent(source(sibling), k -> new TreeSet<>()).add(className);
+          }
+          return super.getJavaFileForOutput(location, className, kind, sibling);
+        }
+      };
+      var units = standard.getJavaFileObjectsFromPaths(compile.stream().map(sources::resolve).toList());
+      var task = (JavacTask) compiler.getTask(null, files, diagnostics,
+          List.of("--release", RELEASE, "-d", classes.toString(), "-cp", classes.toString(), "-proc:none",
+              "-implicit:none"),
+          null, units);
+      Trees trees = Trees.instance(task);
+      task.addTaskListener(new TaskListener() {
+        @Override
+        public void finished(TaskEvent e) {
+          if (e.getKind() == TaskEvent.Kind.ANALYZE) {
+            var used = uses.computeIfAbsent(source(e.getSourceFile()), k -> new TreeSet<>());
+            new TreePathScanner<Void, Void>() {
+              @Override
+              public Void visitIdentifier(IdentifierTree node, Void p) {
+                use(trees.getElement(getCurrentPath()), used);
+                return super.visitIdentifier(node, p);
+              }
+
+              @Override
+              public Void visitMemberSelect(MemberSelectTree node, Void p) {
+                use(trees.getElement(getCurrentPath()), used);
+                return super.visitMemberSelect(node, p);
+              }
+            }.scan(trees.getPath(e.getTypeElement()), null);
+          }
+        }
+      });
+      boolean ok = task.call();
+      report(diagnostics);
+      if (ok) {
+        for (String source : compile) {
+          state.put(source, new Unit(hashes.get(source), outputs.getOrDefault(source, Set.of()), Set.of()));
+        }
+        // Only the classes of the project matter when looking for dependents.
+        Set<String> project = new HashSet<>();
+        for (Unit unit : state.values()) {
+          for (String cls : unit.classes()) {
+            project.add(topLevel(cls));
+          }
+        }
+        for (String source : compile) {
+          Set<String> used = new TreeSet<>(uses.getOrDefault(source, Set.of()));
+          used.retainAll(project);
+          for (String cls : state.get(source).classes()) {
+            used.remove(topLevel(cls));
+          }
+          state.put(source, new Unit(hashes.get(source), state.get(source).classes(), used));
+        }
+      }
+      return ok;
+    }
+  }
+
+  /** Record the top-level class of a used element. */
+  private static void use(Element element, Set<String> used) {
+    while (element != null && !(element instanceof PackageElement)) {
+      if ((element.getKind().isClass() || element.getKind().isInterface())
+          && element.getEnclosingElement() instanceof PackageElement) {
+        used.add(((TypeElement) element).getQualifiedName().toString());
+        return;
+      }
+      element = element.getEnclosingElement();
+    }
+  }
+
+  /**
+   * Run the case processor over the case classes, which writes the index,
+   * the dispatcher and the cases file.
+   */
+  private boolean index() throws Exception {
+    var diagnostics = new DiagnosticCollector<JavaFileObject>();
+    try (var loader = new URLClassLoader(new URL[] { classes.toUri().toURL() },
+        ClassLoader.getPlatformClassLoader());
+        StandardJavaFileManager files = compiler.getStandardFileManager(diagnostics, null,
+            StandardCharsets.UTF_8)) {
+      List<String> names = new ArrayList<>();
+      Field field = loader.loadClass("jpamb.Runtime").getDeclaredField("caseclasses");
+      field.setAccessible(true);
+      for (Object cls : (List<?>) field.get(null)) {
+        names.add(((Class<?>) cls).getName());
+      }
+      var processor = (Processor) loader.loadClass("jpamb.utils.CaseProcessor")
+          .getDeclaredConstructor().newInstance();
+      Files.createDirectories(generated);
+      var task = compiler.getTask(null, files, diagnostics, List.of(
+          "--release", RELEASE,
+          "-d", classes.toString(),
+          "-s", generated.toString(),
+          "-cp", classes.toString(),
+          "-Ajpamb.classes=" + String.join(",", names),
+          "-Ajpamb.cases=" + cases),
+          names, List.of());
+      task.setProcessors(List.of(processor));
+      boolean ok = task.call();
+      report(diagnostics);
+      if (!ok) {
+        removeIndex(processor);
+      }
+      return ok;
+    }
+  }
+
+  /**
+   * Remove the cases file and the classes of the index. The processor writes
+   * them even when a case is invalid. Removing them means the next build
+   * finds no cases file and indexes again, instead of keeping a stale index.
+   */
+  private void removeIndex(Processor processor) throws ReflectiveOperationException, IOException {
+    Files.deleteIfExists(cases);
+    for (String name : List.of("INDEX", "DISPATCH")) {
+      Field generatedClass = processor.getClass().getDeclaredField(name);
+      generatedClass.setAccessible(true);
+      Files.deleteIfExists(classes.resolve(((String) generatedClass.get(null)).replace('.', '/') + ".class"));
+    }
+  }
+
+  private static void report(DiagnosticCollector<JavaFileObject> diagnostics) {
+    for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+      System.err.println(d);
+    }
+  }
+
+  private String source(FileObject file) {
+    return sources.relativize(Path.of(file.toUri()).toAbsolutePath().normalize()).toString().replace('\\', '/');
+  }
+
+  private static String topLevel(String binaryName) {
+    int dollar = binaryName.indexOf('$');
+    return dollar < 0 ? binaryName : binaryName.substring(0, dollar);
+  }
+
+  private static boolean disjoint(Set<String> a, Set<String> b) {
+    for (String s : a) {
+      if (b.contains(s)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void deleteClasses(Unit unit) throws IOException {
+    for (String cls : unit.classes()) {
+      Files.deleteIfExists(classes.resolve(cls.replace('.', '/') + ".class"));
+    }
+  }
+
+  private Map<String, Unit> readState() throws IOException {
+    Map<String, Unit> state = new HashMap<>();
+    if (!Files.exists(stateFile)) {
+      return state;
+    }
+    List<String> lines = Files.readAllLines(stateFile, StandardCharsets.UTF_8);
+    if (lines.isEmpty() || !lines.get(0).equals(FORMAT)) {
+      return state;
+    }
+    for (String line : lines.subList(1, lines.size())) {
+      String[] parts = line.split("\t", -1);
+      state.put(parts[1], new Unit(parts[0], split(parts[2]), split(parts[3])));
+    }
+    return state;
+  }
+
+  private static Set<String> split(String list) {
+    return list.isEmpty() ? Set.of() : new TreeSet<>(Arrays.asList(list.split(",")));
+  }
+
+  private void writeState(Map<String, Unit> state) {
+    StringBuilder b = new StringBuilder(FORMAT).append('\n');
+    state.forEach((source, unit) -> b.append(unit.hash()).append('\t').append(source)
+        .append('\t').append(String.join(",", unit.classes()))
+        .append('\t').append(String.join(",", unit.uses())).append('\n'));
+    try {
+      Files.writeString(stateFile, b, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static String hash(byte[] bytes) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package jpamb;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.UnaryOperator;
+
+
+/**
+ * The daemon keeps a single JVM alive and answers one case per line, so
+ * classes and methods stay loaded between requests.
+ *
+ * A request is a method id followed by an input, for example
+ * {@code jpamb.cases.Simple.divideByN:(I)I (0)}, and the answer is the
+ * result type, or a line starting with {@code error:} if the request could
+ * not be run. The request {@code ping} is answered with {@code pong}, once
+ * the daemon is ready, and {@code warm} with {@code warm}, once it has
+ * loaded every case and run one, so the first real case does not pay for
+ * class loading.
+ */
+public class Daemon {
+  /** A case that every build has, which {@code warm} runs. */
+  static final String WARM_CASE = "jpamb.cases.Simple.justReturn:()I";
+
+  public static String answer(String line) {
+    if (line.equals("ping")) {
+      return "pong";
+    } else if (line.equals("warm")) {
+      try {
+        warm();
+        return "warm";
+      } catch (Exception e) {
+        return "error: " + String.valueOf(e.getMessage()).replace('\n', ' ');
+      }
+    }
+    int space = line.indexOf(' ');
+    if (space < 0) {
+      return "error: expected a method id and an input";
+    }
+    String id = line.substring(0, space);
+    String input = line.substring(space + 1).strip();
+    try {
+      Invoker invoker = Runtime.resolve(id);
+      return Runtime.run(invoker, Runtime.parse(invoker, input)).toString();
+    } catch (Exception e) {
+      return "error: " + String.valueOf(e.getMessage()).replace('\n', ' ');
+    }
+  }
+
+  /** Resolve every case, which loads the case classes and the invokers, and run one. */
+  static void warm() throws ReflectiveOperationException {
+    for (Class<?> c : Runtime.caseclasses) {
+      for (Method m : c.getMethods()) {
+        if (Runtime.cases(m).length > 0) {
+          Runtime.resolve(c.getName() + "." + m.getName() + ":" + Runtime.printMethodSignature(m));
+        }
+      }
+    }
+    Invoker invoker = Runtime.resolve(WARM_CASE);
+    Runtime.run(invoker, Runtime.parse(invoker, "()"));
+  }
+
+  public static void serve(InputStream input, OutputStream output) throws IOException {
+    serve(input, output, Daemon::answer);
+  }
+
+  public static void serve(InputStream input, OutputStream output, UnaryOperator<String> answer)
+      throws IOException {
+    var in = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    var out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+    String line;
+    while ((line = in.readLine()) != null) {
+      if (line.isBlank()) {
+        continue;
+      }
+      out.println(answer.apply(line.strip()));
+      out.flush();
+    }
+  }
+
+  /**
+   * Listen on a unix domain socket, and serve the connections one at a
+   * time. The socket file is removed again when the daemon stops.
+   */
+  public static void listen(Path socket, UnaryOperator<String> answer) throws IOException {
+    Files.deleteIfExists(socket);
+    try (var server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+      server.bind(UnixDomainSocketAddress.of(socket));
+      while (true) {
+        try (SocketChannel client = server.accept()) {
+          serve(Channels.newInputStream(client), Channels.newOutputStream(client), answer);
+        }
+      }
+    } finally {
+      Files.deleteIfExists(socket);
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package jpamb;
+
+/**
+ * Calls case methods directly by number, without reflection. The
+ * implementation, {@code jpamb.CaseDispatch}, is generated by
+ * {@link jpamb.utils.CaseProcessor}.
+ */
+public interface Dispatcher {
+
+  /** The number of the method with this id, or -1 if it was not indexed. */
+  int lookup(String id);
+
+  int arity(int index);
+
+  void invoke(int index, Object[] args) throws Throwable;
+
+  /** The generated dispatcher, or null if the processor did not run. */
+  static Dispatcher load() {
+    try {
+      return (Dispatcher) Class.forName("jpamb.CaseDispatch").getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+}
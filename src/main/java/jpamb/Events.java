@@ -0,0 +1,101 @@
+package jpamb;
+
+import jdk.jfr.*;
+
+import jpamb.utils.CaseContent;
+import jpamb.utils.CaseContent.ResultType;
+
+/**
+ * Flight recorder events for the phases of running a case: resolving the
+ * method id, parsing the input, running the method, and classifying what it
+ * threw. They are recorded when the JVM runs with
+ * {@code -XX:StartFlightRecording}, under the category {@code jpamb}, so
+ * slow cases can be lined up with GC, JIT and safepoint events.
+ *
+ * The fields are only filled in when an event is going to be committed, so
+ * the events cost next to nothing when nothing is recording.
+ */
+final class Events {
+  private Events() {
+  }
+
+  @Name("jpamb.Lookup")
+  @Label("Case Lookup")
+  @Description("Resolving a method id to an invoker")
+  @Category("jpamb")
+  @StackTrace(false)
+  static final class Lookup extends Event {
+    @Label("Method Id")
+    String id;
+
+    @Label("Cached")
+    boolean cached;
+
+    @Label("Dispatched")
+    @Description("Whether the method is called through the generated dispatcher")
+    boolean dispatched;
+  }
+
+  @Name("jpamb.Parse")
+  @Label("Input Parsing")
+  @Category("jpamb")
+  @StackTrace(false)
+  static final class Parse extends Event {
+    @Label("Method Id")
+    String id;
+
+    @Label("Input")
+    String input;
+  }
+
+  @Name("jpamb.Invoke")
+  @Label("Case Invocation")
+  @Description("Running a case, including waiting for it to time out")
+  @Category("jpamb")
+  @StackTrace(false)
+  static final class Invoke extends Event {
+    @Label("Method Id")
+    String id;
+
+    @Label("Input")
+    String input;
+
+    @Label("Result")
+    String result;
+  }
+
+  @Name("jpamb.Classify")
+  @Label("Outcome Classification")
+  @Description("Mapping what a case threw to a result")
+  @Category("jpamb")
+  @StackTrace(false)
+  static final class Classify extends Event {
+    @Label("Method Id")
+    String id;
+
+    @Label("Input")
+    String input;
+
+    @Label("Thrown")
+    Class<?> thrown;
+
+    @Label("Result")
+    String result;
+  }
+
+  /** The result of a case that threw {@code e}, recorded as an event. */
+  static ResultType classify(String id, Object[] params, Throwable e) {
+    var event = new Classify();
+    event.begin();
+    ResultType result = ResultType.fromThrowable(e);
+    event.end();
+    if (event.shouldCommit()) {
+      event.id = id;
+      event.input = CaseContent.toInputsString(params);
+      event.thrown = e.getClass();
+      event.result = result.toString();
+      event.commit();
+    }
+    return result;
+  }
+}
@@ -0,0 +1,102 @@
+package jpamb;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+import jpamb.utils.Descriptor;
+import jpamb.utils.CaseContent.ResultType;
+
+/**
+ * A resolved case method, which can be run on parsed inputs any number of
+ * times.
+ */
+public interface Invoker {
+
+  ResultType invoke(Object[] params);
+
+  /** The method id, like {@code jpamb.cases.Simple.divideByN:(I)I}. */
+  String id();
+
+  static Invoker of(Method m) throws IllegalAccessException {
+    return Handle.of(m);
+  }
+
+  /**
+   * A case method adapted to a method handle of type
+   * {@code (Object[])Object}, so every case is called the same way, without
+   * going through {@link Method#invoke} on every run. The id is computed
+   * once, when the method is resolved.
+   */
+  record Handle(String id, Method method, MethodHandle handle) implements Invoker {
+    private static final MethodType UNIFORM = MethodType.methodType(Object.class, Object[].class);
+
+    public static Handle of(Method m) throws IllegalAccessException {
+      MethodHandle handle = MethodHandles.publicLookup()
+          .unreflect(m)
+          .asSpreader(Object[].class, m.getParameterCount())
+          .asType(UNIFORM);
+      String id = m.getDeclaringClass().getName() + "." + m.getName() + ":" + Descriptor.method(m);
+      return new Handle(id, m, handle);
+    }
+
+    @Override
+    public ResultType invoke(Object[] params) {
+      check(id, method.getParameterCount(), params);
+      try {
+        Object ignored = (Object) handle.invokeExact(params);
+      } catch (ArithmeticException | AssertionError | ArrayIndexOutOfBoundsException
+          | NullPointerException e) {
+        return Events.classify(id, params, e);
+      } catch (Throwable e) {
+        throw unexpected(id, e);
+      }
+      return ResultType.SUCCESS;
+    }
+
+    @Override
+    public String toString() {
+      return method.toString();
+    }
+  }
+
+  /** A case method called through the generated {@link Dispatcher}. */
+  record Dispatched(String id, Dispatcher dispatcher, int index) implements Invoker {
+
+    @Override
+    public ResultType invoke(Object[] params) {
+      check(id, dispatcher.arity(index), params);
+      try {
+        dispatcher.invoke(index, params);
+      } catch (ArithmeticException | AssertionError | ArrayIndexOutOfBoundsException
+          | NullPointerException e) {
+        return Events.classify(id, params, e);
+      } catch (Throwable e) {
+        throw unexpected(id, e);
+      }
+      return ResultType.SUCCESS;
+    }
+
+    @Override
+    public String toString() {
+      return id;
+    }
+  }
+
+  /**
+   * Anything but the exceptions that are results, see
+   * {@link ResultType#fromThrowable(Class)}, which is thrown by the case or
+   * by calling it with inputs of the wrong types.
+   */
+  private static RuntimeException unexpected(String id, Throwable e) {
+    return new RuntimeException("Unexpected " + e + " from " + id, e);
+  }
+
+  private static void check(String name, int arity, Object[] params) {
+    if (params.length != arity) {
+      throw new IllegalArgumentException(
+          "Expected " + arity + " inputs to " + name + ", got " + params.length);
+    }
+  }
+}
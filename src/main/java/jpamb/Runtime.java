@@ -1,19 +1,36 @@
 package jpamb;
 
+import java.io.PrintStream;
 import java.lang.reflect.*;
-import java.util.ArrayList;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.*;
 import java.util.stream.Stream;
 
+import jpamb.coverage.Coverage;
 import jpamb.utils.*;
 import jpamb.utils.CaseContent.ResultType;
 import jpamb.cases.*;
 
 /**
  * The runtime method runs a single test-case and print the result or the
- * exeception.
+ * exeception. With {@code --daemon [socket]} it instead stays alive and
+ * answers cases from stdin or a unix domain socket, see {@link Daemon}, and
+ * with {@code --batch <file>} it runs a whole cases file, see {@link Batch}.
+ * Any mode can be prefixed with {@code --timeout <seconds>} to report cases
+ * that run out of time as non-terminating, see {@link Watchdog}, and the
+ * batch mode requires it, as some cases of the suite never terminate. The
+ * daemon and batch modes can be prefixed with {@code --pool <n>} to run the
+ * cases on worker JVMs instead, see {@link WorkerPool}. In-process modes can also be
+ * prefixed with {@code --telemetry <file>}, to write what each case cost as
+ * JSON lines to the file, or to stderr for {@code -}, see {@link Telemetry}.
+ * When the coverage agent is attached, the blocks that ran are recorded for
+ * every case, see {@link Coverage}.
  */
 public class Runtime {
   static List<Class<?>> caseclasses = List.of(
@@ -37,100 +54,162 @@ public class Runtime {
   }
 
   public static void printType(Class<?> c, StringBuilder b) {
-    if (c.equals(void.class)) {
-      b.append("V");
-    } else if (c.equals(int.class)) {
-      b.append("I");
-    } else if (c.equals(boolean.class)) {
-      b.append("Z");
-    } else if (c.equals(double.class)) {
-      b.append("D");
-    } else if (c.equals(float.class)) {
-      b.append("F");
-    } else if (c.equals(char.class)) {
-      b.append("C");
-    } else if (c.equals(int[].class)) {
-      b.append("[I");
-    } else if (c.equals(char[].class)) {
-      b.append("[C");
-    } else if(c.equals(String.class)){
-      b.append("Ljava/lang/String;");
-    }else {
-      throw new RuntimeException("Unknown type:" + c.toString());
-    }
+    Descriptor.print(c, b);
   }
 
   public static String printMethodSignature(Method m) {
-    StringBuilder b = new StringBuilder();
-    b.append("(");
-    for (Class<?> c : m.getParameterTypes()) {
-      printType(c, b);
-    }
-    b.append(")");
-    printType(m.getReturnType(), b);
-    return b.toString();
+    return Descriptor.method(m);
   }
 
+  /**
+   * The parameter types of a parameter descriptor, like {@code I[C}. The
+   * result is cached, and must not be modified.
+   */
   public static Class<?>[] parseMethodSignature(String s) {
-    List<Class<?>> params = new ArrayList<>();
-    for (int i = 0; i < s.length(); i++) {
-      switch (s.charAt(i)) {
-        case 'I' -> {
-          params.add(int.class);
-          break;
-        }
-        case 'D' -> {
-          params.add(double.class);
-          break;
-        }
-        case 'Z' -> {
-          params.add(boolean.class);
-          break;
-        }
-        case 'L' -> {
-          int semicolonIndex = s.indexOf(';', i);
-          String className = s.substring(i + 1, semicolonIndex).replace('/', '.');
-          try {
-            params.add(Class.forName(className));
-          } catch (ClassNotFoundException e) {
-            throw new RuntimeException("Unknown class type: " + className);
-          }
-          i = semicolonIndex;
-          break;
-        }
-        case 'C' -> {
-          params.add(char.class);
-          break;
-        }
-        
-        case '[' -> {
-          i += 1;
-          switch (s.charAt(i)) {
-            case 'I' -> {
-              params.add(int[].class);
-              break;
-            }
-            case 'Z' -> {
-              params.add(boolean[].class);
-              break;
-            }
-            case 'C' -> {
-              params.add(char[].class);
-              break;
-            }
-          }
-        }
+    return Descriptor.parameters(s);
+  }
+
+  static final Pattern METHOD_ID = Pattern.compile("(.*)\\.([^.(]*):\\((.*)\\)(.*)");
+
+  static final Map<String, Invoker> invokers = new ConcurrentHashMap<>();
+
+  static final Dispatcher dispatcher = Dispatcher.load();
+
+  /**
+   * Resolve a method id like {@code jpamb.cases.Simple.divideByN:(I)I}. The
+   * result is cached, so repeated lookups of the same id are cheap. Methods
+   * known to the generated {@link Dispatcher} are called without reflection,
+   * all others through a method handle.
+   */
+  public static Invoker resolve(String thecase)
+      throws ClassNotFoundException, NoSuchMethodException, IllegalAccessException {
+    var event = new Events.Lookup();
+    event.begin();
+    Invoker invoker = invokers.get(thecase);
+    boolean cached = invoker != null;
+    if (!cached) {
+      invoker = lookup(thecase);
+      invokers.put(thecase, invoker);
+    }
+    event.end();
+    if (event.shouldCommit()) {
+      event.id = thecase;
+      event.cached = cached;
+      event.dispatched = invoker instanceof Invoker.Dispatched;
+      event.commit();
+    }
+    return invoker;
+  }
+
+  private static Invoker lookup(String thecase)
+      throws ClassNotFoundException, NoSuchMethodException, IllegalAccessException {
+    if (dispatcher != null) {
+      int index = dispatcher.lookup(thecase);
+      if (index >= 0) {
+        return new Invoker.Dispatched(thecase, dispatcher, index);
       }
     }
-    Class<?>[] rparams = new Class<?>[params.size()];
-    params.toArray(rparams);
+    Matcher matcher = METHOD_ID.matcher(thecase);
+    if (!matcher.find()) {
+      throw new RuntimeException("Invalid method id: " + thecase);
+    }
+    String cls = matcher.group(1);
+    String mth = matcher.group(2);
+    String prams = matcher.group(3);
+    Method m = Class.forName(cls).getMethod(mth, parseMethodSignature(prams));
+    if (!Modifier.isStatic(m.getModifiers())) {
+      throw new RuntimeException("Expected " + thecase + " to be static");
+    }
+    return Invoker.of(m);
+  }
 
-    return rparams;
+  /** Parse an input to the case method {@code invoker}. */
+  public static Object[] parse(Invoker invoker, String input) {
+    var event = new Events.Parse();
+    event.begin();
+    Object[] params = InputParser.parse(input);
+    event.end();
+    if (event.shouldCommit()) {
+      event.id = invoker.id();
+      event.input = input;
+      event.commit();
+    }
+    return params;
   }
 
-  public static void main(String[] args)
-      throws ClassNotFoundException, NoSuchMethodException, IllegalAccessException {
+  /**
+   * The time budget of each case, set with {@code --timeout <seconds>}. By
+   * default cases run on the calling thread without a budget.
+   */
+  static Watchdog watchdog = Watchdog.NONE;
+
+  /** Where to report what each case cost, set with {@code --telemetry}. */
+  static Telemetry telemetry = null;
+
+  public static ResultType run(Invoker invoker, Object[] params) {
+    boolean covered = Coverage.isAttached();
+    if (covered) {
+      Coverage.clear();
+    }
+    var event = new Events.Invoke();
+    event.begin();
+    ResultType result = telemetry != null
+        ? telemetry.run(watchdog, invoker, params)
+        : watchdog.run(invoker, params);
+    event.end();
+    if (event.shouldCommit()) {
+      event.id = invoker.id();
+      event.input = CaseContent.toInputsString(params);
+      event.result = result.toString();
+      event.commit();
+    }
+    if (covered) {
+      Coverage.record(invoker.id() + " " + CaseContent.toInputsString(params) + " -> " + result);
+    }
+    return result;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Duration timeout = Duration.ZERO;
+    int workers = 0;
+    String telemetryFile = null;
+    while (args.length > 1 && args[0].startsWith("--")) {
+      if (args[0].equals("--timeout")) {
+        timeout = Duration.ofMillis(Math.round(Double.parseDouble(args[1]) * 1000));
+      } else if (args[0].equals("--pool")) {
+        workers = Integer.parseInt(args[1]);
+      } else if (args[0].equals("--telemetry")) {
+        telemetryFile = args[1];
+      } else {
+        break;
+      }
+      args = Arrays.copyOfRange(args, 2, args.length);
+    }
+    if (args.length > 0 && args[0].equals("--batch") && timeout.isZero()) {
+      throw new RuntimeException("Expected --timeout with --batch, as the batch hangs on the first case that does not terminate");
+    }
+    if (workers > 0) {
+      if (telemetryFile != null) {
+        throw new RuntimeException("Expected --telemetry to be used without --pool");
+      }
+      if (timeout.isZero()) {
+        throw new RuntimeException("Expected --timeout with --pool, as a worker that hangs is only stopped by it");
+      }
+      runPooled(args, workers, timeout);
+      return;
+    }
+    if (!timeout.isZero()) {
+      watchdog = new Watchdog(timeout);
+    }
+    if (telemetryFile != null) {
+      telemetry = new Telemetry(telemetryFile.equals("-")
+          ? System.err
+          : new PrintStream(Files.newOutputStream(Path.of(telemetryFile)), false, "UTF-8"));
+    }
     if (args.length == 0) {
+      if (printIndex()) {
+        return;
+      }
       var mths = caseclasses.stream().flatMap(c -> Stream.of(c.getMethods())).toList();
       for (Method m : mths) {
         for (Case c : cases(m)) {
@@ -145,28 +224,66 @@ public class Runtime {
       }
       return;
     }
-    String thecase = args[0];
-    Pattern pattern = Pattern.compile("(.*)\\.([^.(]*):\\((.*)\\)(.*)");
-    Matcher matcher = pattern.matcher(thecase);
-    if (matcher.find()) {
-      String cls = matcher.group(1);
-      String mth = matcher.group(2);
-      String prams = matcher.group(3);
-      Method m = Class.forName(cls).getMethod(mth, parseMethodSignature(prams));
-      if (!Modifier.isStatic(m.getModifiers())) {
-        throw new RuntimeException("Expected " + pattern + " to be static");
+    if (args[0].equals("--daemon")) {
+      if (args.length > 1) {
+        Daemon.listen(Path.of(args[1]), Daemon::answer);
+      } else {
+        Daemon.serve(System.in, System.out);
       }
-      for (int i = 1; i < args.length; i++) {
-        Object[] params = InputParser.parse(args[i]);
-        System.err.printf("Running %s with %s%n", m, Arrays.toString(params));
-        try {
-          m.invoke(null, params);
-        } catch (InvocationTargetException e) {
-          System.out.println(ResultType.fromThrowable(e.getCause()));
-          return;
+      return;
+    }
+    if (args[0].equals("--batch")) {
+      if (args.length != 2) {
+        throw new RuntimeException("Expected --timeout <seconds> --batch <cases file>");
+      }
+      Batch.run(Path.of(args[1]), System.out);
+      return;
+    }
+    Invoker invoker = resolve(args[0]);
+    for (int i = 1; i < args.length; i++) {
+      Object[] params = parse(invoker, args[i]);
+      System.err.printf("Running %s with %s%n", invoker, Arrays.toString(params));
+      ResultType result = run(invoker, params);
+      if (result != ResultType.SUCCESS) {
+        System.out.println(result);
+        return;
+      }
+    }
+    System.out.println(ResultType.SUCCESS);
+  }
+
+  /**
+   * Print the cases from {@code jpamb.CaseIndex}, if the sources were
+   * compiled with {@link jpamb.utils.CaseProcessor}.
+   */
+  static boolean printIndex() throws IllegalAccessException, NoSuchFieldException {
+    Class<?> index;
+    try {
+      index = Class.forName("jpamb.CaseIndex");
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+    String[] ids = (String[]) index.getField("IDS").get(null);
+    String[] contents = (String[]) index.getField("CASES").get(null);
+    for (int i = 0; i < ids.length; i++) {
+      System.out.printf("%-60s %s%n", ids[i], contents[i]);
+    }
+    return true;
+  }
+
+  static void runPooled(String[] args, int workers, Duration timeout) throws Exception {
+    try (var pool = new WorkerPool(workers, timeout)) {
+      if (args.length > 0 && args[0].equals("--daemon")) {
+        if (args.length > 1) {
+          Daemon.listen(Path.of(args[1]), pool::answer);
+        } else {
+          Daemon.serve(System.in, System.out, pool::answer);
         }
+      } else if (args.length == 2 && args[0].equals("--batch")) {
+        Batch.run(Path.of(args[1]), System.out, pool);
+      } else {
+        throw new RuntimeException("Expected --pool to be used with --daemon or --batch");
       }
-      System.out.println(ResultType.SUCCESS);
     }
   }
 }
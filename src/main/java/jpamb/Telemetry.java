@@ -0,0 +1,144 @@
+package jpamb;
+
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+import jpamb.utils.CaseContent;
+import jpamb.utils.CaseContent.ResultType;
+import jpamb.utils.Json;
+
+/**
+ * Records what each case costs, and prints it as one JSON object per line,
+ * e.g.
+ *
+ * <pre>
+ * {"id":"jpamb.cases.Simple.divideByN:(I)I","input":"(0)","result":"divide by zero","wall_ns":340292,"cpu_ns":172977,"allocated_bytes":1648,"gc_count":0,"gc_ms":0}
+ * </pre>
+ *
+ * The CPU time and the allocated bytes are those of the thread that ran the
+ * case, and are {@code null} when the JVM cannot measure them, or when the
+ * case ran out of its time budget and was abandoned. The garbage collections
+ * are counted for the whole JVM, so they are only exact when a single case
+ * runs at a time.
+ */
+public class Telemetry {
+  private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+  private static final List<GarbageCollectorMXBean> collectors =
+      ManagementFactory.getGarbageCollectorMXBeans();
+
+  private final PrintStream out;
+
+  public Telemetry(PrintStream out) {
+    this.out = out;
+    if (threads.isCurrentThreadCpuTimeSupported() && !threads.isThreadCpuTimeEnabled()) {
+      threads.setThreadCpuTimeEnabled(true);
+    }
+  }
+
+  /** Run a case with the watchdog, and print what it cost. */
+  public ResultType run(Watchdog watchdog, Invoker invoker, Object[] params) {
+    var sample = new Sample(invoker);
+    long gcCount = gcCount();
+    long gcTime = gcTime();
+    long start = System.nanoTime();
+    ResultType result = watchdog.run(sample, params);
+    long wall = System.nanoTime() - start;
+    gcCount = gcCount() - gcCount;
+    gcTime = gcTime() - gcTime;
+
+    StringBuilder b = new StringBuilder();
+    b.append("{\"id\":");
+    Json.write(invoker.id(), b);
+    b.append(",\"input\":");
+    Json.write(CaseContent.toInputsString(params), b);
+    b.append(",\"result\":");
+    Json.write(result.toString(), b);
+    b.append(",\"wall_ns\":").append(wall);
+    b.append(",\"cpu_ns\":").append(sample.done ? number(sample.cpu) : "null");
+    b.append(",\"allocated_bytes\":").append(sample.done ? number(sample.allocated) : "null");
+    b.append(",\"gc_count\":").append(gcCount);
+    b.append(",\"gc_ms\":").append(gcTime);
+    b.append('}');
+    synchronized (out) {
+      out.println(b);
+      out.flush();
+    }
+    return result;
+  }
+
+  /**
+   * Measures the case on the thread that runs it, which is a worker thread
+   * of the watchdog when the cases have a time budget.
+   */
+  private static final class Sample implements Invoker {
+    private final Invoker invoker;
+    volatile boolean done;
+    long cpu = -1;
+    long allocated = -1;
+
+    Sample(Invoker invoker) {
+      this.invoker = invoker;
+    }
+
+    @Override
+    public ResultType invoke(Object[] params) {
+      long cpu = cpuTime();
+      long allocated = allocatedBytes();
+      ResultType result = invoker.invoke(params);
+      if (cpu >= 0) {
+        this.cpu = cpuTime() - cpu;
+      }
+      if (allocated >= 0) {
+        this.allocated = allocatedBytes() - allocated;
+      }
+      done = true;
+      return result;
+    }
+
+    @Override
+    public String id() {
+      return invoker.id();
+    }
+
+    @Override
+    public String toString() {
+      return invoker.toString();
+    }
+  }
+
+  private static long cpuTime() {
+    return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : -1;
+  }
+
+  private static long allocatedBytes() {
+    if (threads instanceof com.sun.management.ThreadMXBean sun
+        && sun.isThreadAllocatedMemorySupported()
+        && sun.isThreadAllocatedMemoryEnabled()) {
+      return sun.getCurrentThreadAllocatedBytes();
+    }
+    return -1;
+  }
+
+  private static long gcCount() {
+    long count = 0;
+    for (var gc : collectors) {
+      count += Math.max(0, gc.getCollectionCount());
+    }
+    return count;
+  }
+
+  private static long gcTime() {
+    long time = 0;
+    for (var gc : collectors) {
+      time += Math.max(0, gc.getCollectionTime());
+    }
+    return time;
+  }
+
+  private static String number(long x) {
+    return x < 0 ? "null" : Long.toString(x);
+  }
+}
@@ -0,0 +1,57 @@
+package jpamb;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+
+import jpamb.utils.CaseContent.ResultType;
+
+/**
+ * The watchdog gives every case a time budget. Cases run on worker threads,
+ * and a case that exceeds its budget is interrupted and abandoned, and
+ * reported as {@link ResultType#NON_TERMINATION}, so the JVM can move on to
+ * the next case without being restarted.
+ *
+ * Busy loops ignore the interrupt, so an abandoned worker keeps running
+ * until the JVM exits. The workers are daemon threads, so they never keep
+ * the JVM alive on their own.
+ */
+public class Watchdog {
+  public static final Watchdog NONE = new Watchdog(Duration.ZERO);
+
+  private final long budget;
+  private final ExecutorService workers = Executors.newCachedThreadPool(r -> {
+    Thread t = new Thread(r, "jpamb-case");
+    t.setDaemon(true);
+    return t;
+  });
+
+  public Watchdog(Duration budget) {
+    this.budget = budget.toNanos();
+  }
+
+  public ResultType run(Invoker invoker, Object[] params) {
+    if (budget <= 0) {
+      return invoker.invoke(params);
+    }
+    Future<ResultType> result = workers.submit(() -> invoker.invoke(params));
+    try {
+      return result.get(budget, TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      result.cancel(true);
+      return ResultType.fromThrowable(e);
+    } catch (InterruptedException e) {
+      result.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while running " + invoker, e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException re) {
+        throw re;
+      } else if (cause instanceof Error err) {
+        throw err;
+      } else {
+        throw new RuntimeException(cause);
+      }
+    }
+  }
+}
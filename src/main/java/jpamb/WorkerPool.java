@@ -0,0 +1,219 @@
+package jpamb;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import jpamb.utils.CaseContent.ResultType;
+
+/**
+ * A pool of worker JVMs, each running {@code jpamb.Runtime --daemon}, that
+ * cases are dispatched to over pipes.
+ *
+ * The workers are started up front, and are only handed cases once they
+ * answer a {@code ping} and have warmed up, see {@link Daemon}, so a case
+ * only pays for the round trip. A worker that does not answer within the
+ * time budget is killed and replaced by a fresh one, and the case is
+ * reported as {@link ResultType#NON_TERMINATION}. This keeps busy loops
+ * from leaking cores, which the in-process {@link Watchdog} cannot prevent.
+ * When a replacement cannot be started, the pool does not go on with fewer
+ * workers: every later request fails.
+ */
+public class WorkerPool implements AutoCloseable {
+  private static final String EXITED = new String("exited");
+  /** How long a worker may take to start and warm up, which is not part of any budget. */
+  private static final long STARTUP = TimeUnit.SECONDS.toNanos(60);
+
+  private final List<String> command;
+  private final int size;
+  private final long budget;
+  private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+  private final List<Worker> all = new CopyOnWriteArrayList<>();
+  private final ExecutorService dispatch;
+  private volatile boolean closed;
+  /** Why a worker could not be restarted, after which the pool fails. */
+  private volatile Exception failure;
+
+  public WorkerPool(int size, Duration budget) throws IOException {
+    if (size < 1) {
+      throw new IllegalArgumentException("Expected at least one worker, got " + size);
+    }
+    if (budget.isZero() || budget.isNegative()) {
+      throw new IllegalArgumentException("Expected a positive time budget for the workers, got " + budget);
+    }
+    this.size = size;
+    this.budget = budget.toNanos();
+    this.command = List.of(
+        Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+        "-ea",
+        "-cp",
+        System.getProperty("java.class.path"),
+        "jpamb.Runtime",
+        "--daemon");
+    var started = new ArrayList<Worker>();
+    for (int i = 0; i < size; i++) {
+      started.add(new Worker());
+    }
+    for (Worker worker : started) {
+      worker.awaitReady();
+      idle.add(worker);
+    }
+    this.dispatch = Executors.newFixedThreadPool(size, r -> {
+      Thread t = new Thread(r, "jpamb-dispatch");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  /**
+   * Answer a daemon request, see {@link Daemon#answer(String)}, on the next
+   * idle worker. Blocks until a worker is available, and fails once a
+   * worker could not be restarted.
+   */
+  public String answer(String line) {
+    Worker worker = null;
+    try {
+      while (worker == null) {
+        if (failure != null) {
+          throw new IllegalStateException("A worker could not be restarted: " + failure.getMessage(), failure);
+        }
+        worker = idle.poll(1, TimeUnit.SECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting for a worker", e);
+    }
+    String result;
+    try {
+      result = worker.ask(line);
+    } catch (RuntimeException e) {
+      restart(worker);
+      throw e;
+    }
+    if (result == null) {
+      restart(worker);
+      return ResultType.NON_TERMINATION.toString();
+    } else if (result == EXITED) {
+      restart(worker);
+      return "error: worker exited";
+    }
+    idle.add(worker);
+    return result;
+  }
+
+  /**
+   * Run a task on one of the dispatch threads, there is one per worker, so
+   * tasks calling {@link #answer(String)} keep all workers busy.
+   */
+  public <T> Future<T> submit(Callable<T> task) {
+    return dispatch.submit(task);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Kill the worker, and start a replacement in the background, which joins
+   * the idle workers once it is ready. If that fails, so does every later
+   * {@link #answer(String)}.
+   */
+  private void restart(Worker worker) {
+    worker.kill();
+    Thread t = new Thread(() -> {
+      try {
+        Worker fresh = new Worker();
+        fresh.awaitReady();
+        if (closed) {
+          fresh.kill();
+        } else {
+          idle.add(fresh);
+        }
+      } catch (IOException | RuntimeException e) {
+        System.err.println("Could not restart worker: " + e.getMessage());
+        failure = e;
+      }
+    }, "jpamb-restart");
+    t.setDaemon(true);
+    t.start();
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    dispatch.shutdownNow();
+    for (Worker worker : all) {
+      worker.kill();
+    }
+  }
+
+  private class Worker {
+    final Process process;
+    final PrintWriter requests;
+    final BlockingQueue<String> answers = new LinkedBlockingQueue<>();
+
+    Worker() throws IOException {
+      process = new ProcessBuilder(command)
+          .redirectError(ProcessBuilder.Redirect.INHERIT)
+          .start();
+      requests = new PrintWriter(
+          new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+      var reader = new BufferedReader(
+          new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+      Thread t = new Thread(() -> {
+        try (reader) {
+          String line;
+          while ((line = reader.readLine()) != null) {
+            answers.add(line);
+          }
+        } catch (IOException e) {
+          // the worker was killed
+        }
+        answers.add(EXITED);
+      }, "jpamb-worker-" + process.pid());
+      t.setDaemon(true);
+      t.start();
+      all.add(this);
+    }
+
+    /**
+     * Wait for the JVM to start and to warm up, so neither its startup nor
+     * the class loading of the first case is part of any budget.
+     */
+    void awaitReady() throws IOException {
+      for (String request : List.of("ping", "warm")) {
+        String answer = ask(request, STARTUP);
+        if (answer == null || answer == EXITED || !answer.equals(request.equals("ping") ? "pong" : "warm")) {
+          kill();
+          throw new IOException("Worker " + process.pid() + " did not start: "
+              + (answer == null ? "out of time" : answer == EXITED ? "it exited" : answer));
+        }
+      }
+    }
+
+    /** Returns the answer, {@link #EXITED}, or null if out of time. */
+    String ask(String line) {
+      return ask(line, budget);
+    }
+
+    String ask(String line, long budget) {
+      requests.println(line);
+      requests.flush();
+      try {
+        return answers.poll(budget, TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while running " + line, e);
+      }
+    }
+
+    void kill() {
+      all.remove(this);
+      process.destroyForcibly();
+    }
+  }
+}
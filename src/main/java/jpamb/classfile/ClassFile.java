@@ -0,0 +1,509 @@
+package jpamb.classfile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A class file, read in place from a buffer, which is usually a memory
+ * mapped {@code .class} file.
+ *
+ * Opening a class file only finds where each constant pool entry, field,
+ * method and attribute starts. Constants are decoded the first time they are
+ * asked for and then cached, and the code of a method is only looked at when
+ * it is asked for, so looking up a single method of a large class touches
+ * little more than the bytes of that method.
+ *
+ * A class file is not safe to use from several threads at once.
+ */
+public final class ClassFile {
+  public static final int UTF8 = 1;
+  public static final int INTEGER = 3;
+  public static final int FLOAT = 4;
+  public static final int LONG = 5;
+  public static final int DOUBLE = 6;
+  public static final int CLASS = 7;
+  public static final int STRING = 8;
+  public static final int FIELDREF = 9;
+  public static final int METHODREF = 10;
+  public static final int INTERFACE_METHODREF = 11;
+  public static final int NAME_AND_TYPE = 12;
+  public static final int METHOD_HANDLE = 15;
+  public static final int METHOD_TYPE = 16;
+  public static final int DYNAMIC = 17;
+  public static final int INVOKE_DYNAMIC = 18;
+  public static final int MODULE = 19;
+  public static final int PACKAGE = 20;
+
+  private final ByteBuffer b;
+  private final int[] pool;
+  private final Object[] constants;
+  private final int header;
+  private final List<Member> fields;
+  private final List<Member> methods;
+  private final List<Attribute> attributes;
+
+  /** Map a class file into memory and open it. */
+  public static ClassFile open(Path path) throws IOException {
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  public static ClassFile read(byte[] bytes) {
+    return read(ByteBuffer.wrap(bytes));
+  }
+
+  public static ClassFile read(ByteBuffer buffer) {
+    return new ClassFile(buffer.slice());
+  }
+
+  private ClassFile(ByteBuffer b) {
+    this.b = b;
+    if (b.limit() < 10 || b.getInt(0) != 0xCAFEBABE) {
+      throw new IllegalArgumentException("Not a class file");
+    }
+    int count = u2(8);
+    this.pool = new int[count];
+    this.constants = new Object[count];
+    int p = 10;
+    for (int i = 1; i < count; i++) {
+      pool[i] = p;
+      int tag = u1(p);
+      switch (tag) {
+        case UTF8 -> p += 3 + u2(p + 1);
+        case INTEGER, FLOAT -> p += 5;
+        case LONG, DOUBLE -> {
+          p += 9;
+          i++;
+        }
+        case CLASS, STRING, METHOD_TYPE, MODULE, PACKAGE -> p += 3;
+        case FIELDREF, METHODREF, INTERFACE_METHODREF, NAME_AND_TYPE, DYNAMIC, INVOKE_DYNAMIC ->
+          p += 5;
+        case METHOD_HANDLE -> p += 4;
+        default -> throw invalid("constant pool tag " + tag + " at entry " + i);
+      }
+    }
+    this.header = p;
+    p += 8 + 2 * u2(p + 6);
+    this.fields = new ArrayList<>(u2(p));
+    p = members(p, fields);
+    this.methods = new ArrayList<>(u2(p));
+    p = members(p, methods);
+    this.attributes = attributes(p);
+  }
+
+  private int members(int p, List<Member> members) {
+    int count = u2(p);
+    p += 2;
+    for (int i = 0; i < count; i++) {
+      var member = new Member(p, attributes(p + 6));
+      members.add(member);
+      p = member.end;
+    }
+    return p;
+  }
+
+  private List<Attribute> attributes(int p) {
+    int count = u2(p);
+    p += 2;
+    var attributes = new ArrayList<Attribute>(count);
+    for (int i = 0; i < count; i++) {
+      int length = u4(p + 2);
+      attributes.add(new Attribute(u2(p), p + 6, length));
+      p += 6 + length;
+    }
+    if (p > b.limit()) {
+      throw invalid("attribute ends after the end of the file");
+    }
+    return Collections.unmodifiableList(attributes);
+  }
+
+  /** The whole class file, which the offsets of entries, members and attributes are into. */
+  public ByteBuffer bytes() {
+    return b.duplicate();
+  }
+
+  /** Where a constant pool entry starts, or 0 for the slot after a long or double. */
+  public int entryOffset(int index) {
+    if (index <= 0 || index >= pool.length) {
+      throw invalid("constant pool index " + index);
+    }
+    return pool[index];
+  }
+
+  /** Where the access flags start, right after the constant pool. */
+  public int headerOffset() {
+    return header;
+  }
+
+  public int minorVersion() {
+    return u2(4);
+  }
+
+  public int majorVersion() {
+    return u2(6);
+  }
+
+  public int access() {
+    return u2(header);
+  }
+
+  /** The internal name of the class, like {@code jpamb/cases/Simple}. */
+  public String name() {
+    return className(u2(header + 2));
+  }
+
+  /** The internal name of the super class, or null for {@code java/lang/Object}. */
+  public String superName() {
+    int index = u2(header + 4);
+    return index == 0 ? null : className(index);
+  }
+
+  public List<String> interfaces() {
+    int count = u2(header + 6);
+    var interfaces = new ArrayList<String>(count);
+    for (int i = 0; i < count; i++) {
+      interfaces.add(className(u2(header + 8 + 2 * i)));
+    }
+    return interfaces;
+  }
+
+  public List<Member> fields() {
+    return Collections.unmodifiableList(fields);
+  }
+
+  public List<Member> methods() {
+    return Collections.unmodifiableList(methods);
+  }
+
+  /** The method with the given name and descriptor, or null. */
+  public Member method(String name, String descriptor) {
+    for (Member m : methods) {
+      if (m.is(name, descriptor)) {
+        return m;
+      }
+    }
+    return null;
+  }
+
+  public List<Attribute> attributes() {
+    return attributes;
+  }
+
+  /** The class attribute with the given name, or null. */
+  public Attribute attribute(String name) {
+    return find(attributes, name);
+  }
+
+  /** The size of the constant pool, one more than the last index. */
+  public int poolSize() {
+    return pool.length;
+  }
+
+  /** The tag of the constant pool entry, or 0 for the slot after a long or double. */
+  public int tag(int index) {
+    int p = entry(index);
+    return p == 0 ? 0 : u1(p);
+  }
+
+  public String utf8(int index) {
+    Object c = constants[index];
+    if (c == null) {
+      int p = entry(index, UTF8);
+      c = constants[index] = decode(p + 3, u2(p + 1));
+    }
+    return (String) c;
+  }
+
+  /** The internal name of a {@link #CLASS} entry. */
+  public String className(int index) {
+    return utf8(u2(entry(index, CLASS) + 1));
+  }
+
+  /** The value of a {@link #STRING} entry. */
+  public String string(int index) {
+    return utf8(u2(entry(index, STRING) + 1));
+  }
+
+  public int integer(int index) {
+    return b.getInt(entry(index, INTEGER) + 1);
+  }
+
+  public float floatValue(int index) {
+    return b.getFloat(entry(index, FLOAT) + 1);
+  }
+
+  public long longValue(int index) {
+    return b.getLong(entry(index, LONG) + 1);
+  }
+
+  public double doubleValue(int index) {
+    return b.getDouble(entry(index, DOUBLE) + 1);
+  }
+
+  /**
+   * A field, method or interface method reference, or the name and type of a
+   * dynamic constant, a call site or a bare name and type entry, in which case
+   * the owner is null.
+   */
+  public record Ref(int tag, String owner, String name, String descriptor) {
+  }
+
+  public Ref ref(int index) {
+    Object c = constants[index];
+    if (c == null) {
+      int p = entry(index);
+      int tag = u1(p);
+      int nameAndType = tag == NAME_AND_TYPE ? index : u2(p + 3);
+      String owner = switch (tag) {
+        case FIELDREF, METHODREF, INTERFACE_METHODREF -> className(u2(p + 1));
+        case DYNAMIC, INVOKE_DYNAMIC, NAME_AND_TYPE -> null;
+        default -> throw invalid("entry " + index + " is not a reference");
+      };
+      int q = entry(nameAndType, NAME_AND_TYPE);
+      c = constants[index] = new Ref(tag, owner, utf8(u2(q + 1)), utf8(u2(q + 3)));
+    }
+    return (Ref) c;
+  }
+
+  /** The index into the bootstrap methods of a dynamic constant or call site. */
+  public int bootstrap(int index) {
+    int p = entry(index);
+    if (u1(p) != DYNAMIC && u1(p) != INVOKE_DYNAMIC) {
+      throw invalid("entry " + index + " is not dynamic");
+    }
+    return u2(p + 1);
+  }
+
+  /** The kind of a {@link #METHOD_HANDLE} entry. */
+  public int handleKind(int index) {
+    return u1(entry(index, METHOD_HANDLE) + 1);
+  }
+
+  /** The reference of a {@link #METHOD_HANDLE} entry. */
+  public Ref handleRef(int index) {
+    return ref(u2(entry(index, METHOD_HANDLE) + 2));
+  }
+
+  /** The descriptor of a {@link #METHOD_TYPE} entry. */
+  public String methodType(int index) {
+    return utf8(u2(entry(index, METHOD_TYPE) + 1));
+  }
+
+  /** A field or a method. */
+  public final class Member {
+    private final int start;
+    private final int end;
+    private final List<Attribute> attributes;
+
+    private Member(int start, List<Attribute> attributes) {
+      this.start = start;
+      this.attributes = attributes;
+      if (attributes.isEmpty()) {
+        this.end = start + 8;
+      } else {
+        Attribute last = attributes.get(attributes.size() - 1);
+        this.end = last.offset() + last.length();
+      }
+    }
+
+    public int access() {
+      return u2(start);
+    }
+
+    public String name() {
+      return utf8(u2(start + 2));
+    }
+
+    public String descriptor() {
+      return utf8(u2(start + 4));
+    }
+
+    /** Whether the member has the given name and descriptor. */
+    public boolean is(String name, String descriptor) {
+      return name().equals(name) && descriptor().equals(descriptor);
+    }
+
+    public List<Attribute> attributes() {
+      return attributes;
+    }
+
+    public Attribute attribute(String name) {
+      return find(attributes, name);
+    }
+
+    /** The code of the method, or null if it is abstract or native. */
+    public Code code() {
+      Attribute code = attribute("Code");
+      return code == null ? null : new Code(code.offset());
+    }
+
+    /** Where the member starts and ends in the class file. */
+    public int offset() {
+      return start;
+    }
+
+    public int length() {
+      return end - start;
+    }
+
+    @Override
+    public String toString() {
+      return name() + ":" + descriptor();
+    }
+  }
+
+  /** An attribute, whose body is not looked at until asked for. */
+  public final class Attribute {
+    private final int nameIndex;
+    private final int offset;
+    private final int length;
+
+    private Attribute(int nameIndex, int offset, int length) {
+      this.nameIndex = nameIndex;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    public String name() {
+      return utf8(nameIndex);
+    }
+
+    /** The body of the attribute, after its name and length. */
+    public ByteBuffer body() {
+      return b.slice(offset, length);
+    }
+
+    /** Where the body starts in the class file. */
+    public int offset() {
+      return offset;
+    }
+
+    public int length() {
+      return length;
+    }
+  }
+
+  /** An entry of the exception table of a method. */
+  public record Handler(int start, int end, int handler, String catchType) {
+  }
+
+  /** The body of a method. */
+  public final class Code {
+    private final int offset;
+
+    private Code(int offset) {
+      this.offset = offset;
+    }
+
+    public int maxStack() {
+      return u2(offset);
+    }
+
+    public int maxLocals() {
+      return u2(offset + 2);
+    }
+
+    public int length() {
+      return u4(offset + 4);
+    }
+
+    /** The bytecode, indexed from 0. */
+    public ByteBuffer bytecode() {
+      return b.slice(offset + 8, length());
+    }
+
+    /** The length of the instruction at {@code pc}. */
+    public int instructionLength(int pc) {
+      return Opcodes.length(b, offset + 8, pc);
+    }
+
+    public List<Handler> handlers() {
+      int p = offset + 8 + length();
+      int count = u2(p);
+      var handlers = new ArrayList<Handler>(count);
+      for (int i = 0; i < count; i++) {
+        int e = p + 2 + 8 * i;
+        int type = u2(e + 6);
+        handlers.add(new Handler(u2(e), u2(e + 2), u2(e + 4), type == 0 ? null : className(type)));
+      }
+      return handlers;
+    }
+
+    public List<Attribute> attributes() {
+      int p = offset + 8 + length();
+      return ClassFile.this.attributes(p + 2 + 8 * u2(p));
+    }
+
+    public Attribute attribute(String name) {
+      return find(attributes(), name);
+    }
+  }
+
+  private static Attribute find(List<Attribute> attributes, String name) {
+    for (Attribute a : attributes) {
+      if (a.name().equals(name)) {
+        return a;
+      }
+    }
+    return null;
+  }
+
+  private int entry(int index) {
+    if (index <= 0 || index >= pool.length) {
+      throw invalid("constant pool index " + index);
+    }
+    return pool[index];
+  }
+
+  private int entry(int index, int tag) {
+    int p = entry(index);
+    if (p == 0 || u1(p) != tag) {
+      throw invalid("entry " + index + " has tag " + (p == 0 ? 0 : u1(p)) + ", expected " + tag);
+    }
+    return p;
+  }
+
+  /** Decode modified UTF-8, as used by the constant pool. */
+  private String decode(int p, int length) {
+    char[] chars = new char[length];
+    int n = 0;
+    int end = p + length;
+    while (p < end) {
+      int c = u1(p++);
+      if (c < 0x80) {
+        chars[n++] = (char) c;
+      } else if ((c & 0xe0) == 0xc0) {
+        chars[n++] = (char) (((c & 0x1f) << 6) | (u1(p++) & 0x3f));
+      } else if ((c & 0xf0) == 0xe0) {
+        chars[n++] = (char) (((c & 0x0f) << 12) | ((u1(p) & 0x3f) << 6) | (u1(p + 1) & 0x3f));
+        p += 2;
+      } else {
+        throw invalid("string at " + p);
+      }
+    }
+    return new String(chars, 0, n);
+  }
+
+  private IllegalArgumentException invalid(String what) {
+    return new IllegalArgumentException("Invalid class file: " + what);
+  }
+
+  private int u1(int p) {
+    return b.get(p) & 0xff;
+  }
+
+  private int u2(int p) {
+    return b.getShort(p) & 0xffff;
+  }
+
+  private int u4(int p) {
+    return b.getInt(p);
+  }
+}
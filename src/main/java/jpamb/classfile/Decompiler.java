@@ -0,0 +1,1006 @@
+package jpamb.classfile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import jpamb.classfile.ClassFile.Attribute;
+import jpamb.classfile.ClassFile.Code;
+import jpamb.classfile.ClassFile.Handler;
+import jpamb.classfile.ClassFile.Member;
+import jpamb.classfile.ClassFile.Ref;
+import jpamb.utils.Json;
+
+import static jpamb.classfile.ClassFile.*;
+
+/**
+ * Turns class files into the JSON format of {@code jvm2json}, which is what
+ * {@code jpamb/jvm/opcode.py} reads, without starting a container per class.
+ *
+ * <pre>
+ * java -cp target/classes jpamb.classfile.Decompiler target/classes target/decompiled
+ * </pre>
+ *
+ * The classes are decompiled in parallel on the common fork-join pool. The
+ * SHA-256 of every class file is kept in {@code .hashes} in the output
+ * folder, and classes whose hash has not changed since the last run, and
+ * whose JSON is still there, are skipped.
+ *
+ * The output is byte for byte what {@code cli.py} wrote from {@code jvm2json}
+ * for the classes of this project, quirks included. Instructions, wildcards and
+ * type parameters that the project does not use are named by analogy.
+ */
+public final class Decompiler {
+  private Decompiler() {
+  }
+
+  /** Bump when the output changes, so the hashes of the last run are not trusted. */
+  private static final String FORMAT = "# jpamb decompiler 1";
+
+  public static void main(String[] args) throws Exception {
+    if (args.length != 2) {
+      throw new RuntimeException("Expected <classes folder> <output folder>");
+    }
+    decompile(Path.of(args[0]), Path.of(args[1]));
+  }
+
+  /**
+   * Decompile every class file under {@code classes} to a JSON file at the
+   * same place under {@code output}.
+   */
+  public static void decompile(Path classes, Path output) throws IOException {
+    Path hashFile = output.resolve(".hashes");
+    Map<String, String> previous = new HashMap<>();
+    if (Files.exists(hashFile)) {
+      List<String> lines = Files.readAllLines(hashFile, StandardCharsets.UTF_8);
+      if (!lines.isEmpty() && lines.get(0).equals(FORMAT)) {
+        for (String line : lines.subList(1, lines.size())) {
+          int space = line.indexOf(' ');
+          previous.put(line.substring(space + 1), line.substring(0, space));
+        }
+      }
+    }
+
+    List<Path> files;
+    try (Stream<Path> walk = Files.walk(classes)) {
+      files = walk.filter(p -> p.toString().endsWith(".class")).toList();
+    }
+
+    Map<String, String> hashes = new ConcurrentHashMap<>();
+    var written = new AtomicInteger();
+    // Parallel streams run on the common fork-join pool.
+    files.parallelStream().forEach(file -> {
+      String name = classes.relativize(file).toString().replace('\\', '/');
+      Path json = output.resolve(name.substring(0, name.length() - ".class".length()) + ".json");
+      try {
+        byte[] bytes = Files.readAllBytes(file);
+        String hash = hash(bytes);
+        hashes.put(name, hash);
+        if (hash.equals(previous.get(name)) && Files.exists(json)) {
+          return;
+        }
+        Files.createDirectories(json.getParent());
+        Files.writeString(json, Json.write(decompile(ClassFile.read(bytes))), StandardCharsets.UTF_8);
+        written.incrementAndGet();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } catch (RuntimeException e) {
+        throw new RuntimeException("Could not decompile " + file + ": " + e.getMessage(), e);
+      }
+    });
+
+    StringBuilder b = new StringBuilder(FORMAT).append('\n');
+    new TreeMap<>(hashes).forEach((name, hash) -> b.append(hash).append(' ').append(name).append('\n'));
+    Files.createDirectories(output);
+    Files.writeString(hashFile, b, StandardCharsets.UTF_8);
+    System.err.printf("Decompiled %d classes, %d unchanged%n", written.get(), files.size() - written.get());
+  }
+
+  private static String hash(byte[] bytes) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static final String[] CLASS_FLAGS = { "public", null, null, null, "final", "super", null,
+      null, null, "interface", "abstract", null, "synthetic", "annotation", "enum", "module" };
+  private static final String[] FIELD_FLAGS = { "public", "private", "protected", "static", "final",
+      null, "volatile", "transient", null, null, null, null, "synthetic", null, "enum", null };
+  private static final String[] METHOD_FLAGS = { "public", "private", "protected", "static", "final",
+      "synchronized", "bridge", "varargs", "native", null, "abstract", "strict", "synthetic", null,
+      null, null };
+  private static final String[] INNER_FLAGS = { "public", "private", "protected", "static", "final",
+      null, null, null, null, "interface", "abstract", null, "synthetic", "annotation", "enum", null };
+
+  private static final String[] PARAMETER_FLAGS = { null, null, null, null, "final", null, null,
+      null, null, null, null, null, "synthetic", null, null, "mandated" };
+
+  /** The class as a JSON value, in the format of {@code jvm2json}. */
+  public static Map<String, Object> decompile(ClassFile cf) {
+    Types types = new Types();
+    List<Object> inner = new ArrayList<>();
+    Attribute innerClasses = cf.attribute("InnerClasses");
+    if (innerClasses != null) {
+      ByteBuffer in = innerClasses.body();
+      for (int i = in.getShort() & 0xffff; i > 0; i--) {
+        int cls = in.getShort() & 0xffff;
+        int outer = in.getShort() & 0xffff;
+        int name = in.getShort() & 0xffff;
+        int access = in.getShort() & 0xffff;
+        inner.add(object(
+            "access", flags(access, INNER_FLAGS),
+            "class", cf.className(cls),
+            "name", name == 0 ? null : cf.utf8(name),
+            "outer", outer == 0 ? null : cf.className(outer)));
+        if (outer != 0 && name != 0) {
+          types.nested.put(cf.className(cls), new String[] { cf.className(outer), cf.utf8(name) });
+        }
+      }
+    }
+
+    List<Object> fields = new ArrayList<>();
+    for (Member f : cf.fields()) {
+      Attribute constant = f.attribute("ConstantValue");
+      fields.add(object(
+          "access", flags(f.access(), FIELD_FLAGS),
+          "annotations", annotations(cf, f.attributes()),
+          "name", f.name(),
+          "type", types.read(signature(cf, f.attributes(), f.descriptor())).type(),
+          "value", constant == null ? null : constant(cf, constant.body().getShort() & 0xffff)));
+    }
+    List<Object> methods = new ArrayList<>();
+    for (Member m : cf.methods()) {
+      methods.add(method(cf, types, m));
+    }
+
+    Object enclosing = null;
+    Attribute enclosingMethod = cf.attribute("EnclosingMethod");
+    if (enclosingMethod != null) {
+      ByteBuffer in = enclosingMethod.body();
+      int cls = in.getShort() & 0xffff;
+      int method = in.getShort() & 0xffff;
+      Ref ref = method == 0 ? null : cf.ref(method);
+      enclosing = object(
+          "class", cf.className(cls),
+          "method", ref == null ? null : object("name", ref.name(), "descriptor", ref.descriptor()));
+    }
+
+    List<Object> typeParams = List.of();
+    Object superType = null;
+    List<Object> interfaces = new ArrayList<>();
+    Attribute signature = cf.attribute("Signature");
+    if (signature != null) {
+      types.read(cf.utf8(signature.body().getShort() & 0xffff));
+      typeParams = types.typeParams();
+      superType = unkind(types.type());
+      while (types.more()) {
+        interfaces.add(unkind(types.type()));
+      }
+    } else {
+      if (cf.superName() != null) {
+        superType = unkind(types.read("L" + cf.superName() + ";").type());
+      }
+      for (String name : cf.interfaces()) {
+        interfaces.add(unkind(types.read("L" + name + ";").type()));
+      }
+    }
+    return object(
+        "access", flags(cf.access(), CLASS_FLAGS),
+        "annotations", annotations(cf, cf.attributes()),
+        "bootstrapmethods", bootstrapMethods(cf),
+        "enclosingmethod", enclosing,
+        "fields", fields,
+        "innerclasses", inner,
+        "interfaces", interfaces,
+        "methods", methods,
+        "name", cf.name(),
+        "super", superType,
+        "typeparams", typeParams,
+        "version", List.of(cf.majorVersion(), cf.minorVersion()));
+  }
+
+  private static Map<String, Object> method(ClassFile cf, Types types, Member m) {
+    List<Map<String, Object>> erased = types.read(m.descriptor()).params();
+    Object returns = types.returns();
+    List<Map<String, Object>> generic = erased;
+    List<Object> typeParams = List.of();
+    List<Object> exceptions = new ArrayList<>();
+    Attribute signature = m.attribute("Signature");
+    if (signature != null) {
+      types.read(cf.utf8(signature.body().getShort() & 0xffff));
+      typeParams = types.typeParams();
+      generic = types.params();
+      returns = types.returns();
+      exceptions.addAll(types.exceptions());
+    }
+    // The signature leaves out the synthetic parameters, which come first.
+    int synthetic = erased.size() - generic.size();
+
+    List<List<Object>> parameterAnnotations = new ArrayList<>();
+    for (int i = 0; i < erased.size(); i++) {
+      parameterAnnotations.add(new ArrayList<>());
+    }
+    for (Attribute a : m.attributes()) {
+      boolean visible = a.name().equals("RuntimeVisibleParameterAnnotations");
+      if (visible || a.name().equals("RuntimeInvisibleParameterAnnotations")) {
+        ByteBuffer in = a.body();
+        int count = in.get() & 0xff;
+        int skip = erased.size() - count;
+        for (int i = 0; i < count; i++) {
+          for (int j = in.getShort() & 0xffff; j > 0; j--) {
+            parameterAnnotations.get(skip + i).add(annotation(cf, in, visible));
+          }
+        }
+      }
+    }
+    List<Map<String, Object>> params = new ArrayList<>();
+    for (int i = 0; i < erased.size(); i++) {
+      params.add(object(
+          "annotations", parameterAnnotations.get(i),
+          "type", i < synthetic ? erased.get(i) : generic.get(i - synthetic),
+          "visible", i >= synthetic));
+    }
+    Attribute parameters = m.attribute("MethodParameters");
+    if (parameters != null) {
+      ByteBuffer in = parameters.body();
+      int count = in.get() & 0xff;
+      for (int i = 0; i < count && i < params.size(); i++) {
+        int name = in.getShort() & 0xffff;
+        int access = in.getShort() & 0xffff;
+        Map<String, Object> param = params.get(i);
+        param.put("access", flags(access, PARAMETER_FLAGS));
+        param.put("name", name == 0 ? null : cf.utf8(name));
+        if ((access & 0x1000) != 0) {
+          param.put("visible", false);
+        }
+      }
+    }
+
+    Attribute thrown = m.attribute("Exceptions");
+    if (thrown != null && exceptions.isEmpty()) {
+      ByteBuffer in = thrown.body();
+      for (int i = in.getShort() & 0xffff; i > 0; i--) {
+        exceptions.add(types.read("L" + cf.className(in.getShort() & 0xffff) + ";").type());
+      }
+    }
+    Attribute annotationDefault = m.attribute("AnnotationDefault");
+    Code code = m.code();
+    return object(
+        "access", flags(m.access(), METHOD_FLAGS),
+        "annotations", annotations(cf, m.attributes()),
+        "code", code == null ? null : code(cf, code),
+        "default", annotationDefault == null ? null : elementValue(cf, annotationDefault.body()),
+        "exceptions", exceptions,
+        "name", m.name(),
+        "params", params,
+        "returns", object("annotations", List.of(), "type", returns),
+        "typeparams", typeParams);
+  }
+
+  /** The generic signature in {@code attributes}, or else the descriptor. */
+  private static String signature(ClassFile cf, List<Attribute> attributes, String descriptor) {
+    for (Attribute a : attributes) {
+      if (a.name().equals("Signature")) {
+        return cf.utf8(a.body().getShort() & 0xffff);
+      }
+    }
+    return descriptor;
+  }
+
+  private static Map<String, Object> code(ClassFile cf, Code code) {
+    ByteBuffer b = code.bytecode();
+    int length = code.length();
+    int[] index = new int[length + 1];
+    int count = 0;
+    for (int pc = 0; pc < length; pc += code.instructionLength(pc)) {
+      index[pc] = count++;
+    }
+    index[length] = count;
+
+    List<Object> bytecode = new ArrayList<>(count);
+    for (int pc = 0; pc < length; pc += code.instructionLength(pc)) {
+      bytecode.add(instruction(cf, b, pc, index));
+    }
+
+    List<Object> exceptions = new ArrayList<>();
+    for (Handler h : code.handlers()) {
+      exceptions.add(object(
+          "catchType", h.catchType(),
+          "end", index[h.end()],
+          "handler", index[h.handler()],
+          "start", index[h.start()]));
+    }
+    List<Object> lines = new ArrayList<>();
+    List<Object> frames = null;
+    for (Attribute a : code.attributes()) {
+      if (a.name().equals("LineNumberTable")) {
+        ByteBuffer in = a.body();
+        for (int i = in.getShort() & 0xffff; i > 0; i--) {
+          int pc = in.getShort() & 0xffff;
+          int line = in.getShort() & 0xffff;
+          lines.add(object("line", line, "offset", index[pc]));
+        }
+      } else if (a.name().equals("StackMapTable")) {
+        frames = frames(cf, a.body(), index);
+      }
+    }
+    return object(
+        "annotations", List.of(),
+        "bytecode", bytecode,
+        "exceptions", exceptions,
+        "lines", lines,
+        "max_locals", code.maxLocals(),
+        "max_stack", code.maxStack(),
+        "stack_map", frames);
+  }
+
+  private static List<Object> frames(ClassFile cf, ByteBuffer in, int[] index) {
+    List<Object> frames = new ArrayList<>();
+    int offset = -1;
+    for (int i = in.getShort() & 0xffff; i > 0; i--) {
+      int type = in.get() & 0xff;
+      int delta = type < 64 ? type : type < 128 ? type - 64 : in.getShort() & 0xffff;
+      offset += delta + 1;
+      int at = index[offset];
+      if (type < 64 || type == 251) {
+        frames.add(object("index", at, "type", "same"));
+      } else if (type < 128 || type == 247) {
+        frames.add(object("index", at, "info", verification(cf, in, index),
+            "type", "same_locals_1_stack_item_frame"));
+      } else if (type >= 248 && type < 251) {
+        frames.add(object("index", at, "info", 251 - type, "type", "chop_frame"));
+      } else if (type > 251 && type < 255) {
+        List<Object> locals = new ArrayList<>();
+        for (int j = type - 251; j > 0; j--) {
+          locals.add(verification(cf, in, index));
+        }
+        frames.add(object("index", at, "info", locals, "type", "append_frame"));
+      } else if (type == 255) {
+        List<Object> locals = new ArrayList<>();
+        for (int j = in.getShort() & 0xffff; j > 0; j--) {
+          locals.add(verification(cf, in, index));
+        }
+        List<Object> stack = new ArrayList<>();
+        for (int j = in.getShort() & 0xffff; j > 0; j--) {
+          stack.add(verification(cf, in, index));
+        }
+        frames.add(object("index", at, "locals", locals, "stack", stack, "type", "full_frame"));
+      } else {
+        throw new IllegalArgumentException("Invalid stack map frame " + type);
+      }
+    }
+    return frames;
+  }
+
+  private static Object verification(ClassFile cf, ByteBuffer in, int[] index) {
+    int tag = in.get() & 0xff;
+    return switch (tag) {
+      case 0 -> object("type", "top");
+      case 1 -> object("type", "integer");
+      case 2 -> object("type", "float");
+      // jvm2json has the tags of double and long the other way around.
+      case 3 -> object("type", "long");
+      case 4 -> object("type", "double");
+      case 5 -> object("type", "null");
+      case 6 -> object("type", "uninitialized_this");
+      case 7 -> object("ref", classType(cf.className(in.getShort() & 0xffff)), "type", "object");
+      case 8 -> object("index", index[in.getShort() & 0xffff], "type", "uninitialized");
+      default -> throw new IllegalArgumentException("Invalid verification type " + tag);
+    };
+  }
+
+  private static final String[] KINDS = { "int", "long", "float", "double", "ref" };
+  private static final String[] ARRAY_KINDS = { "int", "long", "float", "double", "ref", "byte",
+      "char", "short" };
+  private static final String[] BINARY = { "add", "sub", "mul", "div", "rem" };
+  private static final String[] CONDITIONS = { "eq", "ne", "lt", "ge", "gt", "le" };
+  private static final String[] CASTS = { "int", "long", "int", "float", "int", "double", "long",
+      "int", "long", "float", "long", "double", "float", "int", "float", "long", "float", "double",
+      "double", "int", "double", "long", "double", "float", "int", "byte", "int", "char", "int",
+      "short" };
+  private static final String[] NEWARRAY = { null, null, null, null, "boolean", "char", "float",
+      "double", "byte", "short", "int", "long" };
+
+  private static Map<String, Object> instruction(ClassFile cf, ByteBuffer b, int pc, int[] index) {
+    int op = b.get(pc) & 0xff;
+    Map<String, Object> i = new HashMap<>();
+    i.put("offset", pc);
+    if (op == 0x00) {
+      i.put("opr", "nop");
+    } else if (op == 0x01) {
+      push(i, null);
+    } else if (op <= 0x08) {
+      push(i, object("type", "integer", "value", op - 0x03));
+    } else if (op <= 0x0a) {
+      push(i, object("type", "long", "value", (long) (op - 0x09)));
+    } else if (op <= 0x0d) {
+      push(i, object("type", "float", "value", op - 0x0b));
+    } else if (op <= 0x0f) {
+      push(i, object("type", "double", "value", op - 0x0e));
+    } else if (op == 0x10) {
+      push(i, object("type", "integer", "value", (int) b.get(pc + 1)));
+    } else if (op == 0x11) {
+      push(i, object("type", "integer", "value", (int) b.getShort(pc + 1)));
+    } else if (op == 0x12) {
+      push(i, constant(cf, b.get(pc + 1) & 0xff));
+    } else if (op <= 0x14) {
+      push(i, constant(cf, b.getShort(pc + 1) & 0xffff));
+    } else if (op <= 0x19) {
+      local(i, "load", KINDS[op - 0x15], b.get(pc + 1) & 0xff);
+    } else if (op <= 0x2d) {
+      local(i, "load", KINDS[(op - 0x1a) / 4], (op - 0x1a) % 4);
+    } else if (op <= 0x35) {
+      i.put("opr", "array_load");
+      i.put("type", ARRAY_KINDS[op - 0x2e]);
+    } else if (op <= 0x3a) {
+      local(i, "store", KINDS[op - 0x36], b.get(pc + 1) & 0xff);
+    } else if (op <= 0x4e) {
+      local(i, "store", KINDS[(op - 0x3b) / 4], (op - 0x3b) % 4);
+    } else if (op <= 0x56) {
+      i.put("opr", "array_store");
+      i.put("type", ARRAY_KINDS[op - 0x4f]);
+    } else if (op <= 0x58) {
+      i.put("opr", "pop");
+      i.put("words", op - 0x56);
+    } else if (op <= 0x5e) {
+      i.put("opr", new String[] { "dup", "dup_x1", "dup_x2" }[(op - 0x59) % 3]);
+      i.put("words", (op - 0x59) / 3 + 1);
+    } else if (op == 0x5f) {
+      i.put("opr", "swap");
+    } else if (op <= 0x73) {
+      i.put("opr", "binary");
+      i.put("operant", BINARY[(op - 0x60) / 4]);
+      i.put("type", KINDS[(op - 0x60) % 4]);
+    } else if (op <= 0x77) {
+      i.put("opr", "negate");
+      i.put("type", KINDS[op - 0x74]);
+    } else if (op <= 0x83) {
+      i.put("opr", "bitopr");
+      i.put("operant", new String[] { "shl", "shr", "ushr", "and", "or", "xor" }[(op - 0x78) / 2]);
+      i.put("type", KINDS[(op - 0x78) % 2]);
+    } else if (op == 0x84) {
+      i.put("opr", "incr");
+      i.put("index", b.get(pc + 1) & 0xff);
+      i.put("amount", (int) b.get(pc + 2));
+    } else if (op <= 0x93) {
+      i.put("opr", "cast");
+      i.put("from", CASTS[2 * (op - 0x85)]);
+      i.put("to", CASTS[2 * (op - 0x85) + 1]);
+    } else if (op == 0x94) {
+      i.put("opr", "comparelongs");
+    } else if (op <= 0x98) {
+      i.put("opr", "comparefloating");
+      i.put("type", op <= 0x96 ? "float" : "double");
+      // As jvm2json, which has the opposite of what the JVM pushes on NaN.
+      i.put("onnan", (op - 0x95) % 2 == 0 ? 1 : -1);
+    } else if (op <= 0x9e) {
+      jump(i, "ifz", CONDITIONS[op - 0x99], index[pc + b.getShort(pc + 1)]);
+    } else if (op <= 0xa4) {
+      jump(i, "if", CONDITIONS[op - 0x9f], index[pc + b.getShort(pc + 1)]);
+    } else if (op <= 0xa6) {
+      jump(i, "if", op == 0xa5 ? "is" : "isnot", index[pc + b.getShort(pc + 1)]);
+    } else if (op == 0xa7 || op == 0xa8) {
+      i.put("opr", op == 0xa7 ? "goto" : "jsr");
+      i.put("target", index[pc + b.getShort(pc + 1)]);
+    } else if (op == 0xa9) {
+      i.put("opr", "ret");
+      i.put("index", b.get(pc + 1) & 0xff);
+    } else if (op == Opcodes.TABLESWITCH) {
+      int q = pc + 1 + Opcodes.padding(pc);
+      int low = b.getInt(q + 4);
+      int high = b.getInt(q + 8);
+      List<Object> targets = new ArrayList<>();
+      for (int k = 0; k <= high - low; k++) {
+        targets.add(index[pc + b.getInt(q + 12 + 4 * k)]);
+      }
+      i.put("opr", "tableswitch");
+      i.put("default", index[pc + b.getInt(q)]);
+      i.put("low", low);
+      i.put("targets", targets);
+    } else if (op == Opcodes.LOOKUPSWITCH) {
+      int q = pc + 1 + Opcodes.padding(pc);
+      List<Object> targets = new ArrayList<>();
+      for (int k = 0; k < b.getInt(q + 4); k++) {
+        targets.add(object("key", b.getInt(q + 8 + 8 * k), "target", index[pc + b.getInt(q + 12 + 8 * k)]));
+      }
+      i.put("opr", "lookupswitch");
+      i.put("default", index[pc + b.getInt(q)]);
+      i.put("targets", targets);
+    } else if (op <= 0xb1) {
+      i.put("opr", "return");
+      i.put("type", op == 0xb1 ? null : KINDS[op - 0xac]);
+    } else if (op <= 0xb5) {
+      Ref ref = cf.ref(b.getShort(pc + 1) & 0xffff);
+      i.put("opr", op == 0xb2 || op == 0xb4 ? "get" : "put");
+      i.put("static", op <= 0xb3);
+      i.put("field", object(
+          "class", ref.owner(),
+          "name", ref.name(),
+          "type", simple(ref.descriptor(), new int[1])));
+    } else if (op <= 0xba) {
+      invoke(cf, b, pc, op, i);
+    } else if (op == 0xbb) {
+      i.put("opr", "new");
+      i.put("class", cf.className(b.getShort(pc + 1) & 0xffff));
+    } else if (op == 0xbc) {
+      i.put("opr", "newarray");
+      i.put("dim", 1);
+      i.put("type", NEWARRAY[b.get(pc + 1)]);
+    } else if (op == 0xbd) {
+      i.put("opr", "newarray");
+      i.put("dim", 1);
+      i.put("type", classType(cf.className(b.getShort(pc + 1) & 0xffff)));
+    } else if (op == 0xbe) {
+      i.put("opr", "arraylength");
+    } else if (op == 0xbf) {
+      i.put("opr", "throw");
+    } else if (op == 0xc0 || op == 0xc1) {
+      i.put("opr", op == 0xc0 ? "checkcast" : "instanceof");
+      i.put("type", classType(cf.className(b.getShort(pc + 1) & 0xffff)));
+    } else if (op == 0xc2 || op == 0xc3) {
+      i.put("opr", op == 0xc2 ? "monitorenter" : "monitorexit");
+    } else if (op == Opcodes.WIDE) {
+      int wide = b.get(pc + 1) & 0xff;
+      int local = b.getShort(pc + 2) & 0xffff;
+      if (wide == Opcodes.IINC) {
+        i.put("opr", "incr");
+        i.put("index", local);
+        i.put("amount", (int) b.getShort(pc + 4));
+      } else if (wide == 0xa9) {
+        i.put("opr", "ret");
+        i.put("index", local);
+      } else if (wide <= 0x19) {
+        local(i, "load", KINDS[wide - 0x15], local);
+      } else {
+        local(i, "store", KINDS[wide - 0x36], local);
+      }
+    } else if (op == 0xc5) {
+      String name = cf.className(b.getShort(pc + 1) & 0xffff);
+      int dim = b.get(pc + 3) & 0xff;
+      i.put("opr", "newarray");
+      i.put("dim", dim);
+      i.put("type", simple(name, new int[] { dim }));
+    } else if (op <= 0xc7) {
+      jump(i, "ifz", op == 0xc6 ? "is" : "isnot", index[pc + b.getShort(pc + 1)]);
+    } else if (op <= 0xc9) {
+      i.put("opr", op == Opcodes.GOTO_W ? "goto" : "jsr");
+      i.put("target", index[pc + b.getInt(pc + 1)]);
+    } else {
+      throw new IllegalArgumentException("Invalid opcode " + op + " at " + pc);
+    }
+    return i;
+  }
+
+  private static void invoke(ClassFile cf, ByteBuffer b, int pc, int op, Map<String, Object> i) {
+    int index = b.getShort(pc + 1) & 0xffff;
+    Ref ref = cf.ref(index);
+    i.put("opr", "invoke");
+    i.put("access", new String[] { "virtual", "special", "static", "interface", "dynamic" }[op - 0xb6]);
+    Map<String, Object> method = methodType(ref.descriptor());
+    method.put("name", ref.name());
+    if (op == 0xba) {
+      i.put("index", cf.bootstrap(index));
+    } else {
+      method.put("ref", classType(ref.owner()));
+    }
+    if (op == 0xb7 || op == 0xb8) {
+      method.put("is_interface", ref.tag() == INTERFACE_METHODREF);
+    }
+    if (op == 0xb9) {
+      i.put("stack_size", b.get(pc + 3) & 0xff);
+    }
+    i.put("method", method);
+  }
+
+  private static void push(Map<String, Object> i, Object value) {
+    i.put("opr", "push");
+    i.put("value", value);
+  }
+
+  private static void local(Map<String, Object> i, String opr, String type, int index) {
+    i.put("opr", opr);
+    i.put("type", type);
+    i.put("index", index);
+  }
+
+  private static void jump(Map<String, Object> i, String opr, String condition, int target) {
+    i.put("opr", opr);
+    i.put("condition", condition);
+    i.put("target", target);
+  }
+
+  /** A loadable constant, as pushed by {@code ldc}. */
+  private static Object constant(ClassFile cf, int index) {
+    return switch (cf.tag(index)) {
+      case INTEGER -> object("type", "integer", "value", cf.integer(index));
+      case FLOAT -> object("type", "float", "value", number(cf.floatValue(index)));
+      case LONG -> object("type", "long", "value", cf.longValue(index));
+      case DOUBLE -> object("type", "double", "value", number(cf.doubleValue(index)));
+      case STRING -> object("type", "string", "value", cf.string(index));
+      case CLASS -> object("type", "class", "value", classType(cf.className(index)));
+      case METHOD_TYPE -> object("type", "methodtype", "value", methodType(cf.methodType(index)));
+      case METHOD_HANDLE -> object("type", "methodhandle", "value", handle(cf, index));
+      case DYNAMIC -> {
+        Ref ref = cf.ref(index);
+        yield object("type", "dynamic", "value", object(
+            "index", cf.bootstrap(index),
+            "name", ref.name(),
+            "type", simple(ref.descriptor(), new int[1])));
+      }
+      default -> throw new IllegalArgumentException("Not a loadable constant: " + index);
+    };
+  }
+
+  private static final String[] HANDLE_KINDS = { null, "getfield", "getstatic", "putfield",
+      "putstatic", "virtual", "static", "special", "newspecial", "interface" };
+
+  private static Map<String, Object> handle(ClassFile cf, int index) {
+    int kind = cf.handleKind(index);
+    Ref ref = cf.handleRef(index);
+    if (kind <= 4) {
+      return object(
+          "handletype", "field",
+          "kind", HANDLE_KINDS[kind],
+          "ref", object(
+              "class", ref.owner(),
+              "name", ref.name(),
+              "type", simple(ref.descriptor(), new int[1])));
+    }
+    Map<String, Object> method = methodType(ref.descriptor());
+    method.put("name", ref.name());
+    method.put("ref", classType(ref.owner()));
+    method.put("is_interface", ref.tag() == INTERFACE_METHODREF);
+    return object("handletype", "method", "kind", HANDLE_KINDS[kind], "method", method);
+  }
+
+  private static List<Object> bootstrapMethods(ClassFile cf) {
+    List<Object> methods = new ArrayList<>();
+    Attribute attribute = cf.attribute("BootstrapMethods");
+    if (attribute == null) {
+      return methods;
+    }
+    ByteBuffer in = attribute.body();
+    int count = in.getShort() & 0xffff;
+    for (int i = 0; i < count; i++) {
+      int handle = in.getShort() & 0xffff;
+      List<Object> args = new ArrayList<>();
+      for (int j = in.getShort() & 0xffff; j > 0; j--) {
+        args.add(constant(cf, in.getShort() & 0xffff));
+      }
+      methods.add(object(
+          "index", i,
+          "method", object("args", args, "handle", handle(cf, handle))));
+    }
+    return methods;
+  }
+
+  private static List<Object> annotations(ClassFile cf, List<Attribute> attributes) {
+    List<Object> annotations = new ArrayList<>();
+    for (Attribute a : attributes) {
+      boolean visible = a.name().equals("RuntimeVisibleAnnotations");
+      if (visible || a.name().equals("RuntimeInvisibleAnnotations")) {
+        ByteBuffer in = a.body();
+        for (int i = in.getShort() & 0xffff; i > 0; i--) {
+          annotations.add(annotation(cf, in, visible));
+        }
+      }
+    }
+    return annotations;
+  }
+
+  private static Map<String, Object> annotation(ClassFile cf, ByteBuffer in, boolean visible) {
+    Map<String, Object> annotation = annotation(cf, in);
+    annotation.put("is_runtime_visible", visible);
+    return annotation;
+  }
+
+  private static Map<String, Object> annotation(ClassFile cf, ByteBuffer in) {
+    String type = cf.utf8(in.getShort() & 0xffff);
+    Map<String, Object> values = new HashMap<>();
+    for (int i = in.getShort() & 0xffff; i > 0; i--) {
+      String name = cf.utf8(in.getShort() & 0xffff);
+      values.put(name, elementValue(cf, in));
+    }
+    return object("type", type.substring(1, type.length() - 1), "values", values);
+  }
+
+  private static Map<String, Object> elementValue(ClassFile cf, ByteBuffer in) {
+    char tag = (char) in.get();
+    return switch (tag) {
+      case 'B', 'C', 'I', 'S' -> {
+        int value = cf.integer(in.getShort() & 0xffff);
+        yield object("type", simple(String.valueOf(tag), new int[1]),
+            "value", tag == 'C' ? (Object) String.valueOf((char) value) : (Object) value);
+      }
+      case 'Z' -> object("type", "boolean", "value", cf.integer(in.getShort() & 0xffff) != 0);
+      case 'D' -> object("type", "double", "value", number(cf.doubleValue(in.getShort() & 0xffff)));
+      case 'F' -> object("type", "float", "value", number(cf.floatValue(in.getShort() & 0xffff)));
+      case 'J' -> object("type", "long", "value", cf.longValue(in.getShort() & 0xffff));
+      case 's' -> object("type", "string", "value", cf.utf8(in.getShort() & 0xffff));
+      case 'e' -> {
+        String type = cf.utf8(in.getShort() & 0xffff);
+        String name = cf.utf8(in.getShort() & 0xffff);
+        yield object("type", "enum", "value", object("name", name, "type", simple(type, new int[1])));
+      }
+      case 'c' -> {
+        String type = cf.utf8(in.getShort() & 0xffff);
+        yield object("type", "class", "value", type.equals("V") ? null : simple(type, new int[1]));
+      }
+      case '@' -> object("type", "annotation", "value", annotation(cf, in));
+      case '[' -> {
+        List<Object> values = new ArrayList<>();
+        for (int i = in.getShort() & 0xffff; i > 0; i--) {
+          values.add(elementValue(cf, in));
+        }
+        yield object("type", "array", "value", values);
+      }
+      default -> throw new IllegalArgumentException("Invalid element value " + tag);
+    };
+  }
+
+  /** The arguments and return type of a method descriptor. */
+  private static Map<String, Object> methodType(String descriptor) {
+    int[] pos = { 1 };
+    List<Object> args = new ArrayList<>();
+    while (descriptor.charAt(pos[0]) != ')') {
+      args.add(simple(descriptor, pos));
+    }
+    pos[0]++;
+    Object returns = descriptor.charAt(pos[0]) == 'V' ? null : simple(descriptor, pos);
+    return object("args", args, "returns", returns);
+  }
+
+  /** The name of a class entry as a type, which is an array descriptor for arrays. */
+  private static Object classType(String name) {
+    if (name.startsWith("[")) {
+      return simple(name, new int[1]);
+    }
+    return object("kind", "class", "name", name);
+  }
+
+  private static String base(char c) {
+    return switch (c) {
+      case 'B' -> "byte";
+      case 'C' -> "char";
+      case 'D' -> "double";
+      case 'F' -> "float";
+      case 'I' -> "int";
+      case 'J' -> "long";
+      case 'S' -> "short";
+      case 'Z' -> "boolean";
+      default -> null;
+    };
+  }
+
+  /** The type at {@code pos[0]} in a descriptor, which is moved past it. */
+  private static Object simple(String descriptor, int[] pos) {
+    char c = descriptor.charAt(pos[0]++);
+    if (c == '[') {
+      return object("kind", "array", "type", simple(descriptor, pos));
+    } else if (c == 'L') {
+      int end = descriptor.indexOf(';', pos[0]);
+      String name = descriptor.substring(pos[0], end);
+      pos[0] = end + 1;
+      return object("kind", "class", "name", name);
+    }
+    String base = base(c);
+    if (base == null) {
+      throw new IllegalArgumentException("Invalid descriptor: " + descriptor);
+    }
+    return base;
+  }
+
+  /**
+   * Reads descriptors and generic signatures into types with annotations,
+   * where nested classes known from the InnerClasses attribute are split into
+   * their outer class and their simple name.
+   */
+  private static final class Types {
+    final Map<String, String[]> nested = new HashMap<>();
+    private String s;
+    private int pos;
+
+    Types read(String signature) {
+      s = signature;
+      pos = 0;
+      return this;
+    }
+
+    boolean more() {
+      return pos < s.length();
+    }
+
+    private boolean at(char c) {
+      return pos < s.length() && s.charAt(pos) == c;
+    }
+
+    List<Object> typeParams() {
+      List<Object> params = new ArrayList<>();
+      if (!at('<')) {
+        return params;
+      }
+      pos++;
+      while (!at('>')) {
+        int colon = s.indexOf(':', pos);
+        String name = s.substring(pos, colon);
+        pos = colon + 1;
+        Object classBound = at(':') ? null : unannotated(type());
+        List<Object> interfaceBounds = new ArrayList<>();
+        while (at(':')) {
+          pos++;
+          interfaceBounds.add(unannotated(type()));
+        }
+        params.add(object(
+            "annotations", List.of(),
+            "classbound", classBound,
+            "interfacebounds", interfaceBounds,
+            "name", name));
+      }
+      pos++;
+      return params;
+    }
+
+    List<Map<String, Object>> params() {
+      List<Map<String, Object>> params = new ArrayList<>();
+      pos++;
+      while (!at(')')) {
+        params.add(type());
+      }
+      pos++;
+      return params;
+    }
+
+    Object returns() {
+      if (at('V')) {
+        pos++;
+        return null;
+      }
+      return unannotated(type());
+    }
+
+    List<Object> exceptions() {
+      List<Object> exceptions = new ArrayList<>();
+      while (at('^')) {
+        pos++;
+        exceptions.add(type());
+      }
+      return exceptions;
+    }
+
+    Map<String, Object> type() {
+      char c = s.charAt(pos++);
+      if (c == '[') {
+        return object("annotations", List.of(), "kind", "array", "type", type());
+      } else if (c == 'T') {
+        int end = s.indexOf(';', pos);
+        String name = s.substring(pos, end);
+        pos = end + 1;
+        return object("annotations", List.of(), "kind", "typevar", "name", name);
+      } else if (c == 'L') {
+        return classType();
+      }
+      String base = base(c);
+      if (base == null) {
+        throw new IllegalArgumentException("Invalid signature: " + s);
+      }
+      return object("annotations", List.of(), "base", base);
+    }
+
+    private Map<String, Object> classType() {
+      String name = identifier();
+      List<Object> args = typeArgs();
+      List<Map<String, Object>> inner = new ArrayList<>();
+      while (at('.')) {
+        pos++;
+        String simpleName = identifier();
+        inner.add(part(simpleName, typeArgs()));
+      }
+      pos++;
+      while (nested.containsKey(name)) {
+        String[] outer = nested.get(name);
+        inner.add(0, part(outer[1], args));
+        args = List.of();
+        name = outer[0];
+      }
+      Map<String, Object> next = null;
+      for (int i = inner.size() - 1; i >= 0; i--) {
+        inner.get(i).put("inner", next);
+        next = inner.get(i);
+      }
+      return object("annotations", List.of(), "args", args, "inner", next, "kind", "class", "name", name);
+    }
+
+    private String identifier() {
+      int start = pos;
+      while (";<.".indexOf(s.charAt(pos)) < 0) {
+        pos++;
+      }
+      return s.substring(start, pos);
+    }
+
+    private static Map<String, Object> part(String name, List<Object> args) {
+      return object("annotations", List.of(), "args", args, "inner", null, "name", name);
+    }
+
+    private List<Object> typeArgs() {
+      List<Object> args = new ArrayList<>();
+      if (!at('<')) {
+        return args;
+      }
+      pos++;
+      while (!at('>')) {
+        char c = s.charAt(pos);
+        if (c == '*') {
+          pos++;
+          args.add(object("annotations", List.of(), "kind", "any"));
+        } else if (c == '+' || c == '-') {
+          pos++;
+          args.add(object("annotations", List.of(), "kind", c == '+' ? "extends" : "super",
+              "type", unannotated(type())));
+        } else {
+          args.add(object("annotations", List.of(), "kind", "simple", "type", unannotated(type())));
+        }
+      }
+      pos++;
+      return args;
+    }
+  }
+
+  private static Map<String, Object> unannotated(Map<String, Object> type) {
+    type.remove("annotations");
+    return type;
+  }
+
+  /** A class type as the super class or an interface, which have no kind. */
+  private static Map<String, Object> unkind(Map<String, Object> type) {
+    type.remove("kind");
+    return type;
+  }
+
+  /**
+   * A floating point number as jvm2json writes it, where whole numbers have
+   * no fraction.
+   */
+  private static Object number(double x) {
+    if (Double.isFinite(x) && x == Math.rint(x)) {
+      return new BigDecimal(x).toBigInteger();
+    }
+    return x;
+  }
+
+  private static List<String> flags(int access, String[] names) {
+    List<String> flags = new ArrayList<>();
+    for (int i = 0; i < names.length; i++) {
+      if ((access & (1 << i)) != 0 && names[i] != null) {
+        flags.add(names[i]);
+      }
+    }
+    return flags;
+  }
+
+  /** A JSON object from keys and values, which may be null. */
+  private static Map<String, Object> object(Object... keysAndValues) {
+    Map<String, Object> object = new HashMap<>();
+    for (int i = 0; i < keysAndValues.length; i += 2) {
+      object.put((String) keysAndValues[i], keysAndValues[i + 1]);
+    }
+    return object;
+  }
+}
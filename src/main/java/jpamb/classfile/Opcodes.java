@@ -0,0 +1,68 @@
+package jpamb.classfile;
+
+import java.nio.ByteBuffer;
+
+/** The opcodes of the JVM, and the lengths of their instructions. */
+public final class Opcodes {
+  private Opcodes() {
+  }
+
+  public static final int TABLESWITCH = 0xaa;
+  public static final int LOOKUPSWITCH = 0xab;
+  public static final int WIDE = 0xc4;
+  public static final int IINC = 0x84;
+  public static final int GOTO_W = 0xc8;
+  public static final int JSR_W = 0xc9;
+
+  /** The length of each instruction, or 0 if it is variable or invalid. */
+  private static final byte[] LENGTHS = new byte[256];
+
+  static {
+    for (int op = 0x00; op <= 0xc9; op++) {
+      LENGTHS[op] = 1;
+    }
+    for (int op : new int[] { 0x10, 0x12, 0x15, 0x16, 0x17, 0x18, 0x19, 0x36, 0x37, 0x38, 0x39,
+        0x3a, 0xa9, 0xbc }) {
+      LENGTHS[op] = 2;
+    }
+    for (int op : new int[] { 0x11, 0x13, 0x14, 0x84, 0xb2, 0xb3, 0xb4, 0xb5, 0xb6, 0xb7, 0xb8,
+        0xbb, 0xbd, 0xc0, 0xc1, 0xc6, 0xc7 }) {
+      LENGTHS[op] = 3;
+    }
+    for (int op = 0x99; op <= 0xa8; op++) {
+      LENGTHS[op] = 3;
+    }
+    LENGTHS[0xc5] = 4;
+    LENGTHS[0xb9] = 5;
+    LENGTHS[0xba] = 5;
+    LENGTHS[GOTO_W] = 5;
+    LENGTHS[JSR_W] = 5;
+    LENGTHS[TABLESWITCH] = 0;
+    LENGTHS[LOOKUPSWITCH] = 0;
+    LENGTHS[WIDE] = 0;
+  }
+
+  /**
+   * The length of the instruction at {@code pc} in the code starting at
+   * {@code code} in {@code b}.
+   */
+  public static int length(ByteBuffer b, int code, int pc) {
+    int op = b.get(code + pc) & 0xff;
+    int length = LENGTHS[op];
+    if (length > 0) {
+      return length;
+    }
+    int q = code + pc + 1 + padding(pc);
+    return switch (op) {
+      case TABLESWITCH -> q - code - pc + 12 + 4 * (b.getInt(q + 8) - b.getInt(q + 4) + 1);
+      case LOOKUPSWITCH -> q - code - pc + 8 + 8 * b.getInt(q + 4);
+      case WIDE -> (b.get(code + pc + 1) & 0xff) == IINC ? 6 : 4;
+      default -> throw new IllegalArgumentException("Invalid opcode " + op + " at " + pc);
+    };
+  }
+
+  /** The padding after a switch at {@code pc}, which aligns its operands. */
+  public static int padding(int pc) {
+    return -(pc + 1) & 3;
+  }
+}
@@ -0,0 +1,90 @@
+package jpamb.coverage;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A java agent that records which methods and basic blocks run, see
+ * {@link Coverage}. The agent is packaged with
+ * {@code src/main/resources/jpamb/coverage/MANIFEST.MF}, e.g.
+ *
+ * <pre>
+ * jar --create --file coverage.jar --manifest src/main/resources/jpamb/coverage/MANIFEST.MF -C target/classes jpamb
+ * java -javaagent:coverage.jar=out=coverage.txt -cp target/classes jpamb.Runtime --timeout 1 --batch target/stats/cases.txt
+ * </pre>
+ *
+ * The options are separated by commas: {@code out=<file>} is where the
+ * reachability map is written when the JVM exits, {@code coverage.txt} by
+ * default, and every {@code include=<prefix>} adds a prefix of internal
+ * class names to instrument, {@code jpamb/cases/} by default.
+ *
+ * Only classes of version 55 (Java 11) or later are instrumented, as the
+ * probes load their bitset as a dynamic constant.
+ */
+public final class Agent {
+  private Agent() {
+  }
+
+  public static void premain(String options, Instrumentation instrumentation) {
+    Path out = Path.of("coverage.txt");
+    List<String> include = new ArrayList<>();
+    if (options != null && !options.isEmpty()) {
+      for (String option : options.split(",")) {
+        if (option.startsWith("out=")) {
+          out = Path.of(option.substring(4));
+        } else if (option.startsWith("include=")) {
+          include.add(option.substring(8));
+        } else {
+          throw new IllegalArgumentException("Unknown coverage option: " + option);
+        }
+      }
+    }
+    if (include.isEmpty()) {
+      include.add("jpamb/cases/");
+    }
+    instrumentation.addTransformer(new Transformer(include));
+    Coverage.attach();
+    Path file = out;
+    java.lang.Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      try (var stream = new PrintStream(Files.newOutputStream(file), false, "UTF-8")) {
+        Coverage.dump(stream);
+      } catch (IOException e) {
+        System.err.println("Could not write coverage to " + file + ": " + e.getMessage());
+      }
+    }, "jpamb-coverage"));
+  }
+
+  public static void agentmain(String options, Instrumentation instrumentation) {
+    premain(options, instrumentation);
+  }
+
+  private static final class Transformer implements ClassFileTransformer {
+    private final List<String> include;
+
+    Transformer(List<String> include) {
+      this.include = include;
+    }
+
+    @Override
+    public byte[] transform(ClassLoader loader, String className, Class<?> redefined,
+        ProtectionDomain domain, byte[] classfile) {
+      if (className == null || redefined != null || className.startsWith("jpamb/coverage/")
+          || include.stream().noneMatch(className::startsWith)) {
+        return null;
+      }
+      try {
+        return Instrumenter.instrument(classfile);
+      } catch (RuntimeException e) {
+        System.err.println("Could not instrument " + className + ": " + e.getMessage());
+        return null;
+      }
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package jpamb.coverage;
+
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The probes of the classes instrumented by the coverage {@link Agent}, and
+ * what they have seen.
+ *
+ * Every instrumented method has one probe per basic block, which sets its
+ * entry in the {@code boolean[]} of the method when the block is entered.
+ * {@link jpamb.Runtime} clears the probes before every case and records the
+ * blocks that ran after it, and everything that ran at any point is kept in
+ * a bitset per method, which is dumped as the reachability map when the JVM
+ * exits.
+ */
+public final class Coverage {
+  private Coverage() {
+  }
+
+  /** The basic blocks of a method, by their bytecode offset. */
+  static final class Probes {
+    final String id;
+    final int[] offsets;
+    final boolean[] hits;
+    final long[] seen;
+
+    Probes(String id, int[] offsets) {
+      this.id = id;
+      this.offsets = offsets;
+      this.hits = new boolean[offsets.length];
+      this.seen = new long[(offsets.length + 63) >>> 6];
+    }
+
+    /** Move the hits into {@link #seen}, and return them as a bitset. */
+    long[] collect() {
+      long[] bits = null;
+      for (int i = 0; i < hits.length; i++) {
+        if (hits[i]) {
+          if (bits == null) {
+            bits = new long[seen.length];
+          }
+          bits[i >>> 6] |= 1L << i;
+          hits[i] = false;
+        }
+      }
+      if (bits != null) {
+        for (int i = 0; i < bits.length; i++) {
+          seen[i] |= bits[i];
+        }
+      }
+      return bits;
+    }
+  }
+
+  private static final Map<String, Probes[]> classes = new ConcurrentHashMap<>();
+  private static final List<String> cases = new ArrayList<>();
+  private static volatile boolean attached;
+
+  /** Whether the coverage agent is running in this JVM. */
+  public static boolean isAttached() {
+    return attached;
+  }
+
+  static void attach() {
+    attached = true;
+  }
+
+  static void register(String className, Probes[] probes) {
+    classes.put(className, probes);
+  }
+
+  /**
+   * The bootstrap method of the dynamic constants loaded by the probes. The
+   * name of the constant is the index of the method in its class.
+   */
+  public static boolean[] probes(MethodHandles.Lookup lookup, String name, Class<?> type) {
+    Probes[] probes = classes.get(lookup.lookupClass().getName());
+    if (probes == null) {
+      throw new IllegalStateException("No probes for " + lookup.lookupClass());
+    }
+    return probes[Integer.parseInt(name)].hits;
+  }
+
+  /** Forget which blocks ran, before running a case. */
+  public static synchronized void clear() {
+    for (Probes probes : methods()) {
+      probes.collect();
+    }
+  }
+
+  /**
+   * Record the blocks that ran since the last {@link #clear}, for the case
+   * {@code thecase}, like {@code jpamb.cases.Simple.divideByN:(I)I (0) -> divide by zero}.
+   */
+  public static synchronized void record(String thecase) {
+    StringBuilder b = new StringBuilder(thecase).append('\n');
+    for (Probes probes : methods()) {
+      long[] bits = probes.collect();
+      if (bits != null) {
+        b.append("  ").append(probes.id).append(' ');
+        offsets(probes, bits, b);
+        b.append('\n');
+      }
+    }
+    cases.add(b.toString());
+  }
+
+  /**
+   * Print the reachability map: every instrumented method with the number
+   * of blocks that ran, the number of blocks, and the offsets of the blocks
+   * that ran, followed by a blank line and the blocks of each recorded case.
+   */
+  static synchronized void dump(PrintStream out) {
+    List<Probes> methods = methods();
+    methods.sort(Comparator.comparing(p -> p.id));
+    for (Probes probes : methods) {
+      probes.collect();
+      StringBuilder b = new StringBuilder();
+      offsets(probes, probes.seen, b);
+      out.printf("%-60s %d/%d %s%n", probes.id, count(probes.seen), probes.offsets.length, b);
+    }
+    if (!cases.isEmpty()) {
+      out.println();
+      for (String c : cases) {
+        out.print(c);
+      }
+    }
+    out.flush();
+  }
+
+  private static List<Probes> methods() {
+    List<Probes> methods = new ArrayList<>();
+    for (Probes[] probes : classes.values()) {
+      methods.addAll(Arrays.asList(probes));
+    }
+    return methods;
+  }
+
+  private static int count(long[] bits) {
+    int n = 0;
+    for (long word : bits) {
+      n += Long.bitCount(word);
+    }
+    return n;
+  }
+
+  private static void offsets(Probes probes, long[] bits, StringBuilder b) {
+    b.append('[');
+    boolean first = true;
+    for (int i = 0; i < probes.offsets.length; i++) {
+      if ((bits[i >>> 6] & (1L << i)) != 0) {
+        if (!first) {
+          b.append(", ");
+        }
+        b.append(probes.offsets[i]);
+        first = false;
+      }
+    }
+    b.append(']');
+  }
+}
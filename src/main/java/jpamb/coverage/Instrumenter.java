@@ -0,0 +1,578 @@
+package jpamb.coverage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jpamb.classfile.Opcodes;
+
+import static jpamb.classfile.Opcodes.*;
+
+/**
+ * Adds a probe to the start of every basic block of every method in a class
+ * file. A probe is
+ *
+ * <pre>
+ * ldc_w    #probes   // the boolean[] of the method, a dynamic constant
+ * sipush   block
+ * iconst_1
+ * bastore
+ * </pre>
+ *
+ * and leaves the stack as it found it, so the stack map frames stay valid
+ * once their offsets are moved. Branches, switches, exception tables, stack
+ * map frames, line numbers and local variable ranges are moved to the new
+ * offsets, and type annotations on code are dropped.
+ *
+ * A method whose branches would no longer fit in 16 bits, or whose code would
+ * grow beyond 64k, is left as it is.
+ */
+final class Instrumenter {
+  private static final int PROBE_SIZE = 8;
+
+  private final byte[] b;
+  private final ByteBuffer buffer;
+  private final String[] utf8;
+  private final int poolCount;
+  private final int poolEnd;
+
+  private final ByteArrayOutputStream extra = new ByteArrayOutputStream();
+  private final Map<String, Integer> strings = new HashMap<>();
+  private int next;
+
+  private Instrumenter(byte[] b) {
+    this.b = b;
+    this.buffer = ByteBuffer.wrap(b);
+    this.poolCount = u2(8);
+    this.utf8 = new String[poolCount];
+    int p = 10;
+    for (int i = 1; i < poolCount; i++) {
+      int tag = u1(p);
+      switch (tag) {
+        case 1 -> {
+          int n = u2(p + 1);
+          utf8[i] = modifiedUtf8(p, n);
+          strings.putIfAbsent(utf8[i], i);
+          p += 3 + n;
+        }
+        case 3, 4 -> p += 5;
+        case 5, 6 -> {
+          p += 9;
+          i++;
+        }
+        case 7, 8, 16, 19, 20 -> p += 3;
+        case 9, 10, 11, 12, 17, 18 -> p += 5;
+        case 15 -> p += 4;
+        default -> throw new IllegalArgumentException("Invalid constant pool tag " + tag);
+      }
+    }
+    this.poolEnd = p;
+    this.next = poolCount;
+  }
+
+  /**
+   * The instrumented class file, or null if there is nothing to instrument.
+   */
+  static byte[] instrument(byte[] classfile) {
+    if (classfile.length < 10 || (classfile[0] & 0xff) != 0xca || (classfile[1] & 0xff) != 0xfe) {
+      throw new IllegalArgumentException("Not a class file");
+    }
+    int major = ((classfile[6] & 0xff) << 8) | (classfile[7] & 0xff);
+    if (major < 55) {
+      return null;
+    }
+    try {
+      return new Instrumenter(classfile).run();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private byte[] run() throws IOException {
+    int p = poolEnd;
+    String className = utf8[u2(position(u2(p + 2)) + 1)].replace('/', '.');
+    p += 8 + 2 * u2(p + 6);
+    int fields = p;
+    p += 2;
+    for (int i = u2(fields); i > 0; i--) {
+      p = skipMember(p);
+    }
+    int methods = p;
+    p += 2;
+    for (int i = u2(methods); i > 0; i--) {
+      p = skipMember(p);
+    }
+    int attributes = p;
+
+    int bootstrapAttribute = -1;
+    int bootstraps = 0;
+    p += 2;
+    for (int i = u2(attributes); i > 0; i--) {
+      if ("BootstrapMethods".equals(utf8[u2(p)])) {
+        bootstrapAttribute = p;
+        bootstraps = u2(p + 6);
+      }
+      p += 6 + u4(p + 2);
+    }
+    int end = p;
+
+    int bootstrap = handle(6, entry(10,
+        entry(7, utf8("jpamb/coverage/Coverage")),
+        entry(12, utf8("probes"),
+            utf8("(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;)[Z"))));
+    int type = utf8("[Z");
+
+    var out = new ByteArrayOutputStream();
+    var data = new DataOutputStream(out);
+    data.write(b, poolEnd, methods - poolEnd);
+
+    List<Coverage.Probes> probes = new ArrayList<>();
+    p = methods + 2;
+    data.writeShort(u2(methods));
+    for (int i = u2(methods); i > 0; i--) {
+      data.write(b, p, 8);
+      String id = className + "." + utf8[u2(p + 2)] + ":" + utf8[u2(p + 4)];
+      int count = u2(p + 6);
+      p += 8;
+      for (int j = 0; j < count; j++) {
+        int length = u4(p + 2);
+        byte[] code = null;
+        if ("Code".equals(utf8[u2(p)])) {
+          int[] blocks = blocks(p + 6);
+          if (blocks != null) {
+            int condy = entry(17, bootstraps, entry(12, utf8(Integer.toString(probes.size())), type));
+            code = code(p + 6, condy, blocks);
+            if (code != null) {
+              probes.add(new Coverage.Probes(id, blocks));
+            }
+          }
+        }
+        if (code == null) {
+          data.write(b, p, 6 + length);
+        } else {
+          data.writeShort(u2(p));
+          data.writeInt(code.length);
+          data.write(code);
+        }
+        p += 6 + length;
+      }
+    }
+    if (probes.isEmpty()) {
+      return null;
+    }
+
+    if (bootstrapAttribute < 0) {
+      data.writeShort(u2(attributes) + 1);
+      data.write(b, attributes + 2, end - attributes - 2);
+      data.writeShort(utf8("BootstrapMethods"));
+      data.writeInt(6);
+      data.writeShort(1);
+      data.writeShort(bootstrap);
+      data.writeShort(0);
+    } else {
+      data.writeShort(u2(attributes));
+      data.write(b, attributes + 2, bootstrapAttribute - attributes - 2);
+      data.writeShort(u2(bootstrapAttribute));
+      data.writeInt(u4(bootstrapAttribute + 2) + 4);
+      data.writeShort(bootstraps + 1);
+      int after = bootstrapAttribute + 6 + u4(bootstrapAttribute + 2);
+      data.write(b, bootstrapAttribute + 8, after - bootstrapAttribute - 8);
+      data.writeShort(bootstrap);
+      data.writeShort(0);
+      data.write(b, after, end - after);
+    }
+
+    if (next > 0xffff) {
+      return null;
+    }
+    var result = new ByteArrayOutputStream(b.length + extra.size() + out.size());
+    var header = new DataOutputStream(result);
+    header.write(b, 0, 8);
+    header.writeShort(next);
+    header.write(b, 10, poolEnd - 10);
+    extra.writeTo(result);
+    out.writeTo(result);
+    Coverage.register(className, probes.toArray(Coverage.Probes[]::new));
+    return result.toByteArray();
+  }
+
+  /** The offsets of the basic blocks of the code at {@code a}. */
+  private int[] blocks(int a) {
+    int length = u4(a + 4);
+    int c = a + 8;
+    var starts = new BitSet(length + 1);
+    var leaders = new BitSet(length + 1);
+    leaders.set(0);
+    for (int pc = 0; pc < length; pc += size(c, pc)) {
+      starts.set(pc);
+      int op = u1(c + pc);
+      if ((op >= 0x99 && op <= 0xa8) || op == 0xc6 || op == 0xc7) {
+        leaders.set(pc + s2(c + pc + 1));
+        leaders.set(pc + 3);
+      } else if (op == GOTO_W || op == JSR_W) {
+        leaders.set(pc + s4(c + pc + 1));
+        leaders.set(pc + 5);
+      } else if (op == TABLESWITCH) {
+        int q = c + pc + 1 + pad(pc);
+        leaders.set(pc + s4(q));
+        for (int i = s4(q + 8) - s4(q + 4); i >= 0; i--) {
+          leaders.set(pc + s4(q + 12 + 4 * i));
+        }
+        leaders.set(pc + size(c, pc));
+      } else if (op == LOOKUPSWITCH) {
+        int q = c + pc + 1 + pad(pc);
+        leaders.set(pc + s4(q));
+        for (int i = s4(q + 4) - 1; i >= 0; i--) {
+          leaders.set(pc + s4(q + 12 + 8 * i));
+        }
+        leaders.set(pc + size(c, pc));
+      } else if ((op >= 0xac && op <= 0xb1) || op == 0xbf || op == 0xa9) {
+        leaders.set(pc + size(c, pc));
+      }
+    }
+    int table = c + length;
+    for (int i = u2(table) - 1; i >= 0; i--) {
+      leaders.set(u2(table + 2 + 8 * i + 4));
+    }
+    leaders.clear(length);
+    if (leaders.cardinality() > Short.MAX_VALUE) {
+      return null;
+    }
+    int[] blocks = leaders.stream().toArray();
+    for (int leader : blocks) {
+      if (!starts.get(leader)) {
+        throw new IllegalArgumentException("Branch into the middle of an instruction at " + leader);
+      }
+    }
+    return blocks;
+  }
+
+  /**
+   * The Code attribute at {@code a}, without its name and length, with a
+   * probe at the start of every block, or null if it cannot be instrumented.
+   */
+  private byte[] code(int a, int condy, int[] blocks) throws IOException {
+    int length = u4(a + 4);
+    int c = a + 8;
+    var leaders = new BitSet(length);
+    for (int block : blocks) {
+      leaders.set(block);
+    }
+
+    int[] start = new int[length + 1];
+    int[] insn = new int[length + 1];
+    int pos = 0;
+    for (int pc = 0; pc < length; pc += size(c, pc)) {
+      start[pc] = pos;
+      if (leaders.get(pc)) {
+        pos += PROBE_SIZE;
+      }
+      insn[pc] = pos;
+      int op = u1(c + pc);
+      pos += size(c, pc);
+      if (op == TABLESWITCH || op == LOOKUPSWITCH) {
+        pos += pad(insn[pc]) - pad(pc);
+      }
+    }
+    start[length] = pos;
+    insn[length] = pos;
+    if (pos > 0xffff) {
+      return null;
+    }
+
+    var out = new ByteArrayOutputStream(pos + 64);
+    var data = new DataOutputStream(out);
+    data.writeShort(Math.min(u2(a) + 3, 0xffff));
+    data.writeShort(u2(a + 2));
+    data.writeInt(pos);
+    int block = 0;
+    for (int pc = 0; pc < length; pc += size(c, pc)) {
+      if (leaders.get(pc)) {
+        data.write(0x13);
+        data.writeShort(condy);
+        data.write(0x11);
+        data.writeShort(block++);
+        data.write(0x04);
+        data.write(0x54);
+      }
+      int op = u1(c + pc);
+      if ((op >= 0x99 && op <= 0xa8) || op == 0xc6 || op == 0xc7) {
+        int offset = start[pc + s2(c + pc + 1)] - insn[pc];
+        if (offset != (short) offset) {
+          return null;
+        }
+        data.write(op);
+        data.writeShort(offset);
+      } else if (op == GOTO_W || op == JSR_W) {
+        data.write(op);
+        data.writeInt(start[pc + s4(c + pc + 1)] - insn[pc]);
+      } else if (op == TABLESWITCH || op == LOOKUPSWITCH) {
+        int q = c + pc + 1 + pad(pc);
+        data.write(op);
+        data.write(new byte[pad(insn[pc])]);
+        data.writeInt(start[pc + s4(q)] - insn[pc]);
+        if (op == TABLESWITCH) {
+          data.writeInt(s4(q + 4));
+          data.writeInt(s4(q + 8));
+          for (int i = 0; i <= s4(q + 8) - s4(q + 4); i++) {
+            data.writeInt(start[pc + s4(q + 12 + 4 * i)] - insn[pc]);
+          }
+        } else {
+          data.writeInt(s4(q + 4));
+          for (int i = 0; i < s4(q + 4); i++) {
+            data.writeInt(s4(q + 8 + 8 * i));
+            data.writeInt(start[pc + s4(q + 12 + 8 * i)] - insn[pc]);
+          }
+        }
+      } else {
+        data.write(b, c + pc, size(c, pc));
+      }
+    }
+
+    int p = c + length;
+    int handlers = u2(p);
+    data.writeShort(handlers);
+    p += 2;
+    for (int i = 0; i < handlers; i++, p += 8) {
+      data.writeShort(start[u2(p)]);
+      data.writeShort(start[u2(p + 2)]);
+      data.writeShort(start[u2(p + 4)]);
+      data.writeShort(u2(p + 6));
+    }
+
+    int count = u2(p);
+    var attributes = new ByteArrayOutputStream();
+    var attribute = new DataOutputStream(attributes);
+    int kept = 0;
+    p += 2;
+    for (int i = 0; i < count; i++) {
+      String name = utf8[u2(p)];
+      int size = u4(p + 2);
+      int q = p + 6;
+      p = q + size;
+      byte[] body;
+      switch (name) {
+        case "StackMapTable" -> body = frames(q, start, insn);
+        case "LineNumberTable" -> {
+          var lines = new ByteArrayOutputStream(size);
+          var d = new DataOutputStream(lines);
+          d.writeShort(u2(q));
+          for (int j = 0; j < u2(q); j++) {
+            d.writeShort(start[u2(q + 2 + 4 * j)]);
+            d.writeShort(u2(q + 4 + 4 * j));
+          }
+          body = lines.toByteArray();
+        }
+        case "LocalVariableTable", "LocalVariableTypeTable" -> {
+          var locals = new ByteArrayOutputStream(size);
+          var d = new DataOutputStream(locals);
+          d.writeShort(u2(q));
+          for (int j = 0; j < u2(q); j++) {
+            int e = q + 2 + 10 * j;
+            int from = u2(e);
+            d.writeShort(start[from]);
+            d.writeShort(start[from + u2(e + 2)] - start[from]);
+            d.write(b, e + 4, 6);
+          }
+          body = locals.toByteArray();
+        }
+        default -> body = null;
+      }
+      if (body != null) {
+        attribute.writeShort(u2(p - size - 6));
+        attribute.writeInt(body.length);
+        attribute.write(body);
+        kept++;
+      }
+    }
+    data.writeShort(kept);
+    attributes.writeTo(out);
+    return out.toByteArray();
+  }
+
+  /** The StackMapTable at {@code q}, moved to the new offsets. */
+  private byte[] frames(int q, int[] start, int[] insn) throws IOException {
+    var out = new ByteArrayOutputStream();
+    var data = new DataOutputStream(out);
+    int count = u2(q);
+    data.writeShort(count);
+    int p = q + 2;
+    int offset = -1;
+    int moved = -1;
+    for (int i = 0; i < count; i++) {
+      int type = u1(p++);
+      int delta;
+      if (type < 64) {
+        delta = type;
+      } else if (type < 128) {
+        delta = type - 64;
+      } else if (type >= 247) {
+        delta = u2(p);
+        p += 2;
+      } else {
+        throw new IllegalArgumentException("Invalid stack map frame " + type);
+      }
+      offset += delta + 1;
+      int newDelta = start[offset] - moved - 1;
+      moved = start[offset];
+      if (type < 64 || type == 251) {
+        if (newDelta < 64) {
+          data.write(newDelta);
+        } else {
+          data.write(251);
+          data.writeShort(newDelta);
+        }
+      } else if (type < 128 || type == 247) {
+        if (newDelta < 64) {
+          data.write(64 + newDelta);
+        } else {
+          data.write(247);
+          data.writeShort(newDelta);
+        }
+        p = verification(p, data, insn);
+      } else if (type < 251) {
+        data.write(type);
+        data.writeShort(newDelta);
+      } else if (type < 255) {
+        data.write(type);
+        data.writeShort(newDelta);
+        for (int j = type - 251; j > 0; j--) {
+          p = verification(p, data, insn);
+        }
+      } else {
+        data.write(type);
+        data.writeShort(newDelta);
+        for (int k = 0; k < 2; k++) {
+          int n = u2(p);
+          p += 2;
+          data.writeShort(n);
+          for (int j = 0; j < n; j++) {
+            p = verification(p, data, insn);
+          }
+        }
+      }
+    }
+    return out.toByteArray();
+  }
+
+  private int verification(int p, DataOutputStream data, int[] insn) throws IOException {
+    int tag = u1(p);
+    data.write(tag);
+    if (tag == 7) {
+      data.writeShort(u2(p + 1));
+      return p + 3;
+    } else if (tag == 8) {
+      data.writeShort(insn[u2(p + 1)]);
+      return p + 3;
+    }
+    return p + 1;
+  }
+
+  /** The length of the instruction at {@code pc} in the code at {@code c}. */
+  private int size(int c, int pc) {
+    return Opcodes.length(buffer, c, pc);
+  }
+
+  private static int pad(int pc) {
+    return Opcodes.padding(pc);
+  }
+
+  private int skipMember(int p) {
+    int count = u2(p + 6);
+    p += 8;
+    for (int i = 0; i < count; i++) {
+      p += 6 + u4(p + 2);
+    }
+    return p;
+  }
+
+  /** The position of the constant pool entry {@code index}. */
+  private int position(int index) {
+    int p = 10;
+    for (int i = 1; i < index; i++) {
+      int tag = u1(p);
+      switch (tag) {
+        case 1 -> p += 3 + u2(p + 1);
+        case 3, 4 -> p += 5;
+        case 5, 6 -> {
+          p += 9;
+          i++;
+        }
+        case 7, 8, 16, 19, 20 -> p += 3;
+        case 9, 10, 11, 12, 17, 18 -> p += 5;
+        case 15 -> p += 4;
+        default -> throw new IllegalArgumentException("Invalid constant pool tag " + tag);
+      }
+    }
+    return p;
+  }
+
+  private int utf8(String s) throws IOException {
+    Integer index = strings.get(s);
+    if (index != null) {
+      return index;
+    }
+    var data = new DataOutputStream(extra);
+    data.write(1);
+    data.writeUTF(s);
+    strings.put(s, next);
+    return next++;
+  }
+
+  /** Add a constant pool entry with the given tag and two byte operands. */
+  private int entry(int tag, int... operands) throws IOException {
+    var data = new DataOutputStream(extra);
+    data.write(tag);
+    for (int operand : operands) {
+      data.writeShort(operand);
+    }
+    return next++;
+  }
+
+  /** Add a method handle of the given kind to the constant pool. */
+  private int handle(int kind, int reference) throws IOException {
+    var data = new DataOutputStream(extra);
+    data.write(15);
+    data.write(kind);
+    data.writeShort(reference);
+    return next++;
+  }
+
+  private String modifiedUtf8(int p, int n) {
+    try {
+      return new DataInputStream(new ByteArrayInputStream(b, p + 1, n + 2)).readUTF();
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Invalid constant pool string at " + p, e);
+    }
+  }
+
+  private int u1(int p) {
+    return b[p] & 0xff;
+  }
+
+  private int u2(int p) {
+    return ((b[p] & 0xff) << 8) | (b[p + 1] & 0xff);
+  }
+
+  private int s2(int p) {
+    return (short) u2(p);
+  }
+
+  private int u4(int p) {
+    return s4(p);
+  }
+
+  private int s4(int p) {
+    return ((b[p] & 0xff) << 24) | ((b[p + 1] & 0xff) << 16) | ((b[p + 2] & 0xff) << 8)
+        | (b[p + 3] & 0xff);
+  }
+}
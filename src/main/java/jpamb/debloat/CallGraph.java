@@ -0,0 +1,850 @@
+package jpamb.debloat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import jpamb.classfile.ClassFile;
+import jpamb.classfile.ClassFile.Attribute;
+import jpamb.classfile.ClassFile.Code;
+import jpamb.classfile.ClassFile.Handler;
+import jpamb.classfile.ClassFile.Member;
+import jpamb.classfile.ClassFile.Ref;
+
+import static jpamb.classfile.ClassFile.*;
+
+/**
+ * The call graph of a whole program, from its entry points, which are the
+ * case methods or the main methods.
+ *
+ * <pre>
+ * java -cp target/classes jpamb.debloat.CallGraph [--cha] [--cases] [--main] target/classes
+ * </pre>
+ *
+ * Static and special calls go to the method they resolve to. Virtual and
+ * interface calls go to the method that each possible receiver selects:
+ * with Class Hierarchy Analysis every concrete subtype of the owner of the
+ * call is a possible receiver, with Rapid Type Analysis, the default, only
+ * those created by reachable code. A class created by reachable code can be
+ * called back by the JDK, so its methods that override a JDK method are
+ * reachable too. Method handles, lambdas included, are calls from the
+ * method that loads them. Reflection is not followed. Fields are used when
+ * reachable code reads, writes or takes a handle of them.
+ *
+ * Methods and classes are numbered, and the edges are kept as adjacency
+ * arrays, so the graph stays small for large programs. The report lists
+ * the classes that nothing reachable uses, and the methods of the other
+ * classes that are never called.
+ */
+public final class CallGraph {
+  /** How the receivers of virtual calls are found. */
+  public enum Analysis {
+    CHA, RTA
+  }
+
+  /** Where the program starts. */
+  public enum Entry {
+    /** The methods annotated with {@code @Case}. */
+    CASES,
+    /** The {@code public static void main(String[])} methods. */
+    MAIN
+  }
+
+  private static final int ACC_PRIVATE = 0x0002;
+  private static final int ACC_STATIC = 0x0008;
+  private static final int ACC_INTERFACE = 0x0200;
+  private static final int ACC_ABSTRACT = 0x0400;
+
+  private final Analysis analysis;
+
+  private final ClassFile[] files;
+  private final Map<String, Integer> classes = new HashMap<>();
+  private final int[] superclass;
+  private final int[][] interfaces;
+  private final int[][] subtypes;
+
+  /** The methods of class {@code c} are numbered from {@code firstMethod[c]} to {@code firstMethod[c + 1]}. */
+  private final int[] firstMethod;
+  private final int[] owner;
+  private final Member[] members;
+  /** Methods by owner, name and descriptor, like {@code jpamb/cases/Calls.fib(I)I}. */
+  private final Map<String, Integer> methods = new HashMap<>();
+
+  /** The fields of class {@code c} are numbered from {@code firstField[c]} to {@code firstField[c + 1]}. */
+  private final int[] firstField;
+  private final Member[] fieldMembers;
+  /** Fields by owner, name and descriptor, like {@code jpamb/cases/Arrays.SIZEI}. */
+  private final Map<String, Integer> fields = new HashMap<>();
+
+  private final BitSet reachable = new BitSet();
+  private final BitSet referenced = new BitSet();
+  private final BitSet initialized = new BitSet();
+  private final BitSet instantiated = new BitSet();
+  private final BitSet used = new BitSet();
+  private final BitSet usedFields = new BitSet();
+
+  private final Ints worklist = new Ints();
+  private final Ints edgeFrom = new Ints();
+  private final Ints edgeTo = new Ints();
+  private int[] edgeStart;
+  private int[] edges;
+
+  /** A virtual call of a method, with the methods calling it and the methods it can select. */
+  private static final class Call {
+    final String method;
+    final Ints callers = new Ints();
+    final Ints targets = new Ints();
+
+    Call(String method) {
+      this.method = method;
+    }
+  }
+
+  private final Map<String, Call> calls = new HashMap<>();
+  private final List<List<Call>> callsByOwner = new ArrayList<>();
+
+  /** Whether a JDK type or one of its supertypes declares a method, by type and method. */
+  private final Map<String, Boolean> library = new HashMap<>();
+
+  private CallGraph(List<ClassFile> program, Analysis analysis) {
+    this.analysis = analysis;
+    List<ClassFile> unique = new ArrayList<>();
+    for (ClassFile cf : program) {
+      String name = cf.name();
+      if (!name.endsWith("module-info") && !name.endsWith("package-info") && !classes.containsKey(name)) {
+        classes.put(name, unique.size());
+        unique.add(cf);
+      }
+    }
+    files = unique.toArray(ClassFile[]::new);
+    int n = files.length;
+    superclass = new int[n];
+    interfaces = new int[n][];
+    firstMethod = new int[n + 1];
+    firstField = new int[n + 1];
+    int[] subtypeCount = new int[n];
+    for (int c = 0; c < n; c++) {
+      String superName = files[c].superName();
+      superclass[c] = superName == null ? -1 : classes.getOrDefault(superName, -1);
+      if (superclass[c] >= 0) {
+        subtypeCount[superclass[c]]++;
+      }
+      interfaces[c] = files[c].interfaces().stream()
+          .mapToInt(i -> classes.getOrDefault(i, -1)).filter(i -> i >= 0).toArray();
+      for (int i : interfaces[c]) {
+        subtypeCount[i]++;
+      }
+      firstMethod[c + 1] = firstMethod[c] + files[c].methods().size();
+      firstField[c + 1] = firstField[c] + files[c].fields().size();
+      callsByOwner.add(new ArrayList<>());
+    }
+    subtypes = new int[n][];
+    for (int c = 0; c < n; c++) {
+      subtypes[c] = new int[subtypeCount[c]];
+      subtypeCount[c] = 0;
+    }
+    for (int c = 0; c < n; c++) {
+      if (superclass[c] >= 0) {
+        subtypes[superclass[c]][subtypeCount[superclass[c]]++] = c;
+      }
+      for (int i : interfaces[c]) {
+        subtypes[i][subtypeCount[i]++] = c;
+      }
+    }
+
+    owner = new int[firstMethod[n]];
+    members = new Member[firstMethod[n]];
+    for (int c = 0; c < n; c++) {
+      int m = firstMethod[c];
+      for (Member member : files[c].methods()) {
+        owner[m] = c;
+        members[m] = member;
+        methods.put(files[c].name() + "." + member.name() + member.descriptor(), m);
+        m++;
+      }
+    }
+
+    fieldMembers = new Member[firstField[n]];
+    for (int c = 0; c < n; c++) {
+      int f = firstField[c];
+      for (Member member : files[c].fields()) {
+        fieldMembers[f] = member;
+        fields.put(files[c].name() + "." + member.name() + member.descriptor(), f);
+        f++;
+      }
+    }
+  }
+
+  /** The call graph of {@code program}, from the entry points of the given kinds. */
+  public static CallGraph build(List<ClassFile> program, Analysis analysis, Set<Entry> entries) {
+    var graph = new CallGraph(program, analysis);
+    for (int m = 0; m < graph.members.length; m++) {
+      Member member = graph.members[m];
+      boolean isEntry = false;
+      for (Entry entry : entries) {
+        isEntry |= switch (entry) {
+          case CASES -> hasAnnotation(graph.files[graph.owner[m]], member, "Ljpamb/utils/Case;")
+              || hasAnnotation(graph.files[graph.owner[m]], member, "Ljpamb/utils/Cases;");
+          case MAIN -> member.is("main", "([Ljava/lang/String;)V") && (member.access() & ACC_STATIC) != 0;
+        };
+      }
+      if (isEntry) {
+        graph.initialize(graph.owner[m]);
+        graph.reach(m, -1);
+      }
+    }
+    graph.solve();
+    return graph;
+  }
+
+  public int classCount() {
+    return files.length;
+  }
+
+  public ClassFile classFile(int c) {
+    return files[c];
+  }
+
+  /** The class with this internal name, or -1 if it is not part of the program. */
+  public int classIndex(String name) {
+    return classes.getOrDefault(name, -1);
+  }
+
+  /**
+   * Whether the class is used by reachable code: it is initialized, created,
+   * has a reachable method, is named by reachable code or is a supertype of
+   * a used class.
+   */
+  public boolean isUsed(int c) {
+    return used.get(c);
+  }
+
+  public int methodCount() {
+    return members.length;
+  }
+
+  /** The methods of class {@code c} are the numbers from this up to {@code firstMethod(c + 1)}. */
+  public int firstMethod(int c) {
+    return firstMethod[c];
+  }
+
+  public int classOf(int m) {
+    return owner[m];
+  }
+
+  public Member member(int m) {
+    return members[m];
+  }
+
+  /** The id of a method, like {@code jpamb.cases.Calls.fib:(I)I}. */
+  public String id(int m) {
+    return files[owner[m]].name().replace('/', '.') + "." + members[m].name() + ":" + members[m].descriptor();
+  }
+
+  /** Whether the method can be called from an entry point. */
+  public boolean isReachable(int m) {
+    return reachable.get(m);
+  }
+
+  /**
+   * Whether a reachable call resolves to the method, so it has to stay even
+   * if it is never selected, as when it is abstract or overridden in every
+   * created class.
+   */
+  public boolean isReferenced(int m) {
+    return referenced.get(m);
+  }
+
+  public int fieldCount() {
+    return fieldMembers.length;
+  }
+
+  /** The fields of class {@code c} are the numbers from this up to {@code firstField(c + 1)}. */
+  public int firstField(int c) {
+    return firstField[c];
+  }
+
+  public Member field(int f) {
+    return fieldMembers[f];
+  }
+
+  /** Whether reachable code reads, writes or takes a handle of the field. */
+  public boolean isUsedField(int f) {
+    return usedFields.get(f);
+  }
+
+  /** The methods that {@code m} can call. */
+  public int[] callees(int m) {
+    return Arrays.copyOfRange(edges, edgeStart[m], edgeStart[m + 1]);
+  }
+
+  private void solve() {
+    while (worklist.size() > 0) {
+      scan(worklist.pop());
+    }
+    // Sort the edges by caller, without duplicates, into adjacency arrays.
+    long[] pairs = new long[edgeFrom.size()];
+    for (int i = 0; i < pairs.length; i++) {
+      pairs[i] = (long) edgeFrom.get(i) << 32 | edgeTo.get(i);
+    }
+    Arrays.sort(pairs);
+    edgeStart = new int[members.length + 1];
+    var targets = new Ints();
+    long last = -1;
+    for (long pair : pairs) {
+      if (pair != last) {
+        edgeStart[(int) (pair >>> 32) + 1]++;
+        targets.add((int) pair);
+        last = pair;
+      }
+    }
+    for (int m = 0; m < members.length; m++) {
+      edgeStart[m + 1] += edgeStart[m];
+    }
+    edges = targets.toArray();
+  }
+
+  private void reach(int m, int from) {
+    if (from >= 0) {
+      edgeFrom.add(from);
+      edgeTo.add(m);
+    }
+    referenced.set(m);
+    if (!reachable.get(m)) {
+      reachable.set(m);
+      worklist.add(m);
+      use(owner[m]);
+    }
+  }
+
+  private void use(int c) {
+    if (c >= 0 && !used.get(c)) {
+      used.set(c);
+      use(superclass[c]);
+      for (int i : interfaces[c]) {
+        use(i);
+      }
+    }
+  }
+
+  private void initialize(int c) {
+    if (c >= 0 && !initialized.get(c)) {
+      initialized.set(c);
+      use(c);
+      initialize(superclass[c]);
+      int clinit = method(c, "<clinit>()V");
+      if (clinit >= 0) {
+        reach(clinit, -1);
+      }
+    }
+  }
+
+  private void instantiate(int c) {
+    if (c < 0 || instantiated.get(c)) {
+      return;
+    }
+    instantiated.set(c);
+    initialize(c);
+    for (int m = firstMethod[c]; m < firstMethod[c + 1]; m++) {
+      Member member = members[m];
+      if ((member.access() & (ACC_STATIC | ACC_PRIVATE | ACC_ABSTRACT)) == 0
+          && !member.name().startsWith("<")
+          && overridesLibrary(c, member.name() + member.descriptor())) {
+        reach(m, -1);
+      }
+    }
+    if (analysis == Analysis.RTA) {
+      for (int s : supertypes(c)) {
+        for (Call call : callsByOwner.get(s)) {
+          target(call, dispatch(c, call.method));
+        }
+      }
+    }
+  }
+
+  /** A virtual call of {@code method} on {@code ownerName} from {@code from}. */
+  private void virtual(int from, String ownerName, String method) {
+    int c = classIndex(ownerName);
+    if (c < 0) {
+      // Calls of JDK methods reach the program through overrides, see instantiate.
+      return;
+    }
+    int declared = resolve(c, method);
+    if (declared >= 0) {
+      referenced.set(declared);
+    }
+    Call call = calls.get(c + "." + method);
+    if (call == null) {
+      call = new Call(method);
+      calls.put(c + "." + method, call);
+      callsByOwner.get(c).add(call);
+      for (int s : subtypesOf(c)) {
+        int flags = files[s].access();
+        if ((flags & (ACC_INTERFACE | ACC_ABSTRACT)) == 0
+            && (analysis == Analysis.CHA || instantiated.get(s))) {
+          target(call, dispatch(s, method));
+        }
+      }
+    }
+    // A method that makes the same call twice is a caller twice, which only repeats edges.
+    call.callers.add(from);
+    for (int i = 0; i < call.targets.size(); i++) {
+      reach(call.targets.get(i), from);
+    }
+  }
+
+  private void target(Call call, int m) {
+    if (m >= 0 && !call.targets.contains(m)) {
+      call.targets.add(m);
+      for (int i = 0; i < call.callers.size(); i++) {
+        reach(m, call.callers.get(i));
+      }
+    }
+  }
+
+  /** A static or special call from {@code from}. */
+  private void direct(int from, String ownerName, String method, boolean isStatic) {
+    int c = classIndex(ownerName);
+    if (c < 0) {
+      return;
+    }
+    int m = resolve(c, method);
+    if (m >= 0) {
+      if (isStatic) {
+        initialize(owner[m]);
+      }
+      reach(m, from);
+    }
+  }
+
+  /** The method of {@code c} with this name and descriptor, or -1. */
+  private int method(int c, String method) {
+    return methods.getOrDefault(files[c].name() + "." + method, -1);
+  }
+
+  /** The method that a call of {@code method} on {@code c} resolves to, or -1. */
+  private int resolve(int c, String method) {
+    for (int k = c; k >= 0; k = superclass[k]) {
+      int m = method(k, method);
+      if (m >= 0) {
+        return m;
+      }
+    }
+    return defaultMethod(c, method, false);
+  }
+
+  /** The method that a virtual call of {@code method} selects on an instance of {@code c}, or -1. */
+  private int dispatch(int c, String method) {
+    for (int k = c; k >= 0; k = superclass[k]) {
+      int m = method(k, method);
+      if (m >= 0 && (members[m].access() & (ACC_STATIC | ACC_ABSTRACT)) == 0) {
+        return m;
+      }
+    }
+    return defaultMethod(c, method, true);
+  }
+
+  private int defaultMethod(int c, String method, boolean concrete) {
+    for (int s : supertypes(c)) {
+      if ((files[s].access() & ACC_INTERFACE) != 0) {
+        int m = method(s, method);
+        if (m >= 0 && (members[m].access() & ACC_STATIC) == 0
+            && (!concrete || (members[m].access() & ACC_ABSTRACT) == 0)) {
+          return m;
+        }
+      }
+    }
+    return -1;
+  }
+
+  /** Use the field that an access of {@code field} on {@code ownerName} resolves to. */
+  private void useField(String ownerName, String field) {
+    int c = classIndex(ownerName);
+    if (c < 0) {
+      return;
+    }
+    for (int s : supertypes(c)) {
+      Integer f = fields.get(files[s].name() + "." + field);
+      if (f != null) {
+        usedFields.set(f);
+        return;
+      }
+    }
+  }
+
+  /** {@code c} and its supertypes in the program. */
+  private int[] supertypes(int c) {
+    var found = new Ints();
+    var seen = new BitSet();
+    found.add(c);
+    seen.set(c);
+    for (int i = 0; i < found.size(); i++) {
+      int k = found.get(i);
+      if (superclass[k] >= 0 && !seen.get(superclass[k])) {
+        seen.set(superclass[k]);
+        found.add(superclass[k]);
+      }
+      for (int s : interfaces[k]) {
+        if (!seen.get(s)) {
+          seen.set(s);
+          found.add(s);
+        }
+      }
+    }
+    return found.toArray();
+  }
+
+  /** {@code c} and its subtypes in the program. */
+  private int[] subtypesOf(int c) {
+    var found = new Ints();
+    var seen = new BitSet();
+    found.add(c);
+    seen.set(c);
+    for (int i = 0; i < found.size(); i++) {
+      for (int s : subtypes[found.get(i)]) {
+        if (!seen.get(s)) {
+          seen.set(s);
+          found.add(s);
+        }
+      }
+    }
+    return found.toArray();
+  }
+
+  /** Whether a JDK supertype of {@code c} declares an instance method the JDK can call back. */
+  private boolean overridesLibrary(int c, String method) {
+    for (int s : supertypes(c)) {
+      String superName = files[s].superName();
+      if (superName != null && classIndex(superName) < 0 && libraryDeclares(superName, method)) {
+        return true;
+      }
+      for (String i : files[s].interfaces()) {
+        if (classIndex(i) < 0 && libraryDeclares(i, method)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private boolean libraryDeclares(String type, String method) {
+    String key = type + "." + method;
+    Boolean known = library.get(key);
+    if (known != null) {
+      return known;
+    }
+    boolean declares = false;
+    ClassFile cf = null;
+    try (InputStream in = ClassLoader.getSystemResourceAsStream(type + ".class")) {
+      if (in != null) {
+        cf = ClassFile.read(in.readAllBytes());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (cf != null) {
+      for (Member m : cf.methods()) {
+        if ((m.name() + m.descriptor()).equals(method) && (m.access() & (ACC_STATIC | ACC_PRIVATE)) == 0) {
+          declares = true;
+        }
+      }
+      if (!declares && cf.superName() != null) {
+        declares = libraryDeclares(cf.superName(), method);
+      }
+      for (String i : cf.interfaces()) {
+        declares = declares || libraryDeclares(i, method);
+      }
+    }
+    library.put(key, declares);
+    return declares;
+  }
+
+  /** Follow the calls, creations and uses of a reachable method. */
+  private void scan(int m) {
+    ClassFile cf = files[owner[m]];
+    Member member = members[m];
+    useDescriptor(member.descriptor());
+    Code code = member.code();
+    if (code == null) {
+      return;
+    }
+    for (Handler h : code.handlers()) {
+      if (h.catchType() != null) {
+        useName(h.catchType());
+      }
+    }
+    ByteBuffer b = code.bytecode();
+    for (int pc = 0; pc < code.length(); pc += code.instructionLength(pc)) {
+      int op = b.get(pc) & 0xff;
+      switch (op) {
+        case 0x12 -> constant(m, cf, b.get(pc + 1) & 0xff);
+        case 0x13, 0x14 -> constant(m, cf, b.getShort(pc + 1) & 0xffff);
+        case 0xb2, 0xb3 -> {
+          Ref ref = cf.ref(b.getShort(pc + 1) & 0xffff);
+          useRef(ref);
+          useField(ref.owner(), ref.name() + ref.descriptor());
+          initialize(classIndex(ref.owner()));
+        }
+        case 0xb4, 0xb5 -> {
+          Ref ref = cf.ref(b.getShort(pc + 1) & 0xffff);
+          useRef(ref);
+          useField(ref.owner(), ref.name() + ref.descriptor());
+        }
+        case 0xb6, 0xb9 -> {
+          Ref ref = cf.ref(b.getShort(pc + 1) & 0xffff);
+          useRef(ref);
+          virtual(m, ref.owner(), ref.name() + ref.descriptor());
+        }
+        case 0xb7, 0xb8 -> {
+          Ref ref = cf.ref(b.getShort(pc + 1) & 0xffff);
+          useRef(ref);
+          direct(m, ref.owner(), ref.name() + ref.descriptor(), op == 0xb8);
+        }
+        case 0xba -> {
+          int index = b.getShort(pc + 1) & 0xffff;
+          useDescriptor(cf.ref(index).descriptor());
+          bootstrap(m, cf, cf.bootstrap(index));
+        }
+        case 0xbb -> {
+          String name = cf.className(b.getShort(pc + 1) & 0xffff);
+          useName(name);
+          instantiate(classIndex(name));
+        }
+        case 0xbd, 0xc0, 0xc1, 0xc5 -> useName(cf.className(b.getShort(pc + 1) & 0xffff));
+        default -> {
+        }
+      }
+    }
+  }
+
+  private void constant(int m, ClassFile cf, int index) {
+    switch (cf.tag(index)) {
+      case CLASS -> useName(cf.className(index));
+      case METHOD_TYPE -> useDescriptor(cf.methodType(index));
+      case METHOD_HANDLE -> handle(m, cf, index);
+      case DYNAMIC -> {
+        useDescriptor(cf.ref(index).descriptor());
+        bootstrap(m, cf, cf.bootstrap(index));
+      }
+      default -> {
+      }
+    }
+  }
+
+  /** The bootstrap method and the constant arguments of a dynamic call site or constant. */
+  private void bootstrap(int m, ClassFile cf, int bootstrap) {
+    ByteBuffer in = cf.attribute("BootstrapMethods").body();
+    in.getShort();
+    for (int i = 0; i < bootstrap; i++) {
+      in.getShort();
+      int args = in.getShort() & 0xffff;
+      in.position(in.position() + 2 * args);
+    }
+    handle(m, cf, in.getShort() & 0xffff);
+    for (int i = in.getShort() & 0xffff; i > 0; i--) {
+      constant(m, cf, in.getShort() & 0xffff);
+    }
+  }
+
+  private void handle(int m, ClassFile cf, int index) {
+    Ref ref = cf.handleRef(index);
+    useRef(ref);
+    String method = ref.name() + ref.descriptor();
+    switch (cf.handleKind(index)) {
+      case 1, 3 -> useField(ref.owner(), method);
+      case 2, 4 -> {
+        useField(ref.owner(), method);
+        initialize(classIndex(ref.owner()));
+      }
+      case 5, 9 -> virtual(m, ref.owner(), method);
+      case 6 -> direct(m, ref.owner(), method, true);
+      case 7 -> direct(m, ref.owner(), method, false);
+      case 8 -> {
+        instantiate(classIndex(ref.owner()));
+        direct(m, ref.owner(), method, false);
+      }
+      default -> {
+      }
+    }
+  }
+
+  private void useRef(Ref ref) {
+    useName(ref.owner());
+    useDescriptor(ref.descriptor());
+  }
+
+  /** Use a class by its name, which is a descriptor for arrays. */
+  private void useName(String name) {
+    if (name.startsWith("[")) {
+      useDescriptor(name);
+    } else {
+      use(classIndex(name));
+    }
+  }
+
+  private void useDescriptor(String descriptor) {
+    for (int i = descriptor.indexOf('L'); i >= 0; i = descriptor.indexOf('L', i)) {
+      int end = descriptor.indexOf(';', i);
+      use(classIndex(descriptor.substring(i + 1, end)));
+      i = end;
+    }
+  }
+
+  private static boolean hasAnnotation(ClassFile cf, Member member, String type) {
+    for (Attribute a : member.attributes()) {
+      if (a.name().equals("RuntimeVisibleAnnotations") || a.name().equals("RuntimeInvisibleAnnotations")) {
+        ByteBuffer in = a.body();
+        for (int i = in.getShort() & 0xffff; i > 0; i--) {
+          if (cf.utf8(in.getShort() & 0xffff).equals(type)) {
+            return true;
+          }
+          for (int j = in.getShort() & 0xffff; j > 0; j--) {
+            in.getShort();
+            skipElementValue(in);
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  private static void skipElementValue(ByteBuffer in) {
+    switch (in.get()) {
+      case 'e' -> in.getInt();
+      case '@' -> {
+        in.getShort();
+        for (int j = in.getShort() & 0xffff; j > 0; j--) {
+          in.getShort();
+          skipElementValue(in);
+        }
+      }
+      case '[' -> {
+        for (int j = in.getShort() & 0xffff; j > 0; j--) {
+          skipElementValue(in);
+        }
+      }
+      default -> in.getShort();
+    }
+  }
+
+  /** The class files in folders and jars. */
+  public static List<ClassFile> load(List<Path> paths) throws IOException {
+    List<ClassFile> program = new ArrayList<>();
+    for (Path path : paths) {
+      if (Files.isDirectory(path)) {
+        try (Stream<Path> walk = Files.walk(path)) {
+          for (Path file : (Iterable<Path>) walk.filter(p -> p.toString().endsWith(".class"))::iterator) {
+            program.add(ClassFile.open(file));
+          }
+        }
+      } else {
+        try (var zip = new ZipFile(path.toFile())) {
+          for (ZipEntry entry : Collections.list(zip.entries())) {
+            if (entry.getName().endsWith(".class") && !entry.getName().startsWith("META-INF/")) {
+              try (InputStream in = zip.getInputStream(entry)) {
+                program.add(ClassFile.read(in.readAllBytes()));
+              }
+            }
+          }
+        }
+      }
+    }
+    return program;
+  }
+
+  /** Print the unused classes, and the methods of the used classes that are never called. */
+  public void report(PrintStream out) {
+    int reachableMethods = reachable.cardinality();
+    out.printf("Reachable methods: %d of %d%n", reachableMethods, members.length);
+    out.printf("Used classes: %d of %d%n", used.cardinality(), files.length);
+    out.println("Unused classes:");
+    List<String> lines = new ArrayList<>();
+    for (int c = 0; c < files.length; c++) {
+      if (!used.get(c)) {
+        lines.add("  " + files[c].name().replace('/', '.'));
+      }
+    }
+    lines.stream().sorted().forEach(out::println);
+    out.println("Unreachable methods:");
+    lines.clear();
+    for (int m = 0; m < members.length; m++) {
+      if (used.get(owner[m]) && !reachable.get(m)) {
+        lines.add("  " + id(m));
+      }
+    }
+    lines.stream().sorted().forEach(out::println);
+  }
+
+  public static void main(String[] args) throws IOException {
+    Analysis analysis = Analysis.RTA;
+    Set<Entry> entries = EnumSet.noneOf(Entry.class);
+    int i = 0;
+    for (; i < args.length && args[i].startsWith("--"); i++) {
+      switch (args[i]) {
+        case "--cha" -> analysis = Analysis.CHA;
+        case "--cases" -> entries.add(Entry.CASES);
+        case "--main" -> entries.add(Entry.MAIN);
+        default -> throw new RuntimeException("Unknown option " + args[i]);
+      }
+    }
+    if (i == args.length) {
+      throw new RuntimeException("Expected [--cha] [--cases] [--main] <classes folder or jar>...");
+    }
+    List<Path> paths = Arrays.stream(args, i, args.length).map(Path::of).toList();
+    build(load(paths), analysis, entries.isEmpty() ? EnumSet.of(Entry.CASES) : entries).report(System.out);
+  }
+
+  /** A growable array of ints. */
+  static final class Ints {
+    private int[] values = new int[16];
+    private int size;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    int get(int i) {
+      return values[i];
+    }
+
+    int pop() {
+      return values[--size];
+    }
+
+    int size() {
+      return size;
+    }
+
+    boolean contains(int value) {
+      for (int i = 0; i < size; i++) {
+        if (values[i] == value) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+}
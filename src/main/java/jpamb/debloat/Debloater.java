@@ -0,0 +1,200 @@
+package jpamb.debloat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import jpamb.classfile.ClassFile;
+import jpamb.debloat.CallGraph.Analysis;
+import jpamb.debloat.CallGraph.Entry;
+
+/**
+ * Write a program without what its call graph never reaches.
+ *
+ * <pre>
+ * java -cp target/classes jpamb.debloat.Debloater [--cha] [--cases] [--main] &lt;output folder or jar&gt; &lt;classes folder or jar&gt;...
+ * </pre>
+ *
+ * The classes that nothing reachable uses are left out, and the others are
+ * rewritten without their unused fields and methods and with a smaller
+ * constant pool, see {@link Shrinker}. Other files are copied as they are.
+ * The classes are rewritten in parallel, and the output is a jar if its
+ * name ends in {@code .jar} and a folder otherwise. A report of what was
+ * removed and how many bytes it saved is printed at the end.
+ *
+ * Reflection is not followed, so a program that reflects on its own
+ * classes, like {@code jpamb.Runtime} running the cases, needs both
+ * {@code --cases} and {@code --main}.
+ */
+public final class Debloater {
+  private Debloater() {
+  }
+
+  /** A file of the program, by its path in the folder or jar. */
+  private record Resource(String name, byte[] bytes) {
+  }
+
+  /** A rewritten file, with the numbers for the report. */
+  private record Result(Resource input, Resource output, int fields, int keptFields, int methods,
+      int keptMethods) {
+  }
+
+  public static void main(String[] args) throws IOException {
+    Analysis analysis = Analysis.RTA;
+    Set<Entry> entries = EnumSet.noneOf(Entry.class);
+    int i = 0;
+    for (; i < args.length && args[i].startsWith("--"); i++) {
+      switch (args[i]) {
+        case "--cha" -> analysis = Analysis.CHA;
+        case "--cases" -> entries.add(Entry.CASES);
+        case "--main" -> entries.add(Entry.MAIN);
+        default -> throw new RuntimeException("Unknown option " + args[i]);
+      }
+    }
+    if (args.length - i < 2) {
+      throw new RuntimeException(
+          "Expected [--cha] [--cases] [--main] <output folder or jar> <classes folder or jar>...");
+    }
+    Path output = Path.of(args[i]);
+    List<Path> inputs = Arrays.stream(args, i + 1, args.length).map(Path::of).toList();
+    debloat(inputs, output, analysis, entries.isEmpty() ? EnumSet.of(Entry.CASES) : entries);
+  }
+
+  public static void debloat(List<Path> inputs, Path output, Analysis analysis, Set<Entry> entries)
+      throws IOException {
+    List<Resource> resources = new ArrayList<>(load(inputs).values());
+    List<ClassFile> program = new ArrayList<>();
+    Map<String, ClassFile> classes = new LinkedHashMap<>();
+    for (Resource r : resources) {
+      if (r.name().endsWith(".class")) {
+        ClassFile cf = ClassFile.read(r.bytes());
+        classes.put(r.name(), cf);
+        program.add(cf);
+      }
+    }
+    CallGraph graph = CallGraph.build(program, analysis, entries);
+
+    List<Result> results = resources.parallelStream().map(r -> {
+      ClassFile cf = classes.get(r.name());
+      int c = cf == null ? -1 : graph.classIndex(cf.name());
+      if (c < 0) {
+        // Not a class, or a module-info or package-info.
+        return new Result(r, r, 0, 0, 0, 0);
+      }
+      int fields = cf.fields().size();
+      int methods = cf.methods().size();
+      if (!graph.isUsed(c) || graph.classFile(c) != cf) {
+        return new Result(r, null, fields, 0, methods, 0);
+      }
+      var shrinker = new Shrinker(graph, c);
+      var shrunk = new Resource(r.name(), shrinker.shrink());
+      return new Result(r, shrunk, fields, shrinker.keptFields(), methods, shrinker.keptMethods());
+    }).toList();
+
+    List<Resource> kept = results.stream().map(Result::output).filter(Objects::nonNull)
+        .sorted(Comparator.comparing(Resource::name)).toList();
+    if (output.getFileName().toString().endsWith(".jar")) {
+      writeJar(kept, output);
+    } else {
+      kept.parallelStream().forEach(r -> {
+        Path file = output.resolve(r.name());
+        try {
+          Files.createDirectories(file.getParent());
+          Files.write(file, r.bytes());
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    }
+    report(results);
+  }
+
+  /** The files of the folders and jars by name, where the first one of a name wins. */
+  private static Map<String, Resource> load(List<Path> inputs) throws IOException {
+    Map<String, Resource> resources = new LinkedHashMap<>();
+    for (Path path : inputs) {
+      if (Files.isDirectory(path)) {
+        try (Stream<Path> walk = Files.walk(path)) {
+          for (Path file : (Iterable<Path>) walk.filter(Files::isRegularFile).sorted()::iterator) {
+            String name = path.relativize(file).toString().replace('\\', '/');
+            if (!resources.containsKey(name)) {
+              resources.put(name, new Resource(name, Files.readAllBytes(file)));
+            }
+          }
+        }
+      } else {
+        try (var zip = new ZipFile(path.toFile())) {
+          for (ZipEntry entry : Collections.list(zip.entries())) {
+            if (!entry.isDirectory() && !resources.containsKey(entry.getName())) {
+              try (InputStream in = zip.getInputStream(entry)) {
+                resources.put(entry.getName(), new Resource(entry.getName(), in.readAllBytes()));
+              }
+            }
+          }
+        }
+      }
+    }
+    return resources;
+  }
+
+  /** Write a jar, with the manifest first as {@code java -jar} expects. */
+  private static void writeJar(List<Resource> resources, Path jar) throws IOException {
+    if (jar.getParent() != null) {
+      Files.createDirectories(jar.getParent());
+    }
+    List<Resource> ordered = new ArrayList<>(resources);
+    ordered.sort(Comparator.comparing((Resource r) -> !r.name().equals("META-INF/MANIFEST.MF")));
+    try (OutputStream file = Files.newOutputStream(jar); var zip = new ZipOutputStream(file)) {
+      for (Resource r : ordered) {
+        zip.putNextEntry(new ZipEntry(r.name()));
+        zip.write(r.bytes());
+        zip.closeEntry();
+      }
+    }
+  }
+
+  private static void report(List<Result> results) {
+    int classes = 0;
+    int keptClasses = 0;
+    int fields = 0;
+    int keptFields = 0;
+    int methods = 0;
+    int keptMethods = 0;
+    long before = 0;
+    long after = 0;
+    for (Result r : results) {
+      if (r.input().name().endsWith(".class")) {
+        classes++;
+        keptClasses += r.output() == null ? 0 : 1;
+        fields += r.fields();
+        keptFields += r.keptFields();
+        methods += r.methods();
+        keptMethods += r.keptMethods();
+        before += r.input().bytes().length;
+        after += r.output() == null ? 0 : r.output().bytes().length;
+      }
+    }
+    System.out.printf("Classes: %d of %d kept%n", keptClasses, classes);
+    System.out.printf("Methods: %d of %d kept%n", keptMethods, methods);
+    System.out.printf("Fields: %d of %d kept%n", keptFields, fields);
+    System.out.printf("Class file bytes: %d -> %d, %d saved (%.1f%%)%n",
+        before, after, before - after, before == 0 ? 0.0 : 100.0 * (before - after) / before);
+  }
+}
@@ -0,0 +1,661 @@
+package jpamb.debloat;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import jpamb.classfile.ClassFile;
+import jpamb.classfile.ClassFile.Attribute;
+import jpamb.classfile.ClassFile.Member;
+import jpamb.classfile.Opcodes;
+import jpamb.debloat.CallGraph.Ints;
+
+import static jpamb.classfile.ClassFile.*;
+
+/**
+ * A class file without the fields and methods that a call graph does not
+ * keep, and with only the constant pool entries that the rest still uses.
+ *
+ * The class is copied part by part after its constant pool, with every
+ * constant pool index written as it was and its position noted. The entries
+ * that those indices name are marked, with the entries and bootstrap methods
+ * they name in turn, and numbered again in their old order, so an index
+ * that fit in the single byte of an {@code ldc} still does. Then the noted
+ * indices are patched and the new constant pool is written in front.
+ *
+ * A method that reachable calls resolve to but that is never run, like one
+ * overridden in every created class, keeps its descriptor but gets a body
+ * that throws, since its code was never followed. Attributes that are not
+ * known are dropped, as they may name entries that are gone.
+ */
+final class Shrinker {
+  private static final Set<String> KNOWN = Set.of(
+      "ConstantValue", "Code", "StackMapTable", "Exceptions", "InnerClasses", "EnclosingMethod",
+      "Synthetic", "Signature", "SourceFile", "SourceDebugExtension", "LineNumberTable",
+      "LocalVariableTable", "LocalVariableTypeTable", "Deprecated",
+      "RuntimeVisibleAnnotations", "RuntimeInvisibleAnnotations",
+      "RuntimeVisibleParameterAnnotations", "RuntimeInvisibleParameterAnnotations",
+      "RuntimeVisibleTypeAnnotations", "RuntimeInvisibleTypeAnnotations",
+      "AnnotationDefault", "MethodParameters", "NestHost", "NestMembers", "Record",
+      "PermittedSubclasses");
+
+  private final ClassFile cf;
+  private final CallGraph graph;
+  private final int c;
+  private final ByteBuffer in;
+  private int p;
+
+  private final Bytes out = new Bytes();
+  /** Where the body has two byte and one byte constant pool indices. */
+  private final Ints wide = new Ints();
+  private final Ints narrow = new Ints();
+
+  private final boolean[] usedEntries;
+  private final Ints pending = new Ints();
+  private final int[] bootstraps;
+  private final boolean[] usedBootstraps;
+
+  private int keptFields;
+  private int keptMethods;
+
+  /** The class {@code c} of the graph. */
+  Shrinker(CallGraph graph, int c) {
+    this.graph = graph;
+    this.c = c;
+    this.cf = graph.classFile(c);
+    this.in = cf.bytes();
+    this.usedEntries = new boolean[cf.poolSize()];
+    Attribute table = cf.attribute("BootstrapMethods");
+    this.bootstraps = new int[table == null ? 0 : u2(table.offset())];
+    for (int i = 0, q = table == null ? 0 : table.offset() + 2; i < bootstraps.length; i++) {
+      bootstraps[i] = q;
+      q += 4 + 2 * u2(q + 2);
+    }
+    this.usedBootstraps = new boolean[bootstraps.length];
+  }
+
+  int keptFields() {
+    return keptFields;
+  }
+
+  int keptMethods() {
+    return keptMethods;
+  }
+
+  byte[] shrink() {
+    p = cf.headerOffset();
+    copy(2);
+    index();
+    index();
+    int interfaces = u2();
+    out.u2(interfaces);
+    for (int i = 0; i < interfaces; i++) {
+      index();
+    }
+
+    List<Member> fields = cf.fields();
+    int count = out.size();
+    out.u2(0);
+    for (int i = 0; i < fields.size(); i++) {
+      if (graph.isUsedField(graph.firstField(c) + i)) {
+        member(fields.get(i), false);
+        keptFields++;
+      }
+    }
+    out.set2(count, keptFields);
+
+    List<Member> methods = cf.methods();
+    count = out.size();
+    out.u2(0);
+    for (int i = 0; i < methods.size(); i++) {
+      int m = graph.firstMethod(c) + i;
+      if (graph.isReachable(m) || graph.isReferenced(m)) {
+        member(methods.get(i), !graph.isReachable(m));
+        keptMethods++;
+      }
+    }
+    out.set2(count, keptMethods);
+
+    p = attributesOffset();
+    count = out.size();
+    int attributes = attributes();
+    while (pending.size() > 0) {
+      visit(pending.pop());
+    }
+    if (bootstrapMethods()) {
+      attributes++;
+    }
+    out.set2(count, attributes);
+
+    // Number the used entries again, in their old order.
+    int[] entries = new int[usedEntries.length];
+    int next = 1;
+    for (int i = 1; i < usedEntries.length; i++) {
+      if (usedEntries[i]) {
+        entries[i] = next;
+        next += cf.tag(i) == LONG || cf.tag(i) == DOUBLE ? 2 : 1;
+      }
+    }
+    for (int i = 0; i < wide.size(); i++) {
+      out.set2(wide.get(i), entries[out.get2(wide.get(i))]);
+    }
+    for (int i = 0; i < narrow.size(); i++) {
+      out.set1(narrow.get(i), entries[out.get1(narrow.get(i))]);
+    }
+    int[] methodsOfBootstrap = new int[bootstraps.length];
+    for (int i = 0, k = 0; i < bootstraps.length; i++) {
+      if (usedBootstraps[i]) {
+        methodsOfBootstrap[i] = k++;
+      }
+    }
+
+    var result = new Bytes();
+    result.put(in, 0, 8);
+    result.u2(next);
+    for (int i = 1; i < usedEntries.length; i++) {
+      if (usedEntries[i]) {
+        int q = cf.entryOffset(i);
+        int tag = cf.tag(i);
+        switch (tag) {
+          case UTF8 -> result.put(in, q, 3 + u2(q + 1));
+          case INTEGER, FLOAT -> result.put(in, q, 5);
+          case LONG, DOUBLE -> result.put(in, q, 9);
+          case CLASS, STRING, METHOD_TYPE, MODULE, PACKAGE -> {
+            result.u1(tag);
+            result.u2(entries[u2(q + 1)]);
+          }
+          case FIELDREF, METHODREF, INTERFACE_METHODREF, NAME_AND_TYPE -> {
+            result.u1(tag);
+            result.u2(entries[u2(q + 1)]);
+            result.u2(entries[u2(q + 3)]);
+          }
+          case METHOD_HANDLE -> {
+            result.u1(tag);
+            result.u1(in.get(q + 1));
+            result.u2(entries[u2(q + 2)]);
+          }
+          case DYNAMIC, INVOKE_DYNAMIC -> {
+            result.u1(tag);
+            result.u2(methodsOfBootstrap[u2(q + 1)]);
+            result.u2(entries[u2(q + 3)]);
+          }
+          default -> throw new IllegalStateException("constant pool tag " + tag);
+        }
+      }
+    }
+    result.put(out);
+    return result.toByteArray();
+  }
+
+  /** Where the class attributes start. */
+  private int attributesOffset() {
+    List<Member> methods = cf.methods();
+    if (!methods.isEmpty()) {
+      Member last = methods.get(methods.size() - 1);
+      return last.offset() + last.length();
+    }
+    List<Member> fields = cf.fields();
+    int header = cf.headerOffset();
+    if (fields.isEmpty()) {
+      return header + 8 + 2 * u2(header + 6) + 4;
+    }
+    Member last = fields.get(fields.size() - 1);
+    return last.offset() + last.length() + 2;
+  }
+
+  private void member(Member member, boolean stub) {
+    p = member.offset();
+    copy(2);
+    index();
+    index();
+    if (!stub || member.code() == null) {
+      attributes();
+      return;
+    }
+    int count = out.size();
+    out.u2(0);
+    int kept = 0;
+    for (Attribute a : member.attributes()) {
+      if (a.name().equals("Code")) {
+        // aconst_null, athrow
+        p = a.offset() - 6;
+        index();
+        out.u4(14);
+        out.u2(1);
+        out.u2(member.code().maxLocals());
+        out.u4(2);
+        out.u1(0x01);
+        out.u1(0xbf);
+        out.u2(0);
+        out.u2(0);
+        kept++;
+      } else if (attribute(a.offset() - 6)) {
+        kept++;
+      }
+    }
+    out.set2(count, kept);
+  }
+
+  /** Copy the attributes at {@code p}, and return how many were kept. */
+  private int attributes() {
+    int count = u2();
+    int at = out.size();
+    out.u2(0);
+    int kept = 0;
+    for (int i = 0; i < count; i++) {
+      int start = p;
+      int end = start + 6 + in.getInt(start + 2);
+      if (attribute(start)) {
+        kept++;
+      }
+      p = end;
+    }
+    out.set2(at, kept);
+    return kept;
+  }
+
+  /** Copy the attribute at {@code at}, unless it is not known. */
+  private boolean attribute(int at) {
+    String name = cf.utf8(u2(at));
+    if (!KNOWN.contains(name)) {
+      return false;
+    }
+    p = at;
+    index();
+    int length = out.size();
+    out.u4(0);
+    p = at + 6;
+    switch (name) {
+      case "ConstantValue", "Signature", "SourceFile", "NestHost" -> index();
+      case "Synthetic", "Deprecated" -> {
+      }
+      case "SourceDebugExtension", "LineNumberTable" -> copy(in.getInt(at + 2));
+      case "Exceptions" -> indices();
+      case "EnclosingMethod" -> {
+        index();
+        index();
+      }
+      case "InnerClasses" -> {
+        int count = u2();
+        int kept = out.size();
+        out.u2(0);
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+          if (keepClass(cf.className(u2(p)))) {
+            index();
+            index();
+            index();
+            copy(2);
+            n++;
+          } else {
+            p += 8;
+          }
+        }
+        out.set2(kept, n);
+      }
+      case "NestMembers", "PermittedSubclasses" -> {
+        int count = u2();
+        int kept = out.size();
+        out.u2(0);
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+          if (keepClass(cf.className(u2(p)))) {
+            index();
+            n++;
+          } else {
+            p += 2;
+          }
+        }
+        out.set2(kept, n);
+      }
+      case "MethodParameters" -> {
+        int count = in.get(p) & 0xff;
+        copy(1);
+        for (int i = 0; i < count; i++) {
+          index();
+          copy(2);
+        }
+      }
+      case "Code" -> code();
+      case "LocalVariableTable", "LocalVariableTypeTable" -> {
+        int count = u2();
+        out.u2(count);
+        for (int i = 0; i < count; i++) {
+          copy(4);
+          index();
+          index();
+          copy(2);
+        }
+      }
+      case "StackMapTable" -> stackMapTable();
+      case "RuntimeVisibleAnnotations", "RuntimeInvisibleAnnotations" -> annotations();
+      case "RuntimeVisibleParameterAnnotations", "RuntimeInvisibleParameterAnnotations" -> {
+        int count = in.get(p) & 0xff;
+        copy(1);
+        for (int i = 0; i < count; i++) {
+          annotations();
+        }
+      }
+      case "RuntimeVisibleTypeAnnotations", "RuntimeInvisibleTypeAnnotations" -> {
+        int count = u2();
+        out.u2(count);
+        for (int i = 0; i < count; i++) {
+          typeAnnotation();
+        }
+      }
+      case "AnnotationDefault" -> elementValue();
+      case "Record" -> {
+        int count = u2();
+        out.u2(count);
+        for (int i = 0; i < count; i++) {
+          index();
+          index();
+          attributes();
+        }
+      }
+      default -> throw new IllegalStateException(name);
+    }
+    out.set4(length, out.size() - length - 4);
+    return true;
+  }
+
+  private void code() {
+    copy(4);
+    int length = in.getInt(p);
+    copy(4);
+    int code = p;
+    int base = out.size();
+    copy(length);
+    for (int pc = 0; pc < length; pc += Opcodes.length(in, code, pc)) {
+      int op = in.get(code + pc) & 0xff;
+      switch (op) {
+        case 0x12 -> {
+          mark(in.get(code + pc + 1) & 0xff);
+          narrow.add(base + pc + 1);
+        }
+        case 0x13, 0x14, 0xb2, 0xb3, 0xb4, 0xb5, 0xb6, 0xb7, 0xb8, 0xb9, 0xba, 0xbb, 0xbd, 0xc0, 0xc1, 0xc5 -> {
+          mark(u2(code + pc + 1));
+          wide.add(base + pc + 1);
+        }
+        default -> {
+        }
+      }
+    }
+    int handlers = u2();
+    out.u2(handlers);
+    for (int i = 0; i < handlers; i++) {
+      copy(6);
+      index();
+    }
+    attributes();
+  }
+
+  private void stackMapTable() {
+    int count = u2();
+    out.u2(count);
+    for (int i = 0; i < count; i++) {
+      int type = in.get(p) & 0xff;
+      copy(1);
+      if (type >= 64 && type < 128) {
+        verificationType();
+      } else if (type == 247) {
+        copy(2);
+        verificationType();
+      } else if (type >= 248 && type <= 251) {
+        copy(2);
+      } else if (type >= 252 && type <= 254) {
+        copy(2);
+        for (int j = 251; j < type; j++) {
+          verificationType();
+        }
+      } else if (type == 255) {
+        copy(2);
+        for (int k = 0; k < 2; k++) {
+          int n = u2();
+          out.u2(n);
+          for (int j = 0; j < n; j++) {
+            verificationType();
+          }
+        }
+      }
+    }
+  }
+
+  private void verificationType() {
+    int tag = in.get(p) & 0xff;
+    copy(1);
+    if (tag == 7) {
+      index();
+    } else if (tag == 8) {
+      copy(2);
+    }
+  }
+
+  private void annotations() {
+    int count = u2();
+    out.u2(count);
+    for (int i = 0; i < count; i++) {
+      annotation();
+    }
+  }
+
+  private void annotation() {
+    index();
+    int pairs = u2();
+    out.u2(pairs);
+    for (int i = 0; i < pairs; i++) {
+      index();
+      elementValue();
+    }
+  }
+
+  private void elementValue() {
+    int tag = in.get(p);
+    copy(1);
+    switch (tag) {
+      case 'e' -> {
+        index();
+        index();
+      }
+      case '@' -> annotation();
+      case '[' -> {
+        int count = u2();
+        out.u2(count);
+        for (int i = 0; i < count; i++) {
+          elementValue();
+        }
+      }
+      default -> index();
+    }
+  }
+
+  private void typeAnnotation() {
+    int target = in.get(p) & 0xff;
+    copy(1);
+    switch (target) {
+      case 0x00, 0x01, 0x16 -> copy(1);
+      case 0x10, 0x11, 0x12, 0x17, 0x42, 0x43, 0x44, 0x45, 0x46 -> copy(2);
+      case 0x13, 0x14, 0x15 -> {
+      }
+      case 0x40, 0x41 -> {
+        int count = u2();
+        out.u2(count);
+        copy(6 * count);
+      }
+      case 0x47, 0x48, 0x49, 0x4a, 0x4b -> copy(3);
+      default -> throw new IllegalArgumentException("Invalid class file: type annotation target " + target);
+    }
+    copy(1 + 2 * (in.get(p) & 0xff));
+    annotation();
+  }
+
+  /** Append the bootstrap methods that are used, if any. */
+  private boolean bootstrapMethods() {
+    int count = 0;
+    for (boolean used : usedBootstraps) {
+      count += used ? 1 : 0;
+    }
+    if (count == 0) {
+      return false;
+    }
+    p = cf.attribute("BootstrapMethods").offset() - 6;
+    index();
+    int length = out.size();
+    out.u4(0);
+    out.u2(count);
+    for (int i = 0; i < bootstraps.length; i++) {
+      if (usedBootstraps[i]) {
+        p = bootstraps[i];
+        index();
+        indices();
+      }
+    }
+    out.set4(length, out.size() - length - 4);
+    return true;
+  }
+
+  private boolean keepClass(String name) {
+    int k = graph.classIndex(name);
+    return k < 0 || graph.isUsed(k);
+  }
+
+  /** Copy a count and that many constant pool indices. */
+  private void indices() {
+    int count = u2();
+    out.u2(count);
+    for (int i = 0; i < count; i++) {
+      index();
+    }
+  }
+
+  /** Copy a constant pool index, which may be 0 for none. */
+  private void index() {
+    int index = u2();
+    if (index != 0) {
+      mark(index);
+      wide.add(out.size());
+    }
+    out.u2(index);
+  }
+
+  private void mark(int index) {
+    if (!usedEntries[index]) {
+      usedEntries[index] = true;
+      pending.add(index);
+    }
+  }
+
+  /** Mark the entries and bootstrap methods that a used entry names. */
+  private void visit(int index) {
+    int q = cf.entryOffset(index);
+    switch (cf.tag(index)) {
+      case CLASS, STRING, METHOD_TYPE, MODULE, PACKAGE -> mark(u2(q + 1));
+      case FIELDREF, METHODREF, INTERFACE_METHODREF, NAME_AND_TYPE -> {
+        mark(u2(q + 1));
+        mark(u2(q + 3));
+      }
+      case METHOD_HANDLE -> mark(u2(q + 2));
+      case DYNAMIC, INVOKE_DYNAMIC -> {
+        int bootstrap = u2(q + 1);
+        if (!usedBootstraps[bootstrap]) {
+          usedBootstraps[bootstrap] = true;
+          int b = bootstraps[bootstrap];
+          mark(u2(b));
+          for (int i = 0; i < u2(b + 2); i++) {
+            mark(u2(b + 4 + 2 * i));
+          }
+        }
+        mark(u2(q + 3));
+      }
+      default -> {
+      }
+    }
+  }
+
+  private void copy(int length) {
+    out.put(in, p, length);
+    p += length;
+  }
+
+  private int u2() {
+    int value = u2(p);
+    p += 2;
+    return value;
+  }
+
+  private int u2(int q) {
+    return in.getShort(q) & 0xffff;
+  }
+
+  /** A growable array of bytes, written in big endian order. */
+  private static final class Bytes {
+    private byte[] bytes = new byte[1024];
+    private int size;
+
+    int size() {
+      return size;
+    }
+
+    private void grow(int n) {
+      if (size + n > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(size + n, 2 * bytes.length));
+      }
+    }
+
+    void u1(int value) {
+      grow(1);
+      bytes[size++] = (byte) value;
+    }
+
+    void u2(int value) {
+      grow(2);
+      set2(size, value);
+      size += 2;
+    }
+
+    void u4(int value) {
+      grow(4);
+      set4(size, value);
+      size += 4;
+    }
+
+    void put(ByteBuffer from, int offset, int length) {
+      grow(length);
+      from.get(offset, bytes, size, length);
+      size += length;
+    }
+
+    void put(Bytes from) {
+      grow(from.size);
+      System.arraycopy(from.bytes, 0, bytes, size, from.size);
+      size += from.size;
+    }
+
+    int get1(int at) {
+      return bytes[at] & 0xff;
+    }
+
+    int get2(int at) {
+      return (bytes[at] & 0xff) << 8 | bytes[at + 1] & 0xff;
+    }
+
+    void set1(int at, int value) {
+      bytes[at] = (byte) value;
+    }
+
+    void set2(int at, int value) {
+      bytes[at] = (byte) (value >> 8);
+      bytes[at + 1] = (byte) value;
+    }
+
+    void set4(int at, int value) {
+      set2(at, value >>> 16);
+      set2(at + 2, value);
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(bytes, size);
+    }
+  }
+}
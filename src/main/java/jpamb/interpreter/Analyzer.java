@@ -0,0 +1,893 @@
+package jpamb.interpreter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jpamb.interpreter.Interpreter.ClassConstant;
+import jpamb.interpreter.Interpreter.Unsupported;
+import jpamb.interpreter.Program.Call;
+import jpamb.interpreter.Program.Concat;
+import jpamb.interpreter.Program.Field;
+import jpamb.interpreter.Program.Method;
+import jpamb.interpreter.Program.Type;
+import jpamb.utils.CaseContent.ResultType;
+
+/**
+ * Finds the results that a case method may have, for any input, by
+ * abstract interpretation of its bytecode in a {@link Domain}.
+ *
+ * <pre>
+ * java -cp target/classes jpamb.interpreter.Analyzer [--domain signs|intervals] [--classpath folders] &lt;method id&gt;
+ * java -cp target/classes jpamb.interpreter.Analyzer [--domain signs|intervals] [--classpath folders] info
+ * java -cp target/classes jpamb.interpreter.Analyzer [--domain signs|intervals] [--classpath folders] --batch &lt;cases file&gt;
+ * </pre>
+ *
+ * With a method id, it prints a line like {@code ok;50%} for each result,
+ * as the analyzers in {@code solutions} do: 0% for the results that cannot
+ * happen, 100% for the only one that can, and 50% for the others. With a
+ * cases file, it prints the results that each method may have, and
+ * reports the cases whose result is not among them, which would be a bug.
+ *
+ * The analysis runs over the instructions of {@link Program}, with a state
+ * of abstract values for the locals and the operand stack at each one. A
+ * worklist takes the instruction with the lowest index whose state
+ * changed, and flows the state after it to every instruction that may
+ * follow: both targets of a branch, with the operands narrowed to the
+ * values that take each one, and the handlers of the exceptions it may
+ * throw. A state that reaches an instruction is joined with the one there,
+ * until no state changes. A value that was loaded from a local remembers
+ * it, so a branch on the value narrows the local as well. Where a state
+ * flows back to an instruction that is not after it, as around a loop, it
+ * is widened instead, with the constants of the method as thresholds, so
+ * that a domain of infinite height like {@link IntervalDomain} reaches a
+ * fixpoint too.
+ *
+ * A call of a program method analyzes the callee with the values of the
+ * arguments, once for each different set of them, and a call that cannot
+ * be analyzed, like a recursive or a virtual one, may return anything and
+ * throw anything. A JDK method is assumed to terminate, but may throw
+ * anything, except for the constructors of exceptions. Assertions are
+ * enabled, and a method with a loop, or one that calls such a method, may
+ * not terminate.
+ */
+public final class Analyzer<V> {
+  /** The most calls to analyze inside each other. */
+  private static final int MAX_DEPTH = 16;
+  /** An exception of any class, which may be caught by any handler. */
+  private static final String ANY = "java/lang/Throwable";
+  private static final ResultType[] RESULTS = { ResultType.SUCCESS, ResultType.DIVIDE_BY_ZERO,
+      ResultType.ASSERTION_ERROR, ResultType.OUT_OF_BOUNDS, ResultType.NULL_POINTER,
+      ResultType.NON_TERMINATION };
+
+  private final Program program;
+  private final Domain<V> domain;
+  /** The summary of each method by the method and the values of its arguments. */
+  private final Map<List<Object>, Summary<V>> summaries = new HashMap<>();
+  private final Set<Method> active = new HashSet<>();
+  private long steps;
+
+  Analyzer(List<Path> classpath, Domain<V> domain) {
+    this.program = new Program(classpath);
+    this.domain = domain;
+  }
+
+  /** An analyzer over the signs of values, see {@link SignDomain}. */
+  public static Analyzer<?> signs(List<Path> classpath) {
+    return new Analyzer<>(classpath, new SignDomain());
+  }
+
+  /** An analyzer over the intervals of values, see {@link IntervalDomain}. */
+  public static Analyzer<?> intervals(List<Path> classpath) {
+    return new Analyzer<>(classpath, new IntervalDomain());
+  }
+
+  /** How many instructions were analyzed, counting each time its state changed. */
+  public long steps() {
+    return steps;
+  }
+
+  /** What a call may do: return one of {@code result}, throw one of {@code thrown}, or not terminate. */
+  private record Summary<V>(boolean returns, V result, Set<String> thrown, boolean loops) {
+  }
+
+  /** The results that a method of the program may have, for any input. */
+  public Set<ResultType> analyze(String id) {
+    Method method = program.method(id);
+    List<V> args = new ArrayList<>();
+    if (!method.isStatic()) {
+      args.add(nonNull());
+    }
+    for (char kind : method.params.toCharArray()) {
+      args.add(switch (kind) {
+        case 'Z' -> domain.range(0, 1);
+        case 'B' -> domain.range(Byte.MIN_VALUE, Byte.MAX_VALUE);
+        case 'C' -> domain.range(Character.MIN_VALUE, Character.MAX_VALUE);
+        case 'S' -> domain.range(Short.MIN_VALUE, Short.MAX_VALUE);
+        default -> domain.top();
+      });
+      if (Program.words(kind) == 2) {
+        args.add(domain.top());
+      }
+    }
+    Summary<V> summary = summary(method, args);
+    Set<ResultType> results = EnumSet.noneOf(ResultType.class);
+    if (summary.returns) {
+      results.add(ResultType.SUCCESS);
+    }
+    for (String exception : summary.thrown) {
+      if (exception.equals(ANY)) {
+        results.addAll(List.of(ResultType.DIVIDE_BY_ZERO, ResultType.ASSERTION_ERROR,
+            ResultType.OUT_OF_BOUNDS, ResultType.NULL_POINTER));
+        continue;
+      }
+      Type type = program.type(exception);
+      try {
+        results.add(ResultType.fromThrowable(type != null ? type.externalSuper : program.javaClass(exception)));
+      } catch (RuntimeException e) {
+        // An exception that is not a result of a case, like a ClassCastException.
+      }
+    }
+    if (summary.loops) {
+      results.add(ResultType.NON_TERMINATION);
+    }
+    return results;
+  }
+
+  private Summary<V> summary(Method method, List<V> args) {
+    List<Object> key = new ArrayList<>(args.size() + 1);
+    key.add(method);
+    key.addAll(args);
+    Summary<V> summary = summaries.get(key);
+    if (summary != null) {
+      return summary;
+    }
+    if (active.contains(method) || active.size() >= MAX_DEPTH) {
+      return unknown(method.returns);
+    }
+    active.add(method);
+    try {
+      method.compile();
+      summary = new Run(method, args).solve();
+    } catch (Unsupported e) {
+      summary = unknown(method.returns);
+    } finally {
+      active.remove(method);
+    }
+    summaries.put(key, summary);
+    return summary;
+  }
+
+  /** The summary of a call that may do anything. */
+  private Summary<V> unknown(char returns) {
+    return new Summary<>(true, returns == 'V' ? null : domain.top(), Set.of(ANY), true);
+  }
+
+  private V nonNull() {
+    return domain.range(1, Integer.MAX_VALUE);
+  }
+
+  /** Whether the class or array type {@code a} is {@code b} or a subtype of it. */
+  private boolean isSubtype(String a, String b) {
+    if (a.equals(b)) {
+      return true;
+    }
+    try {
+      Type ta = program.type(a);
+      Type tb = program.type(b);
+      if (ta != null) {
+        return tb != null ? ta.isSubtypeOf(tb) : ta.isSubtypeOf(program.javaClass(b));
+      }
+      return tb == null && program.javaClass(b).isAssignableFrom(program.javaClass(a));
+    } catch (Unsupported e) {
+      return false;
+    }
+  }
+
+  /** The abstract state before an instruction: the values of the locals and the stack, from word 0 to {@code sp}. */
+  private final class State {
+    final V[] words;
+    /** The class of each reference, where it is known exactly, or null. */
+    final String[] types;
+    /** The local that each word of the stack was loaded from and still equals, or -1. */
+    final int[] origins;
+    int sp;
+
+    @SuppressWarnings("unchecked")
+    State(int size) {
+      words = (V[]) new Object[size];
+      types = new String[size];
+      origins = new int[size];
+      Arrays.fill(words, domain.top());
+      Arrays.fill(origins, -1);
+    }
+
+    private State(State other) {
+      words = other.words.clone();
+      types = other.types.clone();
+      origins = other.origins.clone();
+      sp = other.sp;
+    }
+
+    State copy() {
+      return new State(this);
+    }
+
+    /** Join {@code other} into this state, or widen it with the thresholds if not null, and whether that changed it. */
+    boolean join(State other, long[] thresholds) {
+      boolean changed = false;
+      for (int w = 0; w < sp; w++) {
+        V v = thresholds == null ? domain.join(words[w], other.words[w])
+            : domain.widen(words[w], other.words[w], thresholds);
+        if (!v.equals(words[w])) {
+          words[w] = v;
+          changed = true;
+        }
+        if (types[w] != null && !types[w].equals(other.types[w])) {
+          types[w] = null;
+          changed = true;
+        }
+        if (origins[w] >= 0 && origins[w] != other.origins[w]) {
+          origins[w] = -1;
+          changed = true;
+        }
+      }
+      return changed;
+    }
+
+    void push(V v, String type, int origin) {
+      words[sp] = v;
+      types[sp] = type;
+      origins[sp++] = origin;
+    }
+
+    void push(V v) {
+      push(v, null, -1);
+    }
+
+    void push(V v, int words) {
+      push(v);
+      if (words == 2) {
+        push(domain.top());
+      }
+    }
+
+    void move(int from, int to) {
+      words[to] = words[from];
+      types[to] = types[from];
+      origins[to] = origins[from];
+    }
+
+    /** Narrow a word to {@code v}, and the local it was loaded from and the other words loaded from that. */
+    void narrow(int word, V v, int locals) {
+      words[word] = v;
+      int local = origins[word];
+      if (local >= 0) {
+        words[local] = v;
+        for (int w = locals; w < sp; w++) {
+          if (origins[w] == local) {
+            words[w] = v;
+          }
+        }
+      }
+    }
+
+    /** Store to a local, so the words loaded from it no longer equal it. */
+    void forget(int local, int locals) {
+      for (int w = locals; w < sp; w++) {
+        if (origins[w] == local) {
+          origins[w] = -1;
+        }
+      }
+    }
+  }
+
+  /** The analysis of one method with the values of its arguments. */
+  private final class Run {
+    private final Method method;
+    private final int locals;
+    private final State[] states;
+    /** The constants of the method and their neighbors, sorted, to widen with. */
+    private final long[] thresholds;
+    private final BitSet work = new BitSet();
+    private boolean returns;
+    private V result;
+    private final Set<String> thrown = new LinkedHashSet<>();
+    private boolean loops;
+
+    @SuppressWarnings("unchecked")
+    Run(Method method, List<V> args) {
+      this.method = method;
+      this.locals = method.maxLocals;
+      this.states = (State[]) new Analyzer<?>.State[method.op.length];
+      State entry = new State(method.maxLocals + method.maxStack + 2);
+      for (int w = 0; w < args.size(); w++) {
+        entry.words[w] = args.get(w);
+      }
+      entry.sp = locals;
+      states[0] = entry;
+      work.set(0);
+      result = domain.bottom();
+      thresholds = thresholds(method);
+    }
+
+    private static long[] thresholds(Method method) {
+      long[] constants = new long[16];
+      int size = 0;
+      for (int pc = 0; pc < method.op.length; pc++) {
+        int op = method.op[pc];
+        if (op == Op.PUSH1 && method.b[pc] == 'I' || op == Op.PUSH2 && method.b[pc] == 'J' || op == Op.IINC
+            || op == Op.TABLESWITCH || op == Op.LOOKUPSWITCH) {
+          int[] keys = op == Op.LOOKUPSWITCH ? (int[]) method.ref[pc] : null;
+          int count = keys != null ? keys.length / 2 : op == Op.TABLESWITCH ? 2 : 1;
+          for (int i = 0; i < count; i++) {
+            long c = switch (op) {
+              case Op.IINC -> method.b[pc];
+              case Op.TABLESWITCH -> method.a[pc] + i * (((int[]) method.ref[pc]).length - 1L);
+              case Op.LOOKUPSWITCH -> keys[i];
+              default -> method.k[pc];
+            };
+            if (size + 3 > constants.length) {
+              constants = Arrays.copyOf(constants, 2 * constants.length);
+            }
+            constants[size++] = c == Long.MIN_VALUE ? c : c - 1;
+            constants[size++] = c;
+            constants[size++] = c == Long.MAX_VALUE ? c : c + 1;
+          }
+        }
+      }
+      constants = Arrays.copyOf(constants, size + 5);
+      constants[size] = Integer.MIN_VALUE;
+      constants[size + 1] = -1;
+      constants[size + 2] = 0;
+      constants[size + 3] = 1;
+      constants[size + 4] = Integer.MAX_VALUE;
+      return Arrays.stream(constants).sorted().distinct().toArray();
+    }
+
+    Summary<V> solve() {
+      for (int pc = work.nextSetBit(0); pc >= 0; pc = work.nextSetBit(0)) {
+        work.clear(pc);
+        steps++;
+        step(pc, states[pc].copy());
+      }
+      return new Summary<>(returns, method.returns == 'V' ? null : result, thrown, loops);
+    }
+
+    /** Flow a state to an instruction, which then owns it, widening it around a loop. */
+    private void flow(int pc, int target, State s) {
+      boolean back = target <= pc;
+      if (back) {
+        loops = true;
+      }
+      if (states[target] == null) {
+        states[target] = s;
+        work.set(target);
+      } else if (states[target].join(s, back ? thresholds : null)) {
+        work.set(target);
+      }
+    }
+
+    /** Throw an exception of the class {@code exception} at {@code pc}, to its handlers or out of the method. */
+    private void raise(int pc, String exception) {
+      for (int i = 0; i < method.catchTypes.length; i++) {
+        int[] handlers = method.handlers;
+        if (handlers[3 * i] > pc || pc >= handlers[3 * i + 1]) {
+          continue;
+        }
+        String catchType = method.catchTypes[i];
+        boolean caught = catchType == null || isSubtype(exception, catchType);
+        if (caught || exception.equals(ANY)) {
+          State h = states[pc].copy();
+          h.sp = locals;
+          h.push(nonNull(), exception.equals(ANY) ? null : exception, -1);
+          flow(pc, handlers[3 * i + 2], h);
+          if (caught) {
+            return;
+          }
+        }
+      }
+      thrown.add(exception);
+    }
+
+    /** Check that the reference at {@code word} is not null, and whether it may not be. */
+    private boolean dereference(int pc, State s, int word) {
+      V v = s.words[word];
+      if (domain.contains(v, 0)) {
+        raise(pc, "java/lang/NullPointerException");
+        v = domain.assume(Op.IFNE, v, domain.constant(0));
+        if (domain.isBottom(v)) {
+          return false;
+        }
+        s.narrow(word, v, locals);
+      }
+      return true;
+    }
+
+    /** Check an array access, and whether it may succeed. The length of an array is not known. */
+    private boolean inBounds(int pc, State s, int array, int index) {
+      if (!dereference(pc, s, array)) {
+        return false;
+      }
+      raise(pc, "java/lang/ArrayIndexOutOfBoundsException");
+      V i = domain.assume(Op.IFGE, s.words[index], domain.constant(0));
+      if (domain.isBottom(i)) {
+        return false;
+      }
+      s.narrow(index, i, locals);
+      return true;
+    }
+
+    /** Flow to the target of a branch if {@code x cond y} may hold, and on if it may not; y is 0 if {@code yw} is -1. */
+    private void branch(int pc, State s, int cond, int xw, int yw) {
+      V x = s.words[xw];
+      V y = yw < 0 ? domain.constant(0) : s.words[yw];
+      for (int c : new int[] { cond, negate(cond) }) {
+        V nx = domain.assume(c, x, y);
+        V ny = domain.assume(swap(c), y, x);
+        if (domain.isBottom(nx) || domain.isBottom(ny)) {
+          continue;
+        }
+        State t = c == cond ? s.copy() : s;
+        t.narrow(xw, nx, locals);
+        if (yw >= 0) {
+          t.narrow(yw, ny, locals);
+        }
+        t.sp = xw;
+        flow(pc, c == cond ? method.a[pc] : pc + 1, t);
+      }
+    }
+
+    private void step(int pc, State s) {
+      int[] a = method.a;
+      int[] b = method.b;
+      Object[] ref = method.ref;
+      int sp = s.sp;
+      V[] w = s.words;
+      int op = method.op[pc];
+      switch (op) {
+        case Op.NOP -> {
+        }
+        case Op.PUSH1 -> s.push(b[pc] == 'F' ? domain.top() : domain.constant(method.k[pc]));
+        case Op.PUSH2 -> s.push(b[pc] == 'D' ? domain.top() : domain.constant(method.k[pc]), 2);
+        case Op.PUSH_REF -> s.push(nonNull(),
+            ref[pc] instanceof ClassConstant ? "java/lang/Class" : "java/lang/String", -1);
+        case Op.LOAD1 -> s.push(w[a[pc]], s.types[a[pc]], a[pc]);
+        case Op.LOAD2 -> {
+          s.push(w[a[pc]], null, a[pc]);
+          s.push(domain.top());
+        }
+        case Op.STORE1, Op.STORE2 -> {
+          int size = op == Op.STORE1 ? 1 : 2;
+          s.sp -= size;
+          for (int i = 0; i < size; i++) {
+            s.forget(a[pc] + i, locals);
+            w[a[pc] + i] = w[s.sp + i];
+            s.types[a[pc] + i] = s.types[s.sp + i];
+          }
+        }
+        case Op.IALOAD, Op.LALOAD, Op.FALOAD, Op.DALOAD, Op.AALOAD, Op.BALOAD, Op.CALOAD, Op.SALOAD -> {
+          if (!inBounds(pc, s, sp - 2, sp - 1)) {
+            return;
+          }
+          s.sp -= 2;
+          s.push(switch (op) {
+            case Op.BALOAD -> domain.range(Byte.MIN_VALUE, Byte.MAX_VALUE);
+            case Op.CALOAD -> domain.range(Character.MIN_VALUE, Character.MAX_VALUE);
+            case Op.SALOAD -> domain.range(Short.MIN_VALUE, Short.MAX_VALUE);
+            default -> domain.top();
+          }, op == Op.LALOAD || op == Op.DALOAD ? 2 : 1);
+        }
+        case Op.IASTORE, Op.LASTORE, Op.FASTORE, Op.DASTORE, Op.AASTORE, Op.BASTORE, Op.CASTORE, Op.SASTORE -> {
+          int size = op == Op.LASTORE || op == Op.DASTORE ? 2 : 1;
+          if (!inBounds(pc, s, sp - 2 - size, sp - 1 - size)) {
+            return;
+          }
+          if (op == Op.AASTORE) {
+            raise(pc, "java/lang/ArrayStoreException");
+          }
+          s.sp -= 2 + size;
+        }
+        case Op.POP -> s.sp--;
+        case Op.POP2 -> s.sp -= 2;
+        case Op.DUP -> s.move(sp - 1, s.sp++);
+        case Op.DUP_X1 -> {
+          s.move(sp - 1, sp);
+          s.move(sp - 2, sp - 1);
+          s.move(sp, sp - 2);
+          s.sp++;
+        }
+        case Op.DUP_X2 -> {
+          s.move(sp - 1, sp);
+          s.move(sp - 2, sp - 1);
+          s.move(sp - 3, sp - 2);
+          s.move(sp, sp - 3);
+          s.sp++;
+        }
+        case Op.DUP2 -> {
+          s.move(sp - 2, sp);
+          s.move(sp - 1, sp + 1);
+          s.sp += 2;
+        }
+        case Op.DUP2_X1 -> {
+          s.move(sp - 1, sp + 1);
+          s.move(sp - 2, sp);
+          s.move(sp - 3, sp - 1);
+          s.move(sp + 1, sp - 2);
+          s.move(sp, sp - 3);
+          s.sp += 2;
+        }
+        case Op.DUP2_X2 -> {
+          s.move(sp - 1, sp + 1);
+          s.move(sp - 2, sp);
+          s.move(sp - 3, sp - 1);
+          s.move(sp - 4, sp - 2);
+          s.move(sp + 1, sp - 3);
+          s.move(sp, sp - 4);
+          s.sp += 2;
+        }
+        case Op.SWAP -> {
+          s.move(sp - 1, sp);
+          s.move(sp - 2, sp - 1);
+          s.move(sp, sp - 2);
+        }
+        case Op.IADD, Op.ISUB, Op.IMUL, Op.IDIV, Op.IREM, Op.ISHL, Op.ISHR, Op.IUSHR, Op.IAND, Op.IOR,
+            Op.IXOR -> {
+          if (!arithmetic(pc, s, op, sp - 2, sp - 1)) {
+            return;
+          }
+          s.push(domain.binary(op, w[sp - 2], w[sp - 1]));
+        }
+        case Op.LADD, Op.LSUB, Op.LMUL, Op.LDIV, Op.LREM, Op.LAND, Op.LOR, Op.LXOR -> {
+          if (!arithmetic(pc, s, op, sp - 4, sp - 2)) {
+            return;
+          }
+          s.push(domain.binary(op, w[sp - 4], w[sp - 2]), 2);
+        }
+        case Op.LSHL, Op.LSHR, Op.LUSHR -> {
+          s.sp -= 3;
+          s.push(domain.binary(op, w[sp - 3], w[sp - 1]), 2);
+        }
+        case Op.FADD, Op.FSUB, Op.FMUL, Op.FDIV, Op.FREM -> {
+          s.sp -= 2;
+          s.push(domain.top());
+        }
+        case Op.DADD, Op.DSUB, Op.DMUL, Op.DDIV, Op.DREM -> {
+          s.sp -= 4;
+          s.push(domain.top(), 2);
+        }
+        case Op.INEG, Op.I2B, Op.I2C, Op.I2S -> {
+          s.sp--;
+          s.push(domain.unary(op, w[sp - 1]));
+        }
+        case Op.LNEG -> {
+          s.sp -= 2;
+          s.push(domain.unary(op, w[sp - 2]), 2);
+        }
+        case Op.IINC -> {
+          s.forget(a[pc], locals);
+          w[a[pc]] = domain.binary(Op.IADD, w[a[pc]], domain.constant(b[pc]));
+        }
+        case Op.I2L -> {
+          s.sp--;
+          s.push(domain.unary(op, w[sp - 1]), 2);
+        }
+        case Op.L2I -> {
+          s.sp -= 2;
+          s.push(domain.unary(op, w[sp - 2]));
+        }
+        case Op.FNEG, Op.DNEG, Op.I2F, Op.I2D, Op.L2F, Op.L2D, Op.F2I, Op.F2L, Op.F2D, Op.D2I, Op.D2L,
+            Op.D2F -> {
+          int from = op == Op.FNEG || op == Op.I2F || op == Op.I2D || op == Op.F2I || op == Op.F2L
+              || op == Op.F2D ? 1 : 2;
+          int to = op == Op.FNEG || op == Op.I2F || op == Op.L2F || op == Op.F2I || op == Op.D2I
+              || op == Op.D2F ? 1 : 2;
+          s.sp -= from;
+          s.push(domain.top(), to);
+        }
+        case Op.LCMP -> {
+          s.sp -= 4;
+          s.push(domain.binary(op, w[sp - 4], w[sp - 2]));
+        }
+        case Op.FCMPL, Op.FCMPG, Op.DCMPL, Op.DCMPG -> {
+          s.sp -= op == Op.FCMPL || op == Op.FCMPG ? 2 : 4;
+          s.push(domain.range(-1, 1));
+        }
+        case Op.IFEQ, Op.IFNE, Op.IFLT, Op.IFGE, Op.IFGT, Op.IFLE -> {
+          branch(pc, s, op, sp - 1, -1);
+          return;
+        }
+        case Op.IF_ICMPEQ, Op.IF_ICMPNE, Op.IF_ICMPLT, Op.IF_ICMPGE, Op.IF_ICMPGT, Op.IF_ICMPLE -> {
+          branch(pc, s, op - Op.IF_ICMPEQ + Op.IFEQ, sp - 2, sp - 1);
+          return;
+        }
+        case Op.IF_ACMPEQ, Op.IF_ACMPNE -> {
+          branch(pc, s, op - Op.IF_ACMPEQ + Op.IFEQ, sp - 2, sp - 1);
+          return;
+        }
+        case Op.IFNULL, Op.IFNONNULL -> {
+          branch(pc, s, op == Op.IFNULL ? Op.IFEQ : Op.IFNE, sp - 1, -1);
+          return;
+        }
+        case Op.GOTO -> {
+          flow(pc, a[pc], s);
+          return;
+        }
+        case Op.TABLESWITCH, Op.LOOKUPSWITCH -> {
+          int[] table = (int[]) ref[pc];
+          int cases = op == Op.TABLESWITCH ? table.length : table.length / 2;
+          V key = w[sp - 1];
+          s.sp--;
+          for (int i = 0; i < cases; i++) {
+            V k = domain.assume(Op.IFEQ, key, domain.constant(op == Op.TABLESWITCH ? a[pc] + i : table[i]));
+            if (!domain.isBottom(k)) {
+              State t = s.copy();
+              t.narrow(sp - 1, k, locals);
+              flow(pc, op == Op.TABLESWITCH ? table[i] : table[cases + i], t);
+            }
+          }
+          flow(pc, b[pc], s);
+          return;
+        }
+        case Op.RETURN, Op.RETURN1, Op.RETURN2 -> {
+          returns = true;
+          if (op != Op.RETURN) {
+            result = domain.join(result, w[sp - (op == Op.RETURN1 ? 1 : 2)]);
+          }
+          return;
+        }
+        case Op.GETSTATIC -> {
+          Field f = (Field) ref[pc];
+          // Assertions are enabled, as they are for the cases.
+          s.push(f.name.equals("$assertionsDisabled") ? domain.constant(0) : domain.top(),
+              Program.words(f.kind));
+        }
+        case Op.PUTSTATIC -> s.sp -= Program.words(((Field) ref[pc]).kind);
+        case Op.GETFIELD -> {
+          if (!dereference(pc, s, sp - 1)) {
+            return;
+          }
+          s.sp--;
+          s.push(domain.top(), Program.words(((Field) ref[pc]).kind));
+        }
+        case Op.PUTFIELD -> {
+          int size = Program.words(((Field) ref[pc]).kind);
+          if (!dereference(pc, s, sp - 1 - size)) {
+            return;
+          }
+          s.sp -= 1 + size;
+        }
+        case Op.INVOKESTATIC, Op.INVOKESPECIAL, Op.INVOKEVIRTUAL -> {
+          Call call = (Call) ref[pc];
+          int base = sp - call.argWords;
+          if (!call.isStatic && !dereference(pc, s, base)) {
+            return;
+          }
+          Summary<V> summary = call(op, call, Arrays.asList(w).subList(base, sp));
+          for (String exception : summary.thrown) {
+            raise(pc, exception);
+          }
+          loops |= summary.loops;
+          if (!summary.returns) {
+            return;
+          }
+          s.sp = base;
+          if (call.returns != 'V') {
+            s.push(summary.result, Program.words(call.returns));
+          }
+        }
+        case Op.CONCAT -> {
+          s.sp -= ((Concat) ref[pc]).argWords();
+          s.push(nonNull(), "java/lang/String", -1);
+        }
+        case Op.NEW -> s.push(nonNull(), (String) ref[pc], -1);
+        case Op.NEWARRAY -> {
+          for (int i = sp - a[pc]; i < sp; i++) {
+            V size = domain.assume(Op.IFGE, w[i], domain.constant(0));
+            if (!size.equals(w[i])) {
+              raise(pc, "java/lang/NegativeArraySizeException");
+            }
+            if (domain.isBottom(size)) {
+              return;
+            }
+          }
+          s.sp -= a[pc];
+          s.push(nonNull(), (String) ref[pc], -1);
+        }
+        case Op.ARRAYLENGTH -> {
+          if (!dereference(pc, s, sp - 1)) {
+            return;
+          }
+          s.sp--;
+          s.push(domain.range(0, Integer.MAX_VALUE));
+        }
+        case Op.ATHROW -> {
+          String type = s.types[sp - 1];
+          if (dereference(pc, s, sp - 1)) {
+            raise(pc, type != null ? type : ANY);
+          }
+          return;
+        }
+        case Op.CHECKCAST -> {
+          String type = s.types[sp - 1];
+          if (!w[sp - 1].equals(domain.constant(0)) && (type == null || !isSubtype(type, (String) ref[pc]))) {
+            raise(pc, "java/lang/ClassCastException");
+          }
+        }
+        case Op.INSTANCEOF -> {
+          s.sp--;
+          s.push(w[sp - 1].equals(domain.constant(0)) ? domain.constant(0) : domain.range(0, 1));
+        }
+        case Op.MONITOR -> {
+          if (!dereference(pc, s, sp - 1)) {
+            return;
+          }
+          s.sp--;
+        }
+        default -> {
+          // An instruction that cannot be interpreted may do anything.
+          raise(pc, ANY);
+          loops = true;
+          return;
+        }
+      }
+      flow(pc, pc + 1, s);
+    }
+
+    /** Check a division for a zero divisor, and pop the operands; whether the operation may succeed. */
+    private boolean arithmetic(int pc, State s, int op, int xw, int yw) {
+      if (op == Op.IDIV || op == Op.IREM || op == Op.LDIV || op == Op.LREM) {
+        V y = s.words[yw];
+        if (domain.contains(y, 0)) {
+          raise(pc, "java/lang/ArithmeticException");
+          y = domain.assume(Op.IFNE, y, domain.constant(0));
+          if (domain.isBottom(y)) {
+            return false;
+          }
+          s.narrow(yw, y, locals);
+        }
+      }
+      s.sp = xw;
+      return true;
+    }
+  }
+
+  /** What a call may do, with the values of its arguments. */
+  private Summary<V> call(int op, Call call, List<V> args) {
+    Type type = program.type(call.owner);
+    if (type != null) {
+      Method method = type.resolve(call.signature);
+      if (op == Op.INVOKEVIRTUAL || method == null) {
+        return unknown(call.returns);
+      }
+      return summary(method, args);
+    }
+    if (call.name.equals("desiredAssertionStatus")) {
+      return new Summary<>(true, domain.constant(1), Set.of(), false);
+    }
+    V result = call.returns == 'V' ? null : domain.top();
+    if (call.name.equals("<init>")) {
+      try {
+        Class<?> c = program.javaClass(call.owner);
+        if (c == Object.class || Throwable.class.isAssignableFrom(c)) {
+          return new Summary<>(true, null, Set.of(), false);
+        }
+      } catch (Unsupported e) {
+        // Analyzed as any other call.
+      }
+    }
+    return new Summary<>(true, result, Set.of(ANY), false);
+  }
+
+  private static int negate(int cond) {
+    return Op.IFEQ + ((cond - Op.IFEQ) ^ 1);
+  }
+
+  /** The condition of {@code y cond x} that holds when {@code x cond y} does. */
+  private static int swap(int cond) {
+    return switch (cond) {
+      case Op.IFLT -> Op.IFGT;
+      case Op.IFGE -> Op.IFLE;
+      case Op.IFGT -> Op.IFLT;
+      case Op.IFLE -> Op.IFGE;
+      default -> cond;
+    };
+  }
+
+  /**
+   * Analyze the methods of a cases file, as {@link Interpreter#batch} runs
+   * them, and check that the result of each case is one that its method
+   * may have.
+   */
+  public void batch(Path file, PrintStream out) throws IOException {
+    Map<String, List<String>> cases = new LinkedHashMap<>();
+    for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+      line = line.strip();
+      int space = line.indexOf(' ');
+      int arrow = line.lastIndexOf("->");
+      if (space > 0 && arrow > space) {
+        cases.computeIfAbsent(line.substring(0, space), id -> new ArrayList<>()).add(line.substring(arrow + 2).strip());
+      }
+    }
+    long start = System.nanoTime();
+    int count = 0;
+    int found = 0;
+    for (var entry : cases.entrySet()) {
+      String id = entry.getKey();
+      String line;
+      try {
+        Set<ResultType> results = analyze(id);
+        var missing = new ArrayList<String>();
+        for (String expected : entry.getValue()) {
+          if (results.contains(ResultType.parse(expected))) {
+            found++;
+          } else if (!missing.contains(expected)) {
+            missing.add(expected);
+          }
+        }
+        line = results.stream().map(ResultType::toString).toList()
+            + (missing.isEmpty() ? "" : " missing " + missing);
+      } catch (RuntimeException e) {
+        line = "error: " + String.valueOf(e.getMessage()).replace('\n', ' ');
+      }
+      count += entry.getValue().size();
+      out.printf("%-60s %s%n", id, line);
+    }
+    out.flush();
+    System.err.printf("Analyzed %d methods in %.1f ms and %d steps, %d of %d cases have a result that was found%n",
+        cases.size(), (System.nanoTime() - start) / 1e6, steps, found, count);
+  }
+
+  public static void main(String[] args) throws IOException {
+    List<Path> classpath = List.of(Path.of("target/classes"));
+    String domain = "signs";
+    while (args.length > 1 && (args[0].equals("--domain") || args[0].equals("--classpath"))) {
+      if (args[0].equals("--domain")) {
+        domain = args[1];
+      } else {
+        classpath = Arrays.stream(args[1].split(java.io.File.pathSeparator)).map(Path::of).toList();
+      }
+      args = Arrays.copyOfRange(args, 2, args.length);
+    }
+    if (args.length == 0 || !domain.equals("signs") && !domain.equals("intervals")) {
+      throw new RuntimeException("Expected [--domain signs|intervals] [--classpath folders] <method id>, info "
+          + "or --batch <cases file>");
+    }
+    Analyzer<?> analyzer = domain.equals("signs") ? signs(classpath) : intervals(classpath);
+    if (args[0].equals("info")) {
+      System.out.println(domain.equals("signs") ? "Sign Analyzer" : "Interval Analyzer");
+      System.out.println("jpamb");
+      System.out.println("Abstract interpretation of the " + domain + " of values, with a worklist to a fixpoint");
+      System.out.println("abstract,java");
+      System.out.println("no");
+      return;
+    }
+    if (args[0].equals("--batch")) {
+      if (args.length != 2) {
+        throw new RuntimeException("Expected --batch <cases file>");
+      }
+      analyzer.batch(Path.of(args[1]), System.out);
+      return;
+    }
+    long start = System.nanoTime();
+    Set<ResultType> results = analyzer.analyze(args[0]);
+    System.err.printf("Analyzed in %.1f ms and %d steps%n", (System.nanoTime() - start) / 1e6, analyzer.steps());
+    for (ResultType r : RESULTS) {
+      int percent = !results.contains(r) ? 0 : results.size() == 1 ? 100 : 50;
+      System.out.println(r + ";" + percent + "%");
+    }
+  }
+}
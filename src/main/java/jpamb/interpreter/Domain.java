@@ -0,0 +1,59 @@
+package jpamb.interpreter;
+
+/**
+ * A domain of abstract values, which {@link Analyzer} computes with.
+ *
+ * An abstract value stands for a set of ints or longs. References are
+ * abstracted as the handles of {@link Interpreter}, where null is 0 and
+ * every other reference is positive, so a test for null is a test for
+ * zero. Floats and doubles are not abstracted: they are always
+ * {@link #top()}. Values must implement {@code equals} and
+ * {@code hashCode}, as the analyzer compares them to find a fixpoint.
+ */
+interface Domain<V> {
+  /** Every value. */
+  V top();
+
+  /** No value, as in code that cannot be reached. */
+  V bottom();
+
+  boolean isBottom(V v);
+
+  /** The values from {@code lo} to {@code hi}, both included. */
+  V range(long lo, long hi);
+
+  default V constant(long value) {
+    return range(value, value);
+  }
+
+  /** Whether {@code value} may be one of the values of {@code v}. */
+  boolean contains(V v, long value);
+
+  V join(V a, V b);
+
+  /**
+   * An upper bound of {@code a} and {@code b}, where {@code b} is what came
+   * back to {@code a} around a loop, such that widening again and again
+   * reaches a fixpoint. The thresholds are the sorted constants of the
+   * method, which a bound may stop at rather than grow past.
+   */
+  default V widen(V a, V b, long[] thresholds) {
+    return join(a, b);
+  }
+
+  /**
+   * The result of an int or long operation of {@link Op}, from
+   * {@link Op#IADD} to {@link Op#LXOR} and {@link Op#LCMP}, on the values
+   * that do not throw, so a division by zero adds nothing.
+   */
+  V binary(int op, V a, V b);
+
+  /** The result of {@link Op#INEG}, {@link Op#LNEG}, or a cast between ints and longs. */
+  V unary(int op, V a);
+
+  /**
+   * The values of {@code x} for which {@code x cond y} may hold, where the
+   * condition is one of {@link Op#IFEQ} to {@link Op#IFLE}.
+   */
+  V assume(int cond, V x, V y);
+}
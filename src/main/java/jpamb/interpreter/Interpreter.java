@@ -0,0 +1,1544 @@
+package jpamb.interpreter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import jpamb.interpreter.Program.Call;
+import jpamb.interpreter.Program.Concat;
+import jpamb.interpreter.Program.Field;
+import jpamb.interpreter.Program.Method;
+import jpamb.interpreter.Program.Type;
+import jpamb.utils.CaseContent;
+import jpamb.utils.CaseContent.ResultType;
+import jpamb.utils.Descriptor;
+import jpamb.utils.InputParser;
+
+/**
+ * Runs case methods by interpreting their bytecode, with the same results
+ * as running them with {@link jpamb.Runtime}.
+ *
+ * <pre>
+ * java -cp target/classes jpamb.interpreter.Interpreter [--steps n] [--classpath folders] [--no-cycles] &lt;method id&gt; &lt;input&gt;...
+ * java -cp target/classes jpamb.interpreter.Interpreter [--steps n] [--classpath folders] [--no-cycles] --batch &lt;cases file&gt;
+ * </pre>
+ *
+ * The code is the decompiled bytecode that {@code solutions/interpreter.py}
+ * steps over, compiled to int arrays, see {@link Program}. Values are words
+ * in a single long array that holds the locals and the operand stack of
+ * every frame, with two words for longs and doubles as in the JVM, so the
+ * arguments of a call become the first locals of the callee where they
+ * are. Ints are sign extended, floats and doubles are kept as their bits,
+ * and references are handles to the objects of the run.
+ *
+ * The objects are Java objects: arrays are Java arrays, instances of
+ * program classes are {@link Instance}s, and everything else, like strings
+ * and exceptions, is the JDK object itself, whose methods are called
+ * through reflection. So an instruction that fails, like a division by
+ * zero, throws the JVM's own exception, which is classified as
+ * {@link jpamb.Runtime} does. Assertions are enabled, as they are for the
+ * cases, and a run that takes more steps than its budget does not
+ * terminate.
+ *
+ * A run also does not terminate when it comes back to a state that it was
+ * in before, as it would then go round the same way forever. The states
+ * are taken at the targets of back edges, which every loop has, and kept
+ * in a bounded set, see {@link States}, so a loop like
+ * {@code while (true) {}} is found in a few steps rather than at the end
+ * of the budget.
+ */
+public final class Interpreter {
+  static final long DEFAULT_BUDGET = 10_000_000;
+  static final int MAX_DEPTH = 1 << 16;
+
+  final Program program;
+  private long budget = DEFAULT_BUDGET;
+  private long steps;
+
+  private long[] slots = new long[1 << 12];
+  private Method[] frameMethods = new Method[64];
+  /** Where each caller continues: after the call, or at {@code ~pc} to run {@code pc} again after a class initializer. */
+  private int[] framePcs = new int[64];
+  private int[] frameBps = new int[64];
+  private int depth;
+
+  /** The objects of the current run, by handle, where 0 is null. */
+  private Object[] heap = new Object[256];
+  private int heapSize = 1;
+  private final IdentityHashMap<Object, Integer> handles = new IdentityHashMap<>();
+
+  /** The most words of a state to look for in the states visited before. */
+  private static final int MAX_STATE = 1 << 12;
+  /** How many times the visited states may fill up before looking for cycles stops. */
+  private static final int MAX_FORGOTTEN = 4;
+  private boolean detect = true;
+  private boolean detecting;
+  private final States states = new States();
+  private long[] state = new long[256];
+  private int length;
+  /** The JDK methods called and fields read, whose state a repeated state may not have seen. */
+  private long externals;
+
+  /** Code that cannot be interpreted, like a JDK method that is not public. */
+  public static final class Unsupported extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public Unsupported(String message) {
+      super(message);
+    }
+  }
+
+  /** An instance of a program class, with a slot for each field. */
+  static final class Instance {
+    final Type type;
+    final long[] values;
+    final Object[] refs;
+
+    Instance(Type type) {
+      this.type = type;
+      this.values = new long[type.isRef.length];
+      this.refs = new Object[type.isRef.length];
+    }
+  }
+
+  /** A class constant, which can only be asked whether assertions are enabled. */
+  record ClassConstant(String name) {
+  }
+
+  /** A JDK object that has been created but not constructed yet. */
+  static final class Uninitialized {
+    final String name;
+
+    Uninitialized(String name) {
+      this.name = name;
+    }
+  }
+
+  /** An object thrown by the interpreted code. */
+  static final class Thrown extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    final Object value;
+
+    Thrown(Object value) {
+      super(null, null, false, false);
+      this.value = value;
+    }
+  }
+
+  public Interpreter(List<Path> classpath) {
+    this.program = new Program(classpath);
+  }
+
+  /** The number of steps after which a run is non-terminating. */
+  public void budget(long steps) {
+    this.budget = steps;
+  }
+
+  /**
+   * Whether to look for states that repeat, which makes a run that can
+   * only go round in circles non-terminating when it does the first time.
+   */
+  public void detectCycles(boolean detect) {
+    this.detect = detect;
+  }
+
+  /** The steps taken by all runs so far. */
+  public long steps() {
+    return steps;
+  }
+
+  /** Run the static method with this id, like {@code jpamb.cases.Simple.divideByN:(I)I}, on parsed inputs. */
+  public ResultType run(String id, Object[] params) {
+    Method method = program.method(id);
+    if (!method.isStatic()) {
+      throw new IllegalArgumentException("Expected " + id + " to be static");
+    }
+    if (params.length != method.params.length()) {
+      throw new IllegalArgumentException(
+          "Expected " + method.params.length() + " inputs to " + id + ", got " + params.length);
+    }
+    reset();
+    states.reset();
+    detecting = detect;
+    externals = 0;
+    method.compile();
+    ensure(method.maxLocals + method.maxStack);
+    int sp = 0;
+    for (int i = 0; i < params.length; i++) {
+      char kind = method.params.charAt(i);
+      slots[sp] = unbox(kind, params[i]);
+      sp += Program.words(kind);
+    }
+    depth = 0;
+    return execute(method);
+  }
+
+  /** Forget the objects of the last run. */
+  void reset() {
+    Arrays.fill(heap, 0, heapSize, null);
+    heapSize = 1;
+    handles.clear();
+  }
+
+  /** The object of a handle. */
+  Object object(long handle) {
+    return heap[(int) handle];
+  }
+
+  /** Let a handle refer to the object that an uninitialized one became. */
+  void replace(long handle, Object created) {
+    handles.remove(heap[(int) handle]);
+    heap[(int) handle] = created;
+    handles.put(created, (int) handle);
+  }
+
+  private ResultType execute(Method method) {
+    long[] s = slots;
+    int bp = 0;
+    int sp = method.maxLocals;
+    int pc = 0;
+    int[] op = method.op;
+    int[] a = method.a;
+    int[] b = method.b;
+    long[] k = method.k;
+    Object[] ref = method.ref;
+    long fuel = budget;
+
+    Method callee = initializer(method.owner);
+    int resume = ~0;
+    for (;;) {
+      Object thrown;
+      try {
+        for (;;) {
+          if (callee != null) {
+            // Enter the callee, whose arguments are on top of the stack.
+            if (depth == frameMethods.length) {
+              if (depth >= MAX_DEPTH) {
+                callee = null;
+                throw new StackOverflowError();
+              }
+              frameMethods = Arrays.copyOf(frameMethods, 2 * depth);
+              framePcs = Arrays.copyOf(framePcs, 2 * depth);
+              frameBps = Arrays.copyOf(frameBps, 2 * depth);
+            }
+            frameMethods[depth] = method;
+            framePcs[depth] = resume;
+            frameBps[depth] = bp;
+            depth++;
+            method = callee;
+            callee = null;
+            bp = sp - method.argWords;
+            if (bp + method.maxLocals + method.maxStack > s.length) {
+              s = ensure(bp + method.maxLocals + method.maxStack);
+            }
+            sp = bp + method.maxLocals;
+            pc = 0;
+            op = method.op;
+            a = method.a;
+            b = method.b;
+            k = method.k;
+            ref = method.ref;
+          }
+          if (--fuel < 0) {
+            steps += budget;
+            return ResultType.NON_TERMINATION;
+          }
+          int to = -1;
+          switch (op[pc]) {
+            case Op.NOP -> pc++;
+            case Op.PUSH1 -> {
+              s[sp++] = k[pc];
+              pc++;
+            }
+            case Op.PUSH2 -> {
+              s[sp] = k[pc];
+              s[sp + 1] = 0;
+              sp += 2;
+              pc++;
+            }
+            case Op.PUSH_REF -> {
+              s[sp++] = handle(ref[pc]);
+              pc++;
+            }
+            case Op.LOAD1 -> {
+              s[sp++] = s[bp + a[pc]];
+              pc++;
+            }
+            case Op.LOAD2 -> {
+              s[sp] = s[bp + a[pc]];
+              s[sp + 1] = 0;
+              sp += 2;
+              pc++;
+            }
+            case Op.STORE1 -> {
+              s[bp + a[pc]] = s[--sp];
+              pc++;
+            }
+            case Op.STORE2 -> {
+              sp -= 2;
+              s[bp + a[pc]] = s[sp];
+              pc++;
+            }
+
+            case Op.IALOAD -> {
+              s[sp - 2] = ((int[]) heap[(int) s[sp - 2]])[(int) s[sp - 1]];
+              sp--;
+              pc++;
+            }
+            case Op.LALOAD -> {
+              s[sp - 2] = ((long[]) heap[(int) s[sp - 2]])[(int) s[sp - 1]];
+              s[sp - 1] = 0;
+              pc++;
+            }
+            case Op.FALOAD -> {
+              s[sp - 2] = Float.floatToRawIntBits(((float[]) heap[(int) s[sp - 2]])[(int) s[sp - 1]]);
+              sp--;
+              pc++;
+            }
+            case Op.DALOAD -> {
+              s[sp - 2] = Double.doubleToRawLongBits(((double[]) heap[(int) s[sp - 2]])[(int) s[sp - 1]]);
+              s[sp - 1] = 0;
+              pc++;
+            }
+            case Op.AALOAD -> {
+              s[sp - 2] = handle(((Object[]) heap[(int) s[sp - 2]])[(int) s[sp - 1]]);
+              sp--;
+              pc++;
+            }
+            case Op.BALOAD -> {
+              Object array = heap[(int) s[sp - 2]];
+              int i = (int) s[sp - 1];
+              s[sp - 2] = array instanceof boolean[] z ? (z[i] ? 1 : 0) : ((byte[]) array)[i];
+              sp--;
+              pc++;
+            }
+            case Op.CALOAD -> {
+              s[sp - 2] = ((char[]) heap[(int) s[sp - 2]])[(int) s[sp - 1]];
+              sp--;
+              pc++;
+            }
+            case Op.SALOAD -> {
+              s[sp - 2] = ((short[]) heap[(int) s[sp - 2]])[(int) s[sp - 1]];
+              sp--;
+              pc++;
+            }
+            case Op.IASTORE -> {
+              ((int[]) heap[(int) s[sp - 3]])[(int) s[sp - 2]] = (int) s[sp - 1];
+              sp -= 3;
+              pc++;
+            }
+            case Op.LASTORE -> {
+              ((long[]) heap[(int) s[sp - 4]])[(int) s[sp - 3]] = s[sp - 2];
+              sp -= 4;
+              pc++;
+            }
+            case Op.FASTORE -> {
+              ((float[]) heap[(int) s[sp - 3]])[(int) s[sp - 2]] = Float.intBitsToFloat((int) s[sp - 1]);
+              sp -= 3;
+              pc++;
+            }
+            case Op.DASTORE -> {
+              ((double[]) heap[(int) s[sp - 4]])[(int) s[sp - 3]] = Double.longBitsToDouble(s[sp - 2]);
+              sp -= 4;
+              pc++;
+            }
+            case Op.AASTORE -> {
+              ((Object[]) heap[(int) s[sp - 3]])[(int) s[sp - 2]] = heap[(int) s[sp - 1]];
+              sp -= 3;
+              pc++;
+            }
+            case Op.BASTORE -> {
+              Object array = heap[(int) s[sp - 3]];
+              int i = (int) s[sp - 2];
+              if (array instanceof boolean[] z) {
+                z[i] = (s[sp - 1] & 1) != 0;
+              } else {
+                ((byte[]) array)[i] = (byte) s[sp - 1];
+              }
+              sp -= 3;
+              pc++;
+            }
+            case Op.CASTORE -> {
+              ((char[]) heap[(int) s[sp - 3]])[(int) s[sp - 2]] = (char) s[sp - 1];
+              sp -= 3;
+              pc++;
+            }
+            case Op.SASTORE -> {
+              ((short[]) heap[(int) s[sp - 3]])[(int) s[sp - 2]] = (short) s[sp - 1];
+              sp -= 3;
+              pc++;
+            }
+
+            case Op.POP -> {
+              sp--;
+              pc++;
+            }
+            case Op.POP2 -> {
+              sp -= 2;
+              pc++;
+            }
+            case Op.DUP -> {
+              s[sp] = s[sp - 1];
+              sp++;
+              pc++;
+            }
+            case Op.DUP_X1 -> {
+              long v1 = s[sp - 1];
+              s[sp - 1] = s[sp - 2];
+              s[sp - 2] = v1;
+              s[sp++] = v1;
+              pc++;
+            }
+            case Op.DUP_X2 -> {
+              long v1 = s[sp - 1];
+              s[sp - 1] = s[sp - 2];
+              s[sp - 2] = s[sp - 3];
+              s[sp - 3] = v1;
+              s[sp++] = v1;
+              pc++;
+            }
+            case Op.DUP2 -> {
+              s[sp] = s[sp - 2];
+              s[sp + 1] = s[sp - 1];
+              sp += 2;
+              pc++;
+            }
+            case Op.DUP2_X1 -> {
+              long v1 = s[sp - 1];
+              long v2 = s[sp - 2];
+              s[sp - 1] = s[sp - 3];
+              s[sp - 2] = v1;
+              s[sp - 3] = v2;
+              s[sp] = v2;
+              s[sp + 1] = v1;
+              sp += 2;
+              pc++;
+            }
+            case Op.DUP2_X2 -> {
+              long v1 = s[sp - 1];
+              long v2 = s[sp - 2];
+              s[sp - 1] = s[sp - 3];
+              s[sp - 2] = s[sp - 4];
+              s[sp - 3] = v1;
+              s[sp - 4] = v2;
+              s[sp] = v2;
+              s[sp + 1] = v1;
+              sp += 2;
+              pc++;
+            }
+            case Op.SWAP -> {
+              long v1 = s[sp - 1];
+              s[sp - 1] = s[sp - 2];
+              s[sp - 2] = v1;
+              pc++;
+            }
+
+            case Op.IADD -> {
+              s[sp - 2] = (int) s[sp - 2] + (int) s[sp - 1];
+              sp--;
+              pc++;
+            }
+            case Op.ISUB -> {
+              s[sp - 2] = (int) s[sp - 2] - (int) s[sp - 1];
+              sp--;
+              pc++;
+            }
+            case Op.IMUL -> {
+              s[sp - 2] = (int) s[sp - 2] * (int) s[sp - 1];
+              sp--;
+              pc++;
+            }
+            case Op.IDIV -> {
+              s[sp - 2] = (int) s[sp - 2] / (int) s[sp - 1];
+              sp--;
+              pc++;
+            }
+            case Op.IREM -> {
+              s[sp - 2] = (int) s[sp - 2] % (int) s[sp - 1];
+              sp--;
+              pc++;
+            }
+            case Op.LADD -> {
+              s[sp - 4] = s[sp - 4] + s[sp - 2];
+              sp -= 2;
+              pc++;
+            }
+            case Op.LSUB -> {
+              s[sp - 4] = s[sp - 4] - s[sp - 2];
+              sp -= 2;
+              pc++;
+            }
+            case Op.LMUL -> {
+              s[sp - 4] = s[sp - 4] * s[sp - 2];
+              sp -= 2;
+              pc++;
+            }
+            case Op.LDIV -> {
+              s[sp - 4] = s[sp - 4] / s[sp - 2];
+              sp -= 2;
+              pc++;
+            }
+            case Op.LREM -> {
+              s[sp - 4] = s[sp - 4] % s[sp - 2];
+              sp -= 2;
+              pc++;
+            }
+            case Op.FADD -> {
+              s[sp - 2] = bits(f(s[sp - 2]) + f(s[sp - 1]));
+              sp--;
+              pc++;
+            }
+            case Op.FSUB -> {
+              s[sp - 2] = bits(f(s[sp - 2]) - f(s[sp - 1]));
+              sp--;
+              pc++;
+            }
+            case Op.FMUL -> {
+              s[sp - 2] = bits(f(s[sp - 2]) * f(s[sp - 1]));
+              sp--;
+              pc++;
+            }
+            case Op.FDIV -> {
+              s[sp - 2] = bits(f(s[sp - 2]) / f(s[sp - 1]));
+              sp--;
+              pc++;
+            }
+            case Op.FREM -> {
+              s[sp - 2] = bits(f(s[sp - 2]) % f(s[sp - 1]));
+              sp--;
+              pc++;
+            }
+            case Op.DADD -> {
+              s[sp - 4] = bits(d(s[sp - 4]) + d(s[sp - 2]));
+              sp -= 2;
+              pc++;
+            }
+            case Op.DSUB -> {
+              s[sp - 4] = bits(d(s[sp - 4]) - d(s[sp - 2]));
+              sp -= 2;
+              pc++;
+            }
+            case Op.DMUL -> {
+              s[sp - 4] = bits(d(s[sp - 4]) * d(s[sp - 2]));
+              sp -= 2;
+              pc++;
+            }
+            case Op.DDIV -> {
+              s[sp - 4] = bits(d(s[sp - 4]) / d(s[sp - 2]));
+              sp -= 2;
+              pc++;
+            }
+            case Op.DREM -> {
+              s[sp - 4] = bits(d(s[sp - 4]) % d(s[sp - 2]));
+              sp -= 2;
+              pc++;
+            }
+            case Op.INEG -> {
+              s[sp - 1] = -(int) s[sp - 1];
+              pc++;
+            }
+            case Op.LNEG -> {
+              s[sp - 2] = -s[sp - 2];
+              pc++;
+            }
+            case Op.FNEG -> {
+              s[sp - 1] = bits(-f(s[sp - 1]));
+              pc++;
+            }
+            case Op.DNEG -> {
+              s[sp - 2] = bits(-d(s[sp - 2]));
+              pc++;
+            }
+            case Op.ISHL -> {
+              s[sp - 2] = (int) s[sp - 2] << (int) s[sp - 1];
+              sp--;
+              pc++;
+            }
+            case Op.ISHR -> {
+              s[sp - 2] = (int) s[sp - 2] >> (int) s[sp - 1];
+              sp--;
+              pc++;
+            }
+            case Op.IUSHR -> {
+              s[sp - 2] = (int) s[sp - 2] >>> (int) s[sp - 1];
+              sp--;
+              pc++;
+            }
+            case Op.IAND -> {
+              s[sp - 2] = s[sp - 2] & s[sp - 1];
+              sp--;
+              pc++;
+            }
+            case Op.IOR -> {
+              s[sp - 2] = s[sp - 2] | s[sp - 1];
+              sp--;
+              pc++;
+            }
+            case Op.IXOR -> {
+              s[sp - 2] = s[sp - 2] ^ s[sp - 1];
+              sp--;
+              pc++;
+            }
+            // The shift distance of a long shift is an int.
+            case Op.LSHL -> {
+              s[sp - 3] = s[sp - 3] << (int) s[sp - 1];
+              sp--;
+              pc++;
+            }
+            case Op.LSHR -> {
+              s[sp - 3] = s[sp - 3] >> (int) s[sp - 1];
+              sp--;
+              pc++;
+            }
+            case Op.LUSHR -> {
+              s[sp - 3] = s[sp - 3] >>> (int) s[sp - 1];
+              sp--;
+              pc++;
+            }
+            case Op.LAND -> {
+              s[sp - 4] = s[sp - 4] & s[sp - 2];
+              sp -= 2;
+              pc++;
+            }
+            case Op.LOR -> {
+              s[sp - 4] = s[sp - 4] | s[sp - 2];
+              sp -= 2;
+              pc++;
+            }
+            case Op.LXOR -> {
+              s[sp - 4] = s[sp - 4] ^ s[sp - 2];
+              sp -= 2;
+              pc++;
+            }
+            case Op.IINC -> {
+              s[bp + a[pc]] = (int) s[bp + a[pc]] + b[pc];
+              pc++;
+            }
+
+            case Op.I2L -> {
+              s[sp++] = 0;
+              pc++;
+            }
+            case Op.I2F -> {
+              s[sp - 1] = bits((float) (int) s[sp - 1]);
+              pc++;
+            }
+            case Op.I2D -> {
+              s[sp - 1] = bits((double) (int) s[sp - 1]);
+              s[sp++] = 0;
+              pc++;
+            }
+            case Op.L2I -> {
+              s[sp - 2] = (int) s[sp - 2];
+              sp--;
+              pc++;
+            }
+            case Op.L2F -> {
+              s[sp - 2] = bits((float) s[sp - 2]);
+              sp--;
+              pc++;
+            }
+            case Op.L2D -> {
+              s[sp - 2] = bits((double) s[sp - 2]);
+              pc++;
+            }
+            case Op.F2I -> {
+              s[sp - 1] = (int) f(s[sp - 1]);
+              pc++;
+            }
+            case Op.F2L -> {
+              s[sp - 1] = (long) f(s[sp - 1]);
+              s[sp++] = 0;
+              pc++;
+            }
+            case Op.F2D -> {
+              s[sp - 1] = bits((double) f(s[sp - 1]));
+              s[sp++] = 0;
+              pc++;
+            }
+            case Op.D2I -> {
+              s[sp - 2] = (int) d(s[sp - 2]);
+              sp--;
+              pc++;
+            }
+            case Op.D2L -> {
+              s[sp - 2] = (long) d(s[sp - 2]);
+              pc++;
+            }
+            case Op.D2F -> {
+              s[sp - 2] = bits((float) d(s[sp - 2]));
+              sp--;
+              pc++;
+            }
+            case Op.I2B -> {
+              s[sp - 1] = (byte) s[sp - 1];
+              pc++;
+            }
+            case Op.I2C -> {
+              s[sp - 1] = (char) s[sp - 1];
+              pc++;
+            }
+            case Op.I2S -> {
+              s[sp - 1] = (short) s[sp - 1];
+              pc++;
+            }
+
+            case Op.LCMP -> {
+              s[sp - 4] = Long.compare(s[sp - 4], s[sp - 2]);
+              sp -= 3;
+              pc++;
+            }
+            case Op.FCMPL, Op.FCMPG -> {
+              float x = f(s[sp - 2]);
+              float y = f(s[sp - 1]);
+              s[sp - 2] = x > y ? 1 : x == y ? 0 : x < y ? -1 : op[pc] == Op.FCMPL ? -1 : 1;
+              sp--;
+              pc++;
+            }
+            case Op.DCMPL, Op.DCMPG -> {
+              double x = d(s[sp - 4]);
+              double y = d(s[sp - 2]);
+              s[sp - 4] = x > y ? 1 : x == y ? 0 : x < y ? -1 : op[pc] == Op.DCMPL ? -1 : 1;
+              sp -= 3;
+              pc++;
+            }
+
+            case Op.IFEQ -> to = s[--sp] == 0 ? a[pc] : pc + 1;
+            case Op.IFNE -> to = s[--sp] != 0 ? a[pc] : pc + 1;
+            case Op.IFLT -> to = s[--sp] < 0 ? a[pc] : pc + 1;
+            case Op.IFGE -> to = s[--sp] >= 0 ? a[pc] : pc + 1;
+            case Op.IFGT -> to = s[--sp] > 0 ? a[pc] : pc + 1;
+            case Op.IFLE -> to = s[--sp] <= 0 ? a[pc] : pc + 1;
+            case Op.IF_ICMPEQ, Op.IF_ACMPEQ -> {
+              sp -= 2;
+              to = s[sp] == s[sp + 1] ? a[pc] : pc + 1;
+            }
+            case Op.IF_ICMPNE, Op.IF_ACMPNE -> {
+              sp -= 2;
+              to = s[sp] != s[sp + 1] ? a[pc] : pc + 1;
+            }
+            case Op.IF_ICMPLT -> {
+              sp -= 2;
+              to = s[sp] < s[sp + 1] ? a[pc] : pc + 1;
+            }
+            case Op.IF_ICMPGE -> {
+              sp -= 2;
+              to = s[sp] >= s[sp + 1] ? a[pc] : pc + 1;
+            }
+            case Op.IF_ICMPGT -> {
+              sp -= 2;
+              to = s[sp] > s[sp + 1] ? a[pc] : pc + 1;
+            }
+            case Op.IF_ICMPLE -> {
+              sp -= 2;
+              to = s[sp] <= s[sp + 1] ? a[pc] : pc + 1;
+            }
+            case Op.IFNULL -> to = s[--sp] == 0 ? a[pc] : pc + 1;
+            case Op.IFNONNULL -> to = s[--sp] != 0 ? a[pc] : pc + 1;
+            case Op.GOTO -> to = a[pc];
+            case Op.TABLESWITCH -> {
+              int[] targets = (int[]) ref[pc];
+              long i = s[--sp] - a[pc];
+              to = i >= 0 && i < targets.length ? targets[(int) i] : b[pc];
+            }
+            case Op.LOOKUPSWITCH -> {
+              int[] table = (int[]) ref[pc];
+              int i = Arrays.binarySearch(table, 0, table.length / 2, (int) s[--sp]);
+              to = i >= 0 ? table[table.length / 2 + i] : b[pc];
+            }
+
+            case Op.RETURN, Op.RETURN1, Op.RETURN2 -> {
+              if (depth == 0) {
+                steps += budget - fuel;
+                return ResultType.SUCCESS;
+              }
+              int words = op[pc] - Op.RETURN;
+              for (int i = 0; i < words; i++) {
+                s[bp + i] = s[sp - words + i];
+              }
+              sp = bp + words;
+              depth--;
+              method = frameMethods[depth];
+              frameMethods[depth] = null;
+              bp = frameBps[depth];
+              pc = framePcs[depth] >= 0 ? framePcs[depth] + 1 : ~framePcs[depth];
+              op = method.op;
+              a = method.a;
+              b = method.b;
+              k = method.k;
+              ref = method.ref;
+            }
+
+            case Op.GETSTATIC, Op.PUTSTATIC -> {
+              Field f = (Field) ref[pc];
+              if (f.slot < 0 && f.external == null) {
+                resolveStatic(f);
+              }
+              Type t = f.type;
+              if (t != null && !t.initialized && (callee = initializer(t)) != null) {
+                resume = ~pc;
+                break;
+              }
+              boolean wide = f.kind == 'J' || f.kind == 'D';
+              if (op[pc] == Op.GETSTATIC) {
+                if (t == null) {
+                  s[sp] = unbox(f.kind, get(f, null));
+                } else if (f.kind == 'L') {
+                  s[sp] = handle(t.staticRefs[f.slot]);
+                } else {
+                  s[sp] = t.staticValues[f.slot];
+                }
+                if (wide) {
+                  s[sp + 1] = 0;
+                }
+                sp += wide ? 2 : 1;
+              } else {
+                sp -= wide ? 2 : 1;
+                if (t == null) {
+                  throw new Unsupported("Cannot set " + f + ", which is external");
+                } else if (f.kind == 'L') {
+                  t.staticRefs[f.slot] = heap[(int) s[sp]];
+                } else {
+                  t.staticValues[f.slot] = s[sp];
+                }
+              }
+              pc++;
+            }
+            case Op.GETFIELD -> {
+              Field f = (Field) ref[pc];
+              Object o = heap[(int) s[sp - 1]];
+              if (o == null) {
+                throw new NullPointerException();
+              }
+              if (!(o instanceof Instance instance)) {
+                s[sp - 1] = unbox(f.kind, get(f, o));
+              } else {
+                int slot = f.slot >= 0 ? f.slot : resolveField(f);
+                s[sp - 1] = f.kind == 'L' ? handle(instance.refs[slot]) : instance.values[slot];
+              }
+              if (f.kind == 'J' || f.kind == 'D') {
+                s[sp++] = 0;
+              }
+              pc++;
+            }
+            case Op.PUTFIELD -> {
+              Field f = (Field) ref[pc];
+              int words = f.kind == 'J' || f.kind == 'D' ? 2 : 1;
+              Object o = heap[(int) s[sp - words - 1]];
+              if (o == null) {
+                throw new NullPointerException();
+              }
+              if (!(o instanceof Instance instance)) {
+                throw new Unsupported("Cannot set " + f + ", which is external");
+              }
+              int slot = f.slot >= 0 ? f.slot : resolveField(f);
+              if (f.kind == 'L') {
+                instance.refs[slot] = heap[(int) s[sp - 1]];
+              } else {
+                instance.values[slot] = s[sp - words];
+              }
+              sp -= words + 1;
+              pc++;
+            }
+
+            case Op.INVOKESTATIC -> {
+              Call call = (Call) ref[pc];
+              if (!call.resolved) {
+                resolve(call);
+              }
+              Method m = call.method;
+              if (m == null) {
+                sp = external(call, null, sp, s);
+                pc++;
+              } else if (!m.owner.initialized && (callee = initializer(m.owner)) != null) {
+                resume = ~pc;
+              } else {
+                m.compile();
+                callee = m;
+                resume = pc;
+              }
+            }
+            case Op.INVOKESPECIAL -> {
+              Call call = (Call) ref[pc];
+              if (!call.resolved) {
+                resolve(call);
+              }
+              int receiver = (int) s[sp - call.argWords];
+              Object o = heap[receiver];
+              if (o == null) {
+                throw new NullPointerException();
+              }
+              if (call.method != null) {
+                call.method.compile();
+                callee = call.method;
+                resume = pc;
+              } else if (!call.name.equals("<init>")) {
+                throw new Unsupported("Cannot call " + call + " on an interpreted object");
+              } else if (o instanceof Uninitialized) {
+                // Construct the JDK object, and let the handle refer to it.
+                replace(receiver, construct(call, s, sp - call.argWords + 1));
+                sp -= call.argWords;
+                pc++;
+              } else {
+                // A program class calling the constructor of its JDK superclass.
+                sp -= call.argWords;
+                pc++;
+              }
+            }
+            case Op.INVOKEVIRTUAL -> {
+              Call call = (Call) ref[pc];
+              Object o = heap[(int) s[sp - call.argWords]];
+              if (o == null) {
+                throw new NullPointerException();
+              }
+              if (o instanceof Instance instance) {
+                Method m = instance.type == call.type ? call.method : null;
+                if (m == null) {
+                  m = instance.type.dispatch(call.signature);
+                  if (m == null) {
+                    throw new Unsupported("Cannot call " + call + " on an instance of " + instance.type);
+                  }
+                  m.compile();
+                  call.type = instance.type;
+                  call.method = m;
+                }
+                callee = m;
+                resume = pc;
+              } else if (o instanceof ClassConstant) {
+                if (!call.signature.equals("desiredAssertionStatus()Z")) {
+                  throw new Unsupported("Cannot call " + call + " on a class constant");
+                }
+                // The cases run with assertions enabled.
+                s[sp - 1] = 1;
+                pc++;
+              } else {
+                sp = external(call, o, sp, s);
+                pc++;
+              }
+            }
+            case Op.CONCAT -> {
+              Concat concat = (Concat) ref[pc];
+              sp = concat(concat, s, sp);
+              pc++;
+            }
+
+            case Op.NEW -> {
+              Object type = ref[pc];
+              if (type instanceof String name) {
+                Type t = program.type(name);
+                if (t == null) {
+                  s[sp++] = handle(new Uninitialized(name));
+                  pc++;
+                  break;
+                }
+                ref[pc] = type = t;
+              }
+              Type t = (Type) type;
+              if (!t.initialized && (callee = initializer(t)) != null) {
+                resume = ~pc;
+                break;
+              }
+              s[sp++] = handle(new Instance(t));
+              pc++;
+            }
+            case Op.NEWARRAY -> {
+              int dims = a[pc];
+              Object array = newArray((String) ref[pc], s, sp - dims, dims);
+              sp -= dims;
+              s[sp++] = handle(array);
+              pc++;
+            }
+            case Op.ARRAYLENGTH -> {
+              s[sp - 1] = length(heap[(int) s[sp - 1]]);
+              pc++;
+            }
+            case Op.ATHROW -> {
+              Object o = heap[(int) s[sp - 1]];
+              if (o == null) {
+                throw new NullPointerException();
+              }
+              throw new Thrown(o);
+            }
+            case Op.CHECKCAST -> {
+              Object o = heap[(int) s[sp - 1]];
+              if (o != null && !isInstance(o, (String) ref[pc])) {
+                throw new ClassCastException(ref[pc].toString());
+              }
+              pc++;
+            }
+            case Op.INSTANCEOF -> {
+              Object o = heap[(int) s[sp - 1]];
+              s[sp - 1] = o != null && isInstance(o, (String) ref[pc]) ? 1 : 0;
+              pc++;
+            }
+            case Op.MONITOR -> {
+              if (s[--sp] == 0) {
+                throw new NullPointerException();
+              }
+              pc++;
+            }
+            case Op.UNSUPPORTED -> throw new Unsupported(ref[pc] + " at " + method + " " + pc);
+            default -> throw new IllegalStateException("Invalid instruction " + op[pc]);
+          }
+          if (to >= 0) {
+            if (to <= pc && detecting && repeats(method, to, bp, sp)) {
+              steps += budget - fuel;
+              return ResultType.NON_TERMINATION;
+            }
+            pc = to;
+          }
+        }
+      } catch (Unsupported | IllegalStateException e) {
+        // An IllegalStateException is a bug of the interpreter, not something the code threw.
+        steps += budget - fuel;
+        throw e;
+      } catch (Thrown e) {
+        thrown = e.value;
+      } catch (RuntimeException | Error e) {
+        thrown = e;
+      }
+      // Unwind to the innermost handler that catches what was thrown.
+      for (;;) {
+        int handler = method.handler(pc, thrown, this);
+        if (handler >= 0) {
+          sp = bp + method.maxLocals;
+          s[sp++] = handle(thrown);
+          pc = handler;
+          break;
+        }
+        if (depth == 0) {
+          steps += budget - fuel;
+          return classify(thrown);
+        }
+        depth--;
+        method = frameMethods[depth];
+        frameMethods[depth] = null;
+        bp = frameBps[depth];
+        pc = framePcs[depth];
+        if (pc < 0) {
+          pc = ~pc;
+          if (!(thrown instanceof Error)) {
+            thrown = new ExceptionInInitializerError(thrown instanceof Throwable t ? t : null);
+          }
+        }
+        op = method.op;
+        a = method.a;
+        b = method.b;
+        k = method.k;
+        ref = method.ref;
+      }
+    }
+  }
+
+  /**
+   * The class initializer to run before {@code type} can be used, which is
+   * that of its topmost superclass that is not initialized, or null if
+   * nothing is left to run. The class counts as initialized from here on.
+   */
+  Method initializer(Type type) {
+    while (!type.initialized) {
+      Type top = type;
+      for (Type t = type.superType; t != null && !t.initialized; t = t.superType) {
+        top = t;
+      }
+      top.initialized = true;
+      Method clinit = top.methods.get("<clinit>()V");
+      if (clinit != null) {
+        clinit.compile();
+        return clinit;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Whether the state at a back edge, about to jump to {@code pc}, was
+   * seen at a back edge before in this run. The state is the frames, their
+   * words, every object of the heap with what is in it if it can change,
+   * the static fields, and how many JDK methods were called, so a state
+   * only repeats when the run would go on the same way from both, round
+   * and round. A state with a JDK object that can change, like a
+   * {@code StringBuilder}, or with too many words, is not looked for.
+   */
+  private boolean repeats(Method method, int pc, int bp, int sp) {
+    length = 0;
+    put(depth);
+    for (int f = 0; f < depth; f++) {
+      put(frameMethods[f].number);
+      put(framePcs[f]);
+      put(frameBps[f]);
+    }
+    put(method.number);
+    put(pc);
+    put(bp);
+    put(sp);
+    for (int w = 0; w < sp; w++) {
+      put(slots[w]);
+    }
+    put(externals);
+    put(program.loaded.size());
+    for (Type t : program.loaded) {
+      put(t.initialized ? 1 : 0);
+      for (long v : t.staticValues) {
+        put(v);
+      }
+      for (Object r : t.staticRefs) {
+        put(handle(r));
+      }
+    }
+    // Objects found in arrays and fields get a handle, and are encoded too.
+    for (int h = 1; h < heapSize; h++) {
+      if (!encode(heap[h]) || length > MAX_STATE) {
+        return false;
+      }
+    }
+    put(heapSize);
+    boolean seen = states.visit(state, length);
+    if (states.forgotten() > MAX_FORGOTTEN) {
+      // The states do not repeat soon enough for looking to pay off.
+      detecting = false;
+    }
+    return seen;
+  }
+
+  /**
+   * Encode an object of the heap. Those that cannot change are the same
+   * object whenever they have the same handle, so their kind is enough.
+   */
+  private boolean encode(Object o) {
+    if (o instanceof Instance instance) {
+      put(1);
+      put(instance.type.number);
+      for (long v : instance.values) {
+        put(v);
+      }
+      for (Object r : instance.refs) {
+        put(handle(r));
+      }
+    } else if (o instanceof int[] a) {
+      put(2);
+      put(a.length);
+      for (int v : a) {
+        put(v);
+      }
+    } else if (o instanceof long[] a) {
+      put(3);
+      put(a.length);
+      for (long v : a) {
+        put(v);
+      }
+    } else if (o instanceof char[] a) {
+      put(4);
+      put(a.length);
+      for (char v : a) {
+        put(v);
+      }
+    } else if (o instanceof byte[] a) {
+      put(5);
+      put(a.length);
+      for (byte v : a) {
+        put(v);
+      }
+    } else if (o instanceof boolean[] a) {
+      put(6);
+      put(a.length);
+      for (boolean v : a) {
+        put(v ? 1 : 0);
+      }
+    } else if (o instanceof short[] a) {
+      put(7);
+      put(a.length);
+      for (short v : a) {
+        put(v);
+      }
+    } else if (o instanceof float[] a) {
+      put(8);
+      put(a.length);
+      for (float v : a) {
+        put(bits(v));
+      }
+    } else if (o instanceof double[] a) {
+      put(9);
+      put(a.length);
+      for (double v : a) {
+        put(bits(v));
+      }
+    } else if (o instanceof Object[] a) {
+      put(10);
+      put(a.length);
+      for (Object e : a) {
+        put(handle(e));
+      }
+    } else if (o instanceof String || o instanceof Integer || o instanceof Long || o instanceof Float
+        || o instanceof Double || o instanceof Boolean || o instanceof Character || o instanceof Byte
+        || o instanceof Short || o instanceof ClassConstant) {
+      put(11);
+    } else if (o instanceof Uninitialized) {
+      put(12);
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+  private void put(long word) {
+    if (length == state.length) {
+      state = Arrays.copyOf(state, 2 * length);
+    }
+    state[length++] = word;
+  }
+
+  private long[] ensure(int size) {
+    if (size > slots.length) {
+      slots = Arrays.copyOf(slots, Math.max(size, 2 * slots.length));
+    }
+    return slots;
+  }
+
+  /** The handle of an object, which is the same for as long as the run lasts. */
+  long handle(Object o) {
+    if (o == null) {
+      return 0;
+    }
+    Integer h = handles.get(o);
+    if (h != null) {
+      return h;
+    }
+    if (heapSize == heap.length) {
+      heap = Arrays.copyOf(heap, 2 * heapSize);
+    }
+    heap[heapSize] = o;
+    handles.put(o, heapSize);
+    return heapSize++;
+  }
+
+  void resolve(Call call) {
+    call.type = call.owner.startsWith("[") ? null : program.type(call.owner);
+    if (call.type != null) {
+      call.method = call.type.resolve(call.signature);
+      if (call.method == null) {
+        throw new Unsupported("No such method " + call);
+      }
+    }
+    call.resolved = true;
+  }
+
+  void resolveStatic(Field f) {
+    Type owner = program.type(f.owner);
+    Type t = owner == null ? null : owner.staticOwner(f.key());
+    if (t != null) {
+      f.type = t;
+      f.slot = t.staticFields.get(f.key());
+    } else if (owner == null) {
+      externalField(f);
+    } else {
+      throw new Unsupported("No such field " + f);
+    }
+  }
+
+  int resolveField(Field f) {
+    Type owner = program.type(f.owner);
+    Integer slot = owner == null ? null : owner.fields.get(f.key());
+    if (slot == null) {
+      throw new Unsupported("No such field " + f);
+    }
+    f.slot = slot;
+    return slot;
+  }
+
+  java.lang.reflect.Field externalField(Field f) {
+    if (f.external == null) {
+      try {
+        f.external = program.javaClass(f.owner).getField(f.name);
+      } catch (NoSuchFieldException e) {
+        throw new Unsupported("Cannot access " + f);
+      }
+    }
+    return f.external;
+  }
+
+  /** The value of a JDK field. */
+  Object get(Field f, Object o) {
+    try {
+      externals++;
+      return externalField(f).get(o);
+    } catch (IllegalAccessException e) {
+      throw new Unsupported("Cannot access " + f + ": " + e.getMessage());
+    }
+  }
+
+  /** Call a JDK method with the arguments on top of the stack, and return the new stack pointer. */
+  int external(Call call, Object receiver, int sp, long[] s) {
+    if (call.external == null) {
+      try {
+        Class<?> owner = program.javaClass(call.owner);
+        Class<?>[] types = Descriptor.parameters(call.descriptor.substring(1, call.descriptor.indexOf(')')));
+        call.external = owner.getMethod(call.name, types);
+      } catch (NoSuchMethodException e) {
+        throw new Unsupported("Cannot call " + call);
+      }
+    }
+    int base = sp - call.argWords;
+    Object result;
+    try {
+      externals++;
+      result = ((java.lang.reflect.Method) call.external).invoke(receiver, arguments(call, s, base + (call.isStatic ? 0 : 1)));
+    } catch (InvocationTargetException e) {
+      throw new Thrown(e.getCause());
+    } catch (IllegalAccessException e) {
+      throw new Unsupported("Cannot call " + call + ": " + e.getMessage());
+    }
+    sp = base;
+    if (call.returns != 'V') {
+      s[sp] = unbox(call.returns, result);
+      if (Program.words(call.returns) == 2) {
+        s[sp + 1] = 0;
+      }
+      sp += Program.words(call.returns);
+    }
+    return sp;
+  }
+
+  Object construct(Call call, long[] s, int base) {
+    try {
+      if (call.external == null) {
+        Class<?> owner = program.javaClass(call.owner);
+        Class<?>[] types = Descriptor.parameters(call.descriptor.substring(1, call.descriptor.indexOf(')')));
+        call.external = owner.getConstructor(types);
+      }
+      externals++;
+      return ((Constructor<?>) call.external).newInstance(arguments(call, s, base));
+    } catch (InvocationTargetException e) {
+      throw new Thrown(e.getCause());
+    } catch (ReflectiveOperationException e) {
+      throw new Unsupported("Cannot call " + call + ": " + e.getMessage());
+    }
+  }
+
+  Object[] arguments(Call call, long[] s, int base) {
+    Object[] args = new Object[call.params.length()];
+    for (int i = 0; i < args.length; i++) {
+      char kind = call.params.charAt(i);
+      args[i] = box(kind, s[base]);
+      base += Program.words(kind);
+    }
+    return args;
+  }
+
+  int concat(Concat concat, long[] s, int sp) {
+    int base = sp - concat.argWords();
+    int arg = base;
+    int param = 0;
+    int constant = 0;
+    var result = new StringBuilder();
+    String recipe = concat.recipe();
+    for (int i = 0; i < recipe.length(); i++) {
+      char c = recipe.charAt(i);
+      if (c == '\u0001') {
+        char kind = concat.params().charAt(param++);
+        Object value = box(kind, s[arg]);
+        if (value instanceof Instance || value instanceof ClassConstant) {
+          throw new Unsupported("Cannot convert an interpreted object to a string");
+        }
+        result.append(value);
+        arg += Program.words(kind);
+      } else if (c == '\u0002') {
+        result.append(concat.constants()[constant++]);
+      } else {
+        result.append(c);
+      }
+    }
+    s[base] = handle(result.toString());
+    return base + 1;
+  }
+
+  Object newArray(String type, long[] s, int base, int dims) {
+    int length = (int) s[base];
+    if (dims == 1) {
+      return switch (type.charAt(1)) {
+        case 'Z' -> new boolean[length];
+        case 'B' -> new byte[length];
+        case 'C' -> new char[length];
+        case 'S' -> new short[length];
+        case 'I' -> new int[length];
+        case 'J' -> new long[length];
+        case 'F' -> new float[length];
+        case 'D' -> new double[length];
+        default -> new Object[length];
+      };
+    }
+    if (length < 0) {
+      throw new NegativeArraySizeException(Integer.toString(length));
+    }
+    Object[] array = new Object[length];
+    for (int i = 0; i < length; i++) {
+      array[i] = newArray(type.substring(1), s, base + 1, dims - 1);
+    }
+    return array;
+  }
+
+  static int length(Object array) {
+    if (array == null) {
+      throw new NullPointerException();
+    }
+    return java.lang.reflect.Array.getLength(array);
+  }
+
+  /** Whether an object is an instance of the class with this internal name or array descriptor. */
+  boolean isInstance(Object o, String name) {
+    if (o instanceof Instance instance) {
+      if (name.startsWith("[")) {
+        return false;
+      }
+      Type t = program.type(name);
+      return t != null ? instance.type.isSubtypeOf(t) : instance.type.isSubtypeOf(program.javaClass(name));
+    }
+    if (o instanceof ClassConstant) {
+      return name.equals("java/lang/Class") || name.equals("java/lang/Object");
+    }
+    if (name.startsWith("[")) {
+      // Arrays of references are all kept as Object[].
+      char element = name.charAt(1);
+      return (element == 'L' || element == '[' ? Object[].class : program.javaClass(name)).isInstance(o);
+    }
+    return program.type(name) == null && program.javaClass(name).isInstance(o);
+  }
+
+  ResultType classify(Object thrown) {
+    Class<?> type = thrown instanceof Instance instance ? instance.type.externalSuper : thrown.getClass();
+    return ResultType.fromThrowable(type);
+  }
+
+  /** A word as the Java value of a parameter or a field of this kind. */
+  Object box(char kind, long word) {
+    return switch (kind) {
+      case 'I' -> (int) word;
+      case 'Z' -> word != 0;
+      case 'C' -> (char) word;
+      case 'B' -> (byte) word;
+      case 'S' -> (short) word;
+      case 'J' -> word;
+      case 'F' -> f(word);
+      case 'D' -> d(word);
+      default -> heap[(int) word];
+    };
+  }
+
+  /** A Java value as a word of this kind. */
+  long unbox(char kind, Object value) {
+    return switch (kind) {
+      case 'Z' -> (Boolean) value ? 1 : 0;
+      case 'I', 'C', 'B', 'S' -> value instanceof Character c ? c : ((Number) value).intValue();
+      case 'J' -> ((Number) value).longValue();
+      case 'F' -> bits(((Number) value).floatValue());
+      case 'D' -> bits(((Number) value).doubleValue());
+      default -> handle(value);
+    };
+  }
+
+  static float f(long word) {
+    return Float.intBitsToFloat((int) word);
+  }
+
+  static double d(long word) {
+    return Double.longBitsToDouble(word);
+  }
+
+  static long bits(float value) {
+    return Float.floatToRawIntBits(value);
+  }
+
+  static long bits(double value) {
+    return Double.doubleToRawLongBits(value);
+  }
+
+  public static void main(String[] args) throws IOException {
+    long budget = DEFAULT_BUDGET;
+    List<Path> classpath = List.of(Path.of("target/classes"));
+    boolean detect = true;
+    for (;;) {
+      if (args.length > 0 && args[0].equals("--no-cycles")) {
+        detect = false;
+        args = Arrays.copyOfRange(args, 1, args.length);
+      } else if (args.length > 1 && args[0].equals("--steps")) {
+        budget = Long.parseLong(args[1]);
+        args = Arrays.copyOfRange(args, 2, args.length);
+      } else if (args.length > 1 && args[0].equals("--classpath")) {
+        classpath = Arrays.stream(args[1].split(java.io.File.pathSeparator)).map(Path::of).toList();
+        args = Arrays.copyOfRange(args, 2, args.length);
+      } else {
+        break;
+      }
+    }
+    if (args.length == 0) {
+      throw new RuntimeException(
+          "Expected [--steps n] [--classpath folders] [--no-cycles] <method id> <input>... or --batch <cases file>");
+    }
+    var interpreter = new Interpreter(classpath);
+    interpreter.budget(budget);
+    interpreter.detectCycles(detect);
+    if (args[0].equals("--batch")) {
+      if (args.length != 2) {
+        throw new RuntimeException("Expected --batch <cases file>");
+      }
+      interpreter.batch(Path.of(args[1]), System.out);
+      return;
+    }
+    for (int i = 1; i < args.length; i++) {
+      Object[] params = InputParser.parse(args[i]);
+      System.err.printf("Running %s with %s%n", args[0], CaseContent.toInputsString(params));
+      ResultType result = interpreter.run(args[0], params);
+      if (result != ResultType.SUCCESS) {
+        System.out.println(result);
+        return;
+      }
+    }
+    System.out.println(ResultType.SUCCESS);
+  }
+
+  /**
+   * Run every case of a cases file, and print them as {@link jpamb.Batch}
+   * does. How many steps were taken, and how fast, goes to stderr.
+   */
+  public void batch(Path file, PrintStream out) throws IOException {
+    long start = System.nanoTime();
+    long before = steps;
+    for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+      line = line.strip();
+      if (line.isEmpty()) {
+        continue;
+      }
+      int space = line.indexOf(' ');
+      int arrow = line.lastIndexOf("->");
+      if (space < 0 || arrow < space) {
+        out.printf("%-60s error: invalid case%n", line);
+        continue;
+      }
+      String id = line.substring(0, space);
+      String input = line.substring(space, arrow).strip();
+      String result;
+      long elapsed = 0;
+      try {
+        Object[] params = InputParser.parse(input);
+        long begin = System.nanoTime();
+        result = run(id, params).toString();
+        elapsed = System.nanoTime() - begin;
+      } catch (RuntimeException e) {
+        result = "error: " + String.valueOf(e.getMessage()).replace('\n', ' ');
+      }
+      out.printf("%-60s %s -> %s %d%n", id, input, result, elapsed);
+    }
+    out.flush();
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.err.printf("Interpreted %d steps in %.3f s, %.1f million steps per second%n",
+        steps - before, seconds, (steps - before) / seconds / 1e6);
+  }
+}
@@ -0,0 +1,273 @@
+package jpamb.interpreter;
+
+import java.util.Arrays;
+
+import jpamb.interpreter.IntervalDomain.Interval;
+
+/**
+ * Intervals of ints and longs, with long bounds, so the result of an int
+ * operation is computed exactly and then wrapped around to 32 bits, as the
+ * JVM does: when all of it wraps by the same amount it is still an
+ * interval, and otherwise it is every int. A long operation that overflows
+ * is every long. The operands of an int operation are clamped to the ints
+ * first, so {@link #top()} is every int as well as every long.
+ *
+ * Loops converge by widening with the constants of the method: a bound that
+ * grows moves to the next constant, rather than straight to the end of the
+ * range, so a loop that counts to a constant is still bounded by it.
+ */
+final class IntervalDomain implements Domain<Interval> {
+  /** A set of values from {@code lo} to {@code hi}, both included, where empty is {@link #BOTTOM}. */
+  record Interval(long lo, long hi) {
+    @Override
+    public String toString() {
+      return this == BOTTOM ? "[]" : "[" + bound(lo) + ", " + bound(hi) + "]";
+    }
+
+    private static String bound(long b) {
+      return b == Long.MIN_VALUE ? "-inf" : b == Long.MAX_VALUE ? "+inf" : Long.toString(b);
+    }
+  }
+
+  static final Interval TOP = new Interval(Long.MIN_VALUE, Long.MAX_VALUE);
+  static final Interval BOTTOM = new Interval(1, 0);
+  static final Interval INT = new Interval(Integer.MIN_VALUE, Integer.MAX_VALUE);
+  private static final Interval ZERO = new Interval(0, 0);
+
+  static Interval of(long lo, long hi) {
+    if (lo > hi) {
+      return BOTTOM;
+    } else if (lo == Long.MIN_VALUE && hi == Long.MAX_VALUE) {
+      return TOP;
+    } else if (lo == Integer.MIN_VALUE && hi == Integer.MAX_VALUE) {
+      return INT;
+    } else if (lo == 0 && hi == 0) {
+      return ZERO;
+    }
+    return new Interval(lo, hi);
+  }
+
+  @Override
+  public Interval top() {
+    return TOP;
+  }
+
+  @Override
+  public Interval bottom() {
+    return BOTTOM;
+  }
+
+  @Override
+  public boolean isBottom(Interval v) {
+    return v == BOTTOM;
+  }
+
+  @Override
+  public Interval range(long lo, long hi) {
+    return of(lo, hi);
+  }
+
+  @Override
+  public boolean contains(Interval v, long value) {
+    return v.lo <= value && value <= v.hi;
+  }
+
+  @Override
+  public Interval join(Interval a, Interval b) {
+    if (a == BOTTOM) {
+      return b;
+    } else if (b == BOTTOM) {
+      return a;
+    }
+    return a.lo <= b.lo && b.hi <= a.hi ? a : of(Math.min(a.lo, b.lo), Math.max(a.hi, b.hi));
+  }
+
+  @Override
+  public Interval widen(Interval a, Interval b, long[] thresholds) {
+    if (a == BOTTOM || b == BOTTOM) {
+      return join(a, b);
+    }
+    long lo = a.lo;
+    long hi = a.hi;
+    if (b.lo < lo) {
+      int i = Arrays.binarySearch(thresholds, b.lo);
+      lo = i >= 0 ? b.lo : i == -1 ? Long.MIN_VALUE : thresholds[-i - 2];
+    }
+    if (b.hi > hi) {
+      int i = Arrays.binarySearch(thresholds, b.hi);
+      hi = i >= 0 ? b.hi : -i - 1 == thresholds.length ? Long.MAX_VALUE : thresholds[-i - 1];
+    }
+    return lo == a.lo && hi == a.hi ? a : of(lo, hi);
+  }
+
+  @Override
+  public Interval binary(int op, Interval a, Interval b) {
+    boolean isInt = op < Op.LADD || op >= Op.ISHL && op <= Op.IXOR;
+    if (isInt) {
+      a = clamp(a);
+      b = clamp(b);
+    } else if (op == Op.LSHL || op == Op.LSHR || op == Op.LUSHR) {
+      b = clamp(b);
+    }
+    if (a == BOTTOM || b == BOTTOM) {
+      return BOTTOM;
+    }
+    if (op == Op.LCMP) {
+      boolean equal = a.lo <= b.hi && b.lo <= a.hi;
+      return of(a.lo < b.hi ? -1 : equal ? 0 : 1, a.hi > b.lo ? 1 : equal ? 0 : -1);
+    }
+    if (a.lo == a.hi && b.lo == b.hi) {
+      return constant(op, a.lo, b.lo, isInt);
+    }
+    Interval top = isInt ? INT : TOP;
+    try {
+      return switch (op) {
+        case Op.IADD, Op.LADD -> wrap(Math.addExact(a.lo, b.lo), Math.addExact(a.hi, b.hi), isInt);
+        case Op.ISUB, Op.LSUB -> wrap(Math.subtractExact(a.lo, b.hi), Math.subtractExact(a.hi, b.lo), isInt);
+        case Op.IMUL, Op.LMUL -> {
+          long p1 = Math.multiplyExact(a.lo, b.lo);
+          long p2 = Math.multiplyExact(a.lo, b.hi);
+          long p3 = Math.multiplyExact(a.hi, b.lo);
+          long p4 = Math.multiplyExact(a.hi, b.hi);
+          yield wrap(Math.min(Math.min(p1, p2), Math.min(p3, p4)), Math.max(Math.max(p1, p2), Math.max(p3, p4)), isInt);
+        }
+        case Op.IDIV, Op.LDIV -> join(divide(a, of(b.lo, Math.min(b.hi, -1)), isInt),
+            divide(a, of(Math.max(b.lo, 1), b.hi), isInt));
+        case Op.IREM, Op.LREM -> {
+          // The remainder is smaller than the divisor, and has the sign of the dividend.
+          long m = Math.max(Math.negateExact(b.lo), b.hi) - 1;
+          yield of(a.lo >= 0 ? 0 : Math.max(a.lo, -m), a.hi <= 0 ? 0 : Math.min(a.hi, m));
+        }
+        case Op.ISHR, Op.LSHR -> a.lo >= 0 ? of(0, a.hi) : a.hi < 0 ? of(a.lo, -1) : a;
+        case Op.IUSHR, Op.LUSHR -> a.lo >= 0 ? of(0, a.hi) : top;
+        case Op.IAND, Op.LAND -> a.lo >= 0 || b.lo >= 0
+            ? of(0, a.lo >= 0 && b.lo >= 0 ? Math.min(a.hi, b.hi) : a.lo >= 0 ? a.hi : b.hi)
+            : top;
+        case Op.IOR, Op.IXOR, Op.LOR, Op.LXOR -> a.lo >= 0 && b.lo >= 0
+            ? of(op == Op.IOR || op == Op.LOR ? Math.max(a.lo, b.lo) : 0,
+                Long.MAX_VALUE >>> Long.numberOfLeadingZeros(Math.max(a.hi, b.hi)) - 1)
+            : top;
+        default -> top;
+      };
+    } catch (ArithmeticException e) {
+      return top;
+    }
+  }
+
+  @Override
+  public Interval unary(int op, Interval a) {
+    if (a == BOTTOM) {
+      return BOTTOM;
+    }
+    return switch (op) {
+      case Op.INEG -> {
+        a = clamp(a);
+        yield wrap(-a.hi, -a.lo, true);
+      }
+      case Op.LNEG -> a.lo == Long.MIN_VALUE ? (a.hi == Long.MIN_VALUE ? a : TOP) : of(-a.hi, -a.lo);
+      case Op.I2L -> clamp(a);
+      case Op.L2I -> wrap(a.lo, a.hi, true);
+      case Op.I2B -> narrow(clamp(a), Byte.MIN_VALUE, Byte.MAX_VALUE);
+      case Op.I2C -> narrow(clamp(a), Character.MIN_VALUE, Character.MAX_VALUE);
+      case Op.I2S -> narrow(clamp(a), Short.MIN_VALUE, Short.MAX_VALUE);
+      default -> TOP;
+    };
+  }
+
+  @Override
+  public Interval assume(int cond, Interval x, Interval y) {
+    if (x == BOTTOM || y == BOTTOM) {
+      return BOTTOM;
+    }
+    return switch (cond) {
+      case Op.IFEQ -> of(Math.max(x.lo, y.lo), Math.min(x.hi, y.hi));
+      case Op.IFNE -> y.lo != y.hi ? x
+          : x.lo == x.hi ? (x.lo == y.lo ? BOTTOM : x)
+          : x.lo == y.lo ? of(x.lo + 1, x.hi) : x.hi == y.lo ? of(x.lo, x.hi - 1) : x;
+      case Op.IFLT -> y.hi == Long.MIN_VALUE ? BOTTOM : of(x.lo, Math.min(x.hi, y.hi - 1));
+      case Op.IFGE -> of(Math.max(x.lo, y.lo), x.hi);
+      case Op.IFGT -> y.lo == Long.MAX_VALUE ? BOTTOM : of(Math.max(x.lo, y.lo + 1), x.hi);
+      default -> of(x.lo, Math.min(x.hi, y.hi));
+    };
+  }
+
+  @Override
+  public String toString() {
+    return "intervals";
+  }
+
+  /** The ints of an interval, which is where an int value is. */
+  private static Interval clamp(Interval a) {
+    return a.lo >= Integer.MIN_VALUE && a.hi <= Integer.MAX_VALUE ? a
+        : of(Math.max(a.lo, Integer.MIN_VALUE), Math.min(a.hi, Integer.MAX_VALUE));
+  }
+
+  /** The values from lo to hi, wrapped around to ints if {@code isInt}. */
+  private static Interval wrap(long lo, long hi, boolean isInt) {
+    if (!isInt || lo >= Integer.MIN_VALUE && hi <= Integer.MAX_VALUE) {
+      return of(lo, hi);
+    }
+    // The width overflows, and is negative, when the interval spans more than half the longs.
+    long width = hi - lo;
+    return width >= 0 && width < 1L << 32 && (int) lo <= (int) hi ? of((int) lo, (int) hi) : INT;
+  }
+
+  /** A cast of ints to a narrower type, which keeps the values that fit and may be any other. */
+  private static Interval narrow(Interval a, long min, long max) {
+    return a.lo >= min && a.hi <= max ? a : of(min, max);
+  }
+
+  /** The quotients of the values of a by those of b, which does not contain 0. */
+  private static Interval divide(Interval a, Interval b, boolean isInt) {
+    if (a == BOTTOM || b == BOTTOM) {
+      return BOTTOM;
+    }
+    if (!isInt && a.lo == Long.MIN_VALUE && b.lo <= -1 && -1 <= b.hi) {
+      return TOP;
+    }
+    long q1 = a.lo / b.lo;
+    long q2 = a.lo / b.hi;
+    long q3 = a.hi / b.lo;
+    long q4 = a.hi / b.hi;
+    return wrap(Math.min(Math.min(q1, q2), Math.min(q3, q4)), Math.max(Math.max(q1, q2), Math.max(q3, q4)), isInt);
+  }
+
+  /** The result of an operation on two values, or bottom if it throws. */
+  private static Interval constant(int op, long x, long y, boolean isInt) {
+    if ((op == Op.IDIV || op == Op.IREM || op == Op.LDIV || op == Op.LREM) && y == 0) {
+      return BOTTOM;
+    }
+    if (isInt) {
+      int a = (int) x;
+      int b = (int) y;
+      int r = switch (op) {
+        case Op.IADD -> a + b;
+        case Op.ISUB -> a - b;
+        case Op.IMUL -> a * b;
+        case Op.IDIV -> a / b;
+        case Op.IREM -> a % b;
+        case Op.ISHL -> a << b;
+        case Op.ISHR -> a >> b;
+        case Op.IUSHR -> a >>> b;
+        case Op.IAND -> a & b;
+        case Op.IOR -> a | b;
+        default -> a ^ b;
+      };
+      return of(r, r);
+    }
+    long r = switch (op) {
+      case Op.LADD -> x + y;
+      case Op.LSUB -> x - y;
+      case Op.LMUL -> x * y;
+      case Op.LDIV -> x / y;
+      case Op.LREM -> x % y;
+      case Op.LSHL -> x << y;
+      case Op.LSHR -> x >> y;
+      case Op.LUSHR -> x >>> y;
+      case Op.LAND -> x & y;
+      case Op.LOR -> x | y;
+      default -> x ^ y;
+    };
+    return of(r, r);
+  }
+}
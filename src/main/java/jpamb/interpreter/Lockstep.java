@@ -0,0 +1,1304 @@
+package jpamb.interpreter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import jpamb.interpreter.Interpreter.ClassConstant;
+import jpamb.interpreter.Interpreter.Instance;
+import jpamb.interpreter.Interpreter.Thrown;
+import jpamb.interpreter.Interpreter.Unsupported;
+import jpamb.interpreter.Program.Call;
+import jpamb.interpreter.Program.Concat;
+import jpamb.interpreter.Program.Field;
+import jpamb.interpreter.Program.Method;
+import jpamb.interpreter.Program.Type;
+import jpamb.utils.CaseContent;
+import jpamb.utils.CaseContent.ResultType;
+import jpamb.utils.Descriptor;
+import jpamb.utils.InputParser;
+
+/**
+ * Runs a method on many inputs at once, in lockstep.
+ *
+ * <pre>
+ * java -cp target/classes jpamb.interpreter.Lockstep [--steps n] [--classpath folders] &lt;method id&gt; &lt;input&gt;...
+ * java -cp target/classes jpamb.interpreter.Lockstep [--steps n] [--classpath folders] --random &lt;count&gt; [--seed s] &lt;method id&gt;
+ * java -cp target/classes jpamb.interpreter.Lockstep [--steps n] [--classpath folders] --batch &lt;cases file&gt;
+ * </pre>
+ *
+ * Every input is a lane, and the lanes at the same instruction with the
+ * same frames form a group, which decodes each instruction once and then
+ * applies it to all of its lanes. A group only splits when its lanes
+ * disagree on where to go next: at a branch or a switch, or at a virtual
+ * call on instances of different classes. A lane that throws leaves its
+ * group, and goes on alone if the exception is caught. Word {@code w} of
+ * lane {@code l} is at {@code w * n + l} of one long array for {@code n}
+ * lanes, so the groups share it, and splitting a group copies no values.
+ *
+ * The result of each input is what {@link Interpreter} gives for it, and
+ * a histogram of them is printed, which is what the probabilities of a
+ * prediction are estimated from. The lanes share the static fields, so
+ * only class initializers, which run once for all of them, may set them.
+ */
+public final class Lockstep {
+  /** Room above the operand stack, for the stack operations to swap through. */
+  private static final int SPARE = 2;
+  /** The most words of all lanes together, past which a group goes on one lane at a time. */
+  private static final long MAX_WORDS = 1 << 24;
+
+  private final List<Path> classpath;
+  private final Interpreter interpreter;
+  private final Program program;
+  /** Runs the lanes of groups that are too deep, see {@link #alone}. */
+  private Interpreter alone;
+  private long budget = Interpreter.DEFAULT_BUDGET;
+  private long steps;
+
+  private String id;
+  /** The inputs of the lanes, as they were before any lane changed its arrays. */
+  private Object[][] inputs;
+  private int n;
+  private int words;
+  private long[] s = new long[0];
+  private ResultType[] results;
+  private final ArrayDeque<Group> groups = new ArrayDeque<>();
+
+  /** Where each lane goes next, or {@code ~i} to call the {@code i}th of {@link #callees}. */
+  private int[] next = new int[0];
+  private final List<Method> callees = new ArrayList<>();
+  /** The lanes that threw during the current instruction, and what they threw. */
+  private int[] failed = new int[0];
+  private int failedCount;
+  private boolean[] dead = new boolean[0];
+  private Object[] thrown = new Object[0];
+  private final long[] scratch = new long[256];
+
+  /** Lanes at the same instruction with the same frames. */
+  private static final class Group {
+    int[] lanes;
+    int count;
+    Method method;
+    int pc;
+    int sp;
+    int bp;
+    Method[] frameMethods = new Method[8];
+    int[] framePcs = new int[8];
+    int[] frameBps = new int[8];
+    int depth;
+    long steps;
+    /** A method to enter before going on, and where the caller continues, as in {@link Interpreter}. */
+    Method callee;
+    int resume;
+
+    Group split(int[] lanes, int count) {
+      var g = new Group();
+      g.lanes = lanes;
+      g.count = count;
+      g.method = method;
+      g.pc = pc;
+      g.sp = sp;
+      g.bp = bp;
+      g.frameMethods = frameMethods.clone();
+      g.framePcs = framePcs.clone();
+      g.frameBps = frameBps.clone();
+      g.depth = depth;
+      g.steps = steps;
+      g.callee = callee;
+      g.resume = resume;
+      return g;
+    }
+  }
+
+  public Lockstep(List<Path> classpath) {
+    this.classpath = classpath;
+    this.interpreter = new Interpreter(classpath);
+    this.program = interpreter.program;
+  }
+
+  /** The number of steps after which a lane is non-terminating. */
+  public void budget(long steps) {
+    this.budget = steps;
+  }
+
+  /** The steps taken by all lanes of all runs so far. */
+  public long steps() {
+    return steps;
+  }
+
+  /**
+   * Run the static method with this id on each of the parsed inputs, and
+   * give the result of each, or null for an input that throws something
+   * that has no result.
+   */
+  public ResultType[] run(String id, Object[][] inputs) {
+    Method method = program.method(id);
+    if (!method.isStatic()) {
+      throw new IllegalArgumentException("Expected " + id + " to be static");
+    }
+    for (Object[] params : inputs) {
+      if (params.length != method.params.length()) {
+        throw new IllegalArgumentException(
+            "Expected " + method.params.length() + " inputs to " + id + ", got " + params.length);
+      }
+    }
+    this.id = id;
+    this.inputs = new Object[inputs.length][];
+    for (int l = 0; l < inputs.length; l++) {
+      this.inputs[l] = inputs[l].clone();
+      for (int i = 0; i < inputs[l].length; i++) {
+        Object v = inputs[l][i];
+        this.inputs[l][i] = v instanceof int[] a ? a.clone()
+            : v instanceof char[] a ? a.clone() : v instanceof boolean[] a ? a.clone() : v;
+      }
+    }
+    n = inputs.length;
+    results = new ResultType[n];
+    if (n == 0) {
+      return results;
+    }
+    interpreter.reset();
+    method.compile();
+    words = 0;
+    s = new long[0];
+    ensure(method.maxLocals + method.maxStack + SPARE);
+    if (next.length < n) {
+      next = new int[n];
+      failed = new int[n];
+      dead = new boolean[n];
+      thrown = new Object[n];
+    }
+    var g = new Group();
+    g.lanes = new int[n];
+    g.count = n;
+    for (int l = 0; l < n; l++) {
+      g.lanes[l] = l;
+      int w = 0;
+      for (int i = 0; i < method.params.length(); i++) {
+        char kind = method.params.charAt(i);
+        s[w * n + l] = interpreter.unbox(kind, inputs[l][i]);
+        w += Program.words(kind);
+      }
+    }
+    g.method = method;
+    g.sp = method.maxLocals;
+    g.callee = interpreter.initializer(method.owner);
+    g.resume = ~0;
+    groups.push(g);
+    try {
+      while (!groups.isEmpty()) {
+        execute(groups.pop());
+      }
+    } finally {
+      groups.clear();
+      failedCount = 0;
+      Arrays.fill(dead, false);
+      Arrays.fill(thrown, null);
+    }
+    return results;
+  }
+
+  /** How many inputs gave each result, leaving out those that gave none. */
+  public static Map<ResultType, Integer> histogram(ResultType[] results) {
+    Map<ResultType, Integer> histogram = new EnumMap<>(ResultType.class);
+    for (ResultType r : results) {
+      if (r != null) {
+        histogram.merge(r, 1, Integer::sum);
+      }
+    }
+    return histogram;
+  }
+
+  /** Run a group until all its lanes are done, pushing the groups it splits into. */
+  private void execute(Group g) {
+    while (g.count > 0) {
+      Method method = g.method;
+      int pc = g.pc;
+      int bp = g.bp;
+      int depth = g.depth;
+      if (g.callee != null) {
+        enter(g);
+      } else if (++g.steps > budget) {
+        for (int i = 0; i < g.count; i++) {
+          results[g.lanes[i]] = ResultType.NON_TERMINATION;
+        }
+        steps += g.count;
+        return;
+      } else {
+        steps += g.count;
+        step(g);
+      }
+      if (failedCount > 0) {
+        settle(g, method, pc, bp, depth);
+      }
+    }
+  }
+
+  private void enter(Group g) {
+    Method callee = g.callee;
+    g.callee = null;
+    int size = g.sp - callee.argWords + callee.maxLocals + callee.maxStack + SPARE;
+    if ((long) size * n > MAX_WORDS) {
+      alone(g);
+      return;
+    }
+    if (g.depth == g.frameMethods.length) {
+      if (g.depth >= Interpreter.MAX_DEPTH) {
+        for (int i = 0; i < g.count; i++) {
+          fail(g.lanes[i], new StackOverflowError());
+        }
+        return;
+      }
+      g.frameMethods = Arrays.copyOf(g.frameMethods, 2 * g.depth);
+      g.framePcs = Arrays.copyOf(g.framePcs, 2 * g.depth);
+      g.frameBps = Arrays.copyOf(g.frameBps, 2 * g.depth);
+    }
+    g.frameMethods[g.depth] = g.method;
+    g.framePcs[g.depth] = g.resume;
+    g.frameBps[g.depth] = g.bp;
+    g.depth++;
+    g.method = callee;
+    g.bp = g.sp - callee.argWords;
+    ensure(size);
+    g.sp = g.bp + callee.maxLocals;
+    g.pc = 0;
+  }
+
+  /**
+   * Run the lanes of a group with {@link Interpreter} instead, from the
+   * start, as there is no room for the words of its frames in all lanes.
+   */
+  private void alone(Group g) {
+    if (alone == null) {
+      alone = new Interpreter(classpath);
+    }
+    alone.budget(budget);
+    long before = alone.steps();
+    for (int i = 0; i < g.count; i++) {
+      int l = g.lanes[i];
+      try {
+        results[l] = alone.run(id, inputs[l]);
+      } catch (Unsupported | IllegalStateException e) {
+        throw e;
+      } catch (RuntimeException e) {
+        results[l] = null;
+      }
+    }
+    steps += alone.steps() - before;
+    g.count = 0;
+  }
+
+  private void ensure(int size) {
+    if (size > words) {
+      int grown = Math.max(size, 2 * words);
+      s = Arrays.copyOf(s, grown * n);
+      words = grown;
+    }
+  }
+
+  /**
+   * Run the instruction of a group on each of its lanes. A lane that
+   * throws is marked as failed, and the rest of the lanes go on from the
+   * next one, so an instruction changes the group itself only after all
+   * its lanes are done.
+   */
+  private void step(Group g) {
+    int[] lanes = g.lanes;
+    int c = g.count;
+    int n = this.n;
+    long[] s = this.s;
+    Method method = g.method;
+    int pc = g.pc;
+    int o = method.op[pc];
+    callees.clear();
+    int i = 0;
+    for (;;) {
+      try {
+        switch (o) {
+          case Op.NOP -> g.pc++;
+          case Op.PUSH1, Op.PUSH2, Op.PUSH_REF -> {
+            long k = o == Op.PUSH_REF ? interpreter.handle(method.ref[pc]) : method.k[pc];
+            int x = g.sp * n;
+            for (; i < c; i++) {
+              s[x + lanes[i]] = k;
+            }
+            g.sp += o == Op.PUSH2 ? 2 : 1;
+            g.pc++;
+          }
+          case Op.LOAD1, Op.LOAD2 -> {
+            copy(g.bp + method.a[pc], g.sp, lanes, c);
+            g.sp += o == Op.LOAD2 ? 2 : 1;
+            g.pc++;
+          }
+          case Op.STORE1, Op.STORE2 -> {
+            g.sp -= o == Op.STORE2 ? 2 : 1;
+            copy(g.sp, g.bp + method.a[pc], lanes, c);
+            g.pc++;
+          }
+
+          case Op.IALOAD, Op.LALOAD, Op.FALOAD, Op.DALOAD, Op.AALOAD, Op.BALOAD, Op.CALOAD, Op.SALOAD -> {
+            int x = (g.sp - 2) * n;
+            int y = x + n;
+            for (; i < c; i++) {
+              int l = lanes[i];
+              s[x + l] = load(o, interpreter.object(s[x + l]), (int) s[y + l]);
+            }
+            g.sp -= o == Op.LALOAD || o == Op.DALOAD ? 0 : 1;
+            g.pc++;
+          }
+          case Op.IASTORE, Op.LASTORE, Op.FASTORE, Op.DASTORE, Op.AASTORE, Op.BASTORE, Op.CASTORE,
+              Op.SASTORE -> {
+            int values = o == Op.LASTORE || o == Op.DASTORE ? 2 : 1;
+            int x = (g.sp - values - 2) * n;
+            int y = x + n;
+            int z = y + n;
+            for (; i < c; i++) {
+              int l = lanes[i];
+              store(o, interpreter.object(s[x + l]), (int) s[y + l], s[z + l]);
+            }
+            g.sp -= values + 2;
+            g.pc++;
+          }
+
+          case Op.POP -> {
+            g.sp--;
+            g.pc++;
+          }
+          case Op.POP2 -> {
+            g.sp -= 2;
+            g.pc++;
+          }
+          case Op.DUP -> {
+            copy(g.sp - 1, g.sp, lanes, c);
+            g.sp++;
+            g.pc++;
+          }
+          case Op.DUP_X1 -> {
+            int sp = g.sp;
+            copy(sp - 1, sp, lanes, c);
+            copy(sp - 2, sp - 1, lanes, c);
+            copy(sp, sp - 2, lanes, c);
+            g.sp++;
+            g.pc++;
+          }
+          case Op.DUP_X2 -> {
+            int sp = g.sp;
+            copy(sp - 1, sp, lanes, c);
+            copy(sp - 2, sp - 1, lanes, c);
+            copy(sp - 3, sp - 2, lanes, c);
+            copy(sp, sp - 3, lanes, c);
+            g.sp++;
+            g.pc++;
+          }
+          case Op.DUP2 -> {
+            copy(g.sp - 2, g.sp, lanes, c);
+            copy(g.sp - 1, g.sp + 1, lanes, c);
+            g.sp += 2;
+            g.pc++;
+          }
+          case Op.DUP2_X1 -> {
+            int sp = g.sp;
+            copy(sp - 1, sp + 1, lanes, c);
+            copy(sp - 2, sp, lanes, c);
+            copy(sp - 3, sp - 1, lanes, c);
+            copy(sp, sp - 3, lanes, c);
+            copy(sp + 1, sp - 2, lanes, c);
+            g.sp += 2;
+            g.pc++;
+          }
+          case Op.DUP2_X2 -> {
+            int sp = g.sp;
+            copy(sp - 1, sp + 1, lanes, c);
+            copy(sp - 2, sp, lanes, c);
+            copy(sp - 3, sp - 1, lanes, c);
+            copy(sp - 4, sp - 2, lanes, c);
+            copy(sp, sp - 4, lanes, c);
+            copy(sp + 1, sp - 3, lanes, c);
+            g.sp += 2;
+            g.pc++;
+          }
+          case Op.SWAP -> {
+            int sp = g.sp;
+            copy(sp - 1, sp, lanes, c);
+            copy(sp - 2, sp - 1, lanes, c);
+            copy(sp, sp - 2, lanes, c);
+            g.pc++;
+          }
+
+          case Op.IADD -> {
+            int x = (g.sp - 2) * n;
+            int y = x + n;
+            for (; i < c; i++) {
+              int l = lanes[i];
+              s[x + l] = (int) s[x + l] + (int) s[y + l];
+            }
+            g.sp--;
+            g.pc++;
+          }
+          case Op.ISUB -> {
+            int x = (g.sp - 2) * n;
+            int y = x + n;
+            for (; i < c; i++) {
+              int l = lanes[i];
+              s[x + l] = (int) s[x + l] - (int) s[y + l];
+            }
+            g.sp--;
+            g.pc++;
+          }
+          // Two words to one: the operations on ints and floats.
+          case Op.IMUL, Op.IDIV, Op.IREM, Op.FADD, Op.FSUB, Op.FMUL, Op.FDIV, Op.FREM, Op.ISHL, Op.ISHR,
+              Op.IUSHR, Op.IAND, Op.IOR, Op.IXOR, Op.FCMPL, Op.FCMPG -> {
+            int x = (g.sp - 2) * n;
+            int y = x + n;
+            for (; i < c; i++) {
+              int l = lanes[i];
+              s[x + l] = binary(o, s[x + l], s[y + l]);
+            }
+            g.sp--;
+            g.pc++;
+          }
+          // Four words to two, or to one for the comparisons.
+          case Op.LADD, Op.LSUB, Op.LMUL, Op.LDIV, Op.LREM, Op.DADD, Op.DSUB, Op.DMUL, Op.DDIV, Op.DREM,
+              Op.LAND, Op.LOR, Op.LXOR, Op.LCMP, Op.DCMPL, Op.DCMPG -> {
+            int x = (g.sp - 4) * n;
+            int y = x + 2 * n;
+            for (; i < c; i++) {
+              int l = lanes[i];
+              s[x + l] = binary(o, s[x + l], s[y + l]);
+            }
+            g.sp -= o == Op.LCMP || o == Op.DCMPL || o == Op.DCMPG ? 3 : 2;
+            g.pc++;
+          }
+          case Op.LSHL, Op.LSHR, Op.LUSHR -> {
+            int x = (g.sp - 3) * n;
+            int y = x + 2 * n;
+            for (; i < c; i++) {
+              int l = lanes[i];
+              s[x + l] = binary(o, s[x + l], s[y + l]);
+            }
+            g.sp--;
+            g.pc++;
+          }
+          case Op.INEG, Op.FNEG, Op.I2F, Op.F2I, Op.I2B, Op.I2C, Op.I2S, Op.I2L, Op.I2D, Op.F2L, Op.F2D -> {
+            int x = (g.sp - 1) * n;
+            for (; i < c; i++) {
+              int l = lanes[i];
+              s[x + l] = unary(o, s[x + l]);
+            }
+            g.sp += o == Op.I2L || o == Op.I2D || o == Op.F2L || o == Op.F2D ? 1 : 0;
+            g.pc++;
+          }
+          case Op.LNEG, Op.DNEG, Op.L2D, Op.D2L, Op.L2I, Op.L2F, Op.D2I, Op.D2F -> {
+            int x = (g.sp - 2) * n;
+            for (; i < c; i++) {
+              int l = lanes[i];
+              s[x + l] = unary(o, s[x + l]);
+            }
+            g.sp -= o == Op.L2I || o == Op.L2F || o == Op.D2I || o == Op.D2F ? 1 : 0;
+            g.pc++;
+          }
+          case Op.IINC -> {
+            int x = (g.bp + method.a[pc]) * n;
+            int amount = method.b[pc];
+            for (; i < c; i++) {
+              int l = lanes[i];
+              s[x + l] = (int) s[x + l] + amount;
+            }
+            g.pc++;
+          }
+
+          case Op.IFEQ, Op.IFNE, Op.IFLT, Op.IFGE, Op.IFGT, Op.IFLE, Op.IFNULL, Op.IFNONNULL -> {
+            int x = (g.sp - 1) * n;
+            int target = method.a[pc];
+            for (; i < c; i++) {
+              int l = lanes[i];
+              next[l] = jump(o, s[x + l], 0) ? target : pc + 1;
+            }
+            diverge(g, g.sp - 1);
+          }
+          case Op.IF_ICMPEQ, Op.IF_ICMPNE, Op.IF_ICMPLT, Op.IF_ICMPGE, Op.IF_ICMPGT, Op.IF_ICMPLE, Op.IF_ACMPEQ,
+              Op.IF_ACMPNE -> {
+            int x = (g.sp - 2) * n;
+            int y = x + n;
+            int target = method.a[pc];
+            for (; i < c; i++) {
+              int l = lanes[i];
+              next[l] = jump(o, s[x + l], s[y + l]) ? target : pc + 1;
+            }
+            diverge(g, g.sp - 2);
+          }
+          case Op.GOTO -> g.pc = method.a[pc];
+          case Op.TABLESWITCH -> {
+            int x = (g.sp - 1) * n;
+            int[] targets = (int[]) method.ref[pc];
+            for (; i < c; i++) {
+              int l = lanes[i];
+              long key = s[x + l] - method.a[pc];
+              next[l] = key >= 0 && key < targets.length ? targets[(int) key] : method.b[pc];
+            }
+            diverge(g, g.sp - 1);
+          }
+          case Op.LOOKUPSWITCH -> {
+            int x = (g.sp - 1) * n;
+            int[] table = (int[]) method.ref[pc];
+            for (; i < c; i++) {
+              int l = lanes[i];
+              int key = Arrays.binarySearch(table, 0, table.length / 2, (int) s[x + l]);
+              next[l] = key >= 0 ? table[table.length / 2 + key] : method.b[pc];
+            }
+            diverge(g, g.sp - 1);
+          }
+
+          case Op.RETURN, Op.RETURN1, Op.RETURN2 -> {
+            if (g.depth == 0) {
+              for (; i < c; i++) {
+                results[lanes[i]] = ResultType.SUCCESS;
+              }
+              g.count = 0;
+              break;
+            }
+            int words = o - Op.RETURN;
+            for (int w = 0; w < words; w++) {
+              copy(g.sp - words + w, g.bp + w, lanes, c);
+            }
+            g.sp = g.bp + words;
+            g.depth--;
+            g.method = g.frameMethods[g.depth];
+            g.frameMethods[g.depth] = null;
+            g.bp = g.frameBps[g.depth];
+            int resume = g.framePcs[g.depth];
+            g.pc = resume >= 0 ? resume + 1 : ~resume;
+          }
+
+          case Op.GETSTATIC -> {
+            Field f = (Field) method.ref[pc];
+            if (f.slot < 0 && f.external == null) {
+              interpreter.resolveStatic(f);
+            }
+            Type t = f.type;
+            if (t != null && !t.initialized && (g.callee = interpreter.initializer(t)) != null) {
+              g.resume = ~pc;
+              break;
+            }
+            // The static fields are shared, so every lane gets the same value.
+            long value = t == null ? interpreter.unbox(f.kind, interpreter.get(f, null))
+                : f.kind == 'L' ? interpreter.handle(t.staticRefs[f.slot]) : t.staticValues[f.slot];
+            int x = g.sp * n;
+            for (; i < c; i++) {
+              s[x + lanes[i]] = value;
+            }
+            g.sp += Program.words(f.kind);
+            g.pc++;
+          }
+          case Op.PUTSTATIC -> {
+            Field f = (Field) method.ref[pc];
+            if (!method.name.equals("<clinit>")) {
+              throw new Unsupported("Cannot set " + f + " in lockstep, as the lanes share it");
+            }
+            if (f.slot < 0 && f.external == null) {
+              interpreter.resolveStatic(f);
+            }
+            Type t = f.type;
+            if (t == null) {
+              throw new Unsupported("Cannot set " + f + ", which is external");
+            }
+            // A class initializer does the same on every lane.
+            g.sp -= Program.words(f.kind);
+            long value = s[g.sp * n + lanes[0]];
+            if (f.kind == 'L') {
+              t.staticRefs[f.slot] = interpreter.object(value);
+            } else {
+              t.staticValues[f.slot] = value;
+            }
+            g.pc++;
+          }
+          case Op.GETFIELD -> {
+            Field f = (Field) method.ref[pc];
+            int x = (g.sp - 1) * n;
+            for (; i < c; i++) {
+              int l = lanes[i];
+              Object object = interpreter.object(s[x + l]);
+              if (object == null) {
+                throw new NullPointerException();
+              }
+              if (object instanceof Instance instance) {
+                int slot = f.slot >= 0 ? f.slot : interpreter.resolveField(f);
+                s[x + l] = f.kind == 'L' ? interpreter.handle(instance.refs[slot]) : instance.values[slot];
+              } else {
+                s[x + l] = interpreter.unbox(f.kind, interpreter.get(f, object));
+              }
+            }
+            g.sp += Program.words(f.kind) - 1;
+            g.pc++;
+          }
+          case Op.PUTFIELD -> {
+            Field f = (Field) method.ref[pc];
+            int words = Program.words(f.kind);
+            int x = (g.sp - words - 1) * n;
+            int y = x + n;
+            for (; i < c; i++) {
+              int l = lanes[i];
+              Object object = interpreter.object(s[x + l]);
+              if (object == null) {
+                throw new NullPointerException();
+              }
+              if (!(object instanceof Instance instance)) {
+                throw new Unsupported("Cannot set " + f + ", which is external");
+              }
+              int slot = f.slot >= 0 ? f.slot : interpreter.resolveField(f);
+              if (f.kind == 'L') {
+                instance.refs[slot] = interpreter.object(s[y + l]);
+              } else {
+                instance.values[slot] = s[y + l];
+              }
+            }
+            g.sp -= words + 1;
+            g.pc++;
+          }
+
+          case Op.INVOKESTATIC -> {
+            Call call = (Call) method.ref[pc];
+            if (!call.resolved) {
+              interpreter.resolve(call);
+            }
+            Method m = call.method;
+            if (m != null) {
+              if (!m.owner.initialized && (g.callee = interpreter.initializer(m.owner)) != null) {
+                g.resume = ~pc;
+              } else {
+                m.compile();
+                g.callee = m;
+                g.resume = pc;
+              }
+              break;
+            }
+            for (; i < c; i++) {
+              external(call, null, lanes[i], g.sp);
+            }
+            g.sp += Program.words(call.returns) - call.argWords;
+            g.pc++;
+          }
+          case Op.INVOKESPECIAL -> {
+            Call call = (Call) method.ref[pc];
+            if (!call.resolved) {
+              interpreter.resolve(call);
+            }
+            if (call.method == null && !call.name.equals("<init>")) {
+              throw new Unsupported("Cannot call " + call + " on an interpreted object");
+            }
+            int base = g.sp - call.argWords;
+            int x = base * n;
+            for (; i < c; i++) {
+              int l = lanes[i];
+              Object object = interpreter.object(s[x + l]);
+              if (object == null) {
+                throw new NullPointerException();
+              }
+              if (call.method == null && object instanceof Interpreter.Uninitialized) {
+                // Construct the JDK object, and let the handle refer to it.
+                gather(l, base + 1, call.argWords - 1);
+                interpreter.replace(s[x + l], interpreter.construct(call, scratch, 0));
+              }
+            }
+            if (call.method != null) {
+              call.method.compile();
+              g.callee = call.method;
+              g.resume = pc;
+            } else {
+              g.sp = base;
+              g.pc++;
+            }
+          }
+          case Op.INVOKEVIRTUAL -> {
+            Call call = (Call) method.ref[pc];
+            int x = (g.sp - call.argWords) * n;
+            for (; i < c; i++) {
+              int l = lanes[i];
+              Object object = interpreter.object(s[x + l]);
+              if (object == null) {
+                throw new NullPointerException();
+              }
+              if (object instanceof Instance instance) {
+                Method m = instance.type.dispatch(call.signature);
+                if (m == null) {
+                  throw new Unsupported("Cannot call " + call + " on an instance of " + instance.type);
+                }
+                m.compile();
+                int index = callees.indexOf(m);
+                if (index < 0) {
+                  index = callees.size();
+                  callees.add(m);
+                }
+                next[l] = ~index;
+              } else if (object instanceof ClassConstant) {
+                if (!call.signature.equals("desiredAssertionStatus()Z")) {
+                  throw new Unsupported("Cannot call " + call + " on a class constant");
+                }
+                // The cases run with assertions enabled.
+                s[x + l] = 1;
+                next[l] = pc + 1;
+              } else {
+                external(call, object, l, g.sp);
+                next[l] = pc + 1;
+              }
+            }
+            diverge(g, g.sp - call.argWords + Program.words(call.returns));
+          }
+          case Op.CONCAT -> {
+            Concat concat = (Concat) method.ref[pc];
+            int base = g.sp - concat.argWords();
+            for (; i < c; i++) {
+              int l = lanes[i];
+              gather(l, base, concat.argWords());
+              interpreter.concat(concat, scratch, concat.argWords());
+              s[base * n + l] = scratch[0];
+            }
+            g.sp = base + 1;
+            g.pc++;
+          }
+
+          case Op.NEW -> {
+            Object type = method.ref[pc];
+            if (type instanceof String name) {
+              Type t = program.type(name);
+              if (t == null) {
+                int x = g.sp * n;
+                for (; i < c; i++) {
+                  s[x + lanes[i]] = interpreter.handle(new Interpreter.Uninitialized(name));
+                }
+                g.sp++;
+                g.pc++;
+                break;
+              }
+              method.ref[pc] = type = t;
+            }
+            Type t = (Type) type;
+            if (!t.initialized && (g.callee = interpreter.initializer(t)) != null) {
+              g.resume = ~pc;
+              break;
+            }
+            int x = g.sp * n;
+            for (; i < c; i++) {
+              s[x + lanes[i]] = interpreter.handle(new Instance(t));
+            }
+            g.sp++;
+            g.pc++;
+          }
+          case Op.NEWARRAY -> {
+            int dims = method.a[pc];
+            int base = g.sp - dims;
+            for (; i < c; i++) {
+              int l = lanes[i];
+              gather(l, base, dims);
+              s[base * n + l] = interpreter.handle(interpreter.newArray((String) method.ref[pc], scratch, 0, dims));
+            }
+            g.sp = base + 1;
+            g.pc++;
+          }
+          case Op.ARRAYLENGTH -> {
+            int x = (g.sp - 1) * n;
+            for (; i < c; i++) {
+              int l = lanes[i];
+              s[x + l] = Interpreter.length(interpreter.object(s[x + l]));
+            }
+            g.pc++;
+          }
+          case Op.ATHROW -> {
+            int x = (g.sp - 1) * n;
+            for (; i < c; i++) {
+              Object object = interpreter.object(s[x + lanes[i]]);
+              throw object == null ? new NullPointerException() : new Thrown(object);
+            }
+          }
+          case Op.CHECKCAST, Op.INSTANCEOF -> {
+            int x = (g.sp - 1) * n;
+            String name = (String) method.ref[pc];
+            for (; i < c; i++) {
+              int l = lanes[i];
+              Object object = interpreter.object(s[x + l]);
+              boolean is = object != null && interpreter.isInstance(object, name);
+              if (o == Op.INSTANCEOF) {
+                s[x + l] = is ? 1 : 0;
+              } else if (object != null && !is) {
+                throw new ClassCastException(name);
+              }
+            }
+            g.pc++;
+          }
+          case Op.MONITOR -> {
+            int x = (g.sp - 1) * n;
+            for (; i < c; i++) {
+              if (s[x + lanes[i]] == 0) {
+                throw new NullPointerException();
+              }
+            }
+            g.sp--;
+            g.pc++;
+          }
+          case Op.UNSUPPORTED -> throw new Unsupported(method.ref[pc] + " at " + method + " " + pc);
+          default -> throw new IllegalStateException("Invalid instruction " + o);
+        }
+        return;
+      } catch (Unsupported | IllegalStateException e) {
+        // Not thrown by the interpreted code, which only throws Thrown and
+        // the exceptions of the JVM, but by a bug of the interpreter.
+        throw e;
+      } catch (Thrown e) {
+        fail(lanes[i++], e.value);
+      } catch (RuntimeException | Error e) {
+        fail(lanes[i++], e);
+      }
+    }
+  }
+
+  private void copy(int from, int to, int[] lanes, int c) {
+    int x = from * n;
+    int y = to * n;
+    if (c == n) {
+      System.arraycopy(s, x, s, y, n);
+      return;
+    }
+    for (int i = 0; i < c; i++) {
+      int l = lanes[i];
+      s[y + l] = s[x + l];
+    }
+  }
+
+  /** Copy words of a lane to the start of the scratch words, where the interpreter can use them. */
+  private void gather(int lane, int from, int count) {
+    for (int w = 0; w < count; w++) {
+      scratch[w] = s[(from + w) * n + lane];
+    }
+  }
+
+  /** Call a JDK method on one lane, with the arguments below {@code sp}. */
+  private void external(Call call, Object receiver, int lane, int sp) {
+    int base = sp - call.argWords;
+    gather(lane, base, call.argWords);
+    int top = interpreter.external(call, receiver, call.argWords, scratch);
+    for (int w = 0; w < top; w++) {
+      s[(base + w) * n + lane] = scratch[w];
+    }
+  }
+
+  private void fail(int lane, Object value) {
+    dead[lane] = true;
+    thrown[lane] = value;
+    failed[failedCount++] = lane;
+  }
+
+  /**
+   * Move the lanes to where {@link #next} says. Those that go to the same
+   * place as the first stay in the group, with {@code sp} as their stack
+   * pointer unless they call one of {@link #callees}, and the others get
+   * a group of their own for each place. The lanes that threw stay, for
+   * {@link #settle} to take out.
+   */
+  private void diverge(Group g, int sp) {
+    int[] lanes = g.lanes;
+    int c = g.count;
+    int first = 0;
+    boolean found = false;
+    boolean same = true;
+    for (int i = 0; i < c; i++) {
+      int l = lanes[i];
+      if (!dead[l]) {
+        if (!found) {
+          first = next[l];
+          found = true;
+        } else if (next[l] != first) {
+          same = false;
+          break;
+        }
+      }
+    }
+    if (!same) {
+      int kept = 0;
+      int rest = 0;
+      int[] others = new int[c];
+      for (int i = 0; i < c; i++) {
+        int l = lanes[i];
+        if (dead[l] || next[l] == first) {
+          lanes[kept++] = l;
+        } else {
+          others[rest++] = l;
+        }
+      }
+      g.count = kept;
+      while (rest > 0) {
+        int target = next[others[0]];
+        int[] split = new int[rest];
+        int count = 0;
+        int left = 0;
+        for (int i = 0; i < rest; i++) {
+          if (next[others[i]] == target) {
+            split[count++] = others[i];
+          } else {
+            others[left++] = others[i];
+          }
+        }
+        rest = left;
+        Group h = g.split(split, count);
+        go(h, target, sp);
+        groups.push(h);
+      }
+    }
+    go(g, first, sp);
+  }
+
+  private void go(Group g, int target, int sp) {
+    if (target >= 0) {
+      g.pc = target;
+      g.sp = sp;
+    } else {
+      g.callee = callees.get(~target);
+      g.resume = g.pc;
+    }
+  }
+
+  /**
+   * Take the lanes that threw out of their group, and unwind each to its
+   * handler, where it goes on in a group of its own, or to its result.
+   * The group is as it was before the instruction.
+   */
+  private void settle(Group g, Method method, int pc, int bp, int depth) {
+    int kept = 0;
+    for (int i = 0; i < g.count; i++) {
+      if (!dead[g.lanes[i]]) {
+        g.lanes[kept++] = g.lanes[i];
+      }
+    }
+    g.count = kept;
+    for (int f = 0; f < failedCount; f++) {
+      int l = failed[f];
+      Object value = thrown[l];
+      dead[l] = false;
+      thrown[l] = null;
+      raise(g, l, value, method, pc, bp, depth);
+    }
+    failedCount = 0;
+  }
+
+  private void raise(Group g, int lane, Object value, Method method, int pc, int bp, int depth) {
+    for (;;) {
+      int handler = method.handler(pc, value, interpreter);
+      if (handler >= 0) {
+        Group h = g.split(new int[] { lane }, 1);
+        h.method = method;
+        h.bp = bp;
+        h.depth = depth;
+        h.callee = null;
+        h.sp = bp + method.maxLocals + 1;
+        h.pc = handler;
+        s[(h.sp - 1) * n + lane] = interpreter.handle(value);
+        groups.push(h);
+        return;
+      }
+      if (depth == 0) {
+        try {
+          results[lane] = interpreter.classify(value);
+        } catch (RuntimeException e) {
+          // Runtime reports an error for what has no result, and so does the lane.
+          results[lane] = null;
+        }
+        return;
+      }
+      depth--;
+      method = g.frameMethods[depth];
+      bp = g.frameBps[depth];
+      pc = g.framePcs[depth];
+      if (pc < 0) {
+        pc = ~pc;
+        if (!(value instanceof Error)) {
+          value = new ExceptionInInitializerError(value instanceof Throwable t ? t : null);
+        }
+      }
+    }
+  }
+
+  private long load(int op, Object array, int i) {
+    return switch (op) {
+      case Op.IALOAD -> ((int[]) array)[i];
+      case Op.LALOAD -> ((long[]) array)[i];
+      case Op.AALOAD -> interpreter.handle(((Object[]) array)[i]);
+      case Op.FALOAD -> Interpreter.bits(((float[]) array)[i]);
+      case Op.DALOAD -> Interpreter.bits(((double[]) array)[i]);
+      case Op.BALOAD -> array instanceof boolean[] z ? (z[i] ? 1 : 0) : ((byte[]) array)[i];
+      case Op.CALOAD -> ((char[]) array)[i];
+      case Op.SALOAD -> ((short[]) array)[i];
+      default -> throw new IllegalStateException("Invalid array load " + op);
+    };
+  }
+
+  private void store(int op, Object array, int i, long value) {
+    switch (op) {
+      case Op.IASTORE -> ((int[]) array)[i] = (int) value;
+      case Op.LASTORE -> ((long[]) array)[i] = value;
+      case Op.FASTORE -> ((float[]) array)[i] = Interpreter.f(value);
+      case Op.DASTORE -> ((double[]) array)[i] = Interpreter.d(value);
+      case Op.AASTORE -> ((Object[]) array)[i] = interpreter.object(value);
+      case Op.BASTORE -> {
+        if (array instanceof boolean[] z) {
+          z[i] = (value & 1) != 0;
+        } else {
+          ((byte[]) array)[i] = (byte) value;
+        }
+      }
+      case Op.CASTORE -> ((char[]) array)[i] = (char) value;
+      case Op.SASTORE -> ((short[]) array)[i] = (short) value;
+      default -> throw new IllegalStateException("Invalid array store " + op);
+    }
+  }
+
+  private static long binary(int op, long x, long y) {
+    return switch (op) {
+      case Op.IMUL -> (int) x * (int) y;
+      case Op.IDIV -> (int) x / (int) y;
+      case Op.IREM -> (int) x % (int) y;
+      case Op.ISHL -> (int) x << (int) y;
+      case Op.ISHR -> (int) x >> (int) y;
+      case Op.IUSHR -> (int) x >>> (int) y;
+      case Op.IAND -> x & y;
+      case Op.IOR -> x | y;
+      case Op.IXOR -> x ^ y;
+      case Op.FADD -> Interpreter.bits(Interpreter.f(x) + Interpreter.f(y));
+      case Op.FSUB -> Interpreter.bits(Interpreter.f(x) - Interpreter.f(y));
+      case Op.FMUL -> Interpreter.bits(Interpreter.f(x) * Interpreter.f(y));
+      case Op.FDIV -> Interpreter.bits(Interpreter.f(x) / Interpreter.f(y));
+      case Op.FREM -> Interpreter.bits(Interpreter.f(x) % Interpreter.f(y));
+      case Op.FCMPL, Op.FCMPG -> compare(Interpreter.f(x), Interpreter.f(y), op == Op.FCMPL ? -1 : 1);
+      case Op.LADD -> x + y;
+      case Op.LSUB -> x - y;
+      case Op.LMUL -> x * y;
+      case Op.LDIV -> x / y;
+      case Op.LREM -> x % y;
+      case Op.LAND -> x & y;
+      case Op.LOR -> x | y;
+      case Op.LXOR -> x ^ y;
+      case Op.LSHL -> x << (int) y;
+      case Op.LSHR -> x >> (int) y;
+      case Op.LUSHR -> x >>> (int) y;
+      case Op.LCMP -> Long.compare(x, y);
+      case Op.DADD -> Interpreter.bits(Interpreter.d(x) + Interpreter.d(y));
+      case Op.DSUB -> Interpreter.bits(Interpreter.d(x) - Interpreter.d(y));
+      case Op.DMUL -> Interpreter.bits(Interpreter.d(x) * Interpreter.d(y));
+      case Op.DDIV -> Interpreter.bits(Interpreter.d(x) / Interpreter.d(y));
+      case Op.DREM -> Interpreter.bits(Interpreter.d(x) % Interpreter.d(y));
+      case Op.DCMPL, Op.DCMPG -> compare(Interpreter.d(x), Interpreter.d(y), op == Op.DCMPL ? -1 : 1);
+      default -> throw new IllegalStateException("Invalid binary operation " + op);
+    };
+  }
+
+  private static long compare(double x, double y, int nan) {
+    return x > y ? 1 : x == y ? 0 : x < y ? -1 : nan;
+  }
+
+  private static long unary(int op, long x) {
+    return switch (op) {
+      case Op.INEG -> -(int) x;
+      case Op.LNEG -> -x;
+      case Op.FNEG -> Interpreter.bits(-Interpreter.f(x));
+      case Op.DNEG -> Interpreter.bits(-Interpreter.d(x));
+      case Op.I2L -> x;
+      case Op.I2F -> Interpreter.bits((float) (int) x);
+      case Op.I2D -> Interpreter.bits((double) (int) x);
+      case Op.L2I -> (int) x;
+      case Op.L2F -> Interpreter.bits((float) x);
+      case Op.L2D -> Interpreter.bits((double) x);
+      case Op.F2I -> (int) Interpreter.f(x);
+      case Op.F2L -> (long) Interpreter.f(x);
+      case Op.F2D -> Interpreter.bits((double) Interpreter.f(x));
+      case Op.D2I -> (int) Interpreter.d(x);
+      case Op.D2L -> (long) Interpreter.d(x);
+      case Op.D2F -> Interpreter.bits((float) Interpreter.d(x));
+      case Op.I2B -> (byte) x;
+      case Op.I2C -> (char) x;
+      case Op.I2S -> (short) x;
+      default -> throw new IllegalStateException("Invalid unary operation " + op);
+    };
+  }
+
+  private static boolean jump(int op, long x, long y) {
+    return switch (op) {
+      case Op.IFEQ, Op.IF_ICMPEQ, Op.IF_ACMPEQ, Op.IFNULL -> x == y;
+      case Op.IFNE, Op.IF_ICMPNE, Op.IF_ACMPNE, Op.IFNONNULL -> x != y;
+      case Op.IFLT, Op.IF_ICMPLT -> x < y;
+      case Op.IFGE, Op.IF_ICMPGE -> x >= y;
+      case Op.IFGT, Op.IF_ICMPGT -> x > y;
+      case Op.IFLE, Op.IF_ICMPLE -> x <= y;
+      default -> throw new IllegalStateException("Invalid branch " + op);
+    };
+  }
+
+  public static void main(String[] args) throws IOException {
+    long budget = Interpreter.DEFAULT_BUDGET;
+    List<Path> classpath = List.of(Path.of("target/classes"));
+    while (args.length > 1 && (args[0].equals("--steps") || args[0].equals("--classpath"))) {
+      if (args[0].equals("--steps")) {
+        budget = Long.parseLong(args[1]);
+      } else {
+        classpath = Arrays.stream(args[1].split(java.io.File.pathSeparator)).map(Path::of).toList();
+      }
+      args = Arrays.copyOfRange(args, 2, args.length);
+    }
+    if (args.length == 0) {
+      throw new RuntimeException("Expected [--steps n] [--classpath folders] <method id> <input>..., "
+          + "--random <count> [--seed s] <method id> or --batch <cases file>");
+    }
+    var lockstep = new Lockstep(classpath);
+    lockstep.budget(budget);
+    if (args[0].equals("--batch")) {
+      if (args.length != 2) {
+        throw new RuntimeException("Expected --batch <cases file>");
+      }
+      lockstep.batch(Path.of(args[1]), System.out);
+      return;
+    }
+    String id;
+    Object[][] inputs;
+    if (args[0].equals("--random")) {
+      int count = Integer.parseInt(args[1]);
+      long seed = 0;
+      int i = 2;
+      if (args.length > 3 && args[2].equals("--seed")) {
+        seed = Long.parseLong(args[3]);
+        i = 4;
+      }
+      if (args.length != i + 1) {
+        throw new RuntimeException("Expected --random <count> [--seed s] <method id>");
+      }
+      id = args[i];
+      inputs = lockstep.random(id, count, new Random(seed));
+    } else {
+      id = args[0];
+      inputs = new Object[args.length - 1][];
+      for (int i = 1; i < args.length; i++) {
+        inputs[i - 1] = InputParser.parse(args[i]);
+      }
+    }
+    long start = System.nanoTime();
+    ResultType[] results = lockstep.run(id, inputs);
+    double seconds = (System.nanoTime() - start) / 1e9;
+    int errors = results.length;
+    for (var e : histogram(results).entrySet()) {
+      System.out.printf("%-16s %8d %6.1f%%%n", e.getKey(), e.getValue(), 100.0 * e.getValue() / results.length);
+      errors -= e.getValue();
+    }
+    if (errors > 0) {
+      System.out.printf("%-16s %8d %6.1f%%%n", "error", errors, 100.0 * errors / results.length);
+    }
+    System.err.printf("Interpreted %d inputs and %d steps in %.3f s, %.1f million steps per second%n",
+        results.length, lockstep.steps(), seconds, lockstep.steps() / seconds / 1e6);
+  }
+
+  /**
+   * Inputs for a method drawn at random: ints that are small as often as
+   * not, and arrays of up to 8 elements. Only the parameter types that
+   * {@link InputParser} reads can be drawn.
+   */
+  public Object[][] random(String id, int count, Random random) {
+    Method method = program.method(id);
+    String d = method.descriptor;
+    Class<?>[] types = Descriptor.parameters(d.substring(1, d.indexOf(')')));
+    Object[][] inputs = new Object[count][types.length];
+    for (Object[] input : inputs) {
+      for (int i = 0; i < types.length; i++) {
+        input[i] = random(types[i], random);
+      }
+    }
+    return inputs;
+  }
+
+  private static Object random(Class<?> type, Random random) {
+    if (type == int.class) {
+      return random.nextBoolean() ? random.nextInt(-16, 17) : random.nextInt();
+    } else if (type == boolean.class) {
+      return random.nextBoolean();
+    } else if (type == char.class) {
+      return (char) random.nextInt(' ', 127);
+    } else if (type.isArray() && type.getComponentType().isPrimitive()) {
+      int length = random.nextInt(9);
+      Object array = java.lang.reflect.Array.newInstance(type.getComponentType(), length);
+      for (int i = 0; i < length; i++) {
+        java.lang.reflect.Array.set(array, i, random(type.getComponentType(), random));
+      }
+      return array;
+    }
+    throw new Unsupported("Cannot draw a random " + type.getName());
+  }
+
+  /**
+   * Run every case of a cases file, with the inputs of a method in
+   * lockstep, and print them in order as {@link jpamb.Batch} does, with
+   * the time of a case as the time of its method over its inputs.
+   */
+  public void batch(Path file, PrintStream out) throws IOException {
+    List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8).stream()
+        .map(String::strip).filter(l -> !l.isEmpty()).toList();
+    String[] printed = new String[lines.size()];
+    Map<String, List<Integer>> byMethod = new LinkedHashMap<>();
+    for (int i = 0; i < lines.size(); i++) {
+      String line = lines.get(i);
+      int space = line.indexOf(' ');
+      int arrow = line.lastIndexOf("->");
+      if (space < 0 || arrow < space) {
+        printed[i] = String.format("%-60s error: invalid case", line);
+      } else {
+        byMethod.computeIfAbsent(line.substring(0, space), k -> new ArrayList<>()).add(i);
+      }
+    }
+    long start = System.nanoTime();
+    long before = steps;
+    for (var e : byMethod.entrySet()) {
+      String id = e.getKey();
+      List<Integer> cases = e.getValue();
+      String[] inputs = new String[cases.size()];
+      String[] results = new String[cases.size()];
+      List<Integer> parsed = new ArrayList<>();
+      List<Object[]> params = new ArrayList<>();
+      for (int j = 0; j < cases.size(); j++) {
+        String line = lines.get(cases.get(j));
+        inputs[j] = line.substring(line.indexOf(' '), line.lastIndexOf("->")).strip();
+        try {
+          params.add(InputParser.parse(inputs[j]));
+          parsed.add(j);
+        } catch (RuntimeException ex) {
+          results[j] = "error: " + String.valueOf(ex.getMessage()).replace('\n', ' ');
+        }
+      }
+      long elapsed = 0;
+      try {
+        long begin = System.nanoTime();
+        ResultType[] ran = run(id, params.toArray(new Object[0][]));
+        elapsed = ran.length == 0 ? 0 : (System.nanoTime() - begin) / ran.length;
+        for (int j = 0; j < ran.length; j++) {
+          results[parsed.get(j)] = ran[j] == null ? "error: Unexpected" : ran[j].toString();
+        }
+      } catch (RuntimeException ex) {
+        for (int j : parsed) {
+          results[j] = "error: " + String.valueOf(ex.getMessage()).replace('\n', ' ');
+        }
+      }
+      for (int j = 0; j < cases.size(); j++) {
+        printed[cases.get(j)] = String.format("%-60s %s -> %s %d", id, inputs[j], results[j], elapsed);
+      }
+    }
+    for (String line : printed) {
+      out.println(line);
+    }
+    out.flush();
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.err.printf("Interpreted %d steps in %.3f s, %.1f million steps per second%n",
+        steps - before, seconds, (steps - before) / seconds / 1e6);
+  }
+}
@@ -0,0 +1,172 @@
+package jpamb.interpreter;
+
+/**
+ * The instructions that {@link Program} compiles jvm2json's opcodes to.
+ *
+ * Every instruction has an opcode and two int operands, {@code a} and
+ * {@code b}, and some also a constant, {@code k}, or an object, {@code ref}.
+ * Where jvm2json has a type or a condition as a field, there is an opcode
+ * for each, so the interpreter never looks at more than the opcode to know
+ * what to do. Jump targets are instruction indices, as in jvm2json.
+ */
+final class Op {
+  private Op() {
+  }
+
+  static final int NOP = 0;
+  /**
+   * Push {@code k}, which is one word, or two with {@code PUSH2}, of the
+   * kind {@code b}, one of {@code IJFD}, or {@code L} for null.
+   */
+  static final int PUSH1 = 1;
+  static final int PUSH2 = 2;
+  /** Push the string or class constant {@code ref}. */
+  static final int PUSH_REF = 3;
+  /** Load or store local {@code a}. */
+  static final int LOAD1 = 4;
+  static final int LOAD2 = 5;
+  static final int STORE1 = 6;
+  static final int STORE2 = 7;
+
+  static final int IALOAD = 8;
+  static final int LALOAD = 9;
+  static final int FALOAD = 10;
+  static final int DALOAD = 11;
+  static final int AALOAD = 12;
+  static final int BALOAD = 13;
+  static final int CALOAD = 14;
+  static final int SALOAD = 15;
+  static final int IASTORE = 16;
+  static final int LASTORE = 17;
+  static final int FASTORE = 18;
+  static final int DASTORE = 19;
+  static final int AASTORE = 20;
+  static final int BASTORE = 21;
+  static final int CASTORE = 22;
+  static final int SASTORE = 23;
+
+  static final int POP = 24;
+  static final int POP2 = 25;
+  static final int DUP = 26;
+  static final int DUP_X1 = 27;
+  static final int DUP_X2 = 28;
+  static final int DUP2 = 29;
+  static final int DUP2_X1 = 30;
+  static final int DUP2_X2 = 31;
+  static final int SWAP = 32;
+
+  static final int IADD = 33;
+  static final int ISUB = 34;
+  static final int IMUL = 35;
+  static final int IDIV = 36;
+  static final int IREM = 37;
+  static final int LADD = 38;
+  static final int LSUB = 39;
+  static final int LMUL = 40;
+  static final int LDIV = 41;
+  static final int LREM = 42;
+  static final int FADD = 43;
+  static final int FSUB = 44;
+  static final int FMUL = 45;
+  static final int FDIV = 46;
+  static final int FREM = 47;
+  static final int DADD = 48;
+  static final int DSUB = 49;
+  static final int DMUL = 50;
+  static final int DDIV = 51;
+  static final int DREM = 52;
+  static final int INEG = 53;
+  static final int LNEG = 54;
+  static final int FNEG = 55;
+  static final int DNEG = 56;
+  static final int ISHL = 57;
+  static final int ISHR = 58;
+  static final int IUSHR = 59;
+  static final int IAND = 60;
+  static final int IOR = 61;
+  static final int IXOR = 62;
+  static final int LSHL = 63;
+  static final int LSHR = 64;
+  static final int LUSHR = 65;
+  static final int LAND = 66;
+  static final int LOR = 67;
+  static final int LXOR = 68;
+  /** Add {@code b} to local {@code a}. */
+  static final int IINC = 69;
+
+  static final int I2L = 70;
+  static final int I2F = 71;
+  static final int I2D = 72;
+  static final int L2I = 73;
+  static final int L2F = 74;
+  static final int L2D = 75;
+  static final int F2I = 76;
+  static final int F2L = 77;
+  static final int F2D = 78;
+  static final int D2I = 79;
+  static final int D2L = 80;
+  static final int D2F = 81;
+  static final int I2B = 82;
+  static final int I2C = 83;
+  static final int I2S = 84;
+
+  static final int LCMP = 85;
+  static final int FCMPL = 86;
+  static final int FCMPG = 87;
+  static final int DCMPL = 88;
+  static final int DCMPG = 89;
+
+  /** Jump to {@code a} if the int on top compares to 0, or the two on top to each other. */
+  static final int IFEQ = 90;
+  static final int IFNE = 91;
+  static final int IFLT = 92;
+  static final int IFGE = 93;
+  static final int IFGT = 94;
+  static final int IFLE = 95;
+  static final int IF_ICMPEQ = 96;
+  static final int IF_ICMPNE = 97;
+  static final int IF_ICMPLT = 98;
+  static final int IF_ICMPGE = 99;
+  static final int IF_ICMPGT = 100;
+  static final int IF_ICMPLE = 101;
+  static final int IF_ACMPEQ = 102;
+  static final int IF_ACMPNE = 103;
+  static final int IFNULL = 104;
+  static final int IFNONNULL = 105;
+  static final int GOTO = 106;
+  /** Jump to {@code ref}, an int array of targets from key {@code a}, or to {@code b}. */
+  static final int TABLESWITCH = 107;
+  /** Jump to the target of the key in {@code ref}, an int array of keys then targets, or to {@code b}. */
+  static final int LOOKUPSWITCH = 108;
+
+  static final int RETURN = 109;
+  static final int RETURN1 = 110;
+  static final int RETURN2 = 111;
+
+  /** Access the field {@code ref}, a {@link Program.Field} resolved on first use. */
+  static final int GETSTATIC = 112;
+  static final int PUTSTATIC = 113;
+  static final int GETFIELD = 114;
+  static final int PUTFIELD = 115;
+  /** Call the method {@code ref}, a {@link Program.Call} resolved on first use. */
+  static final int INVOKESTATIC = 116;
+  static final int INVOKESPECIAL = 117;
+  static final int INVOKEVIRTUAL = 118;
+  /** Concatenate strings, as {@code StringConcatFactory} does, see {@link Program.Concat}. */
+  static final int CONCAT = 119;
+
+  /** Create an instance of the class named {@code ref}. */
+  static final int NEW = 120;
+  /** Create an array of the type {@code ref} with {@code a} dimensions. */
+  static final int NEWARRAY = 121;
+  static final int ARRAYLENGTH = 122;
+  static final int ATHROW = 123;
+  /** Check that the reference on top is an instance of the type named {@code ref}. */
+  static final int CHECKCAST = 124;
+  static final int INSTANCEOF = 125;
+  static final int MONITOR = 126;
+  /** An instruction that cannot be interpreted, with the reason in {@code ref}. */
+  static final int UNSUPPORTED = 127;
+
+  static final int COUNT = 128;
+}
@@ -0,0 +1,804 @@
+package jpamb.interpreter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jpamb.classfile.ClassFile;
+import jpamb.classfile.ClassFile.Attribute;
+import jpamb.classfile.ClassFile.Member;
+import jpamb.classfile.Decompiler;
+import jpamb.interpreter.Interpreter.Unsupported;
+
+import static jpamb.classfile.ClassFile.*;
+
+/**
+ * The classes of a program, read from class folders on first use.
+ *
+ * The code of a method is decompiled to jvm2json's format, see
+ * {@link Decompiler}, which is what {@code target/decompiled} holds and what
+ * the Python interpreters step over, and then compiled to the int-indexed
+ * instructions of {@link Op} the first time the method is called. Classes
+ * that are not in the folders, like those of the JDK, are external: they
+ * are called through reflection.
+ */
+final class Program {
+  private static final int ACC_STATIC = 0x0008;
+  private static final int ACC_INTERFACE = 0x0200;
+  private static final int ACC_ABSTRACT = 0x0400;
+
+  private final List<Path> classpath;
+  /** The program classes by internal name, with null for the external ones. */
+  private final Map<String, Type> types = new HashMap<>();
+  private final Map<String, Class<?>> external = new HashMap<>();
+  /** The program classes in the order they were loaded. */
+  final List<Type> loaded = new ArrayList<>();
+  private int methodCount;
+
+  Program(List<Path> classpath) {
+    this.classpath = classpath;
+  }
+
+  /** The program class with this internal name, or null if it is external. */
+  Type type(String name) {
+    if (types.containsKey(name)) {
+      return types.get(name);
+    }
+    ClassFile cf = null;
+    if (!name.startsWith("[")) {
+      for (Path folder : classpath) {
+        Path file = folder.resolve(name + ".class");
+        if (Files.isRegularFile(file)) {
+          try {
+            cf = ClassFile.read(Files.readAllBytes(file));
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+          break;
+        }
+      }
+    }
+    Type type = cf == null ? null : new Type(name, cf, loaded.size());
+    types.put(name, type);
+    if (type != null) {
+      loaded.add(type);
+      type.link(this);
+    }
+    return type;
+  }
+
+  /** The JDK class with this internal name or array descriptor. */
+  Class<?> javaClass(String name) {
+    Class<?> c = external.get(name);
+    if (c == null) {
+      try {
+        c = Class.forName(name.replace('/', '.'), false, ClassLoader.getPlatformClassLoader());
+      } catch (ClassNotFoundException e) {
+        throw new Unsupported("Cannot find class " + name);
+      }
+      external.put(name, c);
+    }
+    return c;
+  }
+
+  /** The method of a method id, like {@code jpamb.cases.Simple.divideByN:(I)I}. */
+  Method method(String id) {
+    int colon = id.indexOf(':');
+    int dot = id.lastIndexOf('.', colon);
+    if (colon < 0 || dot < 0) {
+      throw new IllegalArgumentException("Invalid method id: " + id);
+    }
+    Type type = type(id.substring(0, dot).replace('.', '/'));
+    Method method = type == null ? null : type.methods.get(id.substring(dot + 1, colon) + id.substring(colon + 1));
+    if (method == null) {
+      throw new IllegalArgumentException("No such method: " + id);
+    }
+    return method;
+  }
+
+  /** A class of the program, with the layout of its fields and its methods. */
+  static final class Type {
+    final String name;
+    final ClassFile cf;
+    /** The position of the class in {@link Program#loaded}. */
+    final int number;
+    final boolean isInterface;
+    Type superType;
+    /** The closest superclass that is not part of the program, {@code Object} for most. */
+    Class<?> externalSuper;
+    final List<Type> interfaces = new ArrayList<>();
+    final List<Class<?>> externalInterfaces = new ArrayList<>();
+
+    /** The slots of the instance fields, inherited ones included, by name and descriptor. */
+    final Map<String, Integer> fields = new HashMap<>();
+    /** Whether each instance slot holds a reference, which are kept as objects. */
+    boolean[] isRef = new boolean[0];
+    final Map<String, Integer> staticFields = new HashMap<>();
+    long[] staticValues;
+    Object[] staticRefs;
+    boolean initialized;
+
+    /** The declared methods, by name and descriptor. */
+    final Map<String, Method> methods = new HashMap<>();
+    private final Map<String, Method> dispatch = new HashMap<>();
+    private Map<String, Object> json;
+
+    private Type(String name, ClassFile cf, int number) {
+      this.name = name;
+      this.cf = cf;
+      this.number = number;
+      this.isInterface = (cf.access() & ACC_INTERFACE) != 0;
+    }
+
+    private void link(Program program) {
+      String superName = cf.superName();
+      if (superName != null) {
+        superType = program.type(superName);
+        externalSuper = superType != null ? superType.externalSuper : program.javaClass(superName);
+      } else {
+        externalSuper = Object.class;
+      }
+      for (String i : cf.interfaces()) {
+        Type t = program.type(i);
+        if (t != null) {
+          interfaces.add(t);
+        } else {
+          externalInterfaces.add(program.javaClass(i));
+        }
+      }
+      if (superType != null) {
+        fields.putAll(superType.fields);
+        isRef = superType.isRef.clone();
+      }
+      List<Member> declared = cf.fields();
+      for (Member f : declared) {
+        String key = f.name() + ":" + f.descriptor();
+        boolean ref = isReference(f.descriptor().charAt(0));
+        if ((f.access() & ACC_STATIC) != 0) {
+          staticFields.put(key, staticFields.size());
+        } else {
+          fields.put(key, isRef.length);
+          isRef = Arrays.copyOf(isRef, isRef.length + 1);
+          isRef[isRef.length - 1] = ref;
+        }
+      }
+      staticValues = new long[staticFields.size()];
+      staticRefs = new Object[staticFields.size()];
+      for (Member f : declared) {
+        Attribute constant = f.attribute("ConstantValue");
+        if ((f.access() & ACC_STATIC) != 0 && constant != null) {
+          int slot = staticFields.get(f.name() + ":" + f.descriptor());
+          int index = constant.body().getShort() & 0xffff;
+          switch (cf.tag(index)) {
+            case INTEGER -> staticValues[slot] = cf.integer(index);
+            case FLOAT -> staticValues[slot] = Float.floatToRawIntBits(cf.floatValue(index));
+            case LONG -> staticValues[slot] = cf.longValue(index);
+            case DOUBLE -> staticValues[slot] = Double.doubleToRawLongBits(cf.doubleValue(index));
+            case STRING -> staticRefs[slot] = cf.string(index).intern();
+            default -> throw new IllegalArgumentException("Invalid constant value of " + f);
+          }
+        }
+      }
+      List<Member> members = cf.methods();
+      for (int i = 0; i < members.size(); i++) {
+        Member m = members.get(i);
+        methods.put(m.name() + m.descriptor(), new Method(this, m, i, program.methodCount++));
+      }
+    }
+
+    /** The class as jvm2json writes it, decompiled on first use. */
+    Map<String, Object> json() {
+      if (json == null) {
+        json = Decompiler.decompile(cf);
+      }
+      return json;
+    }
+
+    /** Whether this class is {@code other} or a subtype of it. */
+    boolean isSubtypeOf(Type other) {
+      if (this == other) {
+        return true;
+      }
+      if (superType != null && superType.isSubtypeOf(other)) {
+        return true;
+      }
+      for (Type i : interfaces) {
+        if (i.isSubtypeOf(other)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /** Whether instances of this class are instances of the external class {@code c}. */
+    boolean isSubtypeOf(Class<?> c) {
+      if (c.isAssignableFrom(externalSuper)) {
+        return true;
+      }
+      for (Class<?> i : externalInterfaces) {
+        if (c.isAssignableFrom(i)) {
+          return true;
+        }
+      }
+      if (superType != null && superType.isSubtypeOf(c)) {
+        return true;
+      }
+      for (Type i : interfaces) {
+        if (i.isSubtypeOf(c)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /** The method that a call of {@code method} resolves to, searching superclasses and then interfaces. */
+    Method resolve(String method) {
+      for (Type t = this; t != null; t = t.superType) {
+        Method m = t.methods.get(method);
+        if (m != null) {
+          return m;
+        }
+      }
+      return defaultMethod(method, false);
+    }
+
+    /** The method that a virtual call of {@code method} selects on an instance of this class, or null. */
+    Method dispatch(String method) {
+      Method m = dispatch.get(method);
+      if (m == null && !dispatch.containsKey(method)) {
+        for (Type t = this; t != null && m == null; t = t.superType) {
+          Method declared = t.methods.get(method);
+          if (declared != null && (declared.access & (ACC_STATIC | ACC_ABSTRACT)) == 0) {
+            m = declared;
+          }
+        }
+        if (m == null) {
+          m = defaultMethod(method, true);
+        }
+        dispatch.put(method, m);
+      }
+      return m;
+    }
+
+    private Method defaultMethod(String method, boolean concrete) {
+      for (Type t = this; t != null; t = t.superType) {
+        for (Type i : t.interfaces) {
+          Method m = i.methods.get(method);
+          if (m != null && (m.access & ACC_STATIC) == 0 && (!concrete || (m.access & ACC_ABSTRACT) == 0)) {
+            return m;
+          }
+          m = i.defaultMethod(method, concrete);
+          if (m != null) {
+            return m;
+          }
+        }
+      }
+      return null;
+    }
+
+    /** The class and slot of a static field, which may be declared by a supertype. */
+    Type staticOwner(String field) {
+      if (staticFields.containsKey(field)) {
+        return this;
+      }
+      for (Type i : interfaces) {
+        Type t = i.staticOwner(field);
+        if (t != null) {
+          return t;
+        }
+      }
+      return superType == null ? null : superType.staticOwner(field);
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  /** A method of a program class, whose code is compiled on first call. */
+  static final class Method {
+    final Type owner;
+    final String name;
+    final String descriptor;
+    final int access;
+    private final int index;
+    /** A number that is unique to the method in its program. */
+    final int number;
+    /** The kind of each parameter, one of {@code IJFDZCBSL}, the receiver not included. */
+    final String params;
+    /** The kind of the result, or {@code V}. */
+    final char returns;
+    /** The words that the arguments take, the receiver included. */
+    final int argWords;
+
+    int maxLocals;
+    int maxStack;
+    int[] op;
+    int[] a;
+    int[] b;
+    long[] k;
+    Object[] ref;
+    /** The start, end and handler of each exception handler, and the type it catches or null for any. */
+    int[] handlers;
+    String[] catchTypes;
+
+    private Method(Type owner, Member member, int index, int number) {
+      this.owner = owner;
+      this.number = number;
+      this.name = member.name();
+      this.descriptor = member.descriptor();
+      this.access = member.access();
+      this.index = index;
+      this.params = kinds(descriptor);
+      this.returns = kind(descriptor.charAt(descriptor.indexOf(')') + 1));
+      this.argWords = words(params) + (isStatic() ? 0 : 1);
+    }
+
+    boolean isStatic() {
+      return (access & ACC_STATIC) != 0;
+    }
+
+    /** The id of the method, like {@code jpamb.cases.Simple.divideByN:(I)I}. */
+    String id() {
+      return owner.name.replace('/', '.') + "." + name + ":" + descriptor;
+    }
+
+    /** Compile the code, if that has not been done. */
+    @SuppressWarnings("unchecked")
+    void compile() {
+      if (op != null) {
+        return;
+      }
+      var json = (Map<String, Object>) ((List<Object>) owner.json().get("methods")).get(index);
+      var code = (Map<String, Object>) json.get("code");
+      if (code == null) {
+        throw new Unsupported("Cannot call " + id() + ", which has no code");
+      }
+      var compiler = new Compiler(owner, code);
+      compiler.compile();
+      maxLocals = ((Number) code.get("max_locals")).intValue();
+      maxStack = ((Number) code.get("max_stack")).intValue();
+      a = compiler.a;
+      b = compiler.b;
+      k = compiler.k;
+      ref = compiler.ref;
+      handlers = compiler.handlers;
+      catchTypes = compiler.catchTypes;
+      op = compiler.op;
+    }
+
+    /** The handler of the innermost handler around {@code pc} that catches {@code thrown}, or -1. */
+    int handler(int pc, Object thrown, Interpreter interpreter) {
+      for (int i = 0; i < catchTypes.length; i++) {
+        if (handlers[3 * i] <= pc && pc < handlers[3 * i + 1]
+            && (catchTypes[i] == null || interpreter.isInstance(thrown, catchTypes[i]))) {
+          return handlers[3 * i + 2];
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    public String toString() {
+      return id();
+    }
+  }
+
+  /** A field access, resolved on first use. */
+  static final class Field {
+    final String owner;
+    final String name;
+    final String descriptor;
+    final char kind;
+    /** The class that declares a static field, or null for an external one. */
+    Type type;
+    int slot = -1;
+    java.lang.reflect.Field external;
+
+    Field(String owner, String name, String descriptor) {
+      this.owner = owner;
+      this.name = name;
+      this.descriptor = descriptor;
+      this.kind = kind(descriptor.charAt(0));
+    }
+
+    String key() {
+      return name + ":" + descriptor;
+    }
+
+    @Override
+    public String toString() {
+      return owner + "." + name;
+    }
+  }
+
+  /** A call site, resolved on first use. */
+  static final class Call {
+    final String owner;
+    final String name;
+    final String descriptor;
+    final boolean isStatic;
+    final String params;
+    final char returns;
+    final int argWords;
+    /** The name and descriptor, which methods are looked up by. */
+    final String signature;
+    /**
+     * The program method of a static or special call, once resolved, or the
+     * last one that a virtual call selected, on an instance of {@code type}.
+     */
+    Method method;
+    /** The program class that owns the call, or null if it is external, once resolved. */
+    Type type;
+    boolean resolved;
+    /** A JDK method or constructor, looked up on first use. */
+    java.lang.reflect.Executable external;
+
+    Call(String owner, String name, String descriptor, boolean isStatic) {
+      this.owner = owner;
+      this.name = name;
+      this.descriptor = descriptor;
+      this.isStatic = isStatic;
+      this.params = kinds(descriptor);
+      this.returns = kind(descriptor.charAt(descriptor.indexOf(')') + 1));
+      this.argWords = words(params) + (isStatic ? 0 : 1);
+      this.signature = name + descriptor;
+    }
+
+    @Override
+    public String toString() {
+      return owner + "." + name + descriptor;
+    }
+  }
+
+  /**
+   * A string concatenation, as {@code StringConcatFactory} makes them: the
+   * recipe has {@code \1} where an argument goes and {@code \2} where a
+   * constant goes.
+   */
+  record Concat(String recipe, Object[] constants, String params, int argWords) {
+  }
+
+  /** The kind of a type by the first character of its descriptor: {@code L} for references. */
+  static char kind(char c) {
+    return c == '[' ? 'L' : c;
+  }
+
+  static boolean isReference(char c) {
+    return c == 'L' || c == '[';
+  }
+
+  /** The kinds of the parameters of a method descriptor. */
+  static String kinds(String descriptor) {
+    var kinds = new StringBuilder();
+    int i = 1;
+    while (descriptor.charAt(i) != ')') {
+      char c = descriptor.charAt(i);
+      kinds.append(kind(c));
+      while (descriptor.charAt(i) == '[') {
+        i++;
+      }
+      i = descriptor.charAt(i) == 'L' ? descriptor.indexOf(';', i) + 1 : i + 1;
+    }
+    return kinds.toString();
+  }
+
+  static int words(char kind) {
+    return kind == 'J' || kind == 'D' ? 2 : kind == 'V' ? 0 : 1;
+  }
+
+  static int words(String kinds) {
+    int words = 0;
+    for (int i = 0; i < kinds.length(); i++) {
+      words += words(kinds.charAt(i));
+    }
+    return words;
+  }
+
+  /** Compiles the jvm2json code of a method to the instructions of {@link Op}. */
+  private static final class Compiler {
+    private static final String[] CONDITIONS = { "eq", "ne", "lt", "ge", "gt", "le" };
+    private static final String[] ARRAY_TYPES = { "int", "long", "float", "double", "ref", "byte",
+        "char", "short" };
+    private static final String[] NUMBER_TYPES = { "int", "long", "float", "double" };
+    private static final String[] BINARY = { "add", "sub", "mul", "div", "rem" };
+    private static final String[] SHIFTS = { "shl", "shr", "ushr", "and", "or", "xor" };
+    private static final Map<String, Integer> CASTS = Map.ofEntries(
+        Map.entry("int>long", Op.I2L), Map.entry("int>float", Op.I2F), Map.entry("int>double", Op.I2D),
+        Map.entry("long>int", Op.L2I), Map.entry("long>float", Op.L2F), Map.entry("long>double", Op.L2D),
+        Map.entry("float>int", Op.F2I), Map.entry("float>long", Op.F2L), Map.entry("float>double", Op.F2D),
+        Map.entry("double>int", Op.D2I), Map.entry("double>long", Op.D2L),
+        Map.entry("double>float", Op.D2F), Map.entry("int>byte", Op.I2B), Map.entry("int>char", Op.I2C),
+        Map.entry("int>short", Op.I2S));
+
+    private final Type owner;
+    private final Map<String, Object> code;
+    int[] op;
+    int[] a;
+    int[] b;
+    long[] k;
+    Object[] ref;
+    int[] handlers;
+    String[] catchTypes;
+
+    Compiler(Type owner, Map<String, Object> code) {
+      this.owner = owner;
+      this.code = code;
+    }
+
+    @SuppressWarnings("unchecked")
+    void compile() {
+      var bytecode = (List<Map<String, Object>>) code.get("bytecode");
+      int n = bytecode.size();
+      op = new int[n];
+      a = new int[n];
+      b = new int[n];
+      k = new long[n];
+      ref = new Object[n];
+      for (int pc = 0; pc < n; pc++) {
+        try {
+          instruction(pc, bytecode.get(pc));
+        } catch (Unsupported e) {
+          op[pc] = Op.UNSUPPORTED;
+          ref[pc] = e.getMessage();
+        }
+      }
+      var exceptions = (List<Map<String, Object>>) code.get("exceptions");
+      handlers = new int[3 * exceptions.size()];
+      catchTypes = new String[exceptions.size()];
+      for (int i = 0; i < exceptions.size(); i++) {
+        var e = exceptions.get(i);
+        handlers[3 * i] = integer(e.get("start"));
+        handlers[3 * i + 1] = integer(e.get("end"));
+        handlers[3 * i + 2] = integer(e.get("handler"));
+        catchTypes[i] = (String) e.get("catchType");
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void instruction(int pc, Map<String, Object> i) {
+      String opr = (String) i.get("opr");
+      String type = i.get("type") instanceof String s ? s : null;
+      switch (opr) {
+        case "nop" -> op[pc] = Op.NOP;
+        case "push" -> push(pc, (Map<String, Object>) i.get("value"));
+        case "load", "store" -> {
+          boolean wide = type.equals("long") || type.equals("double");
+          op[pc] = opr.equals("load") ? (wide ? Op.LOAD2 : Op.LOAD1) : (wide ? Op.STORE2 : Op.STORE1);
+          a[pc] = integer(i.get("index"));
+        }
+        case "array_load" -> op[pc] = Op.IALOAD + index(ARRAY_TYPES, type);
+        case "array_store" -> op[pc] = Op.IASTORE + index(ARRAY_TYPES, type);
+        case "pop" -> op[pc] = integer(i.get("words")) == 1 ? Op.POP : Op.POP2;
+        case "dup" -> op[pc] = integer(i.get("words")) == 1 ? Op.DUP : Op.DUP2;
+        case "dup_x1" -> op[pc] = integer(i.get("words")) == 1 ? Op.DUP_X1 : Op.DUP2_X1;
+        case "dup_x2" -> op[pc] = integer(i.get("words")) == 1 ? Op.DUP_X2 : Op.DUP2_X2;
+        case "swap" -> op[pc] = Op.SWAP;
+        case "binary" -> op[pc] = Op.IADD + 5 * index(NUMBER_TYPES, type)
+            + index(BINARY, (String) i.get("operant"));
+        case "negate" -> op[pc] = Op.INEG + index(NUMBER_TYPES, type);
+        case "bitopr" -> op[pc] = (type.equals("int") ? Op.ISHL : Op.LSHL)
+            + index(SHIFTS, (String) i.get("operant"));
+        case "incr" -> {
+          op[pc] = Op.IINC;
+          a[pc] = integer(i.get("index"));
+          b[pc] = integer(i.get("amount"));
+        }
+        case "cast" -> {
+          Integer cast = CASTS.get(i.get("from") + ">" + i.get("to"));
+          if (cast == null) {
+            throw new Unsupported("Cannot cast from " + i.get("from") + " to " + i.get("to"));
+          }
+          op[pc] = cast;
+        }
+        case "comparelongs" -> op[pc] = Op.LCMP;
+        // jvm2json has onnan 1 for fcmpl and dcmpl, which push -1 on NaN.
+        case "comparefloating" -> op[pc] = (type.equals("float") ? Op.FCMPL : Op.DCMPL)
+            + (integer(i.get("onnan")) == 1 ? 0 : 1);
+        case "ifz", "if" -> {
+          String condition = (String) i.get("condition");
+          if (condition.equals("is") || condition.equals("isnot")) {
+            op[pc] = opr.equals("ifz")
+                ? (condition.equals("is") ? Op.IFNULL : Op.IFNONNULL)
+                : (condition.equals("is") ? Op.IF_ACMPEQ : Op.IF_ACMPNE);
+          } else {
+            op[pc] = (opr.equals("ifz") ? Op.IFEQ : Op.IF_ICMPEQ) + index(CONDITIONS, condition);
+          }
+          a[pc] = integer(i.get("target"));
+        }
+        case "goto" -> {
+          op[pc] = Op.GOTO;
+          a[pc] = integer(i.get("target"));
+        }
+        case "tableswitch" -> {
+          op[pc] = Op.TABLESWITCH;
+          a[pc] = integer(i.get("low"));
+          b[pc] = integer(i.get("default"));
+          ref[pc] = ((List<Object>) i.get("targets")).stream().mapToInt(Compiler::integer).toArray();
+        }
+        case "lookupswitch" -> {
+          var targets = (List<Map<String, Object>>) i.get("targets");
+          int[] table = new int[2 * targets.size()];
+          for (int t = 0; t < targets.size(); t++) {
+            table[t] = integer(targets.get(t).get("key"));
+            table[targets.size() + t] = integer(targets.get(t).get("target"));
+          }
+          op[pc] = Op.LOOKUPSWITCH;
+          b[pc] = integer(i.get("default"));
+          ref[pc] = table;
+        }
+        case "return" -> op[pc] = type == null ? Op.RETURN
+            : type.equals("long") || type.equals("double") ? Op.RETURN2 : Op.RETURN1;
+        case "get", "put" -> {
+          var field = (Map<String, Object>) i.get("field");
+          boolean isStatic = (Boolean) i.get("static");
+          op[pc] = opr.equals("get")
+              ? (isStatic ? Op.GETSTATIC : Op.GETFIELD)
+              : (isStatic ? Op.PUTSTATIC : Op.PUTFIELD);
+          ref[pc] = new Field((String) field.get("class"), (String) field.get("name"),
+              descriptor(field.get("type")));
+        }
+        case "invoke" -> invoke(pc, i);
+        case "new" -> {
+          op[pc] = Op.NEW;
+          ref[pc] = i.get("class");
+        }
+        case "newarray" -> {
+          op[pc] = Op.NEWARRAY;
+          a[pc] = integer(i.get("dim"));
+          String element = descriptor(i.get("type"));
+          ref[pc] = a[pc] == 1 ? "[" + element : element;
+        }
+        case "arraylength" -> op[pc] = Op.ARRAYLENGTH;
+        case "throw" -> op[pc] = Op.ATHROW;
+        case "checkcast", "instanceof" -> {
+          op[pc] = opr.equals("checkcast") ? Op.CHECKCAST : Op.INSTANCEOF;
+          ref[pc] = className(i.get("type"));
+        }
+        case "monitorenter", "monitorexit" -> op[pc] = Op.MONITOR;
+        default -> throw new Unsupported("Cannot interpret " + opr + " in " + owner.name);
+      }
+    }
+
+    private void push(int pc, Map<String, Object> value) {
+      if (value == null) {
+        op[pc] = Op.PUSH1;
+        b[pc] = 'L';
+        return;
+      }
+      Object v = value.get("value");
+      switch ((String) value.get("type")) {
+        case "integer" -> {
+          op[pc] = Op.PUSH1;
+          b[pc] = 'I';
+          k[pc] = integer(v);
+        }
+        case "long" -> {
+          op[pc] = Op.PUSH2;
+          b[pc] = 'J';
+          k[pc] = ((Number) v).longValue();
+        }
+        case "float" -> {
+          op[pc] = Op.PUSH1;
+          b[pc] = 'F';
+          k[pc] = Float.floatToRawIntBits(((Number) v).floatValue());
+        }
+        case "double" -> {
+          op[pc] = Op.PUSH2;
+          b[pc] = 'D';
+          k[pc] = Double.doubleToRawLongBits(((Number) v).doubleValue());
+        }
+        case "string" -> {
+          op[pc] = Op.PUSH_REF;
+          ref[pc] = ((String) v).intern();
+        }
+        case "class" -> {
+          op[pc] = Op.PUSH_REF;
+          ref[pc] = new Interpreter.ClassConstant(className(v));
+        }
+        default -> throw new Unsupported("Cannot push a " + value.get("type") + " constant");
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void invoke(int pc, Map<String, Object> i) {
+      var method = (Map<String, Object>) i.get("method");
+      String name = (String) method.get("name");
+      var args = (List<Object>) method.get("args");
+      var signature = new StringBuilder("(");
+      for (Object arg : args) {
+        signature.append(descriptor(arg));
+      }
+      signature.append(')').append(method.get("returns") == null ? "V" : descriptor(method.get("returns")));
+      String access = (String) i.get("access");
+      if (access.equals("dynamic")) {
+        concat(pc, integer(i.get("index")), signature.toString());
+        return;
+      }
+      String owner = className(method.get("ref"));
+      boolean isStatic = access.equals("static");
+      op[pc] = switch (access) {
+        case "static" -> Op.INVOKESTATIC;
+        case "special" -> Op.INVOKESPECIAL;
+        default -> Op.INVOKEVIRTUAL;
+      };
+      ref[pc] = new Call(owner, name, signature.toString(), isStatic);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void concat(int pc, int bootstrap, String descriptor) {
+      var methods = (List<Map<String, Object>>) this.owner.json().get("bootstrapmethods");
+      var method = (Map<String, Object>) methods.get(bootstrap).get("method");
+      var handle = (Map<String, Object>) method.get("handle");
+      var target = (Map<String, Object>) handle.get("method");
+      String name = target == null ? null : (String) target.get("name");
+      String params = kinds(descriptor);
+      var args = (List<Map<String, Object>>) method.get("args");
+      String recipe;
+      Object[] constants;
+      if ("makeConcatWithConstants".equals(name)) {
+        recipe = (String) args.get(0).get("value");
+        constants = new Object[args.size() - 1];
+        for (int c = 1; c < args.size(); c++) {
+          constants[c - 1] = args.get(c).get("value");
+        }
+      } else if ("makeConcat".equals(name)) {
+        recipe = "\u0001".repeat(params.length());
+        constants = new Object[0];
+      } else {
+        throw new Unsupported("Cannot interpret invokedynamic with " + name);
+      }
+      op[pc] = Op.CONCAT;
+      ref[pc] = new Concat(recipe, constants, params, words(params));
+    }
+
+    /** The descriptor of a jvm2json type, like {@code "int"} or {@code {"kind": "class", ...}}. */
+    @SuppressWarnings("unchecked")
+    private static String descriptor(Object type) {
+      if (type instanceof String base) {
+        return switch (base) {
+          case "byte" -> "B";
+          case "char" -> "C";
+          case "double" -> "D";
+          case "float" -> "F";
+          case "int" -> "I";
+          case "long" -> "J";
+          case "short" -> "S";
+          case "boolean" -> "Z";
+          default -> throw new Unsupported("Unknown type " + base);
+        };
+      }
+      var map = (Map<String, Object>) type;
+      return map.get("kind").equals("array")
+          ? "[" + descriptor(map.get("type"))
+          : "L" + map.get("name") + ";";
+    }
+
+    /** The internal name of a class, or the descriptor of an array. */
+    @SuppressWarnings("unchecked")
+    private static String className(Object type) {
+      var map = (Map<String, Object>) type;
+      return map.get("kind").equals("array") ? descriptor(map) : (String) map.get("name");
+    }
+
+    private static int index(String[] names, String name) {
+      for (int i = 0; i < names.length; i++) {
+        if (names[i].equals(name)) {
+          return i;
+        }
+      }
+      throw new Unsupported("Unknown " + name);
+    }
+
+    private static int integer(Object value) {
+      return ((Number) value).intValue();
+    }
+  }
+}
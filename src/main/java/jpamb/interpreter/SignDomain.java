@@ -0,0 +1,193 @@
+package jpamb.interpreter;
+
+/**
+ * The signs of ints and longs, as a set of negative, zero and positive in
+ * the three bits of a mask, so a join is an or and an abstract value is
+ * one of eight boxed {@code Integer}s that are never allocated.
+ *
+ * Arithmetic wraps around, as it does on the JVM, so the sum of two
+ * positive values may be negative, and the negation of a negative value may
+ * be the smallest one, which is negative. Each operation is a table from
+ * the masks of its operands, built from the result of every pair of signs.
+ */
+final class SignDomain implements Domain<Integer> {
+  static final int NEG = 1;
+  static final int ZERO = 2;
+  static final int POS = 4;
+  static final int TOP = NEG | ZERO | POS;
+
+  /** The result of each binary operation by opcode and the masks of its operands. */
+  private static final byte[][] BINARY = new byte[Op.COUNT][];
+  /** The values of x where x cond y may hold, by condition and the masks of x and y. */
+  private static final byte[][] ASSUME = new byte[6][];
+
+  static {
+    for (int op = Op.IADD; op <= Op.LXOR; op++) {
+      if (op < Op.FADD || op > Op.DNEG && op != Op.IINC) {
+        BINARY[op] = table(op);
+      }
+    }
+    BINARY[Op.LCMP] = table(Op.LCMP);
+    for (int c = 0; c < 6; c++) {
+      ASSUME[c] = new byte[64];
+      for (int x = 0; x < 8; x++) {
+        for (int y = 0; y < 8; y++) {
+          int result = 0;
+          for (int sx = NEG; sx <= POS; sx <<= 1) {
+            for (int sy = NEG; sy <= POS; sy <<= 1) {
+              if ((x & sx) != 0 && (y & sy) != 0 && holds(Op.IFEQ + c, sx, sy)) {
+                result |= sx;
+              }
+            }
+          }
+          ASSUME[c][x * 8 + y] = (byte) result;
+        }
+      }
+    }
+  }
+
+  @Override
+  public Integer top() {
+    return TOP;
+  }
+
+  @Override
+  public Integer bottom() {
+    return 0;
+  }
+
+  @Override
+  public boolean isBottom(Integer v) {
+    return v == 0;
+  }
+
+  @Override
+  public Integer range(long lo, long hi) {
+    int mask = 0;
+    if (lo < 0) {
+      mask |= NEG;
+    }
+    if (lo <= 0 && hi >= 0) {
+      mask |= ZERO;
+    }
+    if (hi > 0) {
+      mask |= POS;
+    }
+    return lo > hi ? 0 : mask;
+  }
+
+  @Override
+  public boolean contains(Integer v, long value) {
+    return (v & range(value, value)) != 0;
+  }
+
+  @Override
+  public Integer join(Integer a, Integer b) {
+    return a | b;
+  }
+
+  @Override
+  public Integer binary(int op, Integer a, Integer b) {
+    return (int) BINARY[op][a * 8 + b];
+  }
+
+  @Override
+  public Integer unary(int op, Integer a) {
+    int result = a & ZERO;
+    if ((a & POS) != 0) {
+      result |= switch (op) {
+        case Op.INEG, Op.LNEG -> NEG;
+        case Op.I2L -> POS;
+        case Op.I2C -> ZERO | POS;
+        default -> TOP;
+      };
+    }
+    if ((a & NEG) != 0) {
+      result |= switch (op) {
+        case Op.INEG, Op.LNEG -> NEG | POS;
+        case Op.I2L -> NEG;
+        case Op.I2C -> ZERO | POS;
+        default -> TOP;
+      };
+    }
+    return result;
+  }
+
+  @Override
+  public Integer assume(int cond, Integer x, Integer y) {
+    return (int) ASSUME[cond - Op.IFEQ][x * 8 + y];
+  }
+
+  @Override
+  public String toString() {
+    return "signs";
+  }
+
+  /** The signs of a mask, like {@code {-, 0}}. */
+  static String toString(int mask) {
+    var s = new StringBuilder("{");
+    for (int sign = NEG; sign <= POS; sign <<= 1) {
+      if ((mask & sign) != 0) {
+        s.append(s.length() > 1 ? ", " : "").append(sign == NEG ? "-" : sign == ZERO ? "0" : "+");
+      }
+    }
+    return s.append('}').toString();
+  }
+
+  private static byte[] table(int op) {
+    byte[] table = new byte[64];
+    for (int x = 0; x < 8; x++) {
+      for (int y = 0; y < 8; y++) {
+        int result = 0;
+        for (int sx = NEG; sx <= POS; sx <<= 1) {
+          for (int sy = NEG; sy <= POS; sy <<= 1) {
+            if ((x & sx) != 0 && (y & sy) != 0) {
+              result |= signs(op, sx, sy);
+            }
+          }
+        }
+        table[x * 8 + y] = (byte) result;
+      }
+    }
+    return table;
+  }
+
+  /** The signs of {@code x op y} for a value of sign x and one of sign y, with wraparound. */
+  private static int signs(int op, int x, int y) {
+    if (op >= Op.LADD && op <= Op.LREM) {
+      op -= Op.LADD - Op.IADD;
+    } else if (op >= Op.LSHL && op <= Op.LXOR) {
+      op -= Op.LSHL - Op.ISHL;
+    }
+    return switch (op) {
+      case Op.IADD -> x == ZERO ? y : y == ZERO ? x : x == POS && y == POS ? NEG | POS : TOP;
+      case Op.ISUB -> y == ZERO ? x
+          : x == ZERO ? (y == POS ? NEG : NEG | POS)
+          : x == y ? TOP : NEG | POS;
+      case Op.IMUL -> x == ZERO || y == ZERO ? ZERO : TOP;
+      // The smallest value divided by -1 is itself.
+      case Op.IDIV -> y == ZERO ? 0 : x == ZERO ? ZERO : x == y ? (x == NEG ? TOP : ZERO | POS) : ZERO | NEG;
+      case Op.IREM -> y == ZERO ? 0 : x | ZERO;
+      case Op.ISHL -> x == ZERO ? ZERO : y == ZERO ? x : TOP;
+      case Op.ISHR -> x == ZERO || y == ZERO ? x : x == POS ? ZERO | POS : NEG;
+      case Op.IUSHR -> x == ZERO || y == ZERO ? x : x == POS ? ZERO | POS : NEG | POS;
+      case Op.IAND -> x == ZERO || y == ZERO ? ZERO : x == NEG && y == NEG ? NEG : ZERO | POS;
+      case Op.IOR -> x == ZERO ? y : y == ZERO ? x : x == NEG || y == NEG ? NEG : POS;
+      case Op.IXOR -> x == ZERO ? y : y == ZERO ? x : x == y ? ZERO | POS : NEG;
+      case Op.LCMP -> x == y ? (x == ZERO ? ZERO : TOP) : x < y ? NEG : POS;
+      default -> throw new IllegalArgumentException("Not a binary operation: " + op);
+    };
+  }
+
+  /** Whether {@code x cond y} may hold for a value of sign x and one of sign y. */
+  private static boolean holds(int cond, int x, int y) {
+    return switch (cond) {
+      case Op.IFEQ -> x == y;
+      case Op.IFNE -> x != ZERO || y != ZERO;
+      case Op.IFLT -> x < y || x == y && x != ZERO;
+      case Op.IFGE -> x > y || x == y;
+      case Op.IFGT -> x > y || x == y && x != ZERO;
+      default -> x < y || x == y;
+    };
+  }
+}
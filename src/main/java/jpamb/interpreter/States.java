@@ -0,0 +1,94 @@
+package jpamb.interpreter;
+
+import java.util.Arrays;
+
+/**
+ * A bounded set of program states, each encoded as words, see
+ * {@link Interpreter}. Every state is kept once, in an open addressing
+ * table, and compared in full, so a state is only found when the exact
+ * same one was visited before. When the set is full it forgets every
+ * state and starts over, which only delays finding a cycle longer than
+ * the set holds.
+ */
+final class States {
+  private static final int MAX_STATES = 1 << 14;
+  private static final int MAX_WORDS = 1 << 22;
+
+  private long[][] table = new long[64][];
+  private int[] hashes = new int[64];
+  private int size;
+  private int words;
+  private int forgotten;
+
+  /** Whether this state was visited before, remembering it if not. */
+  boolean visit(long[] state, int length) {
+    int hash = hash(state, length);
+    int mask = table.length - 1;
+    int i = hash & mask;
+    for (long[] s = table[i]; s != null; s = table[i = (i + 1) & mask]) {
+      if (hashes[i] == hash && Arrays.equals(s, 0, s.length, state, 0, length)) {
+        return true;
+      }
+    }
+    if (size == MAX_STATES || words + length > MAX_WORDS) {
+      clear();
+      forgotten++;
+      i = hash & (table.length - 1);
+    } else if (2 * (size + 1) > table.length) {
+      grow();
+      mask = table.length - 1;
+      i = hash & mask;
+      while (table[i] != null) {
+        i = (i + 1) & mask;
+      }
+    }
+    table[i] = Arrays.copyOf(state, length);
+    hashes[i] = hash;
+    size++;
+    words += length;
+    return false;
+  }
+
+  /** How many times the set was full and forgot its states. */
+  int forgotten() {
+    return forgotten;
+  }
+
+  void clear() {
+    Arrays.fill(table, null);
+    size = 0;
+    words = 0;
+  }
+
+  /** Forget all states, and how many times that happened. */
+  void reset() {
+    clear();
+    forgotten = 0;
+  }
+
+  private void grow() {
+    long[][] old = table;
+    int[] oldHashes = hashes;
+    table = new long[2 * old.length][];
+    hashes = new int[table.length];
+    int mask = table.length - 1;
+    for (int j = 0; j < old.length; j++) {
+      if (old[j] != null) {
+        int i = oldHashes[j] & mask;
+        while (table[i] != null) {
+          i = (i + 1) & mask;
+        }
+        table[i] = old[j];
+        hashes[i] = oldHashes[j];
+      }
+    }
+  }
+
+  private static int hash(long[] state, int length) {
+    long h = length;
+    for (int i = 0; i < length; i++) {
+      h = (h ^ state[i]) * 0x9e3779b97f4a7c15L;
+    }
+    return (int) (h ^ (h >>> 32));
+  }
+}
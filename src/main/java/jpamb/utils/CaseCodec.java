@@ -0,0 +1,125 @@
+package jpamb.utils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import jpamb.utils.CaseContent.ResultType;
+
+/**
+ * A binary format for cases, so case corpora can be stored and exchanged
+ * without parsing text. Written by {@link CaseWriter} and read by
+ * {@link CaseReader}.
+ *
+ * A stream starts with the magic {@code JPMB} and a version byte, followed
+ * by one record per case:
+ *
+ * <pre>
+ * record := id params result
+ * id     := varint n, and if n is the number of ids seen so far, a string
+ * params := varint count, then per param a tag byte and the value
+ * result := byte
+ * </pre>
+ *
+ * Ints are zigzag varints, chars varints, doubles 8 bytes, booleans a byte,
+ * strings a varint length and UTF-8, and arrays a varint length followed by
+ * the elements, where boolean arrays are packed 8 to a byte.
+ *
+ * Run as a program it converts between the text format of
+ * {@code target/stats/cases.txt} and the binary format:
+ *
+ * <pre>
+ * java jpamb.utils.CaseCodec encode cases.txt cases.bin
+ * java jpamb.utils.CaseCodec decode cases.bin cases.txt
+ * </pre>
+ */
+public final class CaseCodec {
+  private CaseCodec() {
+  }
+
+  static final byte[] MAGIC = { 'J', 'P', 'M', 'B' };
+  static final int VERSION = 1;
+
+  static final int INT = 1;
+  static final int DOUBLE = 2;
+  static final int CHAR = 3;
+  static final int BOOLEAN = 4;
+  static final int STRING = 5;
+  static final int INT_ARRAY = 6;
+  static final int CHAR_ARRAY = 7;
+  static final int BOOLEAN_ARRAY = 8;
+
+  /** The results by their code, the order is part of the format. */
+  static final ResultType[] RESULTS = {
+      ResultType.SUCCESS,
+      ResultType.ASSERTION_ERROR,
+      ResultType.DIVIDE_BY_ZERO,
+      ResultType.OUT_OF_BOUNDS,
+      ResultType.NULL_POINTER,
+      ResultType.NON_TERMINATION,
+  };
+
+  static int code(ResultType result) {
+    return switch (result) {
+      case SUCCESS -> 0;
+      case ASSERTION_ERROR -> 1;
+      case DIVIDE_BY_ZERO -> 2;
+      case OUT_OF_BOUNDS -> 3;
+      case NULL_POINTER -> 4;
+      case NON_TERMINATION -> 5;
+    };
+  }
+
+  /** A case of a method. */
+  public record Entry(String id, CaseContent content) {
+
+    /** Parse a line like {@code jpamb.cases.Simple.divideByN:(I)I  (0) -> divide by zero}. */
+    public static Entry parse(String line) {
+      line = line.strip();
+      int space = line.indexOf(' ');
+      if (space < 0) {
+        throw new RuntimeException("Invalid case: " + line);
+      }
+      return new Entry(line.substring(0, space), CaseContent.parse(line.substring(space + 1)));
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%-60s %s", id, content);
+    }
+  }
+
+  public static void encode(Path text, Path binary) throws IOException {
+    try (var in = Files.newBufferedReader(text, StandardCharsets.UTF_8);
+        var out = new CaseWriter(Files.newOutputStream(binary))) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        if (!line.isBlank()) {
+          out.write(Entry.parse(line));
+        }
+      }
+    }
+  }
+
+  public static void decode(Path binary, Path text) throws IOException {
+    try (var in = new CaseReader(Files.newInputStream(binary));
+        var out = new PrintWriter(Files.newBufferedWriter(text, StandardCharsets.UTF_8))) {
+      Entry entry;
+      while ((entry = in.read()) != null) {
+        out.println(entry);
+      }
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 3 && args[0].equals("encode")) {
+      encode(Path.of(args[1]), Path.of(args[2]));
+    } else if (args.length == 3 && args[0].equals("decode")) {
+      decode(Path.of(args[1]), Path.of(args[2]));
+    } else {
+      System.err.println("usage: CaseCodec (encode <text> <binary> | decode <binary> <text>)");
+      System.exit(2);
+    }
+  }
+}
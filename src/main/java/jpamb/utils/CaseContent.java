@@ -4,16 +4,19 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.TimeoutException;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public record CaseContent(
     Object[] params,
     ResultType result) {
 
   public String toString() {
+    return toInputsString(params) + " -> " + result.toString();
+  }
+
+  /** An input, like {@code (1, 'a', [I:1, 2])}. */
+  public static String toInputsString(Object[] params) {
     List<String> sparams = Arrays.asList(params).stream().map(CaseContent::toInputString).toList();
-    return "(" + String.join(", ", sparams) + ") -> " + result.toString();
+    return "(" + String.join(", ", sparams) + ")";
   }
 
   public static String toInputString(Object obj) {
@@ -25,23 +28,41 @@ public record CaseContent(
         chars.add("'" + x + "'");
       }
       return "[C:" + String.join(", ", chars) + "]";
+    } else if (obj instanceof boolean[]) {
+      return "[Z:" + Arrays.toString((boolean[]) obj).substring(1);
+    } else if (obj instanceof String s) {
+      return "\"" + checkString(s) + "\"";
+    } else if (obj instanceof Character) {
+      return "'" + obj + "'";
     } else {
       return obj.toString();
     }
 
   }
 
+  /**
+   * A string input is written between double quotes, without escapes, as
+   * {@link InputParser} and {@code jpamb/jvm/base.py} read it. So it cannot
+   * contain a double quote, nor a backslash, which would be read as an
+   * escape elsewhere, nor an arrow, which separates the input from the
+   * result.
+   */
+  static String checkString(String s) {
+    if (s.indexOf('"') >= 0 || s.indexOf('\\') >= 0 || s.contains("->")) {
+      throw new IllegalArgumentException("Cannot write a string with '\"', '\\' or '->' as an input: " + s);
+    }
+    return s;
+  }
+
   public static CaseContent parse(String string) {
-    Pattern pattern = Pattern.compile("(\\([^)]*\\))\\s*->\\s*(.+)");
-    Matcher matcher = pattern.matcher(string);
-    // Parse the expression
-    if (matcher.find()) {
-      String args = matcher.group(1);
-      String result = matcher.group(2);
-      return new CaseContent(InputParser.parse(args), ResultType.parse(result));
-    } else {
+    // Neither the input nor the result contain an arrow, see checkString.
+    int arrow = string.lastIndexOf("->");
+    if (arrow < 0) {
       throw new RuntimeException("Invalid case: " + string);
     }
+    String args = string.substring(0, arrow).strip();
+    String result = string.substring(arrow + 2).strip();
+    return new CaseContent(InputParser.parse(args), ResultType.parse(result));
   }
 
   public static enum ResultType {
@@ -89,20 +110,37 @@ public record CaseContent(
       }
     }
 
+    /** The result of throwing {@code cause}, which is kept if it is not a result. */
     public static ResultType fromThrowable(Throwable cause) {
-      if (cause instanceof ArithmeticException) {
+      ResultType result = of(cause.getClass());
+      if (result == null) {
+        throw new IllegalArgumentException("Unexpected " + cause, cause);
+      }
+      return result;
+    }
+
+    /** The result of throwing an instance of this class. */
+    public static ResultType fromThrowable(Class<?> cause) {
+      ResultType result = of(cause);
+      if (result == null) {
+        throw new IllegalArgumentException("Unexpected " + cause.getName());
+      }
+      return result;
+    }
+
+    private static ResultType of(Class<?> cause) {
+      if (ArithmeticException.class.isAssignableFrom(cause)) {
         return DIVIDE_BY_ZERO;
-      } else if (cause instanceof AssertionError) {
+      } else if (AssertionError.class.isAssignableFrom(cause)) {
         return ASSERTION_ERROR;
-      } else if (cause instanceof TimeoutException) {
+      } else if (TimeoutException.class.isAssignableFrom(cause)) {
         return NON_TERMINATION;
-      } else if (cause instanceof ArrayIndexOutOfBoundsException) {
+      } else if (ArrayIndexOutOfBoundsException.class.isAssignableFrom(cause)) {
         return OUT_OF_BOUNDS;
-      } else if (cause instanceof NullPointerException) {
+      } else if (NullPointerException.class.isAssignableFrom(cause)) {
         return NULL_POINTER;
-      } else {
-        throw new RuntimeException("Unexpected");
       }
+      return null;
     }
   }
 }
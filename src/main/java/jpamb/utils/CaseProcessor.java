@@ -0,0 +1,357 @@
+package jpamb.utils;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+
+/**
+ * An annotation processor that checks every {@link Case} while compiling,
+ * and writes the cases to an index class, {@code jpamb.CaseIndex}, and to a
+ * cases file, so listing the cases needs neither reflection nor parsing.
+ * It also writes {@code jpamb.CaseDispatch}, a {@code jpamb.Dispatcher}
+ * that calls the case methods directly.
+ *
+ * A case that does not parse, or whose inputs do not fit the parameters of
+ * its method, is a compile error. The processor has to be compiled before
+ * the cases, e.g.:
+ *
+ * <pre>
+ * javac -d target/processor src/main/java/jpamb/utils/*.java
+ * javac -processorpath target/processor -processor jpamb.utils.CaseProcessor \
+ *   -Ajpamb.classes=jpamb.cases.Simple,jpamb.cases.Loops \
+ *   -Ajpamb.cases=target/stats/cases.txt -d target/classes ...
+ * </pre>
+ *
+ * The option {@code jpamb.classes} limits the index to some classes, by
+ * default all classes with cases are indexed, and {@code jpamb.cases} is
+ * where to write the cases file, by default {@code cases.txt} in the class
+ * output.
+ */
+@SupportedAnnotationTypes({ "jpamb.utils.Case", "jpamb.utils.Cases", "jpamb.utils.Tag" })
+@SupportedOptions({ CaseProcessor.CLASSES, CaseProcessor.CASES })
+public class CaseProcessor extends AbstractProcessor {
+  static final String CLASSES = "jpamb.classes";
+  static final String CASES = "jpamb.cases";
+  static final String INDEX = "jpamb.CaseIndex";
+  static final String DISPATCH = "jpamb.CaseDispatch";
+
+  record Entry(String id, String content, String tags, Element origin) {
+    String line() {
+      return String.format("%-60s %s", id, content);
+    }
+  }
+
+  private final List<Entry> entries = new ArrayList<>();
+  private final Map<String, ExecutableElement> methods = new TreeMap<>();
+  private Set<String> classes;
+  private boolean written;
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public synchronized void init(ProcessingEnvironment env) {
+    super.init(env);
+    String option = env.getOptions().get(CLASSES);
+    if (option != null) {
+      classes = new HashSet<>(Arrays.asList(option.split("\\s*,\\s*")));
+    }
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+    var methods = new LinkedHashSet<Element>();
+    methods.addAll(round.getElementsAnnotatedWith(Case.class));
+    methods.addAll(round.getElementsAnnotatedWith(Cases.class));
+    for (Element e : methods) {
+      if (included(e)) {
+        index((ExecutableElement) e);
+      }
+    }
+    for (Element e : round.getElementsAnnotatedWith(Tag.class)) {
+      if (e.getAnnotationsByType(Case.class).length == 0) {
+        warning(e, "@Tag on a method without cases");
+      }
+    }
+    if (!written && !round.processingOver()) {
+      // Write in the first round, so the index is compiled with the cases.
+      write();
+      written = true;
+    }
+    return false;
+  }
+
+  private boolean included(Element method) {
+    if (classes == null) {
+      return true;
+    }
+    var cls = (TypeElement) method.getEnclosingElement();
+    return classes.contains(processingEnv.getElementUtils().getBinaryName(cls).toString());
+  }
+
+  private void index(ExecutableElement m) {
+    var cls = (TypeElement) m.getEnclosingElement();
+    Set<Modifier> modifiers = m.getModifiers();
+    if (!modifiers.contains(Modifier.STATIC) || !modifiers.contains(Modifier.PUBLIC)) {
+      error(m, "Expected a case method to be public and static");
+      return;
+    }
+
+    StringBuilder sig = new StringBuilder("(");
+    for (VariableElement p : m.getParameters()) {
+      descriptor(p.asType(), sig);
+    }
+    sig.append(")");
+    descriptor(m.getReturnType(), sig);
+    String id = processingEnv.getElementUtils().getBinaryName(cls) + "." + m.getSimpleName() + ":" + sig;
+
+    List<String> tags = new ArrayList<>();
+    Tag tag = m.getAnnotation(Tag.class);
+    if (tag != null) {
+      for (Tag.TagType t : tag.value()) {
+        tags.add(t.name());
+      }
+    }
+
+    for (Case c : m.getAnnotationsByType(Case.class)) {
+      CaseContent content;
+      try {
+        content = CaseContent.parse(c.value());
+      } catch (RuntimeException e) {
+        error(m, "Invalid case \"" + c.value() + "\": " + e.getMessage());
+        continue;
+      }
+      String mismatch = mismatch(content.params(), m.getParameters());
+      if (mismatch != null) {
+        error(m, "Invalid case \"" + c.value() + "\": " + mismatch);
+        continue;
+      }
+      entries.add(new Entry(id, content.toString(), String.join(",", tags), m));
+      methods.put(id, m);
+    }
+  }
+
+  private static String mismatch(Object[] params, List<? extends VariableElement> expected) {
+    if (params.length != expected.size()) {
+      return "expected " + expected.size() + " inputs, but got " + params.length;
+    }
+    for (int i = 0; i < params.length; i++) {
+      TypeMirror type = expected.get(i).asType();
+      if (!fits(params[i], type)) {
+        return "input " + (i + 1) + " does not fit " + type;
+      }
+    }
+    return null;
+  }
+
+  private static boolean fits(Object value, TypeMirror type) {
+    return switch (type.getKind()) {
+      case INT -> value instanceof Integer;
+      case DOUBLE -> value instanceof Double;
+      case BOOLEAN -> value instanceof Boolean;
+      case CHAR -> value instanceof Character;
+      case ARRAY -> switch (((ArrayType) type).getComponentType().getKind()) {
+        case INT -> value instanceof int[];
+        case CHAR -> value instanceof char[];
+        case BOOLEAN -> value instanceof boolean[];
+        default -> false;
+      };
+      case DECLARED -> value instanceof String && type.toString().equals("java.lang.String");
+      default -> false;
+    };
+  }
+
+  private void descriptor(TypeMirror type, StringBuilder b) {
+    switch (type.getKind()) {
+      case VOID -> b.append('V');
+      case INT -> b.append('I');
+      case BOOLEAN -> b.append('Z');
+      case DOUBLE -> b.append('D');
+      case FLOAT -> b.append('F');
+      case CHAR -> b.append('C');
+      case LONG -> b.append('J');
+      case SHORT -> b.append('S');
+      case BYTE -> b.append('B');
+      case ARRAY -> {
+        b.append('[');
+        descriptor(((ArrayType) type).getComponentType(), b);
+      }
+      case DECLARED, TYPEVAR -> {
+        var erased = processingEnv.getTypeUtils().erasure(type);
+        var element = (TypeElement) processingEnv.getTypeUtils().asElement(erased);
+        b.append('L')
+            .append(processingEnv.getElementUtils().getBinaryName(element).toString().replace('.', '/'))
+            .append(';');
+      }
+      default -> throw new IllegalArgumentException("Unknown type: " + type);
+    }
+  }
+
+  private void write() {
+    entries.sort(Comparator.comparing(Entry::line));
+    Element[] origins = entries.stream().map(Entry::origin).toArray(Element[]::new);
+    try (Writer w = processingEnv.getFiler().createSourceFile(INDEX, origins).openWriter()) {
+      writeIndex(new PrintWriter(w));
+    } catch (IOException e) {
+      error(null, "Could not write " + INDEX + ": " + e.getMessage());
+    }
+    try (Writer w = processingEnv.getFiler().createSourceFile(DISPATCH, origins).openWriter()) {
+      writeDispatch(new PrintWriter(w));
+    } catch (IOException e) {
+      error(null, "Could not write " + DISPATCH + ": " + e.getMessage());
+    }
+
+    String option = processingEnv.getOptions().get(CASES);
+    try {
+      Writer w;
+      if (option != null) {
+        Path file = Path.of(option);
+        if (file.getParent() != null) {
+          Files.createDirectories(file.getParent());
+        }
+        w = Files.newBufferedWriter(file);
+      } else {
+        w = processingEnv.getFiler()
+            .createResource(StandardLocation.CLASS_OUTPUT, "", "cases.txt", origins)
+            .openWriter();
+      }
+      try (var out = new PrintWriter(w)) {
+        for (Entry e : entries) {
+          out.println(e.line());
+        }
+      }
+    } catch (IOException e) {
+      error(null, "Could not write the cases file: " + e.getMessage());
+    }
+  }
+
+  private void writeIndex(PrintWriter out) {
+    out.println("package jpamb;");
+    out.println();
+    out.println("/** Generated by jpamb.utils.CaseProcessor, do not edit. */");
+    out.println("public final class CaseIndex {");
+    out.println("  private CaseIndex() {");
+    out.println("  }");
+    out.println();
+    out.println("  /** The method id of each case. */");
+    out.println("  public static final String[] IDS = {");
+    for (Entry e : entries) {
+      out.println("    " + literal(e.id()) + ",");
+    }
+    out.println("  };");
+    out.println();
+    out.println("  /** The inputs and expected result of each case. */");
+    out.println("  public static final String[] CASES = {");
+    for (Entry e : entries) {
+      out.println("    " + literal(e.content()) + ",");
+    }
+    out.println("  };");
+    out.println();
+    out.println("  /** The tags of the method of each case, comma separated. */");
+    out.println("  public static final String[] TAGS = {");
+    for (Entry e : entries) {
+      out.println("    " + literal(e.tags()) + ",");
+    }
+    out.println("  };");
+    out.println("}");
+    out.flush();
+  }
+
+  private void writeDispatch(PrintWriter out) {
+    List<String> ids = new ArrayList<>(methods.keySet());
+    out.println("package jpamb;");
+    out.println();
+    out.println("/** Generated by jpamb.utils.CaseProcessor, do not edit. */");
+    out.println("public final class CaseDispatch implements Dispatcher {");
+    out.println("  private static final int[] ARITY = {");
+    for (String id : ids) {
+      out.println("    " + methods.get(id).getParameters().size() + ",");
+    }
+    out.println("  };");
+    out.println();
+    out.println("  @Override");
+    out.println("  public int lookup(String id) {");
+    out.println("    return switch (id) {");
+    for (int i = 0; i < ids.size(); i++) {
+      out.println("      case " + literal(ids.get(i)) + " -> " + i + ";");
+    }
+    out.println("      default -> -1;");
+    out.println("    };");
+    out.println("  }");
+    out.println();
+    out.println("  @Override");
+    out.println("  public int arity(int index) {");
+    out.println("    return ARITY[index];");
+    out.println("  }");
+    out.println();
+    out.println("  @Override");
+    out.println("  public void invoke(int index, Object[] args) throws Throwable {");
+    out.println("    switch (index) {");
+    for (int i = 0; i < ids.size(); i++) {
+      out.println("      case " + i + " -> " + call(methods.get(ids.get(i))) + ";");
+    }
+    out.println("      default -> throw new IllegalArgumentException(\"Unknown case: \" + index);");
+    out.println("    }");
+    out.println("  }");
+    out.println("}");
+    out.flush();
+  }
+
+  private String call(ExecutableElement m) {
+    var cls = (TypeElement) m.getEnclosingElement();
+    StringBuilder b = new StringBuilder();
+    b.append(cls.getQualifiedName()).append('.').append(m.getSimpleName()).append('(');
+    var params = m.getParameters();
+    for (int i = 0; i < params.size(); i++) {
+      if (i > 0) {
+        b.append(", ");
+      }
+      TypeMirror type = processingEnv.getTypeUtils().erasure(params.get(i).asType());
+      b.append('(').append(type).append(") args[").append(i).append(']');
+    }
+    return b.append(')').toString();
+  }
+
+  static String literal(String s) {
+    StringBuilder b = new StringBuilder("\"");
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      switch (c) {
+        case '"' -> b.append("\\\"");
+        case '\\' -> b.append("\\\\");
+        case '\n' -> b.append("\\n");
+        case '\r' -> b.append("\\r");
+        case '\t' -> b.append("\\t");
+        default -> {
+          if (c < 0x20 || c > 0x7e) {
+            b.append(String.format("\\u%04x", (int) c));
+          } else {
+            b.append(c);
+          }
+        }
+      }
+    }
+    return b.append('"').toString();
+  }
+
+  private void error(Element e, String msg) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, msg, e);
+  }
+
+  private void warning(Element e, String msg) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, msg, e);
+  }
+}
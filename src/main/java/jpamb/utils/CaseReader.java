@@ -0,0 +1,143 @@
+package jpamb.utils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static jpamb.utils.CaseCodec.*;
+
+/** Reads cases in the binary format described in {@link CaseCodec}. */
+public class CaseReader implements Closeable {
+  private final DataInputStream in;
+  private final List<String> ids = new ArrayList<>();
+
+  public CaseReader(InputStream input) throws IOException {
+    this.in = new DataInputStream(new BufferedInputStream(input));
+    byte[] magic = new byte[MAGIC.length];
+    in.readFully(magic);
+    if (!Arrays.equals(magic, MAGIC)) {
+      throw new IOException("Not a case file");
+    }
+    int version = in.readUnsignedByte();
+    if (version != VERSION) {
+      throw new IOException("Unsupported case file version " + version + ", expected " + VERSION);
+    }
+  }
+
+  /** The next case, or null at the end of the stream. */
+  public Entry read() throws IOException {
+    int first = in.read();
+    if (first < 0) {
+      return null;
+    }
+    int index = readVarInt(first);
+    String id;
+    if (index == ids.size()) {
+      id = readString();
+      ids.add(id);
+    } else if (index < ids.size()) {
+      id = ids.get(index);
+    } else {
+      throw new IOException("Invalid id reference " + index);
+    }
+    Object[] params = new Object[readLength(1)];
+    for (int i = 0; i < params.length; i++) {
+      params[i] = readParam();
+    }
+    int result = in.readUnsignedByte();
+    if (result >= RESULTS.length) {
+      throw new IOException("Invalid result code " + result);
+    }
+    return new Entry(id, new CaseContent(params, RESULTS[result]));
+  }
+
+  private Object readParam() throws IOException {
+    int tag = in.readUnsignedByte();
+    switch (tag) {
+      case INT:
+        return unzigzag(readVarInt());
+      case DOUBLE:
+        return in.readDouble();
+      case CHAR:
+        return (char) readVarInt();
+      case BOOLEAN:
+        return in.readBoolean();
+      case STRING:
+        return readString();
+      case INT_ARRAY: {
+        int[] xs = new int[readLength(1)];
+        for (int i = 0; i < xs.length; i++) {
+          xs[i] = unzigzag(readVarInt());
+        }
+        return xs;
+      }
+      case CHAR_ARRAY: {
+        char[] cs = new char[readLength(1)];
+        for (int i = 0; i < cs.length; i++) {
+          cs[i] = (char) readVarInt();
+        }
+        return cs;
+      }
+      case BOOLEAN_ARRAY: {
+        boolean[] bs = new boolean[readLength(8)];
+        for (int i = 0; i < bs.length; i += 8) {
+          int bits = in.readUnsignedByte();
+          for (int j = 0; j < 8 && i + j < bs.length; j++) {
+            bs[i + j] = (bits & (1 << j)) != 0;
+          }
+        }
+        return bs;
+      }
+      default:
+        throw new IOException("Invalid input tag " + tag);
+    }
+  }
+
+  private static int unzigzag(int x) {
+    return (x >>> 1) ^ -(x & 1);
+  }
+
+  private int readVarInt() throws IOException {
+    return readVarInt(in.readUnsignedByte());
+  }
+
+  private int readVarInt(int b) throws IOException {
+    int x = b & 0x7f;
+    for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+      if (shift > 28) {
+        throw new IOException("Invalid varint");
+      }
+      b = in.readUnsignedByte();
+      x |= (b & 0x7f) << shift;
+    }
+    return x;
+  }
+
+  /**
+   * A length of elements that fit at most {@code perByte} to a byte. The
+   * length is checked against the bytes left in the stream before anything
+   * of that length is allocated, so a corrupt file cannot ask for a negative
+   * or huge array. The bytes left are what {@link InputStream#available()}
+   * says, which is exact for files and byte arrays.
+   */
+  private int readLength(int perByte) throws IOException {
+    int length = readVarInt();
+    if (length < 0 || ((long) length + perByte - 1) / perByte > in.available()) {
+      throw new IOException("Invalid length " + Integer.toUnsignedString(length));
+    }
+    return length;
+  }
+
+  private String readString() throws IOException {
+    byte[] bytes = new byte[readLength(1)];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
@@ -0,0 +1,114 @@
+package jpamb.utils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static jpamb.utils.CaseCodec.*;
+
+/** Writes cases in the binary format described in {@link CaseCodec}. */
+public class CaseWriter implements Closeable, Flushable {
+  private final DataOutputStream out;
+  private final Map<String, Integer> ids = new HashMap<>();
+
+  public CaseWriter(OutputStream output) throws IOException {
+    this.out = new DataOutputStream(new BufferedOutputStream(output));
+    out.write(MAGIC);
+    out.writeByte(VERSION);
+  }
+
+  public void write(Entry entry) throws IOException {
+    write(entry.id(), entry.content());
+  }
+
+  public void write(String id, CaseContent content) throws IOException {
+    Integer known = ids.get(id);
+    if (known != null) {
+      writeVarInt(known);
+    } else {
+      writeVarInt(ids.size());
+      ids.put(id, ids.size());
+      writeString(id);
+    }
+    Object[] params = content.params();
+    writeVarInt(params.length);
+    for (Object param : params) {
+      writeParam(param);
+    }
+    out.writeByte(code(content.result()));
+  }
+
+  private void writeParam(Object param) throws IOException {
+    if (param instanceof Integer i) {
+      out.writeByte(INT);
+      writeVarInt(zigzag(i));
+    } else if (param instanceof Double d) {
+      out.writeByte(DOUBLE);
+      out.writeDouble(d);
+    } else if (param instanceof Character c) {
+      out.writeByte(CHAR);
+      writeVarInt(c);
+    } else if (param instanceof Boolean b) {
+      out.writeByte(BOOLEAN);
+      out.writeBoolean(b);
+    } else if (param instanceof String s) {
+      out.writeByte(STRING);
+      writeString(s);
+    } else if (param instanceof int[] xs) {
+      out.writeByte(INT_ARRAY);
+      writeVarInt(xs.length);
+      for (int x : xs) {
+        writeVarInt(zigzag(x));
+      }
+    } else if (param instanceof char[] cs) {
+      out.writeByte(CHAR_ARRAY);
+      writeVarInt(cs.length);
+      for (char c : cs) {
+        writeVarInt(c);
+      }
+    } else if (param instanceof boolean[] bs) {
+      out.writeByte(BOOLEAN_ARRAY);
+      writeVarInt(bs.length);
+      for (int i = 0; i < bs.length; i += 8) {
+        int bits = 0;
+        for (int j = 0; j < 8 && i + j < bs.length; j++) {
+          if (bs[i + j]) {
+            bits |= 1 << j;
+          }
+        }
+        out.writeByte(bits);
+      }
+    } else {
+      throw new IllegalArgumentException("Cannot encode input " + param);
+    }
+  }
+
+  private static int zigzag(int x) {
+    return (x << 1) ^ (x >> 31);
+  }
+
+  private void writeVarInt(int x) throws IOException {
+    while ((x & ~0x7f) != 0) {
+      out.writeByte((x & 0x7f) | 0x80);
+      x >>>= 7;
+    }
+    out.writeByte(x);
+  }
+
+  private void writeString(String s) throws IOException {
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    writeVarInt(bytes.length);
+    out.write(bytes);
+  }
+
+  @Override
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+}
@@ -0,0 +1,179 @@
+package jpamb.utils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JVM type descriptors, like {@code I}, {@code [[J} or
+ * {@code Ljava/lang/String;}, in both directions.
+ *
+ * Parsing walks the descriptor with an index and does not allocate
+ * anything but the result, and parsed parameter lists are interned, so
+ * looking up a descriptor a second time is a single hash lookup.
+ */
+public final class Descriptor {
+  private Descriptor() {
+  }
+
+  private static final Map<String, Class<?>[]> parameters = new ConcurrentHashMap<>();
+
+  /**
+   * The parameter types of the parameter list {@code params}, e.g.
+   * {@code I[CLjava/lang/String;}. The array is shared between callers and
+   * must not be modified.
+   */
+  public static Class<?>[] parameters(String params) {
+    Class<?>[] types = parameters.get(params);
+    if (types == null) {
+      types = parse(params);
+      parameters.put(params, types);
+    }
+    return types;
+  }
+
+  /**
+   * The parameter types of {@code s}, like {@link #parameters(String)}, but
+   * parsed every time into a fresh array.
+   */
+  public static Class<?>[] parse(String s) {
+    int count = 0;
+    for (int i = 0; i < s.length(); i = skip(s, i)) {
+      count++;
+    }
+    Class<?>[] types = new Class<?>[count];
+    int i = 0;
+    for (int k = 0; k < count; k++) {
+      types[k] = type(s, i);
+      i = skip(s, i);
+    }
+    return types;
+  }
+
+  /** The index just after the type starting at {@code i}. */
+  private static int skip(String s, int i) {
+    int start = i;
+    while (i < s.length() && s.charAt(i) == '[') {
+      i++;
+    }
+    if (i >= s.length()) {
+      throw invalid(s, start);
+    }
+    switch (s.charAt(i)) {
+      case 'B', 'C', 'D', 'F', 'I', 'J', 'S', 'Z' -> {
+        return i + 1;
+      }
+      case 'L' -> {
+        int semicolon = s.indexOf(';', i);
+        if (semicolon < 0) {
+          throw invalid(s, start);
+        }
+        return semicolon + 1;
+      }
+      default -> throw invalid(s, start);
+    }
+  }
+
+  /** The type starting at {@code i}. */
+  private static Class<?> type(String s, int i) {
+    switch (s.charAt(i)) {
+      case 'B':
+        return byte.class;
+      case 'C':
+        return char.class;
+      case 'D':
+        return double.class;
+      case 'F':
+        return float.class;
+      case 'I':
+        return int.class;
+      case 'J':
+        return long.class;
+      case 'S':
+        return short.class;
+      case 'Z':
+        return boolean.class;
+      case 'V':
+        return void.class;
+      case '[':
+        return type(s, i + 1).arrayType();
+      case 'L': {
+        String className = s.substring(i + 1, s.indexOf(';', i)).replace('/', '.');
+        try {
+          return Class.forName(className, false, Descriptor.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+          throw new RuntimeException("Unknown class type: " + className);
+        }
+      }
+      default:
+        throw invalid(s, i);
+    }
+  }
+
+  /** The type of a single descriptor, e.g. {@code [I} or {@code V}. */
+  public static Class<?> type(String descriptor) {
+    if (descriptor.equals("V")) {
+      return void.class;
+    }
+    if (skip(descriptor, 0) != descriptor.length()) {
+      throw invalid(descriptor, 0);
+    }
+    return type(descriptor, 0);
+  }
+
+  private static IllegalArgumentException invalid(String s, int i) {
+    return new IllegalArgumentException("Invalid descriptor at " + i + ": " + s);
+  }
+
+  public static void print(Class<?> c, StringBuilder b) {
+    if (c.isArray()) {
+      b.append('[');
+      print(c.getComponentType(), b);
+    } else if (c.isPrimitive()) {
+      b.append(primitive(c));
+    } else {
+      b.append('L').append(c.getName().replace('.', '/')).append(';');
+    }
+  }
+
+  private static char primitive(Class<?> c) {
+    if (c == int.class) {
+      return 'I';
+    } else if (c == boolean.class) {
+      return 'Z';
+    } else if (c == double.class) {
+      return 'D';
+    } else if (c == char.class) {
+      return 'C';
+    } else if (c == void.class) {
+      return 'V';
+    } else if (c == long.class) {
+      return 'J';
+    } else if (c == float.class) {
+      return 'F';
+    } else if (c == short.class) {
+      return 'S';
+    } else if (c == byte.class) {
+      return 'B';
+    }
+    throw new IllegalArgumentException("Unknown type: " + c);
+  }
+
+  public static String print(Class<?> c) {
+    StringBuilder b = new StringBuilder();
+    print(c, b);
+    return b.toString();
+  }
+
+  /** The descriptor of a method, e.g. {@code (I[C)V}. */
+  public static String method(Method m) {
+    StringBuilder b = new StringBuilder();
+    b.append('(');
+    for (Class<?> c : m.getParameterTypes()) {
+      print(c, b);
+    }
+    b.append(')');
+    print(m.getReturnType(), b);
+    return b.toString();
+  }
+}
@@ -1,14 +1,27 @@
 package jpamb.utils;
 
 import java.util.ArrayList;
-import java.util.Scanner;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
+import java.util.Arrays;
+
+/**
+ * Parses inputs like {@code (1, 'a', [I:1, 2], [Z:true], "str")} in a single
+ * pass over the characters. The lexer works on indices into the input, and
+ * numbers are decoded while scanning, so no tokens or patterns are
+ * allocated.
+ */
 public class InputParser {
-  private Scanner sc;
-  private String currentToken;
-  private final String input;
+  private final CharSequence input;
+  private final int length;
+
+  private int pos;
+  private Token token;
+  private int start;
+  private int intValue;
+  private char arrayType;
+
+  private enum Token {
+    LPAREN, RPAREN, RBRACKET, COMMA, INT, DOUBLE, CHAR, STRING, TRUE, FALSE, ARRAY, EOF
+  }
 
   public static class ParseError extends RuntimeException {
     public ParseError(String err, String input) {
@@ -16,172 +29,295 @@ public class InputParser {
     }
   }
 
-  public InputParser(String input) {
+  public InputParser(CharSequence input) {
     this.input = input;
-    sc = new Scanner(input);
-    sc.useDelimiter("\\s*");
+    this.length = input.length();
     nextToken();
   }
 
   private void nextToken() {
-    if (sc.hasNext()) {
-      currentToken = sc.findWithinHorizon(
-          "[-]?[0-9]*\\.[0-9]+|" +   
-          "[-]?[0-9]+|" +           
-          "\\[[ICZ]:|" +             
-          "\\(|\\)|\\]|," +          
-          "|'[^']*'" +               
-          "|\"[^\"]*\"" +            
-          "|true|false",            
-          0);
-    } else {
-      currentToken = null;
+    while (pos < length && Character.isWhitespace(input.charAt(pos))) {
+      pos++;
     }
-  }
-
-  private void expect(String expected) {
-    if (!expected.equals(currentToken)) {
-      expected(expected);
+    start = pos;
+    if (pos >= length) {
+      token = Token.EOF;
+      return;
+    }
+    char c = input.charAt(pos);
+    switch (c) {
+      case '(' -> single(Token.LPAREN);
+      case ')' -> single(Token.RPAREN);
+      case ']' -> single(Token.RBRACKET);
+      case ',' -> single(Token.COMMA);
+      case '[' -> {
+        if (pos + 2 < length && input.charAt(pos + 2) == ':') {
+          arrayType = input.charAt(pos + 1);
+          pos += 3;
+          token = Token.ARRAY;
+        } else {
+          unexpected();
+        }
+      }
+      case '\'' -> {
+        if (pos + 2 < length && input.charAt(pos + 2) == '\'') {
+          intValue = input.charAt(pos + 1);
+          pos += 3;
+          token = Token.CHAR;
+        } else {
+          unexpected();
+        }
+      }
+      case '"' -> {
+        int close = pos + 1;
+        while (close < length && input.charAt(close) != '"') {
+          // There are no escapes, see CaseContent.checkString.
+          char s = input.charAt(close);
+          if (s == '\\' || s == '-' && close + 1 < length && input.charAt(close + 1) == '>') {
+            throw new ParseError("Unsupported '" + (s == '\\' ? "\\" : "->") + "' in string at " + close,
+                input.toString());
+          }
+          close++;
+        }
+        if (close >= length) {
+          unexpected();
+        }
+        pos = close + 1;
+        token = Token.STRING;
+      }
+      default -> {
+        if (c == '-' || isDigit(c)) {
+          number();
+        } else if (keyword("true")) {
+          token = Token.TRUE;
+        } else if (keyword("false")) {
+          token = Token.FALSE;
+        } else {
+          unexpected();
+        }
+      }
     }
-    nextToken();
   }
 
-  public static Object[] parse(String inputs) {
-    return new InputParser(inputs).parseInputs();
+  private void single(Token t) {
+    pos++;
+    token = t;
   }
 
-  private Object parseInput() {
-    if (currentToken != null && currentToken.matches("[-]?[0-9]+\\.[0-9]+")) {
-      double value = Double.parseDouble(currentToken);
-      nextToken();
-      return value;
-    }
-    else if (currentToken != null && currentToken.matches("[-]?[0-9]+")) {
-      int value = Integer.parseInt(currentToken);
-      nextToken();
-      return value;
-    }
-    if (currentToken != null && currentToken.matches("\"[^\"]*\"")) {
-      String s = currentToken.substring(1, currentToken.length() - 1); // strip quotes
-      nextToken();
-      return s;
-    }
-    if (currentToken != null && currentToken.matches("'[^']+'")) {
-      char c = currentToken.charAt(1);
-      nextToken();
-      return c;
-    }
-    else if ("true".equals(currentToken)) {
-      nextToken();
-      return true;
-    } else if ("false".equals(currentToken)) {
-      nextToken();
+  private boolean keyword(String word) {
+    int end = pos + word.length();
+    if (end > length) {
+      return false;
+    }
+    for (int i = 0; i < word.length(); i++) {
+      if (input.charAt(pos + i) != word.charAt(i)) {
+        return false;
+      }
+    }
+    if (end < length && Character.isLetterOrDigit(input.charAt(end))) {
       return false;
-    } else if ("[I:".equals(currentToken)) {
-      return parseIntList();
-    } else if ("[C:".equals(currentToken)) {
-      return parseCharList();
-    } else {
-      expected("input");
-      return null;
     }
+    pos = end;
+    return true;
   }
 
-  private void expected(String expected) {
-    throw new ParseError("Expected " + expected + " but got '" + currentToken + "'", input);
+  private void number() {
+    boolean negative = input.charAt(pos) == '-';
+    if (negative) {
+      pos++;
+    }
+    // The magnitude of Integer.MIN_VALUE is one more than Integer.MAX_VALUE.
+    long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+    long value = 0;
+    boolean overflow = false;
+    int digits = pos;
+    while (pos < length && isDigit(input.charAt(pos))) {
+      if (!overflow) {
+        value = value * 10 + (input.charAt(pos) - '0');
+        overflow = value > limit;
+      }
+      pos++;
+    }
+    if (pos == digits) {
+      unexpected();
+    }
+    if (pos + 1 < length && input.charAt(pos) == '.' && isDigit(input.charAt(pos + 1))) {
+      pos++;
+      while (pos < length && isDigit(input.charAt(pos))) {
+        pos++;
+      }
+      token = Token.DOUBLE;
+      return;
+    }
+    if (overflow) {
+      throw new ParseError("Integer out of range '" + text() + "'", input.toString());
+    }
+    intValue = (int) (negative ? -value : value);
+    token = Token.INT;
   }
 
-  private Object parseIntList() {
-    ArrayList<Integer> items = new ArrayList<>();
-    expect("[I:");
-
-    if (currentToken == null)
-      expected("integer or ]");
-
-    if (currentToken.equals("]")) {
-      nextToken();
-      return new int[] {};
-    }
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
 
-    if (!currentToken.matches("[0-9]+"))
-      expected("integer");
+  private String text() {
+    return input.subSequence(start, pos).toString();
+  }
 
-    items.add(Integer.parseInt(currentToken));
-    nextToken();
+  private void unexpected() {
+    throw new ParseError("Unexpected character '" + input.charAt(start) + "' at " + start,
+        input.toString());
+  }
 
-    while (currentToken != null && currentToken.equals(",")) {
-      nextToken();
-      if (currentToken == null || !currentToken.matches("[0-9]+"))
-        expected("integer");
-      items.add(Integer.parseInt(currentToken));
-      nextToken();
+  private void expect(Token expected, String name) {
+    if (token != expected) {
+      expected(name);
     }
+    nextToken();
+  }
 
-    expect("]");
+  public static Object[] parse(String inputs) {
+    return new InputParser(inputs).parseInputs();
+  }
 
-    int[] output = new int[items.size()];
-    for (int i = 0; i < items.size(); i++) {
-      output[i] = items.get(i);
+  private Object parseInput() {
+    switch (token) {
+      case INT -> {
+        int value = intValue;
+        nextToken();
+        return value;
+      }
+      case DOUBLE -> {
+        double value = Double.parseDouble(text());
+        nextToken();
+        return value;
+      }
+      case STRING -> {
+        String s = input.subSequence(start + 1, pos - 1).toString();
+        nextToken();
+        return s;
+      }
+      case CHAR -> {
+        char c = (char) intValue;
+        nextToken();
+        return c;
+      }
+      case TRUE -> {
+        nextToken();
+        return true;
+      }
+      case FALSE -> {
+        nextToken();
+        return false;
+      }
+      case ARRAY -> {
+        switch (arrayType) {
+          case 'I':
+            return parseIntArray();
+          case 'C':
+            return parseCharArray();
+          case 'Z':
+            return parseBooleanArray();
+          default:
+            expected("input");
+            return null;
+        }
+      }
+      default -> {
+        expected("input");
+        return null;
+      }
     }
-    return output;
   }
 
-  private Object parseCharList() {
-    ArrayList<Character> items = new ArrayList<>();
-    expect("[C:");
+  private void expected(String expected) {
+    String got = token == Token.EOF ? "end of input" : text();
+    throw new ParseError("Expected " + expected + " but got '" + got + "'", input.toString());
+  }
 
-    if (currentToken == null)
-      expected("char or ]");
+  // The arrays are collected in primitive buffers, which double when full,
+  // and are trimmed to size at the end.
 
-    if (currentToken.equals("]")) {
-      nextToken();
-      return new char[] {};
+  private int[] parseIntArray() {
+    int[] items = new int[8];
+    int size = 0;
+    nextToken();
+    if (token != Token.RBRACKET) {
+      while (true) {
+        if (token != Token.INT)
+          expected("integer");
+        if (size == items.length)
+          items = Arrays.copyOf(items, size * 2);
+        items[size++] = intValue;
+        nextToken();
+        if (token != Token.COMMA)
+          break;
+        nextToken();
+      }
     }
+    expect(Token.RBRACKET, "]");
+    return size == items.length ? items : Arrays.copyOf(items, size);
+  }
 
-    if (!currentToken.matches("'[^']+'"))
-      expected("char");
-
-    items.add(currentToken.charAt(1));
+  private char[] parseCharArray() {
+    char[] items = new char[8];
+    int size = 0;
     nextToken();
-
-    while (currentToken != null && currentToken.equals(",")) {
-      nextToken();
-      if (currentToken == null || !currentToken.matches("'[^']+'"))
-        expected("char");
-      items.add(currentToken.charAt(1));
-      nextToken();
+    if (token != Token.RBRACKET) {
+      while (true) {
+        if (token != Token.CHAR)
+          expected("char");
+        if (size == items.length)
+          items = Arrays.copyOf(items, size * 2);
+        items[size++] = (char) intValue;
+        nextToken();
+        if (token != Token.COMMA)
+          break;
+        nextToken();
+      }
     }
+    expect(Token.RBRACKET, "]");
+    return size == items.length ? items : Arrays.copyOf(items, size);
+  }
 
-    expect("]");
-
-    char[] output = new char[items.size()];
-    for (int i = 0; i < items.size(); i++) {
-      output[i] = items.get(i);
+  private boolean[] parseBooleanArray() {
+    boolean[] items = new boolean[8];
+    int size = 0;
+    nextToken();
+    if (token != Token.RBRACKET) {
+      while (true) {
+        if (token != Token.TRUE && token != Token.FALSE)
+          expected("boolean");
+        if (size == items.length)
+          items = Arrays.copyOf(items, size * 2);
+        items[size++] = token == Token.TRUE;
+        nextToken();
+        if (token != Token.COMMA)
+          break;
+        nextToken();
+      }
     }
-    return output;
+    expect(Token.RBRACKET, "]");
+    return size == items.length ? items : Arrays.copyOf(items, size);
   }
 
   private Object[] parseInputs() {
     ArrayList<Object> list = new ArrayList<>();
 
-    expect("(");
+    expect(Token.LPAREN, "(");
 
-    if (currentToken == null)
-      expected("input or )");
-
-    if (currentToken.equals(")")) {
-      nextToken();
-      return new Object[] {};
-    }
-
-    list.add(parseInput());
-
-    while (currentToken != null && currentToken.equals(",")) {
-      nextToken();
+    if (token != Token.RPAREN) {
       list.add(parseInput());
+      while (token == Token.COMMA) {
+        nextToken();
+        list.add(parseInput());
+      }
     }
 
-    expect(")");
+    expect(Token.RPAREN, ")");
+    if (token != Token.EOF) {
+      expected("end of input");
+    }
     return list.toArray();
   }
 
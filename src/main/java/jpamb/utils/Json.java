@@ -0,0 +1,141 @@
+package jpamb.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON values as plain Java objects: maps with string keys, lists, strings,
+ * numbers, booleans and null.
+ *
+ * Values are written exactly like Python's
+ * {@code json.dump(value, indent=2, sort_keys=True)}, which is how
+ * {@code cli.py} writes the decompiled classes, so files written from Java
+ * and from Python can be compared byte for byte.
+ */
+public final class Json {
+  private Json() {
+  }
+
+  public static String write(Object value) {
+    StringBuilder b = new StringBuilder();
+    write(value, b);
+    return b.toString();
+  }
+
+  public static void write(Object value, Appendable out) {
+    try {
+      write(value, out, 0);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void write(Object value, Appendable out, int depth) throws IOException {
+    if (value == null) {
+      out.append("null");
+    } else if (value instanceof String s) {
+      string(s, out);
+    } else if (value instanceof Boolean bool) {
+      out.append(bool ? "true" : "false");
+    } else if (value instanceof Double || value instanceof Float) {
+      out.append(number(((Number) value).doubleValue()));
+    } else if (value instanceof Number n) {
+      out.append(n.toString());
+    } else if (value instanceof Map<?, ?> map) {
+      if (map.isEmpty()) {
+        out.append("{}");
+        return;
+      }
+      List<String> keys = new ArrayList<>();
+      for (Object key : map.keySet()) {
+        keys.add((String) key);
+      }
+      Collections.sort(keys);
+      out.append('{');
+      for (int i = 0; i < keys.size(); i++) {
+        out.append(i == 0 ? "\n" : ",\n");
+        indent(out, depth + 1);
+        string(keys.get(i), out);
+        out.append(": ");
+        write(map.get(keys.get(i)), out, depth + 1);
+      }
+      out.append('\n');
+      indent(out, depth);
+      out.append('}');
+    } else if (value instanceof List<?> list) {
+      if (list.isEmpty()) {
+        out.append("[]");
+        return;
+      }
+      out.append('[');
+      for (int i = 0; i < list.size(); i++) {
+        out.append(i == 0 ? "\n" : ",\n");
+        indent(out, depth + 1);
+        write(list.get(i), out, depth + 1);
+      }
+      out.append('\n');
+      indent(out, depth);
+      out.append(']');
+    } else {
+      throw new IllegalArgumentException("Not a JSON value: " + value.getClass());
+    }
+  }
+
+  private static void indent(Appendable out, int depth) throws IOException {
+    for (int i = 0; i < depth; i++) {
+      out.append("  ");
+    }
+  }
+
+  /** A string, with everything outside printable ASCII escaped. */
+  private static void string(String s, Appendable out) throws IOException {
+    out.append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      switch (c) {
+        case '"' -> out.append("\\\"");
+        case '\\' -> out.append("\\\\");
+        case '\n' -> out.append("\\n");
+        case '\r' -> out.append("\\r");
+        case '\t' -> out.append("\\t");
+        case '\b' -> out.append("\\b");
+        case '\f' -> out.append("\\f");
+        default -> {
+          if (c < 0x20 || c > 0x7e) {
+            out.append(String.format("\\u%04x", (int) c));
+          } else {
+            out.append(c);
+          }
+        }
+      }
+    }
+    out.append('"');
+  }
+
+  /** A number, formatted like Python's {@code repr} of a float. */
+  private static String number(double x) {
+    if (Double.isNaN(x)) {
+      return "NaN";
+    } else if (Double.isInfinite(x)) {
+      return x > 0 ? "Infinity" : "-Infinity";
+    } else if (x == 0) {
+      return 1 / x < 0 ? "-0.0" : "0.0";
+    }
+    BigDecimal d = new BigDecimal(Double.toString(x)).stripTrailingZeros();
+    String digits = d.unscaledValue().abs().toString();
+    int exponent = digits.length() - 1 - d.scale();
+    String sign = x < 0 ? "-" : "";
+    if (exponent < -4 || exponent >= 16) {
+      String mantissa = digits.length() == 1 ? digits : digits.charAt(0) + "." + digits.substring(1);
+      return sign + mantissa + "e" + (exponent < 0 ? "-" : "+")
+          + (Math.abs(exponent) < 10 ? "0" : "") + Math.abs(exponent);
+    }
+    String plain = d.abs().toPlainString();
+    return sign + (plain.contains(".") ? plain : plain + ".0");
+  }
+}
@@ -0,0 +1,80 @@
+package jpamb;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * A small harness for the Java tests, which run without any test library.
+ *
+ * A test class has a {@code main} that calls {@link #run(Class)}, which
+ * calls each of its static methods named {@code test...}, and reports every
+ * failure. The process exits with 1 if any test failed, which is what
+ * {@code test/test_java.py} checks.
+ */
+public final class Check {
+  private Check() {
+  }
+
+  public static void run(Class<?> tests) {
+    int failed = 0;
+    Method[] methods = tests.getDeclaredMethods();
+    Arrays.sort(methods, Comparator.comparing(Method::getName));
+    for (Method m : methods) {
+      if (!m.getName().startsWith("test") || !Modifier.isStatic(m.getModifiers())) {
+        continue;
+      }
+      m.setAccessible(true);
+      try {
+        m.invoke(null);
+      } catch (InvocationTargetException e) {
+        failed++;
+        System.out.println("FAIL " + tests.getSimpleName() + "." + m.getName());
+        e.getCause().printStackTrace(System.out);
+      } catch (IllegalAccessException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    if (failed > 0) {
+      System.exit(1);
+    }
+  }
+
+  /** Fails unless the two are equal, where arrays are compared by their elements. */
+  public static void equal(Object expected, Object actual) {
+    if (!Objects.deepEquals(expected, actual)) {
+      throw new AssertionError("Expected " + show(expected) + " but got " + show(actual));
+    }
+  }
+
+  public static void check(boolean condition, String message) {
+    if (!condition) {
+      throw new AssertionError(message);
+    }
+  }
+
+  public interface Action {
+    void run() throws Exception;
+  }
+
+  /** Fails unless the action throws an exception of the given type, which is returned. */
+  public static <T extends Throwable> T fails(Class<T> expected, Action action) {
+    try {
+      action.run();
+    } catch (Throwable e) {
+      if (expected.isInstance(e)) {
+        return expected.cast(e);
+      }
+      throw new AssertionError("Expected " + expected.getSimpleName() + " but got " + e, e);
+    }
+    throw new AssertionError("Expected " + expected.getSimpleName() + " but nothing was thrown");
+  }
+
+  private static String show(Object o) {
+    String s = Arrays.deepToString(new Object[] { o });
+    return s.substring(1, s.length() - 1);
+  }
+}
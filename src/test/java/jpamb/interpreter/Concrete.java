@@ -0,0 +1,111 @@
+package jpamb.interpreter;
+
+/**
+ * The operations of {@link Op} on concrete values, as the JVM computes
+ * them, which the tests of the domains check the abstract ones against.
+ */
+final class Concrete {
+  private Concrete() {
+  }
+
+  static final int[] BINARY = {
+      Op.IADD, Op.ISUB, Op.IMUL, Op.IDIV, Op.IREM, Op.ISHL, Op.ISHR, Op.IUSHR, Op.IAND, Op.IOR, Op.IXOR,
+      Op.LADD, Op.LSUB, Op.LMUL, Op.LDIV, Op.LREM, Op.LSHL, Op.LSHR, Op.LUSHR, Op.LAND, Op.LOR, Op.LXOR,
+      Op.LCMP,
+  };
+
+  static final int[] UNARY = { Op.INEG, Op.LNEG, Op.I2L, Op.L2I, Op.I2B, Op.I2C, Op.I2S };
+
+  static final int[] CONDITIONS = { Op.IFEQ, Op.IFNE, Op.IFLT, Op.IFGE, Op.IFGT, Op.IFLE };
+
+  static final long[] INTS = {
+      Integer.MIN_VALUE, Integer.MIN_VALUE + 1, -65536, -100, -7, -2, -1, 0, 1, 2, 3, 31, 32, 100, 65535,
+      Integer.MAX_VALUE - 1, Integer.MAX_VALUE,
+  };
+
+  static final long[] LONGS = {
+      Long.MIN_VALUE, Long.MIN_VALUE + 1, Integer.MIN_VALUE - 1L, -100, -7, -1, 0, 1, 2, 63, 64, 100,
+      Integer.MAX_VALUE + 1L, Long.MAX_VALUE - 1, Long.MAX_VALUE,
+  };
+
+  /** Whether the operation works on ints, so its operands are ints. */
+  static boolean isInt(int op) {
+    return op <= Op.IREM || op >= Op.ISHL && op <= Op.IXOR || op == Op.INEG || op == Op.I2L
+        || op >= Op.I2B && op <= Op.I2S;
+  }
+
+  /** The samples of the second operand, the shift distances of a long shift are ints. */
+  static long[] second(int op) {
+    return isInt(op) || op == Op.LSHL || op == Op.LSHR || op == Op.LUSHR ? INTS : LONGS;
+  }
+
+  /** The result of {@code x op y}, which throws an ArithmeticException when the JVM does. */
+  static long binary(int op, long x, long y) {
+    int a = (int) x;
+    int b = (int) y;
+    return switch (op) {
+      case Op.IADD -> a + b;
+      case Op.ISUB -> a - b;
+      case Op.IMUL -> a * b;
+      case Op.IDIV -> a / b;
+      case Op.IREM -> a % b;
+      case Op.ISHL -> a << b;
+      case Op.ISHR -> a >> b;
+      case Op.IUSHR -> a >>> b;
+      case Op.IAND -> a & b;
+      case Op.IOR -> a | b;
+      case Op.IXOR -> a ^ b;
+      case Op.LADD -> x + y;
+      case Op.LSUB -> x - y;
+      case Op.LMUL -> x * y;
+      case Op.LDIV -> x / y;
+      case Op.LREM -> x % y;
+      case Op.LSHL -> x << b;
+      case Op.LSHR -> x >> b;
+      case Op.LUSHR -> x >>> b;
+      case Op.LAND -> x & y;
+      case Op.LOR -> x | y;
+      case Op.LXOR -> x ^ y;
+      case Op.LCMP -> Long.compare(x, y);
+      default -> throw new IllegalArgumentException("Not a binary operation: " + op);
+    };
+  }
+
+  static long unary(int op, long x) {
+    return switch (op) {
+      case Op.INEG -> -(int) x;
+      case Op.LNEG -> -x;
+      case Op.I2L -> (int) x;
+      case Op.L2I -> (int) x;
+      case Op.I2B -> (byte) x;
+      case Op.I2C -> (char) x;
+      case Op.I2S -> (short) x;
+      default -> throw new IllegalArgumentException("Not a unary operation: " + op);
+    };
+  }
+
+  static boolean holds(int cond, long x, long y) {
+    return switch (cond) {
+      case Op.IFEQ -> x == y;
+      case Op.IFNE -> x != y;
+      case Op.IFLT -> x < y;
+      case Op.IFGE -> x >= y;
+      case Op.IFGT -> x > y;
+      case Op.IFLE -> x <= y;
+      default -> throw new IllegalArgumentException("Not a condition: " + cond);
+    };
+  }
+
+  static String name(int op) {
+    for (var field : Op.class.getDeclaredFields()) {
+      try {
+        if (field.getType() == int.class && field.getInt(null) == op && !field.getName().equals("COUNT")) {
+          return field.getName();
+        }
+      } catch (IllegalAccessException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    return Integer.toString(op);
+  }
+}
@@ -0,0 +1,195 @@
+package jpamb.interpreter;
+
+import static jpamb.Check.check;
+import static jpamb.Check.equal;
+import static jpamb.interpreter.IntervalDomain.BOTTOM;
+import static jpamb.interpreter.IntervalDomain.INT;
+import static jpamb.interpreter.IntervalDomain.TOP;
+import static jpamb.interpreter.IntervalDomain.of;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jpamb.Check;
+import jpamb.interpreter.IntervalDomain.Interval;
+
+public class IntervalDomainTest {
+  public static void main(String[] args) {
+    Check.run(IntervalDomainTest.class);
+  }
+
+  static final IntervalDomain intervals = new IntervalDomain();
+  static final long[] THRESHOLDS = { -10, 0, 10, 100 };
+
+  /** The intervals between every pair of samples, each with the samples in it. */
+  static List<Interval> between(long[] samples) {
+    List<Interval> result = new ArrayList<>();
+    for (long lo : samples) {
+      for (long hi : samples) {
+        if (lo <= hi) {
+          result.add(of(lo, hi));
+        }
+      }
+    }
+    return result;
+  }
+
+  static List<Long> members(Interval a, long[] samples) {
+    List<Long> result = new ArrayList<>();
+    for (long x : samples) {
+      if (a.lo() <= x && x <= a.hi()) {
+        result.add(x);
+      }
+    }
+    return result;
+  }
+
+  static void testCanonical() {
+    check(of(Integer.MIN_VALUE, Integer.MAX_VALUE) == INT, "expected INT");
+    check(of(Long.MIN_VALUE, Long.MAX_VALUE) == TOP, "expected TOP");
+    check(of(3, 1) == BOTTOM, "expected BOTTOM");
+    check(intervals.isBottom(of(0, -1)), "expected an empty interval to be bottom");
+    equal("[-inf, 5]", of(Long.MIN_VALUE, 5).toString());
+    equal("[]", BOTTOM.toString());
+  }
+
+  static void testJoin() {
+    equal(of(-3, 7), intervals.join(of(-3, 0), of(5, 7)));
+    Interval a = of(0, 10);
+    check(intervals.join(a, of(2, 3)) == a, "expected the larger interval itself");
+    check(intervals.join(BOTTOM, a) == a, "expected bottom to be the unit");
+  }
+
+  /** Every result of the JVM on values of two intervals is in the interval of the result. */
+  static void testBinaryIsSound() {
+    for (int op : Concrete.BINARY) {
+      long[] first = Concrete.isInt(op) ? Concrete.INTS : Concrete.LONGS;
+      long[] second = Concrete.second(op);
+      for (Interval a : between(first)) {
+        for (Interval b : between(second)) {
+          Interval result = intervals.binary(op, a, b);
+          for (long x : members(a, first)) {
+            for (long y : members(b, second)) {
+              long r;
+              try {
+                r = Concrete.binary(op, x, y);
+              } catch (ArithmeticException e) {
+                continue;
+              }
+              check(intervals.contains(result, r), Concrete.name(op) + " " + a + " " + b + " = "
+                  + result + " misses " + x + ", " + y + " = " + r);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  static void testBinaryIsPrecise() {
+    equal(of(4, 6), intervals.binary(Op.IADD, of(1, 2), of(3, 4)));
+    equal(of(-3, 1), intervals.binary(Op.ISUB, of(1, 2), of(1, 4)));
+    equal(of(-12, 8), intervals.binary(Op.IMUL, of(-2, 3), of(-4, 2)));
+    equal(of(Integer.MIN_VALUE, Integer.MIN_VALUE),
+        intervals.binary(Op.IADD, of(Integer.MAX_VALUE, Integer.MAX_VALUE), of(1, 1)));
+    equal(of(Integer.MIN_VALUE, Integer.MIN_VALUE + 1),
+        intervals.binary(Op.IADD, of(Integer.MAX_VALUE - 1, Integer.MAX_VALUE), of(2, 2)));
+    equal(INT, intervals.binary(Op.IADD, of(0, Integer.MAX_VALUE), of(1, 1)));
+    equal(TOP, intervals.binary(Op.LADD, of(0, Long.MAX_VALUE), of(1, 1)));
+    equal(of(-20, 20), intervals.binary(Op.IDIV, of(10, 20), of(-2, 2)));
+    equal(BOTTOM, intervals.binary(Op.IDIV, of(1, 5), of(0, 0)));
+    equal(of(-2, 2), intervals.binary(Op.IREM, of(-10, 10), of(3, 3)));
+    equal(of(0, 5), intervals.binary(Op.IAND, of(0, 5), of(-100, 100)));
+    equal(of(-1, -1), intervals.binary(Op.LCMP, of(1, 2), of(3, 4)));
+    equal(of(-1, 0), intervals.binary(Op.LCMP, of(1, 3), of(3, 4)));
+  }
+
+  static void testUnaryIsSound() {
+    for (int op : Concrete.UNARY) {
+      long[] samples = Concrete.isInt(op) ? Concrete.INTS : Concrete.LONGS;
+      for (Interval a : between(samples)) {
+        Interval result = intervals.unary(op, a);
+        for (long x : members(a, samples)) {
+          long r = Concrete.unary(op, x);
+          check(intervals.contains(result, r), Concrete.name(op) + " " + a + " = " + result
+              + " misses " + x + " = " + r);
+        }
+      }
+    }
+  }
+
+  static void testUnaryIsPrecise() {
+    equal(of(-5, 2), intervals.unary(Op.INEG, of(-2, 5)));
+    equal(of(Integer.MIN_VALUE, Integer.MIN_VALUE),
+        intervals.unary(Op.INEG, of(Integer.MIN_VALUE, Integer.MIN_VALUE)));
+    equal(of(Byte.MIN_VALUE, Byte.MAX_VALUE), intervals.unary(Op.I2B, of(0, 200)));
+    equal(of(0, 100), intervals.unary(Op.I2B, of(0, 100)));
+    equal(INT, intervals.unary(Op.I2L, TOP));
+    equal(INT, intervals.unary(Op.L2I, of(Long.MIN_VALUE, 0)));
+    equal(of(-1, 1), intervals.unary(Op.L2I, of((1L << 32) - 1, (1L << 32) + 1)));
+  }
+
+  /** A value for which the condition holds is kept by assume. */
+  static void testAssumeIsSound() {
+    for (int cond : Concrete.CONDITIONS) {
+      for (Interval a : between(Concrete.LONGS)) {
+        for (Interval b : between(Concrete.LONGS)) {
+          Interval kept = intervals.assume(cond, a, b);
+          for (long x : members(a, Concrete.LONGS)) {
+            for (long y : members(b, Concrete.LONGS)) {
+              if (Concrete.holds(cond, x, y)) {
+                check(intervals.contains(kept, x), Concrete.name(cond) + " " + a + " " + b + " = "
+                    + kept + " drops " + x + " for " + y);
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  static void testAssumeIsPrecise() {
+    equal(of(3, 5), intervals.assume(Op.IFEQ, of(0, 5), of(3, 10)));
+    equal(of(1, 5), intervals.assume(Op.IFNE, of(0, 5), of(0, 0)));
+    equal(of(0, 4), intervals.assume(Op.IFNE, of(0, 5), of(5, 5)));
+    equal(BOTTOM, intervals.assume(Op.IFNE, of(7, 7), of(7, 7)));
+    equal(of(0, 4), intervals.assume(Op.IFLT, of(0, 10), of(5, 5)));
+    equal(BOTTOM, intervals.assume(Op.IFLT, TOP, of(Long.MIN_VALUE, Long.MIN_VALUE)));
+    equal(of(6, 10), intervals.assume(Op.IFGT, of(0, 10), of(5, 8)));
+    equal(of(0, 8), intervals.assume(Op.IFLE, of(0, 10), of(5, 8)));
+  }
+
+  static void testWidenMovesToTheNextThreshold() {
+    equal(of(0, 10), intervals.widen(of(0, 0), of(0, 1), THRESHOLDS));
+    equal(of(0, 100), intervals.widen(of(0, 10), of(0, 11), THRESHOLDS));
+    equal(of(0, Long.MAX_VALUE), intervals.widen(of(0, 100), of(0, 101), THRESHOLDS));
+    equal(of(-10, 5), intervals.widen(of(0, 5), of(-1, 5), THRESHOLDS));
+    equal(of(Long.MIN_VALUE, 5), intervals.widen(of(-10, 5), of(-11, 5), THRESHOLDS));
+    equal(of(0, 10), intervals.widen(of(0, 5), of(0, 10), THRESHOLDS));
+    equal(TOP, intervals.widen(of(0, 0), of(-1, 1), new long[0]));
+  }
+
+  static void testWidenKeepsWhatDidNotGrow() {
+    Interval a = of(0, 10);
+    check(intervals.widen(a, of(2, 3), THRESHOLDS) == a, "expected the same interval");
+    check(intervals.widen(a, a, THRESHOLDS) == a, "expected the same interval");
+    equal(a, intervals.widen(BOTTOM, a, THRESHOLDS));
+    equal(a, intervals.widen(a, BOTTOM, THRESHOLDS));
+  }
+
+  /** Counting up in a loop, {@code i = i + 1}, stops at the thresholds and then at the end. */
+  static void testWidenConverges() {
+    Interval i = of(0, 0);
+    int steps = 0;
+    while (true) {
+      Interval next = intervals.widen(i, intervals.join(i, intervals.binary(Op.LADD, i, of(1, 1))),
+          THRESHOLDS);
+      if (next.equals(i)) {
+        break;
+      }
+      check(next.lo() <= i.lo() && i.hi() <= next.hi(), "expected " + next + " to contain " + i);
+      i = next;
+      check(++steps <= THRESHOLDS.length + 1, "expected a fixpoint, got " + i);
+    }
+    equal(TOP, i);
+  }
+}
@@ -0,0 +1,116 @@
+package jpamb.interpreter;
+
+import static jpamb.Check.equal;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import jpamb.Check;
+import jpamb.interpreter.Interpreter.Unsupported;
+import jpamb.utils.Case;
+import jpamb.utils.CaseContent;
+import jpamb.utils.Descriptor;
+import jpamb.utils.InputParser;
+
+/** Lockstep runs every case method of every case class like Interpreter. */
+public class LockstepTest {
+  public static void main(String[] args) {
+    Check.run(LockstepTest.class);
+  }
+
+  /** Some inputs besides those of the cases, so the lanes of a method diverge more. */
+  static final List<String> INTS = List.of("-7", "-1", "0", "1", "2", "11", "100");
+
+  static Path classes() throws URISyntaxException {
+    return Path.of(jpamb.cases.Simple.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+  }
+
+  static List<Class<?>> caseClasses(Path classes) throws IOException, ClassNotFoundException {
+    List<Class<?>> result = new ArrayList<>();
+    try (Stream<Path> files = Files.list(classes.resolve("jpamb/cases"))) {
+      for (Path file : files.sorted().toList()) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(".class") && !name.contains("$")) {
+          result.add(Class.forName("jpamb.cases." + name.substring(0, name.length() - 6)));
+        }
+      }
+    }
+    return result;
+  }
+
+  /** The result, or what was thrown instead, as a string to compare. */
+  static String outcome(Object result) {
+    return result == null ? "no result" : result.toString();
+  }
+
+  static String outcome(RuntimeException e) {
+    return e instanceof Unsupported ? "unsupported" : e instanceof IllegalArgumentException ? "no result" : e.toString();
+  }
+
+  static void testAgreesWithInterpreter() throws Exception {
+    Path classes = classes();
+    var interpreter = new Interpreter(List.of(classes));
+    var lockstep = new Lockstep(List.of(classes));
+    int methods = 0;
+    for (Class<?> c : caseClasses(classes)) {
+      Method[] declared = c.getDeclaredMethods();
+      Arrays.sort(declared, Comparator.comparing(Method::toString));
+      for (Method m : declared) {
+        Case[] cases = m.getAnnotationsByType(Case.class);
+        if (cases.length == 0) {
+          continue;
+        }
+        methods++;
+        String id = c.getName() + "." + m.getName() + ":" + Descriptor.method(m);
+        List<Object[]> inputs = new ArrayList<>();
+        for (Case k : cases) {
+          // Only the input, as some cases expect results that are not a ResultType,
+          // and only inputs that parse, as some are like (null), which no runner takes.
+          try {
+            inputs.add(InputParser.parse(k.value().substring(0, k.value().lastIndexOf("->")).strip()));
+          } catch (InputParser.ParseError e) {
+            continue;
+          }
+        }
+        if (Arrays.equals(m.getParameterTypes(), new Class<?>[] { int.class })) {
+          for (String i : INTS) {
+            inputs.add(InputParser.parse("(" + i + ")"));
+          }
+        }
+        List<String> expected = new ArrayList<>();
+        for (Object[] input : inputs) {
+          try {
+            expected.add(outcome(interpreter.run(id, input)));
+          } catch (RuntimeException e) {
+            expected.add(outcome(e));
+          }
+        }
+        List<String> actual = new ArrayList<>();
+        try {
+          for (Object result : lockstep.run(id, inputs.toArray(new Object[0][]))) {
+            actual.add(outcome(result));
+          }
+        } catch (RuntimeException e) {
+          for (int i = 0; i < inputs.size(); i++) {
+            actual.add(outcome(e));
+          }
+        }
+        for (int i = 0; i < inputs.size(); i++) {
+          if (!expected.get(i).equals(actual.get(i))) {
+            throw new AssertionError(id + " " + CaseContent.toInputsString(inputs.get(i)) + ": Interpreter gives "
+                + expected.get(i) + " but Lockstep " + actual.get(i));
+          }
+        }
+      }
+    }
+    Check.check(methods > 100, "expected the case methods of every case class, got " + methods);
+  }
+}
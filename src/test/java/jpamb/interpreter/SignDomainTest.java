@@ -0,0 +1,126 @@
+package jpamb.interpreter;
+
+import static jpamb.Check.check;
+import static jpamb.Check.equal;
+import static jpamb.interpreter.SignDomain.NEG;
+import static jpamb.interpreter.SignDomain.POS;
+import static jpamb.interpreter.SignDomain.TOP;
+import static jpamb.interpreter.SignDomain.ZERO;
+
+import jpamb.Check;
+
+public class SignDomainTest {
+  public static void main(String[] args) {
+    Check.run(SignDomainTest.class);
+  }
+
+  static final SignDomain signs = new SignDomain();
+
+  static void testRange() {
+    equal(NEG, signs.range(-5, -1));
+    equal(ZERO, signs.range(0, 0));
+    equal(POS, signs.range(1, Long.MAX_VALUE));
+    equal(NEG | ZERO, signs.range(Integer.MIN_VALUE, 0));
+    equal(TOP, signs.range(-1, 1));
+    equal(0, signs.range(1, 0));
+    check(signs.contains(NEG | POS, -3), "expected -3 in {-, +}");
+    check(!signs.contains(NEG | POS, 0), "expected no 0 in {-, +}");
+    equal(TOP, signs.join(NEG, ZERO | POS));
+    equal("{-, +}", SignDomain.toString(NEG | POS));
+    equal("{}", SignDomain.toString(0));
+  }
+
+  /** Every result of the JVM on two values has a sign in the table of their signs. */
+  static void testBinaryIsSound() {
+    for (int op : Concrete.BINARY) {
+      for (long x : Concrete.isInt(op) ? Concrete.INTS : Concrete.LONGS) {
+        for (long y : Concrete.second(op)) {
+          long r;
+          try {
+            r = Concrete.binary(op, x, y);
+          } catch (ArithmeticException e) {
+            continue;
+          }
+          int signsOf = signs.binary(op, signs.constant(x), signs.constant(y));
+          check(signs.contains(signsOf, r), Concrete.name(op) + " " + x + " " + y + " = " + r
+              + " is not in " + SignDomain.toString(signsOf));
+        }
+      }
+    }
+  }
+
+  /** A set of signs is the union of its members, so the table is the union of the single signs. */
+  static void testBinaryIsTheUnionOfSingleSigns() {
+    for (int op : Concrete.BINARY) {
+      for (int a = 0; a < 8; a++) {
+        for (int b = 0; b < 8; b++) {
+          int union = 0;
+          for (int sa = NEG; sa <= POS; sa <<= 1) {
+            for (int sb = NEG; sb <= POS; sb <<= 1) {
+              if ((a & sa) != 0 && (b & sb) != 0) {
+                union |= signs.binary(op, sa, sb);
+              }
+            }
+          }
+          equal(union, signs.binary(op, a, b));
+        }
+      }
+    }
+  }
+
+  static void testBinaryIsPrecise() {
+    equal(NEG | POS, signs.binary(Op.IADD, POS, POS));
+    equal(NEG, signs.binary(Op.IADD, NEG, ZERO));
+    equal(ZERO, signs.binary(Op.IMUL, ZERO, TOP));
+    equal(0, signs.binary(Op.IDIV, TOP, ZERO));
+    equal(ZERO | POS, signs.binary(Op.IDIV, POS, POS));
+    equal(ZERO | POS, signs.binary(Op.IREM, POS, NEG));
+    equal(ZERO | POS, signs.binary(Op.IAND, POS, NEG));
+    equal(NEG, signs.binary(Op.LCMP, NEG, POS));
+    equal(ZERO, signs.binary(Op.LCMP, ZERO, ZERO));
+    equal(NEG | POS, signs.binary(Op.LADD, POS, POS));
+  }
+
+  static void testUnaryIsSound() {
+    for (int op : Concrete.UNARY) {
+      for (long x : Concrete.isInt(op) ? Concrete.INTS : Concrete.LONGS) {
+        long r = Concrete.unary(op, x);
+        int signsOf = signs.unary(op, signs.constant(x));
+        check(signs.contains(signsOf, r), Concrete.name(op) + " " + x + " = " + r
+            + " is not in " + SignDomain.toString(signsOf));
+      }
+    }
+  }
+
+  static void testUnaryIsPrecise() {
+    equal(NEG, signs.unary(Op.INEG, POS));
+    equal(NEG | POS, signs.unary(Op.INEG, NEG));
+    equal(NEG, signs.unary(Op.I2L, NEG));
+    equal(ZERO | POS, signs.unary(Op.I2C, NEG));
+    equal(0, signs.unary(Op.I2B, 0));
+  }
+
+  /** A value for which the condition holds is kept by assume. */
+  static void testAssumeIsSound() {
+    for (int cond : Concrete.CONDITIONS) {
+      for (long x : Concrete.LONGS) {
+        for (long y : Concrete.LONGS) {
+          if (Concrete.holds(cond, x, y)) {
+            int kept = signs.assume(cond, signs.constant(x), signs.constant(y));
+            check(signs.contains(kept, x), Concrete.name(cond) + " " + x + " " + y + " drops " + x);
+          }
+        }
+      }
+    }
+  }
+
+  static void testAssumeIsPrecise() {
+    equal(ZERO, signs.assume(Op.IFEQ, TOP, ZERO));
+    equal(NEG | POS, signs.assume(Op.IFNE, TOP, ZERO));
+    equal(0, signs.assume(Op.IFNE, ZERO, ZERO));
+    equal(0, signs.assume(Op.IFGT, NEG | ZERO, ZERO));
+    equal(NEG, signs.assume(Op.IFLE, TOP, NEG));
+    equal(TOP, signs.assume(Op.IFGE, TOP, NEG));
+    equal(0, signs.assume(Op.IFLT, POS, 0));
+  }
+}
@@ -0,0 +1,126 @@
+package jpamb.utils;
+
+import static jpamb.Check.equal;
+import static jpamb.Check.fails;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import jpamb.Check;
+import jpamb.utils.CaseCodec.Entry;
+
+public class CaseCodecTest {
+  public static void main(String[] args) {
+    Check.run(CaseCodecTest.class);
+  }
+
+  static final List<String> LINES = List.of(
+      "jpamb.cases.Simple.justReturn:()I () -> ok",
+      "jpamb.cases.Simple.divideByN:(I)I (0) -> divide by zero",
+      "jpamb.cases.Simple.divideByN:(I)I (-2147483648) -> ok",
+      "jpamb.cases.Simple.justAdd:(II)I (2147483647, -1) -> ok",
+      "jpamb.cases.Signs.addDoubles:(DD)V (-1.0, 2.5) -> ok",
+      "jpamb.cases.Tricky.chars:(CZ)V ('x', true) -> assertion error",
+      "jpamb.cases.Signs.concatStrings:(Ljava/lang/String;Ljava/lang/String;)V (\"foo\", \"\") -> ok",
+      "jpamb.cases.Arrays.arrays:([I[C[Z)V ([I:1, -300, 70000], [C:'h'], [Z:true, false, true, true, false, false, true, false, true]) -> *",
+      "jpamb.cases.Arrays.arrays:([I[C[Z)V ([I:], [C:], [Z:]) -> out of bounds",
+      "jpamb.cases.Simple.justReturn:()I () -> null pointer");
+
+  static List<Entry> entries() {
+    List<Entry> entries = new ArrayList<>();
+    for (String line : LINES) {
+      entries.add(Entry.parse(line));
+    }
+    return entries;
+  }
+
+  static byte[] encode(List<Entry> entries) throws IOException {
+    var bytes = new ByteArrayOutputStream();
+    try (var out = new CaseWriter(bytes)) {
+      for (Entry entry : entries) {
+        out.write(entry);
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  static List<Entry> decode(byte[] bytes) throws IOException {
+    List<Entry> entries = new ArrayList<>();
+    try (var in = new CaseReader(new ByteArrayInputStream(bytes))) {
+      Entry entry;
+      while ((entry = in.read()) != null) {
+        entries.add(entry);
+      }
+    }
+    return entries;
+  }
+
+  static void testRoundTrip() throws IOException {
+    List<Entry> decoded = decode(encode(entries()));
+    equal(LINES.size(), decoded.size());
+    for (int i = 0; i < LINES.size(); i++) {
+      equal(Entry.parse(LINES.get(i)).toString(), decoded.get(i).toString());
+      equal(entries().get(i).content().params(), decoded.get(i).content().params());
+    }
+  }
+
+  static void testEmpty() throws IOException {
+    equal(List.of(), decode(encode(List.of())));
+  }
+
+  static void testTextFiles() throws IOException {
+    Path dir = Files.createTempDirectory("jpamb-codec");
+    try {
+      Path text = dir.resolve("cases.txt");
+      Path binary = dir.resolve("cases.bin");
+      Path back = dir.resolve("back.txt");
+      List<String> lines = new ArrayList<>();
+      for (Entry entry : entries()) {
+        lines.add(entry.toString());
+      }
+      Files.write(text, lines);
+      CaseCodec.encode(text, binary);
+      CaseCodec.decode(binary, back);
+      equal(lines, Files.readAllLines(back));
+    } finally {
+      for (String name : List.of("cases.txt", "cases.bin", "back.txt")) {
+        Files.deleteIfExists(dir.resolve(name));
+      }
+      Files.delete(dir);
+    }
+  }
+
+  static void testRejectsOtherStreams() {
+    fails(IOException.class, () -> decode("JPMX\u0001".getBytes()));
+    fails(IOException.class, () -> decode(new byte[] { 'J', 'P', 'M', 'B', 99 }));
+  }
+
+  static void testRejectsTruncatedStreams() throws IOException {
+    byte[] bytes = encode(entries());
+    fails(IOException.class, () -> decode(Arrays.copyOf(bytes, bytes.length - 1)));
+  }
+
+  static byte[] stream(int... body) {
+    byte[] bytes = Arrays.copyOf(CaseCodec.MAGIC, CaseCodec.MAGIC.length + 1 + body.length);
+    bytes[CaseCodec.MAGIC.length] = CaseCodec.VERSION;
+    for (int i = 0; i < body.length; i++) {
+      bytes[CaseCodec.MAGIC.length + 1 + i] = (byte) body[i];
+    }
+    return bytes;
+  }
+
+  static void testRejectsInvalidLengths() {
+    // The length of the id decodes to -1 and to 2^31 - 1.
+    fails(IOException.class, () -> decode(stream(0, 0xff, 0xff, 0xff, 0xff, 0x0f)));
+    fails(IOException.class, () -> decode(stream(0, 0xff, 0xff, 0xff, 0xff, 0x07)));
+    // The id "a" followed by too many params, and by an int array longer than the stream.
+    fails(IOException.class, () -> decode(stream(0, 1, 'a', 0xff, 0xff, 0xff, 0xff, 0x07)));
+    fails(IOException.class, () -> decode(stream(0, 1, 'a', 1, CaseCodec.INT_ARRAY, 4, 0, 0, 0)));
+  }
+}
@@ -0,0 +1,57 @@
+package jpamb.utils;
+
+import static jpamb.Check.equal;
+import static jpamb.Check.fails;
+
+import java.util.List;
+
+import jpamb.Check;
+import jpamb.utils.CaseContent.ResultType;
+import jpamb.utils.InputParser.ParseError;
+
+public class CaseContentTest {
+  public static void main(String[] args) {
+    Check.run(CaseContentTest.class);
+  }
+
+  static final List<String> LINES = List.of(
+      "() -> ok",
+      "(0) -> divide by zero",
+      "(-2147483648, 2147483647) -> assertion error",
+      "(1.5, -0.25) -> ok",
+      "(true, false) -> *",
+      "('a', ' ', ''', '\\') -> null pointer",
+      "(\"foo\", \"\", \"a, (b) - > c\") -> ok",
+      "([I:1, -2, 3], [I:]) -> out of bounds",
+      "([C:'h', 'i'], [C:]) -> ok",
+      "([Z:true, false], [Z:]) -> ok");
+
+  static void testRoundTrip() {
+    for (String line : LINES) {
+      equal(line, CaseContent.parse(line).toString());
+    }
+  }
+
+  static void testParse() {
+    var content = CaseContent.parse("(\"foo\", [I:1, 2]) -> divide by zero");
+    equal(new Object[] { "foo", new int[] { 1, 2 } }, content.params());
+    equal(ResultType.DIVIDE_BY_ZERO, content.result());
+  }
+
+  static void testStringsThatCannotBeWritten() {
+    for (String s : List.of("say \"hi\"", "a\\b", "a->b")) {
+      fails(IllegalArgumentException.class, () -> CaseContent.toInputsString(new Object[] { s }));
+    }
+  }
+
+  static void testStringsThatCannotBeRead() {
+    fails(ParseError.class, () -> CaseContent.parse("(\"a\\b\") -> ok"));
+    fails(ParseError.class, () -> CaseContent.parse("(\"a->b\") -> ok"));
+    fails(ParseError.class, () -> CaseContent.parse("(\"a\"b\") -> ok"));
+  }
+
+  static void testInvalidResults() {
+    fails(RuntimeException.class, () -> CaseContent.parse("(1)"));
+    fails(RuntimeException.class, () -> CaseContent.parse("(1) -> maybe"));
+  }
+}
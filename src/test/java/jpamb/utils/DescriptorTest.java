@@ -0,0 +1,57 @@
+package jpamb.utils;
+
+import static jpamb.Check.check;
+import static jpamb.Check.equal;
+import static jpamb.Check.fails;
+
+import java.util.List;
+
+import jpamb.Check;
+
+public class DescriptorTest {
+  public static void main(String[] args) {
+    Check.run(DescriptorTest.class);
+  }
+
+  static void testParameters() {
+    equal(new Class<?>[0], Descriptor.parameters(""));
+    equal(new Class<?>[] { int.class }, Descriptor.parameters("I"));
+    equal(new Class<?>[] { int.class, char[].class, String.class },
+        Descriptor.parameters("I[CLjava/lang/String;"));
+    equal(new Class<?>[] { long[][].class, boolean.class, double.class },
+        Descriptor.parameters("[[JZD"));
+    equal(new Class<?>[] { byte.class, short.class, float.class, Object[].class },
+        Descriptor.parameters("BSF[Ljava/lang/Object;"));
+  }
+
+  static void testParametersAreShared() {
+    check(Descriptor.parameters("IZ") == Descriptor.parameters("IZ"), "expected the cached array");
+    check(Descriptor.parse("IZ") != Descriptor.parse("IZ"), "expected a fresh array");
+    equal(Descriptor.parameters("IZ"), Descriptor.parse("IZ"));
+  }
+
+  static void testPrintAndParse() {
+    for (Class<?> c : List.of(int.class, boolean.class, double.class, char.class, long.class,
+        float.class, short.class, byte.class, void.class, String.class, int[].class,
+        Object[][].class, String[].class)) {
+      equal(c, Descriptor.type(Descriptor.print(c)));
+    }
+    equal("[[Ljava/lang/String;", Descriptor.print(String[][].class));
+    equal("V", Descriptor.print(void.class));
+  }
+
+  static void testMethod() throws ReflectiveOperationException {
+    equal("(I)I", Descriptor.method(jpamb.cases.Simple.class.getMethod("divideByN", int.class)));
+    equal("([C)Ljava/lang/String;", Descriptor.method(String.class.getMethod("valueOf", char[].class)));
+    equal("()V", Descriptor.method(Object.class.getMethod("notify")));
+  }
+
+  static void testInvalid() {
+    for (String s : List.of("X", "[", "Ljava/lang/String", "IV", "[V")) {
+      fails(IllegalArgumentException.class, () -> Descriptor.parameters(s));
+    }
+    fails(IllegalArgumentException.class, () -> Descriptor.type("II"));
+    fails(IllegalArgumentException.class, () -> Descriptor.type(""));
+    fails(RuntimeException.class, () -> Descriptor.parameters("Lno/such/Klass;"));
+  }
+}
@@ -0,0 +1,80 @@
+package jpamb.utils;
+
+import static jpamb.Check.equal;
+import static jpamb.Check.fails;
+
+import jpamb.Check;
+import jpamb.utils.InputParser.ParseError;
+
+public class InputParserTest {
+  public static void main(String[] args) {
+    Check.run(InputParserTest.class);
+  }
+
+  static void testEmpty() {
+    equal(new Object[0], InputParser.parse("()"));
+    equal(new Object[0], InputParser.parse("  (  )  "));
+  }
+
+  static void testScalars() {
+    equal(new Object[] { 1, -2, 'a', true, false, "str", 1.5 },
+        InputParser.parse("(1, -2, 'a', true, false, \"str\", 1.5)"));
+  }
+
+  static void testArrays() {
+    equal(new Object[] { new int[] { 1, -2 }, new char[] { 'x' }, new boolean[] { true, false } },
+        InputParser.parse("([I:1, -2], [C:'x'], [Z:true, false])"));
+    equal(new Object[] { new int[0], new char[0], new boolean[0] },
+        InputParser.parse("([I:], [C:], [Z:])"));
+  }
+
+  static void testArraysGrowPastTheirBuffer() {
+    var inputs = new StringBuilder("([I:");
+    int[] expected = new int[100];
+    for (int i = 0; i < expected.length; i++) {
+      expected[i] = i;
+      inputs.append(i == 0 ? "" : ", ").append(i);
+    }
+    equal(new Object[] { expected }, InputParser.parse(inputs.append("])").toString()));
+  }
+
+  static void testStringsKeepSeparators() {
+    equal(new Object[] { "a, (b)" }, InputParser.parse("(\"a, (b)\")"));
+  }
+
+  static void testIntegerBounds() {
+    equal(new Object[] { Integer.MAX_VALUE, Integer.MIN_VALUE },
+        InputParser.parse("(2147483647, -2147483648)"));
+  }
+
+  static void testIntegerOverflow() {
+    fails(ParseError.class, () -> InputParser.parse("(2147483648)"));
+    fails(ParseError.class, () -> InputParser.parse("(-2147483649)"));
+    fails(ParseError.class, () -> InputParser.parse("(-21474836480)"));
+    fails(ParseError.class, () -> InputParser.parse("(21474836470)"));
+    fails(ParseError.class, () -> InputParser.parse("(99999999999999999999999)"));
+  }
+
+  static void testLargeDoubles() {
+    equal(new Object[] { 21474836480.5 }, InputParser.parse("(21474836480.5)"));
+  }
+
+  static void testErrors() {
+    fails(ParseError.class, () -> InputParser.parse(""));
+    fails(ParseError.class, () -> InputParser.parse("(1"));
+    fails(ParseError.class, () -> InputParser.parse("(1,)"));
+    fails(ParseError.class, () -> InputParser.parse("(1) 2"));
+    fails(ParseError.class, () -> InputParser.parse("(-)"));
+    fails(ParseError.class, () -> InputParser.parse("(\"open)"));
+    fails(ParseError.class, () -> InputParser.parse("('ab')"));
+    fails(ParseError.class, () -> InputParser.parse("(truth)"));
+    fails(ParseError.class, () -> InputParser.parse("([X:1])"));
+    fails(ParseError.class, () -> InputParser.parse("([I:'a'])"));
+    fails(ParseError.class, () -> InputParser.parse("([I:1, 2)"));
+  }
+
+  static void testErrorsNameTheInput() {
+    var e = fails(ParseError.class, () -> InputParser.parse("(1, ?)"));
+    equal("Unexpected character '?' at 4 in (1, ?)", e.getMessage());
+  }
+}
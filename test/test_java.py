@@ -0,0 +1,41 @@
+"""
+Runs the Java tests in src/test/java, each a class with a main that exits
+with 1 if any of its tests fail.
+"""
+
+import shutil
+import subprocess
+
+import pytest
+
+from pathlib import Path
+
+src = Path("src")
+tests = sorted((src / "test" / "java").rglob("*Test.java"))
+
+pytestmark = pytest.mark.skipif(
+    shutil.which("javac") is None, reason="javac is not available"
+)
+
+
+@pytest.fixture(scope="module")
+def classes(tmp_path_factory):
+    out = tmp_path_factory.mktemp("classes")
+    sources = [str(p) for p in (src / "main" / "java").rglob("*.java")]
+    sources += [str(p) for p in (src / "test" / "java").rglob("*.java")]
+    subprocess.run(
+        ["javac", "--release", "17", "-proc:none", "-d", str(out), *sources],
+        check=True,
+    )
+    return out
+
+
+@pytest.mark.parametrize("test", tests, ids=lambda p: p.stem)
+def test_java(classes, test):
+    name = ".".join(test.relative_to(src / "test" / "java").with_suffix("").parts)
+    result = subprocess.run(
+        ["java", "-ea", "-cp", str(classes), name],
+        capture_output=True,
+        text=True,
+    )
+    assert result.returncode == 0, result.stdout + result.stderr